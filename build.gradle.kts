@@ -8,6 +8,7 @@ plugins {
 	id("org.springframework.boot") version "3.5.6"
 	id("io.spring.dependency-management") version "1.1.7"
     id("org.springdoc.openapi-gradle-plugin") version "1.9.0"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "io.baxter"
@@ -44,22 +45,36 @@ dependencies {
     // spring logging
     implementation("org.springframework.boot:spring-boot-starter-logging")
 
+    // spring metrics
+    implementation("org.springframework.boot:spring-boot-starter-actuator")
+
+    // in process caches
+    implementation("com.github.ben-manes.caffeine:caffeine")
+
     // spring redis connection
     implementation("org.springframework.boot:spring-boot-starter-data-redis-reactive")
 
+    // argon2 password hashing
+    implementation("org.bouncycastle:bcprov-jdk18on:1.80")
+
     // reactive database stack
     implementation("org.springframework.boot:spring-boot-starter-data-r2dbc")
     implementation("io.asyncer:r2dbc-mysql:1.1.0")
+    implementation("io.r2dbc:r2dbc-pool")
 
-    // jwt support
-    implementation("io.jsonwebtoken:jjwt-api:0.11.5")
-    runtimeOnly("io.jsonwebtoken:jjwt-impl:0.11.5")
-    runtimeOnly("io.jsonwebtoken:jjwt-jackson:0.11.5")
 
     // unit testing
     testImplementation("io.projectreactor:reactor-test")
     testImplementation("org.springframework.boot:spring-boot-starter-test")
     testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+
+    // in memory databases standing in for user shards
+    testImplementation("io.r2dbc:r2dbc-h2")
+
+    // benchmarks (the jjwt builder is kept as the baseline the token signer is measured against)
+    jmh("io.jsonwebtoken:jjwt-api:0.11.5")
+    jmh("io.jsonwebtoken:jjwt-impl:0.11.5")
+    jmh("io.jsonwebtoken:jjwt-jackson:0.11.5")
 }
 
 configurations.all {
@@ -79,6 +94,14 @@ openApi {
     customBootRun {}
 }
 
+jmh {
+    jmhVersion.set("1.37")
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    resultFormat.set("JSON")
+}
+
 jacoco {
     toolVersion = "0.8.13"
 }
@@ -119,7 +142,19 @@ tasks.check{
     dependsOn(tasks.jacocoTestCoverageVerification)
 }
 
+springBoot {
+    mainClass.set("io.baxter.authentication.api.Application")
+}
+
 tasks.named<org.springframework.boot.gradle.tasks.run.BootRun>("bootRun") {
     mainClass.set("io.baxter.authentication.api.Application")
 }
 
+tasks.register<JavaExec>("calibratePasswordEncoders") {
+    group = "application"
+    description = "Benchmarks the password encoders on this host and suggests costs for a target verification latency."
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("io.baxter.authentication.infrastructure.auth.hashing.PasswordEncoderCalibration")
+    args = (project.findProperty("calibrationArgs") as String?)?.split(" ")?.filter { it.isNotBlank() } ?: emptyList()
+}
+
@@ -0,0 +1,62 @@
+package io.baxter.authentication.benchmarks;
+
+import io.baxter.authentication.data.cache.RoleCatalog;
+import io.baxter.authentication.data.models.RoleDataModel;
+import io.baxter.authentication.infrastructure.behavior.redis.*;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.redis.serializer.*;
+
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+// compares RefreshTokenCodec with the Jackson2JsonRedisSerializer it replaced for refresh token values in redis
+// run with: ./gradlew jmh -Pjmh.includes=RefreshTokenSerializationBenchmark
+// encoded sizes (and the resulting redis memory per million sessions) are compared in the README
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RefreshTokenSerializationBenchmark {
+    private RedisSerializer<RefreshToken> binary;
+    private RedisSerializer<RefreshToken> json;
+    private RefreshToken token;
+    private byte[] binaryValue;
+    private byte[] jsonValue;
+
+    @Setup
+    public void setup() {
+        var roleCatalog = new RoleCatalog(null, Duration.ofMinutes(5));
+        roleCatalog.update(List.of(new RoleDataModel(1, "ROLE_USER"), new RoleDataModel(2, "ROLE_ADMIN")));
+
+        var now = Instant.now();
+        binary = new RefreshTokenCodec(roleCatalog);
+        json = new Jackson2JsonRedisSerializer<>(RefreshToken.class);
+        token = new RefreshToken(
+                "robert@test.com",
+                List.of("ROLE_USER", "ROLE_ADMIN"),
+                Date.from(now),
+                Date.from(now.plusSeconds(3600)));
+        binaryValue = binary.serialize(token);
+        jsonValue = json.serialize(token);
+    }
+
+    @Benchmark
+    public byte[] serializeBinary() {
+        return binary.serialize(token);
+    }
+
+    @Benchmark
+    public byte[] serializeJson() {
+        return json.serialize(token);
+    }
+
+    @Benchmark
+    public RefreshToken deserializeBinary() {
+        return binary.deserialize(binaryValue);
+    }
+
+    @Benchmark
+    public RefreshToken deserializeJson() {
+        return json.deserialize(jsonValue);
+    }
+}
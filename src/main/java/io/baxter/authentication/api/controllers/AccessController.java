@@ -2,15 +2,20 @@ package io.baxter.authentication.api.controllers;
 
 import io.baxter.authentication.api.models.*;
 import io.baxter.authentication.api.services.AccessService;
-import io.baxter.authentication.infrastructure.behavior.redis.RefreshTokenResponse;
+import io.baxter.authentication.infrastructure.behavior.exceptions.InvalidLoginException;
+import io.baxter.authentication.infrastructure.behavior.redis.*;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.*;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 @Slf4j
 @RestController
 @RequiredArgsConstructor
@@ -56,4 +61,39 @@ public class AccessController {
                                 request.getUserName(),
                                 exception.getMessage()));
     }
+
+    // sessions belong to the caller identified by the access token, one user can never see or revoke another's.
+    // the security chain already requires a token on these routes, a missing principal is still answered with a 401
+    @GetMapping("/sessions")
+    public Mono<ResponseEntity<List<RefreshTokenSession>>> getSessions(@AuthenticationPrincipal Jwt principal){
+        return subject(principal)
+                .flatMap(userName -> accessService.getSessions(userName).collectList())
+                .map(ResponseEntity::ok);
+    }
+
+    @DeleteMapping("/sessions/{sessionId}")
+    public Mono<ResponseEntity<Void>> revokeSession(@AuthenticationPrincipal Jwt principal, @PathVariable String sessionId){
+        return subject(principal)
+                .flatMap(userName -> {
+                    log.info("revoking session {} for user {}", sessionId, userName);
+                    return accessService.revokeSession(userName, sessionId);
+                })
+                .then(Mono.just(ResponseEntity.noContent().<Void>build()));
+    }
+
+    @DeleteMapping("/sessions")
+    public Mono<ResponseEntity<Void>> revokeSessions(@AuthenticationPrincipal Jwt principal){
+        return subject(principal)
+                .flatMap(userName -> {
+                    log.info("revoking all sessions for user {}", userName);
+                    return accessService.revokeSessions(userName);
+                })
+                .then(Mono.just(ResponseEntity.noContent().<Void>build()));
+    }
+
+    private static Mono<String> subject(Jwt principal){
+        return Mono.justOrEmpty(principal)
+                .map(Jwt::getSubject)
+                .switchIfEmpty(Mono.error(new InvalidLoginException()));
+    }
 }
@@ -0,0 +1,29 @@
+package io.baxter.authentication.api.controllers;
+
+import io.baxter.authentication.infrastructure.auth.*;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.*;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "jwt.signing.algorithm", havingValue = AccessTokenSigningConfiguration.ES256)
+@Tag(name = "Keys", description = "Public keys for verifying access tokens.")
+public class JwksController {
+    private final SigningKeyRing signingKeyRing;
+
+    // the document only changes when a key is rotated or published, so clients can cache it and revalidate with the
+    // etag - a matching If-None-Match is answered with 304 Not Modified
+    @GetMapping(value = "/.well-known/jwks.json", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<String>> getKeys(){
+        var document = signingKeyRing.getDocument();
+
+        return Mono.just(ResponseEntity.ok()
+                .eTag(document.etag())
+                .cacheControl(CacheControl.maxAge(signingKeyRing.getJwksMaxAge()).cachePublic())
+                .body(document.json()));
+    }
+}
@@ -0,0 +1,29 @@
+package io.baxter.authentication.api.controllers;
+
+import io.baxter.authentication.api.models.RoleCatalogResponse;
+import io.baxter.authentication.data.cache.RoleCatalog;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+@Tag(name = "Roles", description = "Role catalog administration.")
+@RequestMapping("/api/admin/roles")
+public class RoleCatalogController {
+    private final RoleCatalog roleCatalog;
+
+    // picks up changes to the roles table on this instance without waiting for role-catalog.refresh-interval
+    @PostMapping("/reload")
+    public Mono<ResponseEntity<RoleCatalogResponse>> reload(){
+        return roleCatalog.load()
+                .map(count -> {
+                    log.info("reloaded {} roles into the role catalog", count);
+                    return ResponseEntity.ok(new RoleCatalogResponse(count));
+                });
+    }
+}
@@ -0,0 +1,29 @@
+package io.baxter.authentication.api.controllers;
+
+import io.baxter.authentication.api.models.*;
+import io.baxter.authentication.api.services.UserImportService;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+@Tag(name = "Users", description = "User administration.")
+@RequestMapping("/api/admin/users")
+public class UserImportController {
+    private final UserImportService userImportService;
+
+    // one UserImportRecord per line in, one UserImportResult per line out as each batch is written - the request
+    // body is only read as fast as users are hashed and saved
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<UserImportResult> importUsers(@RequestBody Flux<UserImportRecord> records){
+        log.info("starting user import");
+
+        return userImportService.importUsers(records)
+                .doOnComplete(() -> log.info("user import complete"));
+    }
+}
@@ -0,0 +1,31 @@
+package io.baxter.authentication.api.controllers;
+
+import io.baxter.authentication.api.models.ReshardingProgress;
+import io.baxter.authentication.api.services.UserReshardingService;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+@Tag(name = "Users", description = "User administration.")
+@RequestMapping("/api/admin/shards")
+public class UserShardController {
+    private final UserReshardingService userReshardingService;
+
+    // moves users onto the shards the current ring puts them on, one ReshardingProgress per line as each page of
+    // users is done. ends with an error when users were left on the wrong shard. safe to run again after it was
+    // interrupted
+    @PostMapping(value = "/rebalance", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<ReshardingProgress> rebalance(){
+        log.info("starting user shard rebalance");
+
+        return userReshardingService.rebalance()
+                .doOnComplete(() -> log.info("user shard rebalance complete"))
+                .doOnError(exception -> log.error("user shard rebalance failed", exception));
+    }
+}
@@ -0,0 +1,13 @@
+package io.baxter.authentication.api.models;
+
+import lombok.*;
+
+// running totals for one shard, emitted after every page of its users is rebalanced
+@Getter
+@AllArgsConstructor
+public class ReshardingProgress {
+    String shard;
+    long scanned;
+    long moved;
+    long conflicts;
+}
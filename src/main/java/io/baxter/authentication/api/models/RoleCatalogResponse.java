@@ -0,0 +1,9 @@
+package io.baxter.authentication.api.models;
+
+import lombok.*;
+
+@Getter
+@AllArgsConstructor
+public class RoleCatalogResponse {
+    int roles;
+}
@@ -0,0 +1,22 @@
+package io.baxter.authentication.api.models;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+// one line of a bulk import, validated like a RegistrationRequest - either a plain password, which is hashed under
+// the current encoder policy, or a password hash carried over from another system
+@Getter
+@AllArgsConstructor
+public class UserImportRecord {
+    @Schema(description = "User Email", example = "robert@test.com")
+    String userName;
+
+    @Schema(description = "User Password", example = "b^Rb!?&:nUP5)kT-Bo'oJ9MiJU!^g-Cvz~{[")
+    String password;
+
+    @Schema(description = "Existing password hash, instead of a password", example = "{bcrypt}$2a$10$...")
+    String passwordHash;
+
+    @Schema(description = "User's Access Roles", example = "[\"USER\"]")
+    String[] roles;
+}
@@ -0,0 +1,15 @@
+package io.baxter.authentication.api.models;
+
+import lombok.*;
+
+@Getter
+@AllArgsConstructor
+public class UserImportResult {
+    long line;
+    String userName;
+    Status status;
+    Integer id;
+    String error;
+
+    public enum Status { CREATED, EXISTS, INVALID, FAILED }
+}
@@ -1,11 +1,14 @@
 package io.baxter.authentication.api.services;
 
 import io.baxter.authentication.api.models.*;
-import io.baxter.authentication.infrastructure.behavior.redis.RefreshTokenResponse;
-import reactor.core.publisher.Mono;
+import io.baxter.authentication.infrastructure.behavior.redis.*;
+import reactor.core.publisher.*;
 
 public interface AccessService {
     Mono<RefreshTokenResponse> refreshAccessToken(String refreshToken);
     Mono<LoginResponse> login(LoginRequest request);
     Mono<RegistrationResponse> register(RegistrationRequest request);
+    Flux<RefreshTokenSession> getSessions(String userName);
+    Mono<Void> revokeSession(String userName, String sessionId);
+    Mono<Long> revokeSessions(String userName);
 }
@@ -1,175 +1,243 @@
 package io.baxter.authentication.api.services;
 
 import io.baxter.authentication.api.models.*;
+import io.baxter.authentication.data.cache.*;
 import io.baxter.authentication.data.models.*;
 import io.baxter.authentication.data.repository.*;
 import io.baxter.authentication.infrastructure.auth.*;
+import io.baxter.authentication.infrastructure.behavior.database.*;
 import io.baxter.authentication.infrastructure.behavior.exceptions.*;
+import io.baxter.authentication.infrastructure.behavior.limits.AimdConcurrencyLimiter;
 import io.baxter.authentication.infrastructure.behavior.redis.*;
+import io.baxter.authentication.infrastructure.behavior.sessions.RefreshTokenStore;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.redis.serializer.SerializationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
 import reactor.core.publisher.*;
 
 import java.time.*;
 import java.util.*;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class AccessServiceImpl implements AccessService{
-    private final ReactiveRedisTemplate<String, RefreshToken> redis;
+    private final RefreshTokenStore refreshTokenStore;
     private final JwtTokenGenerator tokenGenerator;
     private final PasswordEncryption passwordEncryption;
     private final Clock clock;
     private final UserRepository userRepository;
-    private final UserRoleRepository userRoleRepository;
     private final RoleRepository roleRepository;
-
-    private static final String REFRESH_TOKEN_FORMAT = "refresh_token:%s";
+    private final LoginPrincipalRepository loginPrincipalRepository;
+    private final RoleCatalog roleCatalog;
+    private final UserRoleBatchRepository userRoleBatchRepository;
+    private final TransactionalOperator transactionalOperator;
+    private final AimdConcurrencyLimiter loginAdmissionLimiter;
+    private final UsernameFilter usernameFilter;
+    private final RefreshTokenPolicy refreshTokenPolicy;
+    private final ReadYourWrites readYourWrites;
+    private final LoginPrincipalCache loginPrincipalCache;
+    private final UserShards userShards;
+    private final RegistrationRoles registrationRoles;
 
     @Override
     public Mono<RefreshTokenResponse> refreshAccessToken(String refreshToken) {
-        var fullRefreshTokenKey = String.format(REFRESH_TOKEN_FORMAT, refreshToken);
-        var memoryCache = redis.opsForValue();
-
-        return memoryCache.get(fullRefreshTokenKey)
+        // the store redeems the presented token and issues its replacement in one step,
+        // so two concurrent refreshes with the same token can never both succeed.
+        // stored roles are role catalog ids, so the catalog is loaded first rather than failing refreshes that arrive
+        // before its first load. a token naming a role the catalog no longer has is refused - the user signs in again
+        return Mono.defer(() -> roleCatalog.isLoaded() ? Mono.<Integer>empty() : roleCatalog.load())
+                .then(Mono.defer(() -> refreshTokenStore.rotate(refreshToken, Instant.now(clock))))
+                .onErrorMap(SerializationException.class, exception -> {
+                    log.error("unable to read refresh token", exception);
+                    return new InvalidLoginException();
+                })
                 .switchIfEmpty(Mono.error(new InvalidLoginException()))
-                .flatMap(token -> {
-                    // delete token and return error if refresh token is expired
-                    if (token.getExpiresAt().toInstant().isBefore(Instant.now(clock))){
-                        return memoryCache.delete(fullRefreshTokenKey)
-                                .then(Mono.error(new InvalidLoginException()));
-                    }
+                .map(rotation -> new RefreshTokenResponse(
+                        rotation.refreshToken(),
+                        tokenGenerator.generateToken(rotation.redeemed().getUserName(), rotation.redeemed().getRoles())));
+    }
 
-                    // generate new access token and build new refresh token
-                    var newAccessToken = tokenGenerator.generateToken(token.getUserName(), token.getRoles());
-                    var newRefreshToken = generateRefreshToken(token.getUserName(), token.getRoles());
-                    var newRefreshTokenKey = UUID.randomUUID().toString();
+    @Override
+    public Flux<RefreshTokenSession> getSessions(String userName) {
+        return refreshTokenStore.sessions(userName, Instant.now(clock));
+    }
 
-                    // delete refresh token from cache
-                    return memoryCache.delete(fullRefreshTokenKey)
-                            .then(memoryCache.set(String.format(REFRESH_TOKEN_FORMAT, newRefreshTokenKey), newRefreshToken))
-                            .thenReturn(new RefreshTokenResponse(newRefreshTokenKey, newAccessToken));
+    @Override
+    public Mono<Void> revokeSession(String userName, String sessionId) {
+        return refreshTokenStore.revoke(userName, sessionId, Instant.now(clock))
+                .flatMap(revoked -> {
+                    if (!Boolean.TRUE.equals(revoked)){
+                        return Mono.error(new ResourceNotFoundException("session", sessionId));
+                    }
+
+                    log.info("revoked session {} for user {}", sessionId, userName);
+                    return Mono.empty();
                 });
     }
 
+    @Override
+    public Mono<Long> revokeSessions(String userName) {
+        return refreshTokenStore.revokeAll(userName, Instant.now(clock))
+                .doOnNext(count -> log.info("revoked {} sessions for user {}", count, userName));
+    }
+
     // find existing user by validating username and password, generating jwt token
     @Override
     public Mono<LoginResponse> login(LoginRequest request) {
-        return userRepository.findByUsername(request.getUserName())
+        // a definite miss in the username filter means the account does not exist, so skip the database.
+        // otherwise the user comes from the login cache, or the user and their role names are read together in one
+        // query on the user's shard, from a read replica unless the user was only just registered
+        Mono<LoginPrincipal> existingUser = usernameFilter.mightExist(request.getUserName())
+            ? loginPrincipalCache.get(request.getUserName(), userName -> userShards.onShardsOf(
+                userName, () -> readYourWrites.read(userName, loginPrincipalRepository.findByUsername(userName))))
+            : Mono.empty();
+
+        return existingUser
             .switchIfEmpty(Mono.defer(() -> {
                 log.error("account not found for email {}", request.getUserName());
-                return Mono.error(new InvalidLoginException());
+
+                // burn a verification so unknown accounts take as long to reject as a wrong password
+                return loginAdmissionLimiter.admit(passwordEncryption.verifyDummyAsync(request.getPassword()))
+                    .then(Mono.error(new InvalidLoginException()));
             }))
-            .flatMap(user -> {
-                if (!passwordEncryption.verify(request.getPassword(), user.getPassword())){
-                    log.error("invalid password used for user {}", request.getUserName());
-                    return Mono.error(new InvalidLoginException());
-                }
-
-                return userRoleRepository.findByUserId(user.getId())
-                    .flatMap(userRole -> {
-                        log.info("found user {}, looking up roles", user.getUsername());
-                        return roleRepository.findById(userRole.getRoleId());
-                    })
-                    .map(RoleDataModel::getName)
-                    .collectList()
-                    .flatMap(roles -> {
-                        log.info("found roles {}, generating token", roles);
-
-                        var token = tokenGenerator.generateToken(request.getUserName(), roles);
-                        var tokenId = UUID.randomUUID().toString();
-                        var refreshTokenKey = String.format(REFRESH_TOKEN_FORMAT, tokenId);
-                        var refreshToken = generateRefreshToken(user.getUsername(), roles);
-
-                        return redis.opsForValue().set(refreshTokenKey, refreshToken)
-                                .map(created -> {
-                                    if (!created){
-                                        log.error("unable to create refresh token for user {}", user.getUsername());
-                                    }
-
-                                    return new LoginResponse(
-                                            user.getId(),
-                                            user.getUsername(),
-                                            user.getUserId(),
-                                            token,
-                                            created ? tokenId : "");
-                                });
-                    });
-            });
+            // password verification runs on the hashing pool (see PasswordEncryption.verifyAsync)
+            // and is only admitted while the limiter has capacity, otherwise the request is shed with a 503
+            .flatMap(user -> loginAdmissionLimiter.admit(passwordEncryption.verifyAsync(request.getPassword(), user.getPassword()))
+                .flatMap(valid -> {
+                    if (!Boolean.TRUE.equals(valid)){
+                        log.error("invalid password used for user {}", request.getUserName());
+                        return Mono.error(new InvalidLoginException());
+                    }
+
+                    if (passwordEncryption.needsUpgrade(user.getPassword())){
+                        upgradePasswordHash(user, request.getPassword());
+                    }
+
+                    var roles = user.getRoles();
+                    log.info("found user {} with roles {}, generating token", user.getUsername(), roles);
+
+                    // the stored username, not the one typed - usernames match case and accent insensitively, and the
+                    // token subject is what the user's sessions are looked up and revoked by
+                    var token = tokenGenerator.generateToken(user.getUsername(), roles);
+                    var now = Instant.now(clock);
+                    var refreshToken = refreshTokenPolicy.issue(user.getUsername(), roles, now);
+
+                    // the store evicts the session on its own once the refresh token expires
+                    return refreshTokenStore.issue(refreshToken, now)
+                            .defaultIfEmpty("")
+                            .map(issued -> {
+                                if (issued.isEmpty()){
+                                    log.error("unable to create refresh token for user {}", user.getUsername());
+                                }
+
+                                return new LoginResponse(
+                                        user.getId(),
+                                        user.getUsername(),
+                                        user.getUserId(),
+                                        token,
+                                        issued);
+                            });
+                }));
     }
 
     // register new user with username and password
     @Override
     public Mono<RegistrationResponse> register(RegistrationRequest request) {
-        log.info("attempting registration for user with username {}", request.getUserName());
-
-        return userRepository.existsByUsername(request.getUserName())
-            .flatMap(exists -> {
-
-                // if username already taken, throw exception (handled by global exception handler to return 409)
-                if (Boolean.TRUE.equals(exists)){
-                    log.error("user already exists with name {}", request.getUserName());
-                    return Mono.error(new ResourceExistsException("User", request.getUserName()));
-                }
-
-                log.info("valid user name provided, validating roles");
-
-                // find roles by name and validate they exist
-                Mono<List<RoleDataModel>> roleDataModels =  Flux.fromArray(request.getRoles())
-                    .flatMap(roleName -> roleRepository.findByName(roleName)
-                        .switchIfEmpty(Mono.error(new ResourceNotFoundException("role", roleName))))
-
-                    // need "collectList" to convert flux<T> to mono<T>
-                    // this allows flatmap to map the entire collection as one object instead of iterating each item
-                    .collectList();
-
-                // encrypt password and persist new user data model
-                // flat map is not iterating roleDataModels, but mapping the entire collection in one function
-                return roleDataModels.flatMap(roles -> {
-                    String hashedPassword = passwordEncryption.encrypt(request.getPassword());
-                    UserDataModel newUser = new UserDataModel(request.getUserName(), hashedPassword);
-
-                    log.info(
-                            "saving user {} with roles {}",
-                            request.getUserName(),
-                            roles.stream().map(RoleDataModel::getName).collect(Collectors.joining(",")));
-
-                    return userRepository.save(newUser)
-                        // result of save is a Mono<user> so flatmap will run against the single result
-                        .flatMap(user -> {
-
-                            log.info("saved user {}", user.getUsername());
-                            List<UserRoleDataModel> userRoles = roles
-                                // in order to iterate the collection roles - we must open a "stream"
-                                // think of this as the equivalent of LINQ lazy loading IEnumerable items
-                                .stream()
-
-                                // map (synchronous) called for each item in collection
-                                .map(role -> new UserRoleDataModel(user.getId(), role.getId()))
-
-                                // we don't want to return the stream, this simply converts to List<T>
-                                .toList();
-
-                            return Flux.fromIterable(userRoles)
-                                // here we are using flatMap on flux
-                                // which WILL iterate each userRole and call userRoleRepository.save for each item
-                                .flatMap(userRoleRepository::save)
-
-                                // return the registered user with newly generated identity
-                                .then(Mono.just(new RegistrationResponse(user.getUsername(), user.getId())));
-                        });
-                    });
-            });
+        log.info("attempting registration for user with username {}, validating roles", request.getUserName());
+
+        // a null or blank role name is never a role, turn it away before it reaches a lookup
+        for (var roleName : request.getRoles()){
+            if (roleName == null || roleName.isBlank()){
+                return Mono.error(new ResourceNotFoundException("role", String.valueOf(roleName)));
+            }
+        }
+
+        // find roles by name and validate they exist. only roles open to self registration are looked up, anything
+        // else is reported the same way as a role that does not exist
+        Mono<List<RoleDataModel>> roleDataModels =  Flux.fromArray(request.getRoles())
+            .flatMap(roleName -> (registrationRoles.isAllowed(roleName) ? findRole(roleName) : Mono.<RoleDataModel>empty())
+                .switchIfEmpty(Mono.error(new ResourceNotFoundException("role", roleName))))
+
+            // need "collectList" to convert flux<T> to mono<T>
+            // this allows flatmap to map the entire collection as one object instead of iterating each item
+            .collectList();
+
+        // encrypt password (on the hashing pool) and persist new user data model. the pool is shared with logins,
+        // so when its queue is full the registration is shed with a 503 the same way an over capacity login is
+        // flat map is not iterating roleDataModels, but mapping the entire collection in one function
+        return roleDataModels.flatMap(roles -> passwordEncryption.encryptAsync(request.getPassword())
+            .onErrorMap(RejectedExecutionException.class, exception -> new ServiceOverloadedException(loginAdmissionLimiter.getRetryAfterSeconds()))
+            .flatMap(hashedPassword -> {
+                UserDataModel newUser = new UserDataModel(request.getUserName(), hashedPassword);
+
+                log.info(
+                        "saving user {} with roles {}",
+                        request.getUserName(),
+                        roles.stream().map(RoleDataModel::getName).collect(Collectors.joining(",")));
+
+                // there is no existence check up front - the unique index on users.username rejects a taken name,
+                // which also means two concurrent registrations of the same name cannot both succeed. the index only
+                // covers one shard, so while resharding the shard the user may not have been moved off yet is asked too
+                Mono<RegistrationResponse> saved = userRepository.save(newUser)
+                    .onErrorMap(DuplicateKeyException.class, exception -> {
+                        log.error("user already exists with name {}", request.getUserName());
+                        return new ResourceExistsException("User", request.getUserName());
+                    })
+                    // result of save is a Mono<user> so flatmap will run against the single result
+                    .flatMap(user -> {
+                        log.info("saved user {}", user.getUsername());
+
+                        // every role is written by one multi row insert
+                        List<Integer> roleIds = roles.stream().map(RoleDataModel::getId).toList();
+
+                        return userRoleBatchRepository.saveAll(user.getId(), roleIds)
+                            // return the registered user with newly generated identity
+                            .thenReturn(new RegistrationResponse(user.getUsername(), user.getId()));
+                    })
+                    // the user and their roles are committed together, or not at all, on the user's shard
+                    .as(transactionalOperator::transactional)
+                    .as(save -> userShards.onShardOf(request.getUserName(), save));
+
+                return userShards.previousShardFor(request.getUserName())
+                    .map(previous -> userShards.onShard(previous, userRepository.existsByUsername(request.getUserName()))
+                        .flatMap(exists -> Boolean.TRUE.equals(exists)
+                            ? Mono.<RegistrationResponse>error(new ResourceExistsException("User", request.getUserName()))
+                            : saved))
+                    .orElse(saved);
+            }))
+            .doOnNext(registration -> readYourWrites.wrote(registration.getUserName()))
+            // the username filter of every instance learns the name before the registration is answered
+            .flatMap(registration -> usernameFilter.add(registration.getUserName())
+                .then(loginPrincipalCache.invalidate(registration.getUserName()))
+                .thenReturn(registration));
     }
 
-    private static RefreshToken generateRefreshToken(String userName, List<String> roles){
-        var issuedDate = new Date();
-        var expiredDate = new Date(issuedDate.getTime() + (60 * 60 * 1000)); // 1 hour later
+    // roles are resolved from the in memory catalog, the database is only asked before the catalog's first load
+    private Mono<RoleDataModel> findRole(String roleName){
+        if (!roleCatalog.isLoaded()){
+            return ReplicaRouting.readOnly(roleRepository.findByName(roleName));
+        }
+
+        return Mono.justOrEmpty(roleCatalog.find(roleName));
+    }
 
-        return new RefreshToken(userName, roles, issuedDate, expiredDate);
+    // rehash with the current encoder policy in the background - the login response does not wait for it
+    private void upgradePasswordHash(LoginPrincipal user, String password){
+        passwordEncryption.encryptAsync(password)
+            // the shard the principal was read from is not kept, while resharding it may still be the previous one
+            .flatMap(hashedPassword -> userShards.onShardsOf(user.getUsername(), () -> userRepository.updatePassword(user.getId(), user.getPassword(), hashedPassword)
+                .filter(updated -> updated > 0))
+                .defaultIfEmpty(0))
+            // the cached principal still holds the old hash
+            .flatMap(updated -> loginPrincipalCache.invalidate(user.getUsername()).thenReturn(updated))
+            .subscribe(
+                updated -> log.info("password hash upgrade for user {} updated {} rows", user.getUsername(), updated),
+                exception -> log.error("unable to upgrade password hash for user {}", user.getUsername(), exception));
     }
 }
@@ -0,0 +1,8 @@
+package io.baxter.authentication.api.services;
+
+import io.baxter.authentication.api.models.*;
+import reactor.core.publisher.Flux;
+
+public interface UserImportService {
+    Flux<UserImportResult> importUsers(Flux<UserImportRecord> records);
+}
@@ -0,0 +1,254 @@
+package io.baxter.authentication.api.services;
+
+import io.baxter.authentication.api.models.*;
+import io.baxter.authentication.api.models.UserImportResult.Status;
+import io.baxter.authentication.data.cache.*;
+import io.baxter.authentication.data.models.*;
+import io.baxter.authentication.data.repository.*;
+import io.baxter.authentication.infrastructure.auth.PasswordEncryption;
+import io.baxter.authentication.infrastructure.behavior.database.*;
+import io.baxter.authentication.infrastructure.behavior.helper.Usernames;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.*;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.*;
+import reactor.core.scheduler.*;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+// bulk user import. records are validated and hashed in parallel on a pool of their own - so an import never
+// competes with logins for the password hashing pool - and written in batches of user-import.batch-size, the users
+// of a batch that belong on the same shard with a multi row users insert plus a multi row user_roles insert in one
+// transaction. only one batch is written at a time, and records are only pulled from the request as fast as they
+// are hashed and written
+@Slf4j
+@Service
+public class UserImportServiceImpl implements UserImportService {
+    // algorithm prefixes written by PasswordEncoders, and plain bcrypt hashes from before the prefixes existed
+    private static final List<String> HASH_PREFIXES = List.of("{bcrypt}", "{pbkdf2}", "{argon2}", "$2a$", "$2b$", "$2y$");
+
+    private final PasswordEncryption passwordEncryption;
+    private final UserBatchRepository userBatchRepository;
+    private final UserRoleBatchRepository userRoleBatchRepository;
+    private final RoleCatalog roleCatalog;
+    private final UsernameFilter usernameFilter;
+    private final ReadYourWrites readYourWrites;
+    private final LoginPrincipalCache loginPrincipalCache;
+    private final UserShards userShards;
+    private final TransactionalOperator transactionalOperator;
+    private final Validator validator;
+    private final Scheduler hashingScheduler;
+    private final int hashingConcurrency;
+    private final int batchSize;
+
+    public UserImportServiceImpl(
+            PasswordEncryption passwordEncryption,
+            UserBatchRepository userBatchRepository,
+            UserRoleBatchRepository userRoleBatchRepository,
+            RoleCatalog roleCatalog,
+            UsernameFilter usernameFilter,
+            ReadYourWrites readYourWrites,
+            LoginPrincipalCache loginPrincipalCache,
+            UserShards userShards,
+            TransactionalOperator transactionalOperator,
+            Validator validator,
+            @Value("${user-import.hashing-threads:0}") int hashingThreads,
+            @Value("${user-import.batch-size:500}") int batchSize){
+        this.passwordEncryption = passwordEncryption;
+        this.userBatchRepository = userBatchRepository;
+        this.userRoleBatchRepository = userRoleBatchRepository;
+        this.roleCatalog = roleCatalog;
+        this.usernameFilter = usernameFilter;
+        this.readYourWrites = readYourWrites;
+        this.loginPrincipalCache = loginPrincipalCache;
+        this.userShards = userShards;
+        this.transactionalOperator = transactionalOperator;
+        this.validator = validator;
+
+        // half the cores by default, leaving the rest for live traffic
+        this.hashingConcurrency = hashingThreads > 0 ? hashingThreads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        this.hashingScheduler = Schedulers.newParallel("user-import-hashing", hashingConcurrency, true);
+        this.batchSize = batchSize;
+    }
+
+    @PreDestroy
+    public void stop(){
+        hashingScheduler.dispose();
+    }
+
+    @Override
+    public Flux<UserImportResult> importUsers(Flux<UserImportRecord> records){
+        return Mono.defer(() -> roleCatalog.isLoaded() ? Mono.<Integer>empty() : roleCatalog.load())
+            .thenMany(records.index())
+            // hashed in parallel, but emitted in the order the records arrived
+            .flatMapSequential(record -> prepare(record.getT1() + 1, record.getT2()), hashingConcurrency)
+            .buffer(batchSize)
+            .concatMap(this::write);
+    }
+
+    private Mono<PendingUser> prepare(long line, UserImportRecord record){
+        var errors = validate(record);
+        if (!errors.isEmpty()){
+            return Mono.just(PendingUser.rejected(new UserImportResult(line, record.getUserName(), Status.INVALID, null, errors)));
+        }
+
+        var roleIds = new ArrayList<Integer>();
+        for (var roleName : record.getRoles()){
+            if (roleName == null || roleName.isBlank()){
+                var error = "role names cannot be blank";
+                return Mono.just(PendingUser.rejected(new UserImportResult(line, record.getUserName(), Status.INVALID, null, error)));
+            }
+
+            var roleId = roleCatalog.idOf(roleName);
+            if (roleId.isEmpty()){
+                var error = String.format("No role found with id %s", roleName);
+                return Mono.just(PendingUser.rejected(new UserImportResult(line, record.getUserName(), Status.INVALID, null, error)));
+            }
+
+            roleIds.add(roleId.get());
+        }
+
+        if (record.getPasswordHash() != null){
+            return Mono.just(new PendingUser(line, record.getUserName(), record.getPasswordHash(), roleIds, null));
+        }
+
+        return Mono.fromCallable(() -> passwordEncryption.encrypt(record.getPassword()))
+            .subscribeOn(hashingScheduler)
+            .map(hash -> new PendingUser(line, record.getUserName(), hash, roleIds, null));
+    }
+
+    // the same constraints as a registration, with a password hash accepted in place of the password
+    private String validate(UserImportRecord record){
+        var errors = validator.validate(new RegistrationRequest(record.getUserName(), record.getPassword(), record.getRoles()))
+            .stream()
+            .map(ConstraintViolation::getMessage)
+            .sorted()
+            .collect(Collectors.toCollection(ArrayList::new));
+
+        var hash = record.getPasswordHash();
+        if ((record.getPassword() == null) == (hash == null)){
+            errors.add("exactly one of password or passwordHash is required");
+        } else if (hash != null && HASH_PREFIXES.stream().noneMatch(hash::startsWith)){
+            errors.add("unsupported password hash format");
+        }
+
+        return String.join(", ", errors);
+    }
+
+    private Flux<UserImportResult> write(List<PendingUser> batch){
+        var pending = batch.stream().filter(user -> user.rejection() == null).toList();
+        if (pending.isEmpty()){
+            return Flux.fromIterable(batch).map(PendingUser::rejection);
+        }
+
+        return taken(pending)
+            .flatMap(taken -> {
+                // the first record for a username that is not taken yet creates it, any others are reported as existing
+                var fresh = new LinkedHashMap<String, PendingUser>();
+                for (var user : pending){
+                    if (!taken.contains(key(user.userName()))){
+                        fresh.putIfAbsent(key(user.userName()), user);
+                    }
+                }
+
+                var shards = fresh.values().stream().collect(Collectors.groupingBy(
+                        user -> userShards.shardFor(user.userName()), LinkedHashMap::new, Collectors.toList()));
+
+                return Flux.fromIterable(shards.entrySet())
+                    .concatMap(shard -> save(shard.getKey(), shard.getValue()))
+                    .collectMap(UserImportResult::getLine)
+                    .map(saved -> batch.stream()
+                        .map(user -> {
+                            if (user.rejection() != null){
+                                return user.rejection();
+                            }
+
+                            if (fresh.get(key(user.userName())) == user){
+                                return saved.get(user.line());
+                            }
+
+                            var error = String.format("User already exists with value %s", user.userName());
+                            return new UserImportResult(user.line(), user.userName(), Status.EXISTS, null, error);
+                        })
+                        .toList());
+            })
+            .onErrorResume(exception -> {
+                log.error("unable to import {} users from line {}", pending.size(), batch.getFirst().line(), exception);
+                return Mono.just(failed(batch));
+            })
+            .flatMapIterable(results -> results);
+    }
+
+    // usernames already in use on the shard each user belongs on, and while resharding on the shard they may not
+    // have been moved off yet
+    private Mono<Set<String>> taken(List<PendingUser> pending){
+        var usernamesByShard = new LinkedHashMap<String, Set<String>>();
+        for (var user : pending){
+            usernamesByShard.computeIfAbsent(userShards.shardFor(user.userName()), shard -> new LinkedHashSet<>()).add(user.userName());
+            userShards.previousShardFor(user.userName())
+                .ifPresent(previous -> usernamesByShard.computeIfAbsent(previous, shard -> new LinkedHashSet<>()).add(user.userName()));
+        }
+
+        return Flux.fromIterable(usernamesByShard.entrySet())
+            .concatMap(shard -> userShards.onShard(shard.getKey(), userBatchRepository.findByUsernames(shard.getValue())))
+            .map(user -> key(user.getUsername()))
+            .collect(Collectors.toSet());
+    }
+
+    // the users of one shard are committed as a whole, so a failure leaves none of them behind
+    private Flux<UserImportResult> save(String shard, List<PendingUser> users){
+        var models = users.stream().map(user -> new UserDataModel(user.userName(), user.hash())).toList();
+
+        return userBatchRepository.insertAll(models)
+            .thenMany(userBatchRepository.findByUsernames(users.stream().map(PendingUser::userName).toList()))
+            .collectMap(user -> key(user.getUsername()), UserDataModel::getId)
+            .flatMap(ids -> {
+                List<UserImportResult> results = new ArrayList<>(users.size());
+                var userRoles = new ArrayList<UserRoleDataModel>();
+
+                for (var user : users){
+                    var id = ids.get(key(user.userName()));
+                    user.roleIds().forEach(roleId -> userRoles.add(new UserRoleDataModel(id, roleId)));
+                    results.add(new UserImportResult(user.line(), user.userName(), Status.CREATED, id, null));
+                }
+
+                return userRoleBatchRepository.saveAll(userRoles).thenReturn(results);
+            })
+            .as(transactionalOperator::transactional)
+            .as(save -> userShards.onShard(shard, save))
+            .doOnNext(results -> results.forEach(result -> readYourWrites.wrote(result.getUserName())))
+            .flatMap(results -> Flux.fromIterable(results)
+                .concatMap(result -> usernameFilter.add(result.getUserName())
+                    .then(loginPrincipalCache.invalidate(result.getUserName())))
+                .then(Mono.just(results)))
+            .onErrorResume(exception -> {
+                log.error("unable to import {} users from line {} on shard {}", users.size(), users.getFirst().line(), shard, exception);
+                return Mono.just(failed(users));
+            })
+            .flatMapIterable(results -> results);
+    }
+
+    private static List<UserImportResult> failed(List<PendingUser> users){
+        return users.stream()
+            .map(user -> user.rejection() != null
+                ? user.rejection()
+                : new UserImportResult(user.line(), user.userName(), Status.FAILED, null, "unable to save user"))
+            .toList();
+    }
+
+    // usernames compare case and accent insensitively in the users table, so two names it treats as equal must
+    // share a key here or the second one reaches the insert and fails the whole shard's batch
+    private static String key(String userName){
+        return Usernames.normalize(userName);
+    }
+
+    private record PendingUser(long line, String userName, String hash, List<Integer> roleIds, UserImportResult rejection){
+        static PendingUser rejected(UserImportResult result){
+            return new PendingUser(result.getLine(), result.getUserName(), null, List.of(), result);
+        }
+    }
+}
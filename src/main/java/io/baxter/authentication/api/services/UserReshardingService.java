@@ -0,0 +1,8 @@
+package io.baxter.authentication.api.services;
+
+import io.baxter.authentication.api.models.ReshardingProgress;
+import reactor.core.publisher.Flux;
+
+public interface UserReshardingService {
+    Flux<ReshardingProgress> rebalance();
+}
@@ -0,0 +1,161 @@
+package io.baxter.authentication.api.services;
+
+import io.baxter.authentication.api.models.ReshardingProgress;
+import io.baxter.authentication.data.models.*;
+import io.baxter.authentication.data.repository.UserShardRepository;
+import io.baxter.authentication.infrastructure.behavior.database.UserShards;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.*;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+// moves every user that is not on the shard the current ring puts them on, while the service keeps running.
+// each shard is paged through by id, database.shards.rebalance-batch-size users at a time, and the misplaced
+// users of a page are copied to their shard - users and user_roles in one transaction there - before they are
+// deleted from the one they were on in a second transaction. ids are kept, so sessions and cached principals stay
+// valid, and until the delete commits logins and password changes still find the user on the old shard (see
+// UserShards.onShardsOf). a user whose username, id or user id is already taken on the target is a conflict:
+// they are logged and left where they are, and the rebalance fails once every shard has been through
+@Slf4j
+@Service
+public class UserReshardingServiceImpl implements UserReshardingService {
+    private final UserShards userShards;
+    private final UserShardRepository userShardRepository;
+    private final TransactionalOperator transactionalOperator;
+    private final int batchSize;
+
+    public UserReshardingServiceImpl(
+            UserShards userShards,
+            UserShardRepository userShardRepository,
+            TransactionalOperator transactionalOperator,
+            @Value("${database.shards.rebalance-batch-size:500}") int batchSize){
+        this.userShards = userShards;
+        this.userShardRepository = userShardRepository;
+        this.transactionalOperator = transactionalOperator;
+        this.batchSize = batchSize;
+    }
+
+    // every shard is rebalanced even when some users conflict, but the rebalance then ends with an error rather than
+    // completing - a conflicting user stays on a shard that logins stop looking at once database.shards.previous is
+    // cleared
+    @Override
+    public Flux<ReshardingProgress> rebalance(){
+        return Flux.defer(() -> {
+            var conflicts = new LinkedHashMap<String, Long>();
+
+            return verifyRoles()
+                .thenMany(Flux.fromIterable(userShards.names()))
+                .concatMap(this::rebalanceShard)
+                .doOnNext(progress -> conflicts.put(progress.getShard(), progress.getConflicts()))
+                .concatWith(Mono.defer(() -> {
+                    var stranded = conflicts.values().stream().mapToLong(Long::longValue).sum();
+                    if (stranded == 0){
+                        return Mono.empty();
+                    }
+
+                    return Mono.error(new IllegalStateException(String.format(
+                            "%d users conflict with users already on their target shard and were not moved, the rebalance is incomplete", stranded)));
+                }));
+        });
+    }
+
+    // user_roles are copied by role id, which only means the same thing on every shard if the roles tables match
+    private Mono<Void> verifyRoles(){
+        return Flux.fromIterable(userShards.names())
+            .concatMap(shard -> userShards.onShard(shard, userShardRepository.findRoles()
+                .collectMap(RoleDataModel::getId, RoleDataModel::getName))
+                .map(roles -> Map.entry(shard, roles)))
+            .collectList()
+            .flatMap(shards -> {
+                var expected = shards.getFirst();
+                for (var shard : shards){
+                    if (!shard.getValue().equals(expected.getValue())){
+                        return Mono.error(new IllegalStateException(String.format(
+                                "roles on shard %s do not match shard %s, users cannot be moved between them", shard.getKey(), expected.getKey())));
+                    }
+                }
+
+                return Mono.empty();
+            });
+    }
+
+    private Flux<ReshardingProgress> rebalanceShard(String shard){
+        log.info("rebalancing users on shard {}", shard);
+
+        return page(shard, 0, new ReshardingProgress(shard, 0, 0, 0))
+            .expand(page -> page.last() ? Mono.empty() : page(shard, page.lastId(), page.progress()))
+            .map(Page::progress)
+            .doOnComplete(() -> log.info("rebalanced users on shard {}", shard));
+    }
+
+    private Mono<Page> page(String shard, int afterId, ReshardingProgress progress){
+        return userShards.onShard(shard, userShardRepository.findPage(afterId, batchSize).collectList())
+            .flatMap(users -> {
+                if (users.isEmpty()){
+                    return Mono.just(new Page(afterId, progress, true));
+                }
+
+                var misplaced = users.stream()
+                    .filter(user -> !userShards.shardFor(user.getUsername()).equals(shard))
+                    .collect(Collectors.groupingBy(user -> userShards.shardFor(user.getUsername()), LinkedHashMap::new, Collectors.toList()));
+
+                return Flux.fromIterable(misplaced.entrySet())
+                    .concatMap(target -> move(shard, target.getKey(), target.getValue()))
+                    .reduce(0, Integer::sum)
+                    .map(moved -> {
+                        var conflicts = misplaced.values().stream().mapToInt(List::size).sum() - moved;
+                        var next = new ReshardingProgress(
+                                shard,
+                                progress.getScanned() + users.size(),
+                                progress.getMoved() + moved,
+                                progress.getConflicts() + conflicts);
+
+                        return new Page(users.getLast().getId(), next, users.size() < batchSize);
+                    });
+            });
+    }
+
+    // emits the number of users moved
+    private Mono<Integer> move(String source, String target, List<ShardUser> users){
+        var ids = users.stream().map(ShardUser::getId).toList();
+        var byUsername = users.stream().collect(Collectors.toMap(ShardUser::getUsername, user -> user));
+
+        return userShards.onShard(source, userShardRepository.findUserRoles(ids).collectList())
+            .flatMap(userRoles -> userShardRepository.insertAll(users)
+                // a row only counts as moved if it is the one that was copied, not a different user that already had the name
+                .thenMany(userShardRepository.findByUsernames(byUsername.keySet()))
+                .filter(landed -> {
+                    var user = byUsername.get(landed.getUsername());
+                    return user != null && user.getId().equals(landed.getId()) && user.getUserId().equals(landed.getUserId());
+                })
+                .map(ShardUser::getId)
+                .collect(Collectors.toSet())
+                .flatMap(landed -> userShardRepository.insertUserRoles(userRoles.stream()
+                        .filter(userRole -> landed.contains(userRole.getUserId()))
+                        .toList())
+                    .thenReturn(landed))
+                .as(transactionalOperator::transactional)
+                .as(copy -> userShards.onShard(target, copy)))
+            .flatMap(landed -> {
+                users.stream()
+                    .filter(user -> !landed.contains(user.getId()))
+                    .forEach(user -> log.warn("unable to move user {} from shard {} to {}, it conflicts with a user already there", user.getId(), source, target));
+
+                if (landed.isEmpty()){
+                    return Mono.just(0);
+                }
+
+                return userShardRepository.deleteAll(landed)
+                    .as(transactionalOperator::transactional)
+                    .as(delete -> userShards.onShard(source, delete))
+                    .thenReturn(landed.size());
+            });
+    }
+
+    private record Page(int lastId, ReshardingProgress progress, boolean last){
+    }
+}
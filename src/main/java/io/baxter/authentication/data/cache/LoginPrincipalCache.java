@@ -0,0 +1,124 @@
+package io.baxter.authentication.data.cache;
+
+import com.github.benmanes.caffeine.cache.*;
+import io.baxter.authentication.data.models.LoginPrincipal;
+import io.baxter.authentication.infrastructure.behavior.helper.Usernames;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.ReactiveSubscription;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.*;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+// bounded in memory cache of login principals (id, user id, password hash and role names) so returning users log
+// in without a database round trip. entries live for login-cache.ttl at most, which also bounds how long another
+// instance can hold a stale entry when invalidations are not shared. misses are not cached - the username filter
+// already turns away unknown accounts.
+// with login-cache.redis-invalidation every invalidation is also published on login_principal_invalidations and
+// applied by every instance listening on it. reported as cache.gets / cache.evictions / cache.load tagged
+// cache=login.principal
+@Slf4j
+@Component
+public class LoginPrincipalCache {
+    private static final String CHANNEL = "login_principal_invalidations";
+
+    private final ReactiveStringRedisTemplate redis;
+    private final AsyncCache<String, LoginPrincipal> cache;
+    private final boolean sharedInvalidation;
+
+    private Disposable invalidations;
+
+    public LoginPrincipalCache(
+            ReactiveStringRedisTemplate redis,
+            MeterRegistry meterRegistry,
+            @Value("${login-cache.enabled:true}") boolean enabled,
+            @Value("${login-cache.maximum-size:100000}") long maximumSize,
+            @Value("${login-cache.ttl:PT5M}") Duration ttl,
+            @Value("${login-cache.redis-invalidation:false}") boolean sharedInvalidation){
+        this.redis = redis;
+        this.sharedInvalidation = enabled && sharedInvalidation;
+
+        if (!enabled){
+            this.cache = null;
+            return;
+        }
+
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "login.principal");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start(){
+        if (!sharedInvalidation){
+            return;
+        }
+
+        invalidations = redis.listenToChannel(CHANNEL)
+            .map(ReactiveSubscription.Message::getMessage)
+            .doOnNext(key -> cache.synchronous().invalidate(key))
+            // entries published while the subscription is down are only dropped by the ttl
+            .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30))
+                .doBeforeRetry(signal -> log.error("login cache invalidation subscription failed, resubscribing", signal.failure())))
+            .subscribe();
+    }
+
+    @PreDestroy
+    public void stop(){
+        if (invalidations != null){
+            invalidations.dispose();
+        }
+    }
+
+    // concurrent misses for the same user share one load, and a caller cancelling does not cancel it for the others
+    public Mono<LoginPrincipal> get(String username, Function<String, Mono<LoginPrincipal>> loader){
+        if (cache == null){
+            return loader.apply(username);
+        }
+
+        return Mono.fromFuture(() -> cache.get(key(username), (key, executor) -> loader.apply(username).toFuture()), true);
+    }
+
+    // drops the user here and, when invalidations are shared, on every other instance. a failed publish is logged
+    // rather than failing the write that caused it
+    public Mono<Void> invalidate(String username){
+        if (cache == null){
+            return Mono.empty();
+        }
+
+        return Mono.defer(() -> {
+            var key = key(username);
+            cache.synchronous().invalidate(key);
+
+            if (!sharedInvalidation){
+                return Mono.empty();
+            }
+
+            return redis.convertAndSend(CHANNEL, key)
+                .onErrorResume(exception -> {
+                    log.error("unable to publish login cache invalidation for user {}", username, exception);
+                    return Mono.empty();
+                })
+                .then();
+        });
+    }
+
+    // usernames compare case and accent insensitively in the users table, any spelling of a name shares its key
+    private static String key(String username){
+        return Usernames.normalize(username);
+    }
+}
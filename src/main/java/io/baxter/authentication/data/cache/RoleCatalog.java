@@ -0,0 +1,117 @@
+package io.baxter.authentication.data.cache;
+
+import io.baxter.authentication.data.models.RoleDataModel;
+import io.baxter.authentication.data.repository.RoleRepository;
+import io.baxter.authentication.infrastructure.behavior.database.ReplicaRouting;
+import io.baxter.authentication.infrastructure.behavior.helper.Usernames;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.*;
+
+import java.time.Duration;
+import java.util.*;
+
+// in memory copy of the roles table so role names and ids can be translated without a database round trip.
+// loaded once the application is ready and reloaded every role-catalog.refresh-interval (or on demand through
+// RoleCatalogController), each load swapping in a new immutable snapshot as a whole.
+// until the first load completes every lookup misses - see isLoaded
+@Slf4j
+@Component
+public class RoleCatalog {
+    private final RoleRepository roleRepository;
+    private final Duration refreshInterval;
+
+    private volatile Snapshot snapshot = new Snapshot(Map.of(), Map.of(), false);
+    private Disposable refreshes;
+
+    public RoleCatalog(
+            RoleRepository roleRepository,
+            @Value("${role-catalog.refresh-interval:PT5M}") Duration refreshInterval){
+        this.roleRepository = roleRepository;
+        this.refreshInterval = refreshInterval;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start(){
+        refreshes = Flux.interval(Duration.ZERO, refreshInterval)
+            .onBackpressureDrop()
+            .concatMap(tick -> load()
+                .doOnNext(count -> log.debug("loaded {} roles into the role catalog", count))
+                .onErrorResume(exception -> {
+                    log.error("unable to load role catalog", exception);
+                    return Mono.empty();
+                }))
+            .subscribe();
+    }
+
+    @PreDestroy
+    public void stop(){
+        if (refreshes != null){
+            refreshes.dispose();
+        }
+    }
+
+    // reads the roles table (from a read replica when there are any) and swaps it in as a whole, emitting the
+    // number of roles loaded
+    public Mono<Integer> load(){
+        return ReplicaRouting.readOnly(roleRepository.findAll())
+            .collectList()
+            .map(roles -> {
+                update(roles);
+                return roles.size();
+            });
+    }
+
+    public void update(Collection<RoleDataModel> roles){
+        var ids = new HashMap<String, Integer>();
+        var names = new HashMap<Integer, String>();
+
+        for (var role : roles){
+            ids.put(normalize(role.getName()), role.getId());
+            names.put(role.getId(), role.getName());
+        }
+
+        snapshot = new Snapshot(Map.copyOf(ids), Map.copyOf(names), true);
+    }
+
+    public boolean isLoaded(){
+        return snapshot.loaded();
+    }
+
+    public Optional<Integer> idOf(String name){
+        // the snapshot maps are immutable copies, which throw on a null key rather than missing
+        if (name == null){
+            return Optional.empty();
+        }
+
+        return Optional.ofNullable(snapshot.ids().get(normalize(name)));
+    }
+
+    // the role as the catalog holds it, whatever case or accents the name was given in
+    public Optional<RoleDataModel> find(String name){
+        if (name == null){
+            return Optional.empty();
+        }
+
+        var current = snapshot;
+        return Optional.ofNullable(current.ids().get(normalize(name)))
+            .map(id -> new RoleDataModel(id, current.names().get(id)));
+    }
+
+    public Optional<String> nameOf(int id){
+        return Optional.ofNullable(snapshot.names().get(id));
+    }
+
+    // the roles table has the same case and accent insensitive collation as the users table, so names are looked up
+    // the way mysql would compare them
+    public static String normalize(String name){
+        return Usernames.normalize(name);
+    }
+
+    private record Snapshot(Map<String, Integer> ids, Map<Integer, String> names, boolean loaded){}
+}
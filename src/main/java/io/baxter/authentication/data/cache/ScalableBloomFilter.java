@@ -0,0 +1,149 @@
+package io.baxter.authentication.data.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+// bloom filter that grows by adding slices - each new slice doubles the capacity of the previous one and halves its
+// false positive rate, so the compounded rate stays under the configured target however many keys are added
+// adds and lookups are lock free, only growing the filter takes a lock
+public class ScalableBloomFilter {
+    private static final int GROWTH_FACTOR = 2;
+    private static final double TIGHTENING_RATIO = 0.5;
+
+    private volatile List<Slice> slices;
+
+    public ScalableBloomFilter(long initialCapacity, double falsePositiveRate){
+        if (initialCapacity < 1 || falsePositiveRate <= 0 || falsePositiveRate >= 1){
+            throw new IllegalArgumentException("capacity must be positive and false positive rate between 0 and 1");
+        }
+
+        // the series p0 + p0 * r + p0 * r^2 ... converges to p0 / (1 - r), so start at target * (1 - r)
+        this.slices = List.of(new Slice(initialCapacity, falsePositiveRate * (1 - TIGHTENING_RATIO)));
+    }
+
+    public void add(String key){
+        long h1 = hash(key, 0L);
+        long h2 = hash(key, 0x9E3779B97F4A7C15L) | 1L;
+
+        var slice = slices.getLast();
+        if (slice.count.get() >= slice.capacity){
+            slice = grow(slice);
+        }
+
+        slice.add(h1, h2);
+    }
+
+    // false means the key was definitely never added, true means it probably was
+    public boolean mightContain(String key){
+        long h1 = hash(key, 0L);
+        long h2 = hash(key, 0x9E3779B97F4A7C15L) | 1L;
+
+        for (var slice : slices){
+            if (slice.mightContain(h1, h2)){
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    public long size(){
+        return slices.stream().mapToLong(slice -> slice.count.get()).sum();
+    }
+
+    public long memoryBytes(){
+        return slices.stream().mapToLong(slice -> slice.words.length() * (long) Long.BYTES).sum();
+    }
+
+    // estimated from the number of insertions, 1 - product of (1 - p) across slices
+    public double expectedFalsePositiveRate(){
+        double trueNegative = 1.0;
+
+        for (var slice : slices){
+            trueNegative *= 1 - slice.expectedFalsePositiveRate();
+        }
+
+        return 1 - trueNegative;
+    }
+
+    private synchronized Slice grow(Slice full){
+        var current = slices;
+        var last = current.getLast();
+
+        // another thread already grew the filter
+        if (last != full){
+            return last;
+        }
+
+        var next = new ArrayList<>(current);
+        next.add(new Slice(full.capacity * GROWTH_FACTOR, full.falsePositiveRate * TIGHTENING_RATIO));
+        slices = List.copyOf(next);
+
+        return next.getLast();
+    }
+
+    // fnv-1a over the utf-8 bytes finished with the murmur3 64 bit mixer, two seeds give the two hashes
+    // used for double hashing (index_i = h1 + i * h2)
+    private static long hash(String key, long seed){
+        long hash = 0xcbf29ce484222325L ^ seed;
+
+        for (byte value : key.getBytes(StandardCharsets.UTF_8)){
+            hash ^= value & 0xff;
+            hash *= 0x100000001b3L;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+
+        return hash;
+    }
+
+    private static final class Slice {
+        private final long capacity;
+        private final double falsePositiveRate;
+        private final long bitCount;
+        private final int hashCount;
+        private final AtomicLongArray words;
+        private final AtomicLong count = new AtomicLong();
+
+        private Slice(long capacity, double falsePositiveRate){
+            double ln2 = Math.log(2);
+
+            this.capacity = capacity;
+            this.falsePositiveRate = falsePositiveRate;
+            this.words = new AtomicLongArray((int) Math.ceil(
+                    Math.max(Long.SIZE, -capacity * Math.log(falsePositiveRate) / (ln2 * ln2)) / Long.SIZE));
+            this.bitCount = words.length() * (long) Long.SIZE;
+            this.hashCount = Math.max(1, (int) Math.round((double) bitCount / capacity * ln2));
+        }
+
+        private void add(long h1, long h2){
+            for (int i = 0; i < hashCount; i++){
+                long bit = Math.floorMod(h1 + i * h2, bitCount);
+                words.getAndAccumulate((int) (bit >>> 6), 1L << bit, (current, mask) -> current | mask);
+            }
+
+            count.incrementAndGet();
+        }
+
+        private boolean mightContain(long h1, long h2){
+            for (int i = 0; i < hashCount; i++){
+                long bit = Math.floorMod(h1 + i * h2, bitCount);
+
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0){
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        private double expectedFalsePositiveRate(){
+            return Math.pow(1 - Math.exp(-hashCount * (double) count.get() / bitCount), hashCount);
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package io.baxter.authentication.data.cache;
+
+import io.baxter.authentication.data.repository.UserRepository;
+import io.baxter.authentication.infrastructure.behavior.database.UserShards;
+import io.baxter.authentication.infrastructure.behavior.helper.Usernames;
+import io.micrometer.core.instrument.*;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.ReactiveSubscription;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.*;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+// in memory bloom filter of every username, used to turn away logins for accounts that definitely do not exist
+// without a database round trip. the filter is streamed from the users table once the application is ready and
+// rebuilt on an interval - until the first load completes (or when disabled) every username is reported as
+// possibly existing.
+// with username.filter.sharing=redis (the default) every added username is also published on
+// username_filter_additions and added by every instance listening on it, so a user registered through one instance
+// can log in through any other straight away. a miss is only trusted once a rebuild has run start to finish while
+// the subscription was up - while it is down every username is reported as possibly existing, because additions
+// published in the meantime are lost. sharing=none trusts misses as soon as the filter is loaded, which is only
+// correct when a single instance takes registrations
+@Slf4j
+@Component
+public class UsernameFilter {
+    private static final String CHANNEL = "username_filter_additions";
+
+    private final UserRepository userRepository;
+    private final UserShards userShards;
+    private final ReactiveStringRedisTemplate redis;
+    private final boolean enabled;
+    private final boolean shared;
+    private final long expectedUsers;
+    private final double falsePositiveRate;
+    private final Duration rebuildInterval;
+
+    // tags published additions so an instance does not add its own twice
+    private final String instanceId = UUID.randomUUID().toString();
+    private final Sinks.Many<Long> resubscribed = Sinks.many().multicast().directBestEffort();
+    private final AtomicLong subscriptionDrops = new AtomicLong();
+
+    private volatile ScalableBloomFilter current;
+    private volatile ScalableBloomFilter building;
+    private volatile boolean listening;
+    private volatile boolean trusted;
+    private Disposable rebuilds;
+    private Disposable additions;
+
+    public UsernameFilter(
+            UserRepository userRepository,
+            UserShards userShards,
+            ReactiveStringRedisTemplate redis,
+            MeterRegistry meterRegistry,
+            @Value("${username.filter.enabled:true}") boolean enabled,
+            @Value("${username.filter.sharing:redis}") String sharing,
+            @Value("${username.filter.expected-users:100000}") long expectedUsers,
+            @Value("${username.filter.false-positive-rate:0.01}") double falsePositiveRate,
+            @Value("${username.filter.rebuild-interval:PT15M}") Duration rebuildInterval){
+        if (!"redis".equals(sharing) && !"none".equals(sharing)){
+            throw new IllegalArgumentException("username.filter.sharing must be redis or none, was " + sharing);
+        }
+
+        this.userRepository = userRepository;
+        this.userShards = userShards;
+        this.redis = redis;
+        this.enabled = enabled;
+        this.shared = "redis".equals(sharing);
+        this.expectedUsers = expectedUsers;
+        this.falsePositiveRate = falsePositiveRate;
+        this.rebuildInterval = rebuildInterval;
+
+        Gauge.builder("username.filter.memory", this, filter -> filter.current == null ? 0 : filter.current.memoryBytes())
+                .baseUnit("bytes")
+                .description("memory held by the username bloom filter")
+                .register(meterRegistry);
+
+        Gauge.builder("username.filter.false-positive-rate", this, filter -> filter.current == null ? 0 : filter.current.expectedFalsePositiveRate())
+                .description("estimated false positive rate of the username bloom filter")
+                .register(meterRegistry);
+
+        Gauge.builder("username.filter.size", this, filter -> filter.current == null ? 0 : filter.current.size())
+                .description("usernames added to the bloom filter")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start(){
+        if (!enabled){
+            log.info("username filter disabled");
+            return;
+        }
+
+        // a rebuild also runs whenever the subscription comes back, so misses are trusted again without waiting out
+        // the interval. a tick that arrives mid rebuild is kept, the rebuild in progress may have started too early
+        rebuilds = Flux.merge(Flux.interval(Duration.ZERO, rebuildInterval), resubscribed.asFlux())
+            .onBackpressureLatest()
+            .concatMap(tick -> rebuild().onErrorResume(exception -> {
+                log.error("unable to rebuild username filter", exception);
+                return Mono.empty();
+            }))
+            .subscribe();
+
+        if (shared){
+            listen();
+        }
+    }
+
+    private void listen(){
+        additions = Mono.defer(() -> redis.listenToChannelLater(CHANNEL))
+            .flatMapMany(messages -> {
+                // the subscription is registered, anything published from here on is received
+                listening = true;
+                resubscribed.tryEmitNext(subscriptionDrops.get());
+                return messages;
+            })
+            .map(ReactiveSubscription.Message::getMessage)
+            .doOnNext(this::received)
+            .doOnError(exception -> {
+                listening = false;
+                trusted = false;
+                subscriptionDrops.incrementAndGet();
+            })
+            .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30))
+                .doBeforeRetry(signal -> log.error("username filter subscription failed, resubscribing", signal.failure())))
+            .subscribe();
+    }
+
+    @PreDestroy
+    public void stop(){
+        if (rebuilds != null){
+            rebuilds.dispose();
+        }
+
+        if (additions != null){
+            additions.dispose();
+        }
+    }
+
+    // streams every username, from every shard, into a fresh filter and swaps it in, registrations that happen
+    // while the rebuild is running are added to both filters so nothing is lost in the swap
+    public Mono<Void> rebuild(){
+        return Mono.defer(() -> {
+            var next = new ScalableBloomFilter(expectedUsers, falsePositiveRate);
+            building = next;
+
+            // usernames committed before the read below are in it, anything after is published - as long as the
+            // subscription stays up until the swap
+            var drops = subscriptionDrops.get();
+            var wasListening = listening;
+
+            return Flux.fromIterable(userShards.names())
+                .concatMap(shard -> userShards.onShard(shard, userRepository.findAllUsernames()))
+                .doOnNext(username -> next.add(normalize(username)))
+                .then(Mono.fromRunnable(() -> {
+                    current = next;
+                    trusted = !shared || (wasListening && subscriptionDrops.get() == drops);
+                    log.info("username filter loaded {} users using {} bytes", next.size(), next.memoryBytes());
+                }))
+                .doFinally(signal -> building = null)
+                .then();
+        });
+    }
+
+    public boolean mightExist(String username){
+        var filter = current;
+        var key = normalize(username);
+
+        if (filter == null || !trusted || !isAscii(key)){
+            return true;
+        }
+
+        return filter.mightContain(key);
+    }
+
+    // adds the user here and, when sharing, on every other instance. a failed publish is logged rather than failing
+    // the write that caused it - the other instances pick the user up at their next rebuild
+    public Mono<Void> add(String username){
+        return Mono.defer(() -> {
+            var key = normalize(username);
+            addLocally(key);
+
+            if (!enabled || !shared){
+                return Mono.empty();
+            }
+
+            return redis.convertAndSend(CHANNEL, instanceId + " " + key)
+                .onErrorResume(exception -> {
+                    log.error("unable to publish username filter addition for user {}", username, exception);
+                    return Mono.empty();
+                })
+                .then();
+        });
+    }
+
+    private void received(String message){
+        var separator = message.indexOf(' ');
+        if (separator < 0 || message.substring(0, separator).equals(instanceId)){
+            return;
+        }
+
+        addLocally(message.substring(separator + 1));
+    }
+
+    private void addLocally(String key){
+        var filter = current;
+        if (filter != null){
+            filter.add(key);
+        }
+
+        var next = building;
+        if (next != null){
+            next.add(key);
+        }
+    }
+
+    // lookups must fold the same way as the users table or the filter would report false negatives. folding beyond
+    // ascii is not exact, so those names bypass the filter
+    private static String normalize(String username){
+        return Usernames.normalize(username);
+    }
+
+    private static boolean isAscii(String key){
+        return key.chars().allMatch(character -> character < 128);
+    }
+}
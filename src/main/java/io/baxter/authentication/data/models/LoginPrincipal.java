@@ -0,0 +1,16 @@
+package io.baxter.authentication.data.models;
+
+import lombok.*;
+
+import java.util.*;
+
+// what login needs to know about a user, read in one query by LoginPrincipalRepository
+@Getter
+@AllArgsConstructor
+public class LoginPrincipal {
+    Integer id;
+    UUID userId;
+    String username;
+    String password;
+    List<String> roles;
+}
@@ -0,0 +1,15 @@
+package io.baxter.authentication.data.models;
+
+import lombok.*;
+
+import java.util.UUID;
+
+// a users row as it is copied between shards, ids included, by UserShardRepository
+@Getter
+@AllArgsConstructor
+public class ShardUser {
+    Integer id;
+    UUID userId;
+    String username;
+    String password;
+}
@@ -0,0 +1,51 @@
+package io.baxter.authentication.data.repository;
+
+import io.baxter.authentication.data.models.LoginPrincipal;
+import io.baxter.authentication.infrastructure.behavior.database.TimeOrderedUuid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.util.*;
+
+// reads a user together with their role names in a single round trip - one row per role (or one row with a
+// null role for a user without any), folded into a LoginPrincipal
+@Repository
+@RequiredArgsConstructor
+public class LoginPrincipalRepository {
+    private static final String FIND_BY_USERNAME = """
+            SELECT u.id, u.user_id, u.username, u.password, r.name AS role_name
+            FROM users u
+            LEFT JOIN user_roles ur ON ur.user_id = u.id
+            LEFT JOIN roles r ON r.id = ur.role_id
+            WHERE u.username = :username""";
+
+    private final DatabaseClient databaseClient;
+
+    public Mono<LoginPrincipal> findByUsername(String username){
+        return databaseClient.sql(FIND_BY_USERNAME)
+                .bind("username", username)
+                .map((row, metadata) -> new Row(
+                        row.get("id", Integer.class),
+                        TimeOrderedUuid.fromBytes(row.get("user_id", byte[].class)),
+                        row.get("username", String.class),
+                        row.get("password", String.class),
+                        row.get("role_name", String.class)))
+                .all()
+                .collectList()
+                .flatMap(rows -> rows.isEmpty() ? Mono.empty() : Mono.just(principal(rows)));
+    }
+
+    private static LoginPrincipal principal(List<Row> rows){
+        var user = rows.getFirst();
+        var roles = rows.stream()
+                .map(Row::roleName)
+                .filter(Objects::nonNull)
+                .toList();
+
+        return new LoginPrincipal(user.id(), user.userId(), user.username(), user.password(), roles);
+    }
+
+    private record Row(Integer id, UUID userId, String username, String password, String roleName){}
+}
@@ -0,0 +1,52 @@
+package io.baxter.authentication.data.repository;
+
+import io.baxter.authentication.data.models.UserDataModel;
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.*;
+
+import java.util.*;
+import java.util.stream.*;
+
+// multi row user statements for bulk imports, see UserImportServiceImpl
+@Repository
+@RequiredArgsConstructor
+public class UserBatchRepository {
+    private final DatabaseClient databaseClient;
+
+    // inserts every user in one statement, emitting the number of rows inserted
+    public Mono<Long> insertAll(List<UserDataModel> users){
+        if (users.isEmpty()){
+            return Mono.just(0L);
+        }
+
+        var values = IntStream.range(0, users.size())
+                .mapToObj(index -> "(:username" + index + ", :password" + index + ")")
+                .collect(Collectors.joining(", "));
+
+        var statement = databaseClient.sql("INSERT INTO users (username, password) VALUES " + values);
+        for (int index = 0; index < users.size(); index++){
+            statement = statement
+                    .bind("username" + index, users.get(index).getUsername())
+                    .bind("password" + index, users.get(index).getPassword());
+        }
+
+        return statement.fetch().rowsUpdated();
+    }
+
+    public Flux<UserDataModel> findByUsernames(Collection<String> usernames){
+        if (usernames.isEmpty()){
+            return Flux.empty();
+        }
+
+        return databaseClient.sql("SELECT id, username FROM users WHERE username IN (:usernames)")
+                .bind("usernames", usernames)
+                .map(row -> {
+                    var user = new UserDataModel(row.get("username", String.class), null);
+                    user.setId(row.get("id", Integer.class));
+                    return user;
+                })
+                .all();
+    }
+}
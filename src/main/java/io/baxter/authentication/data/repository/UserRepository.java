@@ -1,12 +1,21 @@
 package io.baxter.authentication.data.repository;
 
 import io.baxter.authentication.data.models.UserDataModel;
+import org.springframework.data.r2dbc.repository.*;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
-import reactor.core.publisher.Mono;
+import reactor.core.publisher.*;
 
 @Repository
 public interface UserRepository extends ReactiveCrudRepository<UserDataModel, Integer> {
     Mono<Boolean> existsByUsername(String username);
     Mono<UserDataModel> findByUsername(String username);
+
+    @Query("SELECT username FROM users")
+    Flux<String> findAllUsernames();
+
+    // only replaces the hash if it has not changed since it was read, so a concurrent password change always wins
+    @Modifying
+    @Query("UPDATE users SET password = :newPassword WHERE id = :id AND password = :currentPassword")
+    Mono<Integer> updatePassword(Integer id, String currentPassword, String newPassword);
 }
@@ -0,0 +1,41 @@
+package io.baxter.authentication.data.repository;
+
+import io.baxter.authentication.data.models.UserRoleDataModel;
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.stream.*;
+
+// writes user roles with one multi row INSERT rather than a statement per role
+@Repository
+@RequiredArgsConstructor
+public class UserRoleBatchRepository {
+    private final DatabaseClient databaseClient;
+
+    // emits the number of rows inserted
+    public Mono<Long> saveAll(Integer userId, List<Integer> roleIds){
+        return saveAll(roleIds.stream().map(roleId -> new UserRoleDataModel(userId, roleId)).toList());
+    }
+
+    public Mono<Long> saveAll(List<UserRoleDataModel> userRoles){
+        if (userRoles.isEmpty()){
+            return Mono.just(0L);
+        }
+
+        var values = IntStream.range(0, userRoles.size())
+                .mapToObj(index -> "(:user" + index + ", :role" + index + ")")
+                .collect(Collectors.joining(", "));
+
+        var statement = databaseClient.sql("INSERT INTO user_roles (user_id, role_id) VALUES " + values);
+        for (int index = 0; index < userRoles.size(); index++){
+            statement = statement
+                    .bind("user" + index, userRoles.get(index).getUserId())
+                    .bind("role" + index, userRoles.get(index).getRoleId());
+        }
+
+        return statement.fetch().rowsUpdated();
+    }
+}
@@ -0,0 +1,122 @@
+package io.baxter.authentication.data.repository;
+
+import io.baxter.authentication.data.models.*;
+import io.baxter.authentication.infrastructure.behavior.database.TimeOrderedUuid;
+import io.r2dbc.spi.Readable;
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.*;
+
+import java.util.*;
+import java.util.stream.*;
+
+// statements for moving users between shards, see UserReshardingServiceImpl. each runs on whichever shard the
+// caller marked with UserShards.onShard. rows keep their ids when they move, so the inserts are INSERT IGNORE and
+// a copy that was interrupted can be run again
+@Repository
+@RequiredArgsConstructor
+public class UserShardRepository {
+    private final DatabaseClient databaseClient;
+
+    // up to limit users with an id above afterId, in id order
+    public Flux<ShardUser> findPage(int afterId, int limit){
+        return databaseClient.sql("SELECT id, user_id, username, password FROM users WHERE id > :afterId ORDER BY id LIMIT :limit")
+                .bind("afterId", afterId)
+                .bind("limit", limit)
+                .map(UserShardRepository::user)
+                .all();
+    }
+
+    public Flux<ShardUser> findByUsernames(Collection<String> usernames){
+        if (usernames.isEmpty()){
+            return Flux.empty();
+        }
+
+        return databaseClient.sql("SELECT id, user_id, username, password FROM users WHERE username IN (:usernames)")
+                .bind("usernames", usernames)
+                .map(UserShardRepository::user)
+                .all();
+    }
+
+    public Flux<UserRoleDataModel> findUserRoles(Collection<Integer> userIds){
+        if (userIds.isEmpty()){
+            return Flux.empty();
+        }
+
+        return databaseClient.sql("SELECT user_id, role_id FROM user_roles WHERE user_id IN (:userIds)")
+                .bind("userIds", userIds)
+                .map(row -> new UserRoleDataModel(row.get("user_id", Integer.class), row.get("role_id", Integer.class)))
+                .all();
+    }
+
+    public Flux<RoleDataModel> findRoles(){
+        return databaseClient.sql("SELECT id, name FROM roles ORDER BY id")
+                .map(row -> new RoleDataModel(row.get("id", Integer.class), row.get("name", String.class)))
+                .all();
+    }
+
+    // emits the number of rows inserted, users whose id, user id or username is already taken are skipped
+    public Mono<Long> insertAll(List<ShardUser> users){
+        if (users.isEmpty()){
+            return Mono.just(0L);
+        }
+
+        var values = IntStream.range(0, users.size())
+                .mapToObj(index -> "(:id" + index + ", :userId" + index + ", :username" + index + ", :password" + index + ")")
+                .collect(Collectors.joining(", "));
+
+        var statement = databaseClient.sql("INSERT IGNORE INTO users (id, user_id, username, password) VALUES " + values);
+        for (int index = 0; index < users.size(); index++){
+            statement = statement
+                    .bind("id" + index, users.get(index).getId())
+                    .bind("userId" + index, TimeOrderedUuid.toBytes(users.get(index).getUserId()))
+                    .bind("username" + index, users.get(index).getUsername())
+                    .bind("password" + index, users.get(index).getPassword());
+        }
+
+        return statement.fetch().rowsUpdated();
+    }
+
+    public Mono<Long> insertUserRoles(List<UserRoleDataModel> userRoles){
+        if (userRoles.isEmpty()){
+            return Mono.just(0L);
+        }
+
+        var values = IntStream.range(0, userRoles.size())
+                .mapToObj(index -> "(:user" + index + ", :role" + index + ")")
+                .collect(Collectors.joining(", "));
+
+        var statement = databaseClient.sql("INSERT IGNORE INTO user_roles (user_id, role_id) VALUES " + values);
+        for (int index = 0; index < userRoles.size(); index++){
+            statement = statement
+                    .bind("user" + index, userRoles.get(index).getUserId())
+                    .bind("role" + index, userRoles.get(index).getRoleId());
+        }
+
+        return statement.fetch().rowsUpdated();
+    }
+
+    // removes the users and their roles, emitting the number of users deleted
+    public Mono<Long> deleteAll(Collection<Integer> userIds){
+        if (userIds.isEmpty()){
+            return Mono.just(0L);
+        }
+
+        return databaseClient.sql("DELETE FROM user_roles WHERE user_id IN (:userIds)")
+                .bind("userIds", userIds)
+                .then()
+                .then(databaseClient.sql("DELETE FROM users WHERE id IN (:userIds)")
+                        .bind("userIds", userIds)
+                        .fetch()
+                        .rowsUpdated());
+    }
+
+    private static ShardUser user(Readable row){
+        return new ShardUser(
+                row.get("id", Integer.class),
+                TimeOrderedUuid.fromBytes(row.get("user_id", byte[].class)),
+                row.get("username", String.class),
+                row.get("password", String.class));
+    }
+}
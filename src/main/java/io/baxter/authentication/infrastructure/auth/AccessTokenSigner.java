@@ -0,0 +1,8 @@
+package io.baxter.authentication.infrastructure.auth;
+
+import java.util.UUID;
+
+// produces a signed compact jwt for the access token claims
+public interface AccessTokenSigner {
+    String sign(UUID id, String subject, String scope, long issuedAtSeconds, long expiresAtSeconds);
+}
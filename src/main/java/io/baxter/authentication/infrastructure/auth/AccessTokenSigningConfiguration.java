@@ -0,0 +1,29 @@
+package io.baxter.authentication.infrastructure.auth;
+
+import lombok.Generated;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.*;
+
+import java.util.Base64;
+
+@Generated
+@Configuration
+public class AccessTokenSigningConfiguration {
+    public static final String HS256 = "HS256";
+    public static final String ES256 = "ES256";
+
+    // HS256 signs with the shared secret, ES256 signs with the rotating key ring published at /.well-known/jwks.json
+    @Bean
+    public AccessTokenSigner accessTokenSigner(
+            @Value("${jwt.signing.algorithm:HS256}") String algorithm,
+            @Value("${spring.security.oauth2.resourceserver.jwt.secret-key}") String secret,
+            ObjectProvider<SigningKeyRing> signingKeyRing) {
+
+        return switch (algorithm) {
+            case HS256 -> new Hs256TokenSigner(Base64.getDecoder().decode(secret));
+            case ES256 -> new Es256TokenSigner(signingKeyRing.getObject());
+            default -> throw new IllegalArgumentException(String.format("unsupported jwt signing algorithm %s", algorithm));
+        };
+    }
+}
@@ -0,0 +1,42 @@
+package io.baxter.authentication.infrastructure.auth;
+
+import io.baxter.authentication.infrastructure.behavior.helper.Usernames;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authorization.*;
+import org.springframework.security.core.*;
+import org.springframework.security.web.server.authorization.AuthorizationContext;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.*;
+
+// guards /api/admin/**. scopes come straight from the user's roles, so the ADMIN scope alone is only as safe as
+// every path that can grant the role - the caller must also be one of the operators named in security.admin-users,
+// which nobody can add themselves to. with no admin users configured the admin endpoints are closed
+@Component
+public class AdminAccess implements ReactiveAuthorizationManager<AuthorizationContext> {
+    private static final String ADMIN_SCOPE = "SCOPE_ADMIN";
+
+    private final Set<String> adminUsers;
+
+    public AdminAccess(@Value("${security.admin-users:}") List<String> adminUsers){
+        this.adminUsers = Set.copyOf(adminUsers.stream()
+                .map(String::trim)
+                .filter(userName -> !userName.isEmpty())
+                .map(Usernames::normalize)
+                .toList());
+    }
+
+    @Override
+    public Mono<AuthorizationDecision> check(Mono<Authentication> authentication, AuthorizationContext context){
+        return authentication
+                .filter(Authentication::isAuthenticated)
+                .map(caller -> new AuthorizationDecision(isAdmin(caller)))
+                .defaultIfEmpty(new AuthorizationDecision(false));
+    }
+
+    private boolean isAdmin(Authentication caller){
+        var hasScope = caller.getAuthorities().stream().map(GrantedAuthority::getAuthority).anyMatch(ADMIN_SCOPE::equals);
+        return hasScope && caller.getName() != null && adminUsers.contains(Usernames.normalize(caller.getName()));
+    }
+}
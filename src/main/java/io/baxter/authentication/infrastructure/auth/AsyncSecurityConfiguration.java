@@ -1,6 +1,9 @@
 package io.baxter.authentication.infrastructure.auth;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import lombok.*;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.*;
 import org.springframework.security.config.Customizer;
@@ -10,6 +13,7 @@ import org.springframework.security.oauth2.jwt.*;
 import org.springframework.security.web.server.SecurityWebFilterChain;
 
 import javax.crypto.spec.SecretKeySpec;
+import java.time.Clock;
 import java.util.Base64;
 
 @Configuration
@@ -17,24 +21,54 @@ import java.util.Base64;
 @RequiredArgsConstructor
 @Generated
 public class AsyncSecurityConfiguration {
+    // with ES256 signing tokens are verified against the key ring (our keys plus those published by other instances)
+    // either way verified tokens are cached until they expire, unless jwt.decoder-cache.maximum-size is 0
     @Bean
-    public ReactiveJwtDecoder jwtDecoder(@Value("${spring.security.oauth2.resourceserver.jwt.secret-key}") String secret) {
+    public ReactiveJwtDecoder jwtDecoder(
+            @Value("${spring.security.oauth2.resourceserver.jwt.secret-key}") String secret,
+            @Value("${jwt.decoder-cache.maximum-size:10000}") long cacheSize,
+            ObjectProvider<SigningKeyRing> signingKeyRing,
+            Clock clock,
+            MeterRegistry meterRegistry) {
+        var decoder = createDecoder(secret, signingKeyRing.getIfAvailable());
+
+        if (cacheSize <= 0){
+            return decoder;
+        }
+
+        var cachingDecoder = new CachingReactiveJwtDecoder(decoder, cacheSize, clock);
+        CaffeineCacheMetrics.monitor(meterRegistry, cachingDecoder.getCache(), "jwt.decoder");
+
+        return cachingDecoder;
+    }
+
+    private static ReactiveJwtDecoder createDecoder(String secret, SigningKeyRing keyRing){
+        if (keyRing != null){
+            return new NimbusReactiveJwtDecoder(keyRing::verify);
+        }
+
         byte[] keyBytes = Base64.getDecoder().decode(secret);
         SecretKeySpec secretKey = new SecretKeySpec(keyBytes, "HmacSHA256");
         return NimbusReactiveJwtDecoder.withSecretKey(secretKey).build();
     }
 
     @Bean
-    public SecurityWebFilterChain securityWebChainFilter(ServerHttpSecurity http){
+    public SecurityWebFilterChain securityWebChainFilter(ServerHttpSecurity http, AdminAccess adminAccess){
         return http
                 .csrf(ServerHttpSecurity.CsrfSpec::disable)
                 .authorizeExchange(exchanges -> exchanges
+                        // the session endpoints act on the caller's own sessions, so they need a token unlike the
+                        // rest of /api/auth
+                        .pathMatchers("/api/auth/sessions/**").authenticated()
                         .pathMatchers(
                                 "/api/auth/**",
+                                "/.well-known/jwks.json",
                                 "/v3/api-docs/**",
                                 "/swagger-ui.html",
                                 "/swagger-ui/**",
                                 "/webjars/**").permitAll()
+                        // access tokens carry the user's roles as scopes, admin routes also need a configured admin user
+                        .pathMatchers("/api/admin/**").access(adminAccess)
                         .anyExchange().authenticated())
                 .oauth2ResourceServer(oauth2 -> oauth2.jwt(Customizer.withDefaults()))
                 .build();
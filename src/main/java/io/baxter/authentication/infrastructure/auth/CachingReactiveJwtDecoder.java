@@ -0,0 +1,78 @@
+package io.baxter.authentication.infrastructure.auth;
+
+import com.github.benmanes.caffeine.cache.*;
+import org.springframework.security.oauth2.jwt.*;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.*;
+import java.time.*;
+
+// remembers tokens the delegate has already verified so a client re-sending the same bearer token does not pay for
+// parsing and signature verification again. entries are keyed by a sha-256 of the raw token (the token itself is
+// never held as a key), bounded by entry count, and expire at the token's own "exp" claim
+// only successfully decoded tokens are cached, failures always go back to the delegate
+public class CachingReactiveJwtDecoder implements ReactiveJwtDecoder {
+    private static final ThreadLocal<MessageDigest> DIGESTS = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException exception){
+            throw new IllegalStateException(exception);
+        }
+    });
+
+    private final ReactiveJwtDecoder delegate;
+    private final Clock clock;
+    private final Cache<ByteBuffer, Jwt> cache;
+
+    public CachingReactiveJwtDecoder(ReactiveJwtDecoder delegate, long maximumSize, Clock clock){
+        this.delegate = delegate;
+        this.clock = clock;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new ExpireAtTokenExpiry(clock))
+                .recordStats()
+                .build();
+    }
+
+    public Cache<ByteBuffer, Jwt> getCache(){
+        return cache;
+    }
+
+    @Override
+    public Mono<Jwt> decode(String token) {
+        // utf-8 rather than ascii, which would map every non ascii character to '?' and let distinct tokens share a key
+        var key = ByteBuffer.wrap(DIGESTS.get().digest(token.getBytes(StandardCharsets.UTF_8)));
+        var cached = cache.getIfPresent(key);
+
+        // expiry is enforced lazily by the cache, so double check before handing out a cached token
+        if (cached != null && cached.getExpiresAt().isAfter(clock.instant())){
+            return Mono.just(cached);
+        }
+
+        return delegate.decode(token)
+                .doOnNext(jwt -> {
+                    if (jwt.getExpiresAt() != null){
+                        cache.put(key, jwt);
+                    }
+                });
+    }
+
+    private record ExpireAtTokenExpiry(Clock clock) implements Expiry<ByteBuffer, Jwt> {
+        @Override
+        public long expireAfterCreate(ByteBuffer key, Jwt jwt, long currentTime) {
+            return Math.max(0, Duration.between(clock.instant(), jwt.getExpiresAt()).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(ByteBuffer key, Jwt jwt, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, jwt, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(ByteBuffer key, Jwt jwt, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
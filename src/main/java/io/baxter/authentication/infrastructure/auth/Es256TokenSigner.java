@@ -0,0 +1,38 @@
+package io.baxter.authentication.infrastructure.auth;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jwt.*;
+
+import java.util.*;
+
+// signs access tokens with the current key of the signing key ring, the key id is carried in the "kid" header
+public class Es256TokenSigner implements AccessTokenSigner {
+    private final SigningKeyRing signingKeyRing;
+
+    public Es256TokenSigner(SigningKeyRing signingKeyRing){
+        this.signingKeyRing = signingKeyRing;
+    }
+
+    @Override
+    public String sign(UUID id, String subject, String scope, long issuedAtSeconds, long expiresAtSeconds) {
+        var signingKey = signingKeyRing.currentKey();
+
+        var claims = new JWTClaimsSet.Builder()
+                .jwtID(id.toString())
+                .subject(subject)
+                .claim("scope", scope)
+                .issueTime(new Date(issuedAtSeconds * 1000))
+                .expirationTime(new Date(expiresAtSeconds * 1000))
+                .build();
+
+        var token = new SignedJWT(signingKey.header(), claims);
+
+        try {
+            token.sign(signingKey.signer());
+        } catch (JOSEException exception){
+            throw new IllegalStateException("unable to sign access token", exception);
+        }
+
+        return token.serialize();
+    }
+}
@@ -0,0 +1,248 @@
+package io.baxter.authentication.infrastructure.auth;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.*;
+
+// specialised HS256 jwt signer for our fixed access token shape. the header is encoded once, the hmac is keyed
+// once per thread and the claims are written as json straight into a per thread buffer that is base64url encoded
+// in place, so signing a token allocates little more than the resulting string
+// output is a standard compact jws ({"alg":"HS256"} header) accepted by any HS256 validator, including NimbusReactiveJwtDecoder
+public class Hs256TokenSigner implements AccessTokenSigner {
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int SIGNATURE_LENGTH = 32;
+    // the same 256 bit floor nimbus enforces on HS256 keys, which the resource server's decoder verifies with
+    private static final int MIN_SECRET_LENGTH = 32;
+    private static final byte[] BASE64_URL = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ENCODED_HEADER = Base64.getUrlEncoder().withoutPadding()
+            .encode("{\"alg\":\"HS256\"}".getBytes(StandardCharsets.US_ASCII));
+
+    private final ThreadLocal<Mac> macs;
+    private final ThreadLocal<Buffers> buffers = ThreadLocal.withInitial(Buffers::new);
+
+    public Hs256TokenSigner(byte[] secret){
+        if (secret == null || secret.length < MIN_SECRET_LENGTH){
+            throw new IllegalArgumentException(String.format("HS256 secret must be at least %d bytes", MIN_SECRET_LENGTH));
+        }
+
+        var key = new SecretKeySpec(secret, ALGORITHM);
+
+        // fail at startup rather than on the first login if the key is unusable
+        createMac(key);
+        this.macs = ThreadLocal.withInitial(() -> createMac(key));
+    }
+
+    @Override
+    public String sign(UUID id, String subject, String scope, long issuedAtSeconds, long expiresAtSeconds){
+        var buffer = buffers.get();
+        var claims = buffer.claims;
+
+        claims.reset();
+        claims.ascii("{\"jti\":\"");
+        claims.uuid(id);
+        claims.ascii("\",\"sub\":");
+        claims.string(subject);
+        claims.ascii(",\"scope\":");
+        claims.string(scope);
+        claims.ascii(",\"iat\":");
+        claims.number(issuedAtSeconds);
+        claims.ascii(",\"exp\":");
+        claims.number(expiresAtSeconds);
+        claims.ascii("}");
+
+        var token = buffer.token;
+        token.reset();
+        token.bytes(ENCODED_HEADER, ENCODED_HEADER.length);
+        token.raw('.');
+        token.base64Url(claims.data, claims.length);
+
+        var mac = macs.get();
+        mac.update(token.data, 0, token.length);
+
+        try {
+            mac.doFinal(buffer.signature, 0);
+        } catch (GeneralSecurityException exception){
+            throw new IllegalStateException("unable to sign access token", exception);
+        }
+
+        token.raw('.');
+        token.base64Url(buffer.signature, SIGNATURE_LENGTH);
+
+        return new String(token.data, 0, token.length, StandardCharsets.US_ASCII);
+    }
+
+    private static Mac createMac(SecretKeySpec key){
+        try {
+            var mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException exception){
+            throw new IllegalStateException("unable to initialise HS256 signer", exception);
+        }
+    }
+
+    private static final class Buffers {
+        private final TokenBuffer claims = new TokenBuffer(256);
+        private final TokenBuffer token = new TokenBuffer(512);
+        private final byte[] signature = new byte[SIGNATURE_LENGTH];
+    }
+
+    // minimal growable byte buffer with the json and base64url writers the signer needs
+    private static final class TokenBuffer {
+        private byte[] data;
+        private int length;
+
+        private TokenBuffer(int capacity){
+            this.data = new byte[capacity];
+        }
+
+        private void reset(){
+            length = 0;
+        }
+
+        private void ensure(int additional){
+            if (length + additional > data.length){
+                data = Arrays.copyOf(data, Math.max(data.length * 2, length + additional));
+            }
+        }
+
+        private void raw(int value){
+            ensure(1);
+            data[length++] = (byte) value;
+        }
+
+        private void bytes(byte[] source, int count){
+            ensure(count);
+            System.arraycopy(source, 0, data, length, count);
+            length += count;
+        }
+
+        private void ascii(String value){
+            ensure(value.length());
+            for (int i = 0; i < value.length(); i++){
+                data[length++] = (byte) value.charAt(i);
+            }
+        }
+
+        private void number(long value){
+            ensure(20);
+
+            if (value == 0){
+                data[length++] = '0';
+                return;
+            }
+
+            if (value < 0){
+                data[length++] = '-';
+                value = -value;
+            }
+
+            int start = length;
+            while (value > 0){
+                data[length++] = (byte) ('0' + value % 10);
+                value /= 10;
+            }
+
+            for (int left = start, right = length - 1; left < right; left++, right--){
+                var swap = data[left];
+                data[left] = data[right];
+                data[right] = swap;
+            }
+        }
+
+        // canonical 8-4-4-4-12 lower case form, the same as UUID.toString()
+        private void uuid(UUID value){
+            ensure(36);
+            hex(value.getMostSignificantBits() >>> 32, 8);
+            data[length++] = '-';
+            hex(value.getMostSignificantBits() >>> 16, 4);
+            data[length++] = '-';
+            hex(value.getMostSignificantBits(), 4);
+            data[length++] = '-';
+            hex(value.getLeastSignificantBits() >>> 48, 4);
+            data[length++] = '-';
+            hex(value.getLeastSignificantBits(), 12);
+        }
+
+        private void hex(long value, int digits){
+            for (int i = digits - 1; i >= 0; i--){
+                data[length + i] = HEX[(int) (value & 0xf)];
+                value >>>= 4;
+            }
+
+            length += digits;
+        }
+
+        // json string with the mandatory escapes, encoded as utf-8
+        private void string(String value){
+            ensure(value.length() * 6 + 2);
+            data[length++] = '"';
+
+            for (int i = 0; i < value.length(); i++){
+                char character = value.charAt(i);
+
+                if (character == '"' || character == '\\'){
+                    data[length++] = '\\';
+                    data[length++] = (byte) character;
+                } else if (character < 0x20){
+                    data[length++] = '\\';
+                    data[length++] = 'u';
+                    data[length++] = '0';
+                    data[length++] = '0';
+                    data[length++] = HEX[character >> 4];
+                    data[length++] = HEX[character & 0xf];
+                } else if (character < 0x80){
+                    data[length++] = (byte) character;
+                } else if (character < 0x800){
+                    data[length++] = (byte) (0xc0 | character >> 6);
+                    data[length++] = (byte) (0x80 | character & 0x3f);
+                } else if (!Character.isSurrogate(character)){
+                    data[length++] = (byte) (0xe0 | character >> 12);
+                    data[length++] = (byte) (0x80 | character >> 6 & 0x3f);
+                    data[length++] = (byte) (0x80 | character & 0x3f);
+                } else if (Character.isHighSurrogate(character) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))){
+                    int codePoint = Character.toCodePoint(character, value.charAt(++i));
+                    data[length++] = (byte) (0xf0 | codePoint >> 18);
+                    data[length++] = (byte) (0x80 | codePoint >> 12 & 0x3f);
+                    data[length++] = (byte) (0x80 | codePoint >> 6 & 0x3f);
+                    data[length++] = (byte) (0x80 | codePoint & 0x3f);
+                } else {
+                    // lone surrogates are replaced the same way String.getBytes(UTF_8) does
+                    data[length++] = '?';
+                }
+            }
+
+            data[length++] = '"';
+        }
+
+        // unpadded base64url of source[0, count) appended to this buffer
+        private void base64Url(byte[] source, int count){
+            ensure((count + 2) / 3 * 4);
+
+            int index = 0;
+            while (index + 3 <= count){
+                int bits = (source[index] & 0xff) << 16 | (source[index + 1] & 0xff) << 8 | source[index + 2] & 0xff;
+                data[length++] = BASE64_URL[bits >>> 18 & 0x3f];
+                data[length++] = BASE64_URL[bits >>> 12 & 0x3f];
+                data[length++] = BASE64_URL[bits >>> 6 & 0x3f];
+                data[length++] = BASE64_URL[bits & 0x3f];
+                index += 3;
+            }
+
+            int remaining = count - index;
+            if (remaining == 1){
+                int bits = (source[index] & 0xff) << 16;
+                data[length++] = BASE64_URL[bits >>> 18 & 0x3f];
+                data[length++] = BASE64_URL[bits >>> 12 & 0x3f];
+            } else if (remaining == 2){
+                int bits = (source[index] & 0xff) << 16 | (source[index + 1] & 0xff) << 8;
+                data[length++] = BASE64_URL[bits >>> 18 & 0x3f];
+                data[length++] = BASE64_URL[bits >>> 12 & 0x3f];
+                data[length++] = BASE64_URL[bits >>> 6 & 0x3f];
+            }
+        }
+    }
+}
@@ -1,41 +1,37 @@
 package io.baxter.authentication.infrastructure.auth;
 
-import io.jsonwebtoken.*;
-import io.jsonwebtoken.security.Keys;
 import lombok.Generated;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.security.Key;
 import java.util.*;
 
 @Slf4j
 @Service
 @Generated
 public class JwtTokenGenerator {
-    private final String secret;
+    private final AccessTokenSigner signer;
     private final long expiration;
 
     // example of injecting configuration values - here used to control token generation
+    // the signer (HS256 or ES256) is chosen by AccessTokenSigningConfiguration
     public JwtTokenGenerator(
-            @Value("${spring.security.oauth2.resourceserver.jwt.secret-key}") String secret,
+            AccessTokenSigner signer,
             @Value("${jwt.expiration-ms}") long expiration){
-        this.secret = secret;
+        this.signer = signer;
         this.expiration = expiration;
     }
 
     public String generateToken(String userName, List<String> roles){
         String roleDefinition = String.join(" ", roles);
-        Key key = Keys.hmacShaKeyFor(Base64.getDecoder().decode(secret));
+        long now = System.currentTimeMillis();
 
-        return Jwts.builder()
-                .setId(UUID.randomUUID().toString())
-                .setSubject(userName)
-                .claim("scope", roleDefinition)
-                .setIssuedAt(new Date())
-                .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(key, SignatureAlgorithm.HS256)
-                .compact();
+        return signer.sign(
+                UUID.randomUUID(),
+                userName,
+                roleDefinition,
+                now / 1000,
+                (now + expiration) / 1000);
     }
 }
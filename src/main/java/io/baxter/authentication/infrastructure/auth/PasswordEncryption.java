@@ -1,12 +1,28 @@
 package io.baxter.authentication.infrastructure.auth;
 
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import io.baxter.authentication.infrastructure.auth.hashing.PasswordHashingConfiguration;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.UUID;
 
 @Service
 public class PasswordEncryption {
-    private static final PasswordEncoder encoder = new BCryptPasswordEncoder();
+    private final PasswordEncoder encoder;
+    private final Scheduler hashingScheduler;
+
+    // hash of a random secret under the current policy, created on first use
+    private volatile String dummyHash;
+
+    public PasswordEncryption(
+            PasswordEncoder encoder,
+            @Qualifier(PasswordHashingConfiguration.HASHING_SCHEDULER) Scheduler hashingScheduler){
+        this.encoder = encoder;
+        this.hashingScheduler = hashingScheduler;
+    }
 
     public String encrypt(String password){
         return encoder.encode(password);
@@ -15,4 +31,34 @@ public class PasswordEncryption {
     public boolean verify(String password, String encryptedPassword){
         return encoder.matches(password, encryptedPassword);
     }
+
+    // true when the stored hash was produced by a different algorithm or a lower cost than the current policy
+    public boolean needsUpgrade(String encryptedPassword){
+        return encoder.upgradeEncoding(encryptedPassword);
+    }
+
+    // reactive variants run on the dedicated hashing pool so a slow hash never blocks a netty event loop thread
+    public Mono<String> encryptAsync(String password){
+        return Mono.fromCallable(() -> encrypt(password)).subscribeOn(hashingScheduler);
+    }
+
+    public Mono<Boolean> verifyAsync(String password, String encryptedPassword){
+        return Mono.fromCallable(() -> verify(password, encryptedPassword)).subscribeOn(hashingScheduler);
+    }
+
+    // burns the same amount of work as a real verification and always fails, used when there is no account to
+    // check against so response times do not reveal whether a username exists
+    public Mono<Boolean> verifyDummyAsync(String password){
+        return Mono.fromCallable(() -> {
+            var hash = dummyHash;
+
+            if (hash == null){
+                hash = encrypt(UUID.randomUUID().toString());
+                dummyHash = hash;
+            }
+
+            verify(password, hash);
+            return false;
+        }).subscribeOn(hashingScheduler);
+    }
 }
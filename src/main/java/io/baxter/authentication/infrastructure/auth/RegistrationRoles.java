@@ -0,0 +1,26 @@
+package io.baxter.authentication.infrastructure.auth;
+
+import io.baxter.authentication.data.cache.RoleCatalog;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+// roles a caller may pick for themselves when registering. anything else in the role catalog - ADMIN above all -
+// can only be granted by an administrator through the bulk import, or directly in the database
+@Component
+public class RegistrationRoles {
+    private final Set<String> allowed;
+
+    public RegistrationRoles(@Value("${registration.allowed-roles:USER}") List<String> allowed){
+        this.allowed = Set.copyOf(allowed.stream()
+                .map(String::trim)
+                .filter(role -> !role.isEmpty())
+                .map(RoleCatalog::normalize)
+                .toList());
+    }
+
+    public boolean isAllowed(String roleName){
+        return roleName != null && allowed.contains(RoleCatalog.normalize(roleName));
+    }
+}
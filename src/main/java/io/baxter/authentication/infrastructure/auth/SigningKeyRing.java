@@ -0,0 +1,283 @@
+package io.baxter.authentication.infrastructure.auth;
+
+import com.nimbusds.jose.*;
+import com.nimbusds.jose.crypto.*;
+import com.nimbusds.jose.jwk.*;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jwt.*;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.*;
+
+import java.nio.charset.StandardCharsets;
+import java.security.*;
+import java.text.ParseException;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+// rotating set of ES256 signing keys
+// each instance generates its own keys, private keys never leave the process. public keys are published to a redis
+// sorted set (scored by the time they stop being needed) so every instance can verify, and serve in its jwks,
+// tokens signed by any other instance. a new key is published ahead of being used so downstream caches of the jwks
+// document see it before the first token signed with it, and retired keys stay published until every token they
+// signed has expired
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "jwt.signing.algorithm", havingValue = AccessTokenSigningConfiguration.ES256)
+public class SigningKeyRing {
+    private static final String PUBLISHED_KEYS = "jwks:published";
+    private static final Duration MIN_UNKNOWN_KEY_REFRESH_INTERVAL = Duration.ofSeconds(5);
+
+    private final ReactiveStringRedisTemplate redis;
+    private final Clock clock;
+    private final Duration rotationInterval;
+    private final Duration publishAhead;
+    private final Duration retention;
+    private final Duration refreshInterval;
+
+    @Getter
+    private final Duration jwksMaxAge;
+
+    private final List<SigningKey> localKeys = new CopyOnWriteArrayList<>();
+    private final Map<String, JWSVerifier> verifiers = new ConcurrentHashMap<>();
+    private volatile Map<String, ECKey> publishedKeys = Map.of();
+    private volatile Map<String, ECKey> verificationKeys = Map.of();
+    private volatile JwksDocument document;
+    private volatile Instant lastRefresh = Instant.EPOCH;
+    private Disposable schedule;
+
+    public record SigningKey(ECKey key, JWSSigner signer, JWSHeader header, Instant activatesAt) {}
+    public record JwksDocument(String json, String etag) {}
+
+    public SigningKeyRing(
+            ReactiveStringRedisTemplate redis,
+            Clock clock,
+            @Value("${jwt.expiration-ms}") long expirationMs,
+            @Value("${jwt.signing.rotation-interval:P1D}") Duration rotationInterval,
+            @Value("${jwt.signing.publish-ahead:PT10M}") Duration publishAhead,
+            @Value("${jwt.signing.retention:PT2H}") Duration retention,
+            @Value("${jwt.signing.refresh-interval:PT30S}") Duration refreshInterval,
+            @Value("${jwt.signing.jwks-max-age:PT5M}") Duration jwksMaxAge){
+        if (publishAhead.compareTo(jwksMaxAge) <= 0){
+            throw new IllegalArgumentException("jwt.signing.publish-ahead must be longer than jwt.signing.jwks-max-age");
+        }
+
+        // a retired key is dropped once the retention window has passed, any token it signed must have expired by then
+        if (retention.compareTo(Duration.ofMillis(expirationMs)) < 0){
+            throw new IllegalArgumentException("jwt.signing.retention must not be shorter than jwt.expiration-ms");
+        }
+
+        this.redis = redis;
+        this.clock = clock;
+        this.rotationInterval = rotationInterval;
+        this.publishAhead = publishAhead;
+        this.retention = retention;
+        this.refreshInterval = refreshInterval;
+        this.jwksMaxAge = jwksMaxAge;
+
+        // nothing can have cached our keys yet, so the first key is usable straight away
+        localKeys.add(generateKey(Instant.now(clock)));
+        rebuildVerificationKeys();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start(){
+        var rotations = Flux.interval(rotationInterval, rotationInterval)
+            .onBackpressureDrop()
+            .concatMap(tick -> rotate().onErrorResume(SigningKeyRing::logMaintenanceFailure));
+
+        // republishing on every refresh also recovers from a redis restart losing the published set
+        var refreshes = Flux.interval(Duration.ZERO, refreshInterval)
+            .onBackpressureDrop()
+            .concatMap(tick -> Flux.fromIterable(localKeys).concatMap(this::publish)
+                .then(refresh())
+                .onErrorResume(SigningKeyRing::logMaintenanceFailure));
+
+        schedule = Flux.merge(rotations, refreshes).subscribe();
+    }
+
+    @PreDestroy
+    public void stop(){
+        if (schedule != null){
+            schedule.dispose();
+        }
+    }
+
+    // newest key that has been published for long enough to be used
+    public SigningKey currentKey(){
+        var now = Instant.now(clock);
+
+        for (int index = localKeys.size() - 1; index >= 0; index--){
+            var key = localKeys.get(index);
+            if (!key.activatesAt().isAfter(now)){
+                return key;
+            }
+        }
+
+        return localKeys.getFirst();
+    }
+
+    public JwksDocument getDocument(){
+        return document;
+    }
+
+    // generates and publishes the next key, then drops local keys that retired more than the retention window ago
+    public Mono<Void> rotate(){
+        return Mono.defer(() -> {
+            var now = Instant.now(clock);
+            var next = generateKey(now.plus(publishAhead));
+            localKeys.add(next);
+
+            // a key retires when its successor activates, so it is no longer needed once the retention window has passed
+            for (int index = 0; index < localKeys.size() - 1; index++){
+                var successor = localKeys.get(index + 1);
+
+                if (successor.activatesAt().plus(retention).isBefore(now)){
+                    var retired = localKeys.get(index);
+                    localKeys.remove(retired);
+                    verifiers.remove(retired.key().getKeyID());
+                    index--;
+                }
+            }
+
+            rebuildVerificationKeys();
+            log.info("rotated signing key, {} activates at {}", next.key().getKeyID(), next.activatesAt());
+
+            return publish(next);
+        });
+    }
+
+    // reloads the public keys published by all instances
+    public Mono<Void> refresh(){
+        return Mono.defer(() -> {
+            var now = Instant.now(clock);
+            lastRefresh = now;
+
+            var current = Range.rightUnbounded(Range.Bound.inclusive((double) now.toEpochMilli()));
+            var expired = Range.leftUnbounded(Range.Bound.exclusive((double) now.toEpochMilli()));
+
+            return redis.opsForZSet().removeRangeByScore(PUBLISHED_KEYS, expired)
+                .thenMany(redis.opsForZSet().rangeByScore(PUBLISHED_KEYS, current))
+                .flatMap(json -> {
+                    try {
+                        return Mono.just(ECKey.parse(json));
+                    } catch (ParseException exception){
+                        log.error("ignoring unparsable published signing key", exception);
+                        return Mono.empty();
+                    }
+                })
+                .collectMap(JWK::getKeyID)
+                .doOnNext(keys -> {
+                    publishedKeys = Map.copyOf(keys);
+                    rebuildVerificationKeys();
+                })
+                .then();
+        });
+    }
+
+    // used as the jwt processor of the reactive decoder - verifies the signature with the key named by the "kid" header
+    public Mono<JWTClaimsSet> verify(JWT token){
+        if (!(token instanceof SignedJWT signedToken) || !JWSAlgorithm.ES256.equals(signedToken.getHeader().getAlgorithm())){
+            return Mono.error(new BadJwtException("unsupported token algorithm"));
+        }
+
+        var keyId = signedToken.getHeader().getKeyID();
+        if (keyId == null){
+            return Mono.error(new BadJwtException("token has no key id"));
+        }
+
+        return Mono.justOrEmpty(verificationKeys.get(keyId))
+            // another instance may have published the key since the last refresh, look again (at most every few seconds)
+            .switchIfEmpty(Mono.defer(() -> lastRefresh.plus(MIN_UNKNOWN_KEY_REFRESH_INTERVAL).isBefore(Instant.now(clock))
+                ? refresh().then(Mono.justOrEmpty(verificationKeys.get(keyId)))
+                : Mono.empty()))
+            .switchIfEmpty(Mono.error(new BadJwtException("unknown signing key")))
+            .flatMap(key -> {
+                try {
+                    var verifier = verifiers.computeIfAbsent(keyId, id -> createVerifier(key));
+
+                    if (!signedToken.verify(verifier)){
+                        return Mono.error(new BadJwtException("invalid token signature"));
+                    }
+
+                    return Mono.just(signedToken.getJWTClaimsSet());
+                } catch (JOSEException | ParseException | IllegalStateException exception){
+                    return Mono.error(new BadJwtException("unable to verify token", exception));
+                }
+            });
+    }
+
+    private Mono<Void> publish(SigningKey signingKey){
+        // needed until the key is replaced (at most one rotation after activating) and every token it signed expired
+        var neededUntil = signingKey.activatesAt().plus(rotationInterval).plus(publishAhead).plus(retention);
+
+        return redis.opsForZSet()
+            .add(PUBLISHED_KEYS, signingKey.key().toPublicJWK().toJSONString(), neededUntil.toEpochMilli())
+            .then();
+    }
+
+    private synchronized void rebuildVerificationKeys(){
+        var keys = new HashMap<>(publishedKeys);
+        localKeys.forEach(signingKey -> keys.put(signingKey.key().getKeyID(), signingKey.key().toPublicJWK()));
+
+        verificationKeys = Map.copyOf(keys);
+
+        var json = new JWKSet(new ArrayList<JWK>(new TreeMap<>(keys).values())).toString(true);
+        var current = document;
+
+        if (current == null || !current.json().equals(json)){
+            document = new JwksDocument(json, etag(json));
+        }
+    }
+
+    private static Mono<Void> logMaintenanceFailure(Throwable exception){
+        log.error("signing key ring maintenance failed", exception);
+        return Mono.empty();
+    }
+
+    private static SigningKey generateKey(Instant activatesAt){
+        try {
+            var key = new ECKeyGenerator(Curve.P_256)
+                    .keyID(UUID.randomUUID().toString())
+                    .keyUse(KeyUse.SIGNATURE)
+                    .algorithm(JWSAlgorithm.ES256)
+                    .generate();
+
+            var header = new JWSHeader.Builder(JWSAlgorithm.ES256)
+                    .keyID(key.getKeyID())
+                    .build();
+
+            return new SigningKey(key, new ECDSASigner(key), header, activatesAt);
+        } catch (JOSEException exception){
+            throw new IllegalStateException("unable to generate signing key", exception);
+        }
+    }
+
+    private static JWSVerifier createVerifier(ECKey key){
+        try {
+            return new ECDSAVerifier(key);
+        } catch (JOSEException exception){
+            throw new IllegalStateException("unable to create verifier for key " + key.getKeyID(), exception);
+        }
+    }
+
+    private static String etag(String json){
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(json.getBytes(StandardCharsets.UTF_8));
+            return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(digest) + "\"";
+        } catch (NoSuchAlgorithmException exception){
+            throw new IllegalStateException(exception);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package io.baxter.authentication.infrastructure.auth.hashing;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.*;
+import java.util.function.IntFunction;
+
+// command line tool that benchmarks each supported algorithm on the current host and suggests the highest cost
+// whose verification time stays within the target latency, run with:
+//   ./gradlew calibratePasswordEncoders -PcalibrationArgs="--target-ms=100 --samples=5"
+@Slf4j
+public final class PasswordEncoderCalibration {
+    private static final String SAMPLE_PASSWORD = "Calibration-Password-123!";
+
+    private static final int MIN_BCRYPT_STRENGTH = 4;
+    private static final int MAX_BCRYPT_STRENGTH = 16;
+    private static final int MIN_PBKDF2_ITERATIONS = 10_000;
+    private static final int MAX_PBKDF2_ITERATIONS = 10_000_000;
+    private static final int MAX_ARGON2_ITERATIONS = 20;
+
+    private final double targetMs;
+    private final int samples;
+    private final int argon2MemoryKb;
+    private final int argon2Parallelism;
+
+    PasswordEncoderCalibration(double targetMs, int samples, int argon2MemoryKb, int argon2Parallelism){
+        this.targetMs = targetMs;
+        this.samples = samples;
+        this.argon2MemoryKb = argon2MemoryKb;
+        this.argon2Parallelism = argon2Parallelism;
+    }
+
+    public static void main(String[] args) {
+        var options = parseOptions(args);
+        var calibration = new PasswordEncoderCalibration(
+                Double.parseDouble(options.getOrDefault("target-ms", "100")),
+                Integer.parseInt(options.getOrDefault("samples", "5")),
+                Integer.parseInt(options.getOrDefault("argon2-memory-kb", "16384")),
+                Integer.parseInt(options.getOrDefault("argon2-parallelism", "1")));
+
+        calibration.run();
+    }
+
+    void run(){
+        log.info("calibrating password encoders for a target verification latency of {} ms ({} samples each)", targetMs, samples);
+
+        int bcryptStrength = calibrateExponential(PasswordEncoders::bcrypt);
+        int pbkdf2Iterations = calibrateLinear(PasswordEncoders::pbkdf2);
+        int argon2Iterations = calibrateStepwise(iterations -> PasswordEncoders.argon2(argon2MemoryKb, iterations, argon2Parallelism));
+
+        log.info("suggested configuration:");
+        log.info("password.encoder.bcrypt.strength={}", bcryptStrength);
+        log.info("password.encoder.pbkdf2.iterations={}", pbkdf2Iterations);
+        log.info("password.encoder.argon2.memory-kb={}", argon2MemoryKb);
+        log.info("password.encoder.argon2.iterations={}", argon2Iterations);
+        log.info("password.encoder.argon2.parallelism={}", argon2Parallelism);
+    }
+
+    // bcrypt cost is a power of two, so each step doubles the work - stop at the last strength under the target
+    private int calibrateExponential(IntFunction<PasswordEncoder> factory){
+        int best = MIN_BCRYPT_STRENGTH;
+
+        for (int strength = MIN_BCRYPT_STRENGTH; strength <= MAX_BCRYPT_STRENGTH; strength++){
+            double elapsed = measure(factory.apply(strength));
+            log.info("bcrypt strength {} verifies in {} ms", strength, format(elapsed));
+
+            if (elapsed > targetMs){
+                break;
+            }
+
+            best = strength;
+        }
+
+        return best;
+    }
+
+    // pbkdf2 cost scales linearly with iterations, so extrapolate from a baseline and confirm the estimate
+    private int calibrateLinear(IntFunction<PasswordEncoder> factory){
+        double baseline = measure(factory.apply(MIN_PBKDF2_ITERATIONS));
+        int estimate = (int) Math.min(MAX_PBKDF2_ITERATIONS, MIN_PBKDF2_ITERATIONS * (targetMs / Math.max(baseline, 0.001)));
+        estimate = Math.max(MIN_PBKDF2_ITERATIONS, estimate - estimate % 1_000);
+
+        double elapsed = measure(factory.apply(estimate));
+        while (elapsed > targetMs && estimate > MIN_PBKDF2_ITERATIONS){
+            estimate = Math.max(MIN_PBKDF2_ITERATIONS, (int) (estimate * 0.9) / 1_000 * 1_000);
+            elapsed = measure(factory.apply(estimate));
+        }
+
+        log.info("pbkdf2 {} iterations verifies in {} ms", estimate, format(elapsed));
+        return estimate;
+    }
+
+    // argon2 memory is a deployment decision, so only the pass count is tuned
+    private int calibrateStepwise(IntFunction<PasswordEncoder> factory){
+        int best = 1;
+
+        for (int iterations = 1; iterations <= MAX_ARGON2_ITERATIONS; iterations++){
+            double elapsed = measure(factory.apply(iterations));
+            log.info("argon2 {} KiB x {} iterations verifies in {} ms", argon2MemoryKb, iterations, format(elapsed));
+
+            if (elapsed > targetMs){
+                break;
+            }
+
+            best = iterations;
+        }
+
+        return best;
+    }
+
+    // returns the median verification time in milliseconds after a warm up run
+    private double measure(PasswordEncoder encoder){
+        var hash = encoder.encode(SAMPLE_PASSWORD);
+        encoder.matches(SAMPLE_PASSWORD, hash);
+
+        var timings = new double[samples];
+        for (int sample = 0; sample < samples; sample++){
+            long start = System.nanoTime();
+            encoder.matches(SAMPLE_PASSWORD, hash);
+            timings[sample] = (System.nanoTime() - start) / 1_000_000.0;
+        }
+
+        Arrays.sort(timings);
+        return timings[samples / 2];
+    }
+
+    private static String format(double milliseconds){
+        return String.format("%.1f", milliseconds);
+    }
+
+    private static Map<String, String> parseOptions(String[] args){
+        var options = new HashMap<String, String>();
+
+        for (var arg : args){
+            if (!arg.startsWith("--") || !arg.contains("=")){
+                throw new IllegalArgumentException(String.format("unrecognized argument %s", arg));
+            }
+
+            var separator = arg.indexOf('=');
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+
+        return options;
+    }
+}
@@ -0,0 +1,28 @@
+package io.baxter.authentication.infrastructure.auth.hashing;
+
+import lombok.Generated;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.*;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Map;
+
+@Generated
+@Configuration
+public class PasswordEncoderConfiguration {
+    // the configured algorithm is used for new hashes, all supported algorithms remain available for verification
+    @Bean
+    public PasswordEncoder passwordEncoder(
+            @Value("${password.encoder.algorithm:bcrypt}") String algorithm,
+            @Value("${password.encoder.bcrypt.strength:10}") int bcryptStrength,
+            @Value("${password.encoder.pbkdf2.iterations:310000}") int pbkdf2Iterations,
+            @Value("${password.encoder.argon2.memory-kb:16384}") int argon2MemoryKb,
+            @Value("${password.encoder.argon2.iterations:2}") int argon2Iterations,
+            @Value("${password.encoder.argon2.parallelism:1}") int argon2Parallelism) {
+
+        return PasswordEncoders.delegating(algorithm, Map.of(
+                PasswordEncoders.BCRYPT, PasswordEncoders.bcrypt(bcryptStrength),
+                PasswordEncoders.PBKDF2, PasswordEncoders.pbkdf2(pbkdf2Iterations),
+                PasswordEncoders.ARGON2, PasswordEncoders.argon2(argon2MemoryKb, argon2Iterations, argon2Parallelism)));
+    }
+}
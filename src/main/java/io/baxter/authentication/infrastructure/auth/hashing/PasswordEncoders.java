@@ -0,0 +1,46 @@
+package io.baxter.authentication.infrastructure.auth.hashing;
+
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.*;
+
+import java.util.Map;
+
+// shared factory for the supported hashing algorithms, used by the application and the calibration tool
+public final class PasswordEncoders {
+    public static final String BCRYPT = "bcrypt";
+    public static final String PBKDF2 = "pbkdf2";
+    public static final String ARGON2 = "argon2";
+
+    private static final int ARGON2_SALT_LENGTH = 16;
+    private static final int ARGON2_HASH_LENGTH = 32;
+
+    private PasswordEncoders(){
+    }
+
+    public static PasswordEncoder bcrypt(int strength){
+        return new BCryptPasswordEncoder(strength);
+    }
+
+    public static PasswordEncoder pbkdf2(int iterations){
+        return new Pbkdf2CostPasswordEncoder(iterations);
+    }
+
+    public static PasswordEncoder argon2(int memoryKb, int iterations, int parallelism){
+        return new Argon2PasswordEncoder(ARGON2_SALT_LENGTH, ARGON2_HASH_LENGTH, parallelism, memoryKb, iterations);
+    }
+
+    // hashes are stored as "{algorithm}<hash>" - bcrypt and argon2 carry their own cost parameters in the hash and
+    // pbkdf2 carries its iteration count (see Pbkdf2CostPasswordEncoder). hashes created before the prefix existed
+    // are plain bcrypt, so those are matched by the bcrypt encoder and always reported as needing an upgrade
+    public static DelegatingPasswordEncoder delegating(String algorithm, Map<String, PasswordEncoder> encoders){
+        if (!encoders.containsKey(algorithm)){
+            throw new IllegalArgumentException(String.format("unsupported password encoder %s", algorithm));
+        }
+
+        var encoder = new DelegatingPasswordEncoder(algorithm, encoders);
+        encoder.setDefaultPasswordEncoderForMatches(encoders.get(BCRYPT));
+
+        return encoder;
+    }
+}
@@ -0,0 +1,41 @@
+package io.baxter.authentication.infrastructure.auth.hashing;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.Generated;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.*;
+import reactor.core.scheduler.*;
+
+import java.util.concurrent.*;
+
+@Generated
+@Configuration
+public class PasswordHashingConfiguration {
+    public static final String HASHING_SCHEDULER = "passwordHashingScheduler";
+
+    // password hashing is cpu bound, so the pool is sized to the available cores (unless overridden)
+    // and the queue is bounded - once it is full new work is rejected instead of piling up behind the event loop
+    @Bean(name = HASHING_SCHEDULER, destroyMethod = "dispose")
+    public Scheduler passwordHashingScheduler(
+            @Value("${password.hashing.threads:0}") int threads,
+            @Value("${password.hashing.queue-capacity:256}") int queueCapacity,
+            MeterRegistry meterRegistry) {
+
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+
+        var executor = new ThreadPoolExecutor(
+                poolSize,
+                poolSize,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                Thread.ofPlatform().name("password-hashing-", 0).daemon(true).factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+
+        // exposes executor.active, executor.queued, executor.queue.remaining and task timings tagged name=password.hashing
+        var monitoredExecutor = ExecutorServiceMetrics.monitor(meterRegistry, executor, "password.hashing");
+
+        return Schedulers.fromExecutorService(monitoredExecutor, "password-hashing");
+    }
+}
@@ -0,0 +1,60 @@
+package io.baxter.authentication.infrastructure.auth.hashing;
+
+import org.springframework.security.crypto.password.*;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// spring's Pbkdf2PasswordEncoder does not record its iteration count in the hash, so this encoder prefixes it
+// ("<iterations>$<hash>") which lets us verify hashes created under older policies and detect when they need upgrading
+public class Pbkdf2CostPasswordEncoder implements PasswordEncoder {
+    private static final char SEPARATOR = '$';
+    private static final int SALT_LENGTH = 16;
+
+    private final int iterations;
+    private final Map<Integer, Pbkdf2PasswordEncoder> encoders = new ConcurrentHashMap<>();
+
+    public Pbkdf2CostPasswordEncoder(int iterations){
+        this.iterations = iterations;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return iterations + String.valueOf(SEPARATOR) + encoderFor(iterations).encode(rawPassword);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        int separator = encodedPassword == null ? -1 : encodedPassword.indexOf(SEPARATOR);
+        int storedIterations = parseIterations(encodedPassword, separator);
+
+        if (storedIterations <= 0){
+            return false;
+        }
+
+        return encoderFor(storedIterations).matches(rawPassword, encodedPassword.substring(separator + 1));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        int separator = encodedPassword == null ? -1 : encodedPassword.indexOf(SEPARATOR);
+        return parseIterations(encodedPassword, separator) < iterations;
+    }
+
+    private Pbkdf2PasswordEncoder encoderFor(int iterationCount){
+        return encoders.computeIfAbsent(iterationCount, count -> new Pbkdf2PasswordEncoder(
+                "", SALT_LENGTH, count, Pbkdf2PasswordEncoder.SecretKeyFactoryAlgorithm.PBKDF2WithHmacSHA256));
+    }
+
+    private static int parseIterations(String encodedPassword, int separator){
+        if (separator <= 0){
+            return -1;
+        }
+
+        try {
+            return Integer.parseInt(encodedPassword, 0, separator, 10);
+        } catch (NumberFormatException exception){
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package io.baxter.authentication.infrastructure.behavior.database;
+
+import io.micrometer.core.instrument.*;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.spi.*;
+import lombok.Generated;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.*;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.actuate.metrics.r2dbc.ConnectionPoolMetrics;
+import org.springframework.context.annotation.*;
+import reactor.core.Disposable;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+@Generated
+@Configuration
+public class ConnectionPoolConfiguration {
+    // the primary pool itself is built by spring boot from spring.r2dbc.pool.*, this puts the acquire timer in
+    // front of it and, when database.replicas.urls lists any replicas (comma separated r2dbc urls, sharing the
+    // primary's credentials and pool settings), routes reads between them. when database.shards.urls lists any
+    // user shards the primary becomes the shard named database.shards.primary-name, and the others get pools of
+    // their own with the same settings, see UserShards. static so the post processor does not pull this
+    // configuration in early
+    @Bean
+    public static BeanPostProcessor connectionPoolPostProcessor(
+            ObjectProvider<MeterRegistry> meterRegistry,
+            @Value("${database.replicas.urls:}") String replicaUrls,
+            @Value("${database.replicas.health-interval:PT5S}") Duration healthInterval,
+            @Value("${database.shards.primary-name:primary}") String primaryShard,
+            @Value("${database.shards.urls:}") String shardUrls,
+            @Value("${spring.r2dbc.username:}") String username,
+            @Value("${spring.r2dbc.password:}") String password,
+            @Value("${spring.r2dbc.pool.initial-size:10}") int initialSize,
+            @Value("${spring.r2dbc.pool.max-size:20}") int maxSize,
+            @Value("${spring.r2dbc.pool.max-idle-time:PT10M}") Duration maxIdleTime,
+            @Value("${spring.r2dbc.pool.max-life-time:PT30M}") Duration maxLifeTime,
+            @Value("${spring.r2dbc.pool.max-acquire-time:PT3S}") Duration maxAcquireTime,
+            @Value("${spring.r2dbc.pool.max-create-connection-time:PT5S}") Duration maxCreateConnectionTime){
+
+        var settings = new PoolSettings(
+                username, password, initialSize, maxSize, maxIdleTime, maxLifeTime, maxAcquireTime, maxCreateConnectionTime);
+
+        return new ConnectionPoolPostProcessor(meterRegistry, replicaUrls, healthInterval, primaryShard, shardUrls, settings);
+    }
+
+    // database.shards.previous lists the shards of the ring before the current resharding, see UserReshardingService
+    @Bean
+    public UserShards userShards(
+            @Value("${database.shards.primary-name:primary}") String primaryShard,
+            @Value("${database.shards.urls:}") String shardUrls,
+            @Value("${database.shards.previous:}") String previousShards,
+            @Value("${database.shards.virtual-nodes:160}") int virtualNodes){
+        var previous = Arrays.stream(previousShards.split(","))
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .toList();
+
+        return new UserShards(primaryShard, UserShards.parse(shardUrls).keySet(), previous, virtualNodes);
+    }
+
+    // spring registers the pool bean's destroy method against the raw pool, not the factory that replaces it, so
+    // only the primary pool is closed by spring. the replica and shard pools and the replica health checks are
+    // created here and closed here when the context shuts down
+    @Slf4j
+    private static final class ConnectionPoolPostProcessor implements BeanPostProcessor, DisposableBean {
+        private final ObjectProvider<MeterRegistry> meterRegistry;
+        private final String replicaUrls;
+        private final Duration healthInterval;
+        private final String primaryShard;
+        private final String shardUrls;
+        private final PoolSettings settings;
+        private final List<Disposable> created = new CopyOnWriteArrayList<>();
+
+        private ConnectionPoolPostProcessor(
+                ObjectProvider<MeterRegistry> meterRegistry,
+                String replicaUrls,
+                Duration healthInterval,
+                String primaryShard,
+                String shardUrls,
+                PoolSettings settings){
+            this.meterRegistry = meterRegistry;
+            this.replicaUrls = replicaUrls;
+            this.healthInterval = healthInterval;
+            this.primaryShard = primaryShard;
+            this.shardUrls = shardUrls;
+            this.settings = settings;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName){
+            if (!(bean instanceof ConnectionPool pool)){
+                return bean;
+            }
+
+            var registry = meterRegistry.getObject();
+            var primary = withReplicas(new TimedConnectionFactory(pool, beanName, registry), registry);
+
+            var shardUrlsByName = UserShards.parse(shardUrls);
+            if (shardUrlsByName.isEmpty()){
+                return primary;
+            }
+
+            var shards = new LinkedHashMap<String, ConnectionFactory>();
+            shardUrlsByName.forEach((name, url) -> {
+                var shardPool = settings.create(settings.options(url), name);
+                created.add(shardPool);
+                new ConnectionPoolMetrics(shardPool, name, Tags.of("role", "shard")).bindTo(registry);
+                shards.put(name, new TimedConnectionFactory(shardPool, name, registry));
+            });
+
+            return new ShardRoutingConnectionFactory(primaryShard, primary, shards);
+        }
+
+        // health checks first so none of them runs against a closing pool
+        @Override
+        public void destroy(){
+            for (var resource : created.reversed()){
+                try {
+                    resource.dispose();
+                } catch (RuntimeException exception){
+                    log.warn("unable to close database connection resource", exception);
+                }
+            }
+
+            created.clear();
+        }
+
+        private ConnectionFactory withReplicas(ConnectionFactory primary, MeterRegistry registry){
+            var urls = Arrays.stream(replicaUrls.split(","))
+                    .map(String::trim)
+                    .filter(url -> !url.isEmpty())
+                    .toList();
+
+            if (urls.isEmpty()){
+                return primary;
+            }
+
+            var replicas = new ArrayList<DatabaseReplica>();
+            for (var url : urls){
+                var options = settings.options(url);
+                var port = options.getValue(ConnectionFactoryOptions.PORT);
+                var name = port == null
+                        ? String.valueOf(options.getValue(ConnectionFactoryOptions.HOST))
+                        : options.getValue(ConnectionFactoryOptions.HOST) + ":" + port;
+
+                var replicaPool = settings.create(options, name);
+                created.add(replicaPool);
+                new ConnectionPoolMetrics(replicaPool, name, Tags.of("role", "replica")).bindTo(registry);
+                replicas.add(new DatabaseReplica(name, new TimedConnectionFactory(replicaPool, name, registry), registry));
+            }
+
+            var routing = new ReadWriteRoutingConnectionFactory(primary, replicas, healthInterval);
+            routing.start();
+            created.add(routing::stop);
+
+            return routing;
+        }
+    }
+
+    // replicas and shards share the primary's credentials and spring.r2dbc.pool.* settings
+    private record PoolSettings(
+            String username,
+            String password,
+            int initialSize,
+            int maxSize,
+            Duration maxIdleTime,
+            Duration maxLifeTime,
+            Duration maxAcquireTime,
+            Duration maxCreateConnectionTime){
+
+        ConnectionFactoryOptions options(String url){
+            var options = ConnectionFactoryOptions.parse(url).mutate();
+            if (!username.isEmpty()){
+                options.option(ConnectionFactoryOptions.USER, username);
+            }
+
+            if (!password.isEmpty()){
+                options.option(ConnectionFactoryOptions.PASSWORD, password);
+            }
+
+            return options.build();
+        }
+
+        ConnectionPool create(ConnectionFactoryOptions options, String name){
+            return new ConnectionPool(io.r2dbc.pool.ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+                    .name(name)
+                    .initialSize(initialSize)
+                    .minIdle(initialSize)
+                    .maxSize(maxSize)
+                    .maxIdleTime(maxIdleTime)
+                    .maxLifeTime(maxLifeTime)
+                    .maxAcquireTime(maxAcquireTime)
+                    .maxCreateConnectionTime(maxCreateConnectionTime)
+                    .validationQuery("SELECT 1")
+                    .build());
+        }
+    }
+}
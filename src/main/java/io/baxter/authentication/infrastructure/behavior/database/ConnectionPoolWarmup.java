@@ -0,0 +1,78 @@
+package io.baxter.authentication.infrastructure.behavior.database;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.spi.*;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.*;
+
+import java.time.Duration;
+import java.util.*;
+
+// opens spring.r2dbc.pool.initial-size connections while the application starts. ApplicationStartedEvent is
+// published before the application reports ready, and blocking here holds readiness back until the pool is
+// warm, so the first logins after a deploy do not pay for the connection handshakes.
+// a database that cannot be reached in database.pool.warmup-timeout is logged and left to connect lazily
+@Slf4j
+@Component
+public class ConnectionPoolWarmup {
+    private final ConnectionFactory connectionFactory;
+    private final Duration timeout;
+
+    public ConnectionPoolWarmup(
+            ConnectionFactory connectionFactory,
+            @Value("${database.pool.warmup-timeout:PT30S}") Duration timeout){
+        this.connectionFactory = connectionFactory;
+        this.timeout = timeout;
+    }
+
+    @EventListener(ApplicationStartedEvent.class)
+    public void warmup(){
+        var pools = new LinkedHashMap<String, ConnectionPool>();
+        collect(UserShards.PRIMARY, connectionFactory, pools);
+
+        if (pools.isEmpty()){
+            log.info("database connections are not pooled, skipping warmup");
+            return;
+        }
+
+        Flux.fromIterable(pools.entrySet())
+            .flatMap(pool -> pool.getValue().warmup()
+                .timeout(timeout)
+                .doOnNext(opened -> log.info("warmed up {} database connection pool with {} connections", pool.getKey(), opened))
+                .onErrorResume(exception -> {
+                    log.warn("unable to warm up {} database connection pool, connections will be opened on demand", pool.getKey(), exception);
+                    return Mono.empty();
+                }))
+            .blockLast();
+    }
+
+    // user shards and read replicas are warmed alongside the primary, see ShardRoutingConnectionFactory and
+    // ReadWriteRoutingConnectionFactory
+    private static void collect(String name, ConnectionFactory connectionFactory, Map<String, ConnectionPool> pools){
+        if (connectionFactory instanceof ShardRoutingConnectionFactory sharded){
+            sharded.getShards().forEach((shard, target) -> collect(shard, target, pools));
+            return;
+        }
+
+        connectionPool(connectionFactory).ifPresent(pool -> pools.putIfAbsent(name, pool));
+
+        if (connectionFactory instanceof ReadWriteRoutingConnectionFactory routing){
+            for (var replica : routing.getReplicas()){
+                collect(replica.getName(), replica.getConnectionFactory(), pools);
+            }
+        }
+    }
+
+    private static Optional<ConnectionPool> connectionPool(ConnectionFactory connectionFactory){
+        Object candidate = connectionFactory;
+        while (candidate instanceof Wrapped<?> wrapped && !(candidate instanceof ConnectionPool)){
+            candidate = wrapped.unwrap();
+        }
+
+        return candidate instanceof ConnectionPool pool ? Optional.of(pool) : Optional.empty();
+    }
+}
@@ -0,0 +1,48 @@
+package io.baxter.authentication.infrastructure.behavior.database;
+
+import io.micrometer.core.instrument.*;
+import io.r2dbc.spi.*;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+// one read replica behind ReadWriteRoutingConnectionFactory. reports database.replica.up from periodic
+// SELECT 1 checks, tagged with the replica name, and only takes reads while it is up
+@Slf4j
+@Getter
+public class DatabaseReplica {
+    private final String name;
+    private final ConnectionFactory connectionFactory;
+    private volatile boolean up = true;
+
+    public DatabaseReplica(String name, ConnectionFactory connectionFactory, MeterRegistry meterRegistry){
+        this.name = name;
+        this.connectionFactory = connectionFactory;
+
+        Gauge.builder("database.replica.up", this, replica -> replica.up ? 1 : 0)
+                .description("whether the read replica answered its last health check")
+                .tag("replica", name)
+                .register(meterRegistry);
+    }
+
+    public Mono<Void> checkHealth(Duration timeout){
+        return Mono.usingWhen(
+                    Mono.<Connection>from(connectionFactory.create()),
+                    connection -> Mono.from(connection.createStatement("SELECT 1").execute())
+                        .flatMap(result -> Mono.from(result.map((row, metadata) -> true))),
+                    Connection::close)
+                .timeout(timeout, Mono.just(false))
+                .onErrorReturn(false)
+                .defaultIfEmpty(false)
+                .doOnNext(healthy -> {
+                    if (healthy != up){
+                        log.warn("database replica {} is {}", name, healthy ? "up" : "down");
+                    }
+
+                    up = healthy;
+                })
+                .then();
+    }
+}
@@ -0,0 +1,16 @@
+package io.baxter.authentication.infrastructure.behavior.database;
+
+import lombok.Generated;
+import org.springframework.context.annotation.*;
+import org.springframework.data.r2dbc.convert.R2dbcCustomConversions;
+import org.springframework.data.r2dbc.dialect.MySqlDialect;
+
+@Generated
+@Configuration
+public class R2dbcConversionConfiguration {
+    // replaces spring boot's default conversions, adding the user id converters
+    @Bean
+    public R2dbcCustomConversions r2dbcCustomConversions(){
+        return R2dbcCustomConversions.of(MySqlDialect.INSTANCE, UuidConverters.all());
+    }
+}
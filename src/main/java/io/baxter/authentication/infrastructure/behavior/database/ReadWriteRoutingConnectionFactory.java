@@ -0,0 +1,77 @@
+package io.baxter.authentication.infrastructure.behavior.database;
+
+import io.r2dbc.spi.*;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.r2dbc.connection.lookup.AbstractRoutingConnectionFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.*;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+// sends queries marked by ReplicaRouting.readOnly to the read replicas, round robin over the ones that passed their
+// last health check, and everything else to the primary. with no healthy replica reads fall back to the primary.
+// unwraps to the primary so the pool metrics and warmup still find it
+@Slf4j
+public class ReadWriteRoutingConnectionFactory extends AbstractRoutingConnectionFactory implements Wrapped<ConnectionFactory> {
+    private final ConnectionFactory primary;
+    private final List<DatabaseReplica> replicas;
+    private final Duration healthInterval;
+    private final AtomicInteger next = new AtomicInteger();
+
+    private Disposable healthChecks;
+
+    public ReadWriteRoutingConnectionFactory(ConnectionFactory primary, List<DatabaseReplica> replicas, Duration healthInterval){
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.healthInterval = healthInterval;
+
+        setTargetConnectionFactories(replicas.stream()
+                .collect(Collectors.toMap(DatabaseReplica::getName, DatabaseReplica::getConnectionFactory)));
+        setDefaultTargetConnectionFactory(primary);
+        afterPropertiesSet();
+    }
+
+    public void start(){
+        healthChecks = Flux.interval(Duration.ZERO, healthInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> Flux.fromIterable(replicas)
+                        .flatMap(replica -> replica.checkHealth(healthInterval))
+                        .then())
+                .subscribe();
+    }
+
+    // the replica pools are closed by whoever created them, see ConnectionPoolConfiguration
+    public void stop(){
+        if (healthChecks != null){
+            healthChecks.dispose();
+        }
+    }
+
+    public List<DatabaseReplica> getReplicas(){
+        return replicas;
+    }
+
+    @Override
+    protected Mono<Object> determineCurrentLookupKey(){
+        return Mono.deferContextual(context -> ReplicaRouting.isReadOnly(context)
+                ? Mono.justOrEmpty(nextReplica())
+                : Mono.empty());
+    }
+
+    @Override
+    public ConnectionFactory unwrap(){
+        return primary;
+    }
+
+    private Optional<Object> nextReplica(){
+        var healthy = replicas.stream().filter(DatabaseReplica::isUp).toList();
+        if (healthy.isEmpty()){
+            return Optional.empty();
+        }
+
+        return Optional.of(healthy.get(Math.floorMod(next.getAndIncrement(), healthy.size())).getName());
+    }
+}
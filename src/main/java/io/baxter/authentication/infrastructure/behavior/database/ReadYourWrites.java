@@ -0,0 +1,39 @@
+package io.baxter.authentication.infrastructure.behavior.database;
+
+import com.github.benmanes.caffeine.cache.*;
+import io.baxter.authentication.infrastructure.behavior.helper.Usernames;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+// replicas trail the primary, so a user who was just written could log in before their row reaches the replica
+// and be told the account does not exist. users written by this instance within
+// database.replicas.read-your-writes-window keep reading from the primary.
+// the window is per instance - a login landing on another instance right after a registration can still
+// reach a replica that has not caught up
+@Component
+public class ReadYourWrites {
+    private final Cache<String, Boolean> recentWrites;
+
+    public ReadYourWrites(@Value("${database.replicas.read-your-writes-window:PT5S}") Duration window){
+        this.recentWrites = Caffeine.newBuilder()
+                .expireAfterWrite(window)
+                .maximumSize(100_000)
+                .build();
+    }
+
+    public void wrote(String username){
+        recentWrites.put(key(username), Boolean.TRUE);
+    }
+
+    public <T> Mono<T> read(String username, Mono<T> query){
+        return Mono.defer(() -> recentWrites.getIfPresent(key(username)) != null ? query : ReplicaRouting.readOnly(query));
+    }
+
+    // usernames compare case and accent insensitively in the users table, any spelling of a name shares its key
+    private static String key(String username){
+        return Usernames.normalize(username);
+    }
+}
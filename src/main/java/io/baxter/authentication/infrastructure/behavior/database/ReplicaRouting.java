@@ -0,0 +1,26 @@
+package io.baxter.authentication.infrastructure.behavior.database;
+
+import reactor.core.publisher.*;
+import reactor.util.context.ContextView;
+
+// marks a query as safe to answer from a read replica, see ReadWriteRoutingConnectionFactory.
+// anything not marked - and anything inside a transaction, which holds on to the connection it began with -
+// runs on the primary
+public final class ReplicaRouting {
+    private static final String READ_ONLY = ReplicaRouting.class.getName() + ".read-only";
+
+    private ReplicaRouting(){
+    }
+
+    public static <T> Mono<T> readOnly(Mono<T> query){
+        return query.contextWrite(context -> context.put(READ_ONLY, true));
+    }
+
+    public static <T> Flux<T> readOnly(Flux<T> query){
+        return query.contextWrite(context -> context.put(READ_ONLY, true));
+    }
+
+    public static boolean isReadOnly(ContextView context){
+        return context.getOrDefault(READ_ONLY, false);
+    }
+}
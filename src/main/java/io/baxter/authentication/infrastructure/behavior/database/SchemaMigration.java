@@ -0,0 +1,63 @@
+package io.baxter.authentication.infrastructure.behavior.database;
+
+import java.nio.charset.StandardCharsets;
+import java.security.*;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+// one versioned script from db/migration, named V<version>__<description>.sql. the checksum is taken over the
+// script with its line endings normalized, so a checkout with different line endings is not seen as a change
+public record SchemaMigration(int version, String description, String script, String checksum) {
+    private static final Pattern FILE_NAME = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+    private static final Pattern STATEMENT_END = Pattern.compile(";\\s*(\\R|$)");
+
+    public static SchemaMigration parse(String fileName, String script){
+        var matcher = FILE_NAME.matcher(fileName);
+        if (!matcher.matches()){
+            throw new IllegalArgumentException("schema migrations must be named V<version>__<description>.sql, found " + fileName);
+        }
+
+        var normalized = script.replace("\r\n", "\n");
+        return new SchemaMigration(
+                Integer.parseInt(matcher.group(1)),
+                matcher.group(2).replace('_', ' '),
+                normalized,
+                checksum(normalized));
+    }
+
+    // orders migrations by version, rejecting two scripts with the same version
+    public static List<SchemaMigration> ordered(Collection<SchemaMigration> migrations){
+        var byVersion = new TreeMap<Integer, SchemaMigration>();
+        for (var migration : migrations){
+            var existing = byVersion.putIfAbsent(migration.version(), migration);
+            if (existing != null){
+                throw new IllegalStateException(String.format(
+                        "schema migrations '%s' and '%s' share version %d", existing.description(), migration.description(), migration.version()));
+            }
+        }
+
+        return List.copyOf(byVersion.values());
+    }
+
+    // statements end with a semicolon at the end of a line, and lines starting with -- are comments
+    public List<String> statements(){
+        var withoutComments = script.lines()
+                .filter(line -> !line.stripLeading().startsWith("--"))
+                .collect(Collectors.joining("\n"));
+
+        return Arrays.stream(STATEMENT_END.split(withoutComments))
+                .map(String::strip)
+                .filter(statement -> !statement.isEmpty())
+                .toList();
+    }
+
+    private static String checksum(String script){
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(script.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException exception){
+            throw new IllegalStateException("SHA-256 is not available", exception);
+        }
+    }
+}
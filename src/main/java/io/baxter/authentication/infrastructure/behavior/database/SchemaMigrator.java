@@ -0,0 +1,232 @@
+package io.baxter.authentication.infrastructure.behavior.database;
+
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Result;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.stream.Collectors;
+
+// applies the scripts under database.migrations.location in version order once every bean is created, before the
+// web server starts, and fails startup if one cannot be applied.
+// applied versions and their checksums are recorded in schema_migrations, and a script that changed after it was
+// applied stops startup rather than leaving the schema in doubt. instances rolling out together take turns through
+// the single row of schema_migration_lock, which is renewed while migrating and taken over once it is
+// database.migrations.lock-lease old, so a crashed instance cannot hold it forever. waiting instances give up after
+// database.migrations.lock-timeout, which must be longer than the lease.
+// mysql commits ddl as it goes, so a script that fails half way is run again from the top next time - scripts
+// must be safe to re-run. every user shard is migrated in turn, each with its own history and lock
+@Slf4j
+@Component
+public class SchemaMigrator implements SmartInitializingSingleton {
+    private static final Duration LOCK_POLL_INTERVAL = Duration.ofSeconds(1);
+
+    private final DatabaseClient databaseClient;
+    private final UserShards userShards;
+    private final boolean enabled;
+    private final String location;
+    private final Duration lockTimeout;
+    private final Duration lockLease;
+    private final String owner = ManagementFactory.getRuntimeMXBean().getName();
+
+    public SchemaMigrator(
+            ConnectionFactory connectionFactory,
+            UserShards userShards,
+            @Value("${database.migrations.enabled:true}") boolean enabled,
+            @Value("${database.migrations.location:classpath*:db/migration/*.sql}") String location,
+            @Value("${database.migrations.lock-timeout:PT15M}") Duration lockTimeout,
+            @Value("${database.migrations.lock-lease:PT10M}") Duration lockLease){
+        // a lock left behind by a crashed instance is only taken over once its lease runs out, so an instance has to
+        // be willing to wait at least that long or recovering from the crash takes restarts
+        if (lockTimeout.compareTo(lockLease) <= 0){
+            throw new IllegalArgumentException("database.migrations.lock-timeout must be longer than database.migrations.lock-lease");
+        }
+
+        this.databaseClient = DatabaseClient.create(connectionFactory);
+        this.userShards = userShards;
+        this.enabled = enabled;
+        this.location = location;
+        this.lockTimeout = lockTimeout;
+        this.lockLease = lockLease;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated(){
+        if (!enabled){
+            log.info("schema migrations disabled");
+            return;
+        }
+
+        var migrations = load();
+        Flux.fromIterable(userShards.names())
+            .concatMap(shard -> userShards.onShard(shard, migrate(migrations))
+                .doOnNext(applied -> log.info("schema of shard {} is up to date, applied {} migrations", shard, applied)))
+            .blockLast();
+    }
+
+    public List<SchemaMigration> load(){
+        try {
+            var migrations = new ArrayList<SchemaMigration>();
+            for (var resource : new PathMatchingResourcePatternResolver().getResources(location)){
+                try (var input = resource.getInputStream()){
+                    migrations.add(SchemaMigration.parse(resource.getFilename(), new String(input.readAllBytes(), StandardCharsets.UTF_8)));
+                }
+            }
+
+            return SchemaMigration.ordered(migrations);
+        } catch (IOException exception){
+            throw new UncheckedIOException("unable to read schema migrations from " + location, exception);
+        }
+    }
+
+    // emits the number of migrations applied
+    public Mono<Integer> migrate(List<SchemaMigration> migrations){
+        return createHistoryTables()
+            .then(Mono.usingWhen(
+                acquireLock(),
+                locked -> applyPending(migrations),
+                locked -> releaseLock()));
+    }
+
+    private Mono<Void> createHistoryTables(){
+        return databaseClient.sql("""
+                CREATE TABLE IF NOT EXISTS schema_migrations (
+                  version INT NOT NULL PRIMARY KEY,
+                  description VARCHAR(200) NOT NULL,
+                  checksum CHAR(64) NOT NULL,
+                  applied_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+                  execution_ms INT NOT NULL
+                ) ENGINE=InnoDB""")
+            .then()
+            .then(databaseClient.sql("""
+                CREATE TABLE IF NOT EXISTS schema_migration_lock (
+                  id TINYINT NOT NULL PRIMARY KEY,
+                  owner VARCHAR(255) NOT NULL,
+                  locked_at TIMESTAMP(3) NOT NULL
+                ) ENGINE=InnoDB""")
+                .then());
+    }
+
+    private Mono<Boolean> acquireLock(){
+        var attempt = databaseClient.sql("INSERT INTO schema_migration_lock (id, owner, locked_at) VALUES (1, :owner, CURRENT_TIMESTAMP(3))")
+            .bind("owner", owner)
+            .then()
+            .thenReturn(true)
+            .onErrorResume(DuplicateKeyException.class, exception -> breakStaleLock().then(Mono.<Boolean>empty()));
+
+        return attempt
+            .repeatWhenEmpty(repeats -> repeats.concatMap(repeat -> {
+                if (repeat == 0){
+                    log.info("waiting for another instance to finish migrating the schema");
+                }
+
+                return Mono.delay(LOCK_POLL_INTERVAL);
+            }))
+            .timeout(lockTimeout, Mono.error(() -> new IllegalStateException("timed out waiting for the schema migration lock")));
+    }
+
+    private Mono<Void> breakStaleLock(){
+        return databaseClient.sql("DELETE FROM schema_migration_lock WHERE id = 1 AND locked_at < CURRENT_TIMESTAMP(3) - INTERVAL :lease SECOND")
+            .bind("lease", lockLease.toSeconds())
+            .fetch()
+            .rowsUpdated()
+            .doOnNext(deleted -> {
+                if (deleted > 0){
+                    log.warn("took over a schema migration lock not renewed for {}", lockLease);
+                }
+            })
+            .then();
+    }
+
+    private Mono<Void> renewLock(){
+        return databaseClient.sql("UPDATE schema_migration_lock SET locked_at = CURRENT_TIMESTAMP(3) WHERE id = 1 AND owner = :owner")
+            .bind("owner", owner)
+            .then();
+    }
+
+    private Mono<Void> releaseLock(){
+        return databaseClient.sql("DELETE FROM schema_migration_lock WHERE id = 1 AND owner = :owner")
+            .bind("owner", owner)
+            .then();
+    }
+
+    private Mono<Integer> applyPending(List<SchemaMigration> migrations){
+        return Mono.deferContextual(context -> {
+            // keeps the lock fresh for migrations that run longer than the lease, such as an index on a large table.
+            // renewals run on their own subscription, so they are given the shard being migrated
+            var renewals = Flux.interval(lockLease.dividedBy(3))
+                .onBackpressureDrop()
+                .concatMap(tick -> renewLock().onErrorResume(exception -> {
+                    log.error("unable to renew the schema migration lock", exception);
+                    return Mono.empty();
+                }))
+                .contextWrite(context)
+                .subscribe();
+
+            return applyPending(migrations, renewals);
+        });
+    }
+
+    private Mono<Integer> applyPending(List<SchemaMigration> migrations, Disposable renewals){
+        return databaseClient.sql("SELECT version, checksum FROM schema_migrations")
+            .map(row -> Map.entry(row.get("version", Integer.class), row.get("checksum", String.class)))
+            .all()
+            .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+            .flatMap(applied -> {
+                var known = migrations.stream().map(SchemaMigration::version).collect(Collectors.toSet());
+                applied.keySet().stream()
+                    .filter(version -> !known.contains(version))
+                    .forEach(version -> log.warn("schema migration V{} is applied but not known to this version of the service", version));
+
+                var pending = new ArrayList<SchemaMigration>();
+                for (var migration : migrations){
+                    var checksum = applied.get(migration.version());
+                    if (checksum == null){
+                        pending.add(migration);
+                    } else if (!checksum.equals(migration.checksum())){
+                        return Mono.error(new IllegalStateException(String.format(
+                                "schema migration V%d %s has changed since it was applied", migration.version(), migration.description())));
+                    }
+                }
+
+                return Flux.fromIterable(pending)
+                    .concatMap(this::apply)
+                    .count()
+                    .map(Long::intValue);
+            })
+            .doFinally(signal -> renewals.dispose());
+    }
+
+    // the statements of one script share a connection, so a script can use session variables
+    private Mono<Void> apply(SchemaMigration migration){
+        return Mono.defer(() -> {
+            log.info("applying schema migration V{} {}", migration.version(), migration.description());
+            var started = System.nanoTime();
+
+            return databaseClient.inConnectionMany(connection -> Flux.fromIterable(migration.statements())
+                    .concatMap(statement -> Flux.from(connection.createStatement(statement).execute())
+                        .concatMap(Result::getRowsUpdated)))
+                .then(Mono.defer(() -> databaseClient.sql("INSERT INTO schema_migrations (version, description, checksum, execution_ms) VALUES (:version, :description, :checksum, :executionMs)")
+                    .bind("version", migration.version())
+                    .bind("description", migration.description())
+                    .bind("checksum", migration.checksum())
+                    .bind("executionMs", Duration.ofNanos(System.nanoTime() - started).toMillis())
+                    .then()))
+                .onErrorMap(exception -> new IllegalStateException(String.format(
+                        "unable to apply schema migration V%d %s", migration.version(), migration.description()), exception));
+        });
+    }
+}
@@ -0,0 +1,79 @@
+package io.baxter.authentication.infrastructure.behavior.database;
+
+import io.r2dbc.spi.ConnectionFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.*;
+
+import java.math.BigInteger;
+import java.util.*;
+
+// every user shard hands out users.id from its own AUTO_INCREMENT, and ids are kept when UserReshardingService
+// moves a user, so two shards must never be able to hand out the same id - the moved user would collide with one
+// already there and be left behind. with more than one shard, the @@auto_increment_increment and
+// @@auto_increment_offset of every shard are read once every bean is created, before the web server starts, and
+// startup fails when any two of them could produce the same id
+@Slf4j
+@Component
+public class ShardIdAllocation implements SmartInitializingSingleton {
+    private final DatabaseClient databaseClient;
+    private final UserShards userShards;
+
+    public ShardIdAllocation(ConnectionFactory connectionFactory, UserShards userShards){
+        this.databaseClient = DatabaseClient.create(connectionFactory);
+        this.userShards = userShards;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated(){
+        if (userShards.names().size() < 2){
+            return;
+        }
+
+        var series = Flux.fromIterable(userShards.names())
+            .concatMap(shard -> userShards.onShard(shard, read()).map(ids -> Map.entry(shard, ids)))
+            .collectMap(Map.Entry::getKey, Map.Entry::getValue, LinkedHashMap::new)
+            .block();
+
+        verify(series);
+        log.info("user ids cannot overlap between shards {}", series);
+    }
+
+    // fails on the first two shards whose id series share a value
+    public static void verify(Map<String, IdSeries> series){
+        var shards = new ArrayList<>(series.entrySet());
+        for (var i = 0; i < shards.size(); i++){
+            for (var j = i + 1; j < shards.size(); j++){
+                var first = shards.get(i);
+                var second = shards.get(j);
+                if (first.getValue().overlaps(second.getValue())){
+                    throw new IllegalStateException(String.format(
+                        "user shards %s (%s) and %s (%s) can hand out the same user ids, give each shard its own auto_increment_offset under a shared auto_increment_increment",
+                        first.getKey(), first.getValue(), second.getKey(), second.getValue()));
+                }
+            }
+        }
+    }
+
+    private Mono<IdSeries> read(){
+        return databaseClient.sql("SELECT CAST(@@auto_increment_increment AS SIGNED) AS increment_by, CAST(@@auto_increment_offset AS SIGNED) AS offset_by")
+            .map(row -> new IdSeries(row.get("increment_by", Long.class), row.get("offset_by", Long.class)))
+            .one();
+    }
+
+    // the ids a shard hands out: offset, offset + increment, offset + 2 * increment, ...
+    public record IdSeries(long increment, long offset){
+        // mysql ignores an offset larger than the increment and starts from 1
+        public long start(){
+            return offset > increment ? 1 : offset;
+        }
+
+        // two series meet exactly when their starts agree modulo the greatest common divisor of the increments
+        public boolean overlaps(IdSeries other){
+            var step = BigInteger.valueOf(increment).gcd(BigInteger.valueOf(other.increment)).longValue();
+            return Math.floorMod(start() - other.start(), step) == 0;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package io.baxter.authentication.infrastructure.behavior.database;
+
+import io.r2dbc.spi.*;
+import org.springframework.r2dbc.connection.lookup.AbstractRoutingConnectionFactory;
+import reactor.core.publisher.Mono;
+
+import java.util.*;
+
+// sends queries marked by UserShards.onShard to that shard's connection factory and everything else to the primary
+// shard. a shard name with no connection factory is an error rather than a silent fall back to the primary.
+// transactions take their connection when they begin, so a transaction stays on the shard it started on.
+// unwraps to the primary so the pool metrics still find it
+public class ShardRoutingConnectionFactory extends AbstractRoutingConnectionFactory implements Wrapped<ConnectionFactory> {
+    private final ConnectionFactory primary;
+    private final Map<String, ConnectionFactory> shards;
+
+    public ShardRoutingConnectionFactory(String primaryName, ConnectionFactory primary, Map<String, ConnectionFactory> shards){
+        var targets = new LinkedHashMap<String, ConnectionFactory>();
+        targets.put(primaryName, primary);
+        targets.putAll(shards);
+
+        this.primary = primary;
+        this.shards = Collections.unmodifiableMap(targets);
+
+        setTargetConnectionFactories(new LinkedHashMap<>(targets));
+        setDefaultTargetConnectionFactory(primary);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    // every shard by name, the primary included
+    public Map<String, ConnectionFactory> getShards(){
+        return shards;
+    }
+
+    @Override
+    protected Mono<Object> determineCurrentLookupKey(){
+        return Mono.deferContextual(context -> Mono.justOrEmpty(UserShards.shardOf(context)));
+    }
+
+    @Override
+    public ConnectionFactory unwrap(){
+        return primary;
+    }
+}
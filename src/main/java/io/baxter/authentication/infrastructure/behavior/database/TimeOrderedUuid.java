@@ -0,0 +1,38 @@
+package io.baxter.authentication.infrastructure.behavior.database;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+// the BINARY(16) layout of users.user_id, the same as mysql's UUID_TO_BIN(id, 1): the version 1 uuids from UUID()
+// start with the fast changing low bits of their timestamp, so the time high and time low fields are swapped to put
+// ids generated close together next to each other in the index
+public final class TimeOrderedUuid {
+    private TimeOrderedUuid(){
+    }
+
+    public static byte[] toBytes(UUID uuid){
+        var bits = uuid.getMostSignificantBits();
+        var reordered = (bits << 48) | ((bits >>> 16) & 0xFFFFL) << 32 | (bits >>> 32);
+
+        return ByteBuffer.allocate(16)
+                .putLong(reordered)
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+
+    public static UUID fromBytes(byte[] bytes){
+        return fromBytes(ByteBuffer.wrap(bytes));
+    }
+
+    public static UUID fromBytes(ByteBuffer bytes){
+        if (bytes.remaining() != 16){
+            throw new IllegalArgumentException("a user id is 16 bytes, found " + bytes.remaining());
+        }
+
+        var buffer = bytes.duplicate();
+        var reordered = buffer.getLong();
+        var bits = (reordered << 32) | ((reordered >>> 32) & 0xFFFFL) << 16 | (reordered >>> 48);
+
+        return new UUID(bits, buffer.getLong());
+    }
+}
@@ -0,0 +1,52 @@
+package io.baxter.authentication.infrastructure.behavior.database;
+
+import io.micrometer.core.instrument.*;
+import io.r2dbc.spi.*;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+
+// records r2dbc.pool.acquire - how long callers wait for a connection out of the pool, including any connection
+// setup and validation the pool does on the way. the pool's own gauges (r2dbc.pool.acquired, .pending, ...) still
+// find the pool through unwrap. it does not own the pool: the primary pool is closed by spring through the pool
+// bean's own destroy method, replica and shard pools by ConnectionPoolConfiguration
+public class TimedConnectionFactory implements ConnectionFactory, Wrapped<ConnectionFactory> {
+    private final ConnectionFactory delegate;
+    private final Timer acquired;
+    private final Timer failed;
+
+    public TimedConnectionFactory(ConnectionFactory delegate, String name, MeterRegistry meterRegistry){
+        this.delegate = delegate;
+        this.acquired = acquireTimer(name, "success", meterRegistry);
+        this.failed = acquireTimer(name, "error", meterRegistry);
+    }
+
+    @Override
+    public Mono<Connection> create(){
+        return Mono.defer(() -> {
+            var started = System.nanoTime();
+            return Mono.<Connection>from(delegate.create())
+                    .doOnSuccess(connection -> acquired.record(System.nanoTime() - started, TimeUnit.NANOSECONDS))
+                    .doOnError(exception -> failed.record(System.nanoTime() - started, TimeUnit.NANOSECONDS));
+        });
+    }
+
+    @Override
+    public ConnectionFactoryMetadata getMetadata(){
+        return delegate.getMetadata();
+    }
+
+    @Override
+    public ConnectionFactory unwrap(){
+        return delegate;
+    }
+
+    private static Timer acquireTimer(String name, String outcome, MeterRegistry meterRegistry){
+        return Timer.builder("r2dbc.pool.acquire")
+                .description("time taken to acquire a database connection from the pool")
+                .tag("name", name)
+                .tag("outcome", outcome)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+}
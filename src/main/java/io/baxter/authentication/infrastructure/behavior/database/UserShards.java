@@ -0,0 +1,123 @@
+package io.baxter.authentication.infrastructure.behavior.database;
+
+import io.baxter.authentication.infrastructure.behavior.helper.Usernames;
+import io.baxter.authentication.infrastructure.behavior.redis.ConsistentHashRing;
+import reactor.core.publisher.*;
+import reactor.util.context.ContextView;
+
+import java.util.*;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+// places every user - their users row and user_roles - on one database shard, picked by a consistent hash of the
+// normalized username, so a login or registration only ever touches one shard. onShard marks a query for
+// ShardRoutingConnectionFactory the same way ReplicaRouting marks reads, unmarked queries run on the primary shard.
+// while resharding the ring the shards were placed with before is kept in previousShardFor, so users that
+// UserReshardingService has not moved yet can still be found
+public class UserShards {
+    public static final String PRIMARY = "primary";
+    private static final String SHARD = UserShards.class.getName() + ".shard";
+
+    private final String primary;
+    private final List<String> names;
+    private final ConsistentHashRing<String> ring;
+    private final ConsistentHashRing<String> previous;
+
+    public UserShards(String primary, Collection<String> names, Collection<String> previousNames, int virtualNodes){
+        var shards = new LinkedHashSet<String>();
+        shards.add(primary);
+        shards.addAll(names);
+
+        if (!shards.containsAll(previousNames)){
+            throw new IllegalArgumentException("previous user shards must be a subset of the current ones, found " + previousNames);
+        }
+
+        this.primary = primary;
+        this.names = List.copyOf(shards);
+        this.ring = ring(shards, virtualNodes);
+        this.previous = previousNames.isEmpty() || previousNames.containsAll(shards) ? null : ring(previousNames, virtualNodes);
+    }
+
+    public static UserShards single(){
+        return new UserShards(PRIMARY, List.of(), List.of(), 1);
+    }
+
+    public String primary(){
+        return primary;
+    }
+
+    public List<String> names(){
+        return names;
+    }
+
+    public boolean isResharding(){
+        return previous != null;
+    }
+
+    // mysql folds a few non ascii characters further than Usernames.normalize (e.g. sharp s), two names it treats
+    // as equal could land on different shards - the unique index only holds within a shard
+    public String shardFor(String username){
+        return ring.nodeFor(Usernames.normalize(username));
+    }
+
+    // the shard the user was placed on before the current resharding, when that is not where they belong now
+    public Optional<String> previousShardFor(String username){
+        if (previous == null){
+            return Optional.empty();
+        }
+
+        var shard = previous.nodeFor(Usernames.normalize(username));
+        return shard.equals(shardFor(username)) ? Optional.empty() : Optional.of(shard);
+    }
+
+    public <T> Mono<T> onShard(String shard, Mono<T> query){
+        return query.contextWrite(context -> context.put(SHARD, shard));
+    }
+
+    public <T> Flux<T> onShard(String shard, Flux<T> query){
+        return query.contextWrite(context -> context.put(SHARD, shard));
+    }
+
+    public <T> Mono<T> onShardOf(String username, Mono<T> query){
+        return onShard(shardFor(username), query);
+    }
+
+    // the query on the shard the user belongs on. while resharding the previous shard is asked first - users are
+    // copied to their new shard before they are deleted from the old one, so the two lookups cannot both miss a
+    // user that is being moved
+    public <T> Mono<T> onShardsOf(String username, Supplier<Mono<T>> query){
+        var current = onShardOf(username, Mono.defer(query));
+
+        return previousShardFor(username)
+            .map(shard -> onShard(shard, Mono.defer(query)).switchIfEmpty(current))
+            .orElse(current);
+    }
+
+    public static Optional<String> shardOf(ContextView context){
+        return context.getOrEmpty(SHARD);
+    }
+
+    // database.shards.urls is a comma separated list of name=r2dbc url
+    public static Map<String, String> parse(String urls){
+        var shards = new LinkedHashMap<String, String>();
+        for (var shard : urls.split(",")){
+            if (shard.isBlank()){
+                continue;
+            }
+
+            var separator = shard.indexOf('=');
+            if (separator < 1){
+                throw new IllegalArgumentException("user shards must be name=url, found " + shard.trim());
+            }
+
+            shards.put(shard.substring(0, separator).trim(), shard.substring(separator + 1).trim());
+        }
+
+        return shards;
+    }
+
+    private static ConsistentHashRing<String> ring(Collection<String> names, int virtualNodes){
+        return new ConsistentHashRing<>(names.stream()
+                .collect(Collectors.toMap(name -> name, name -> name, (first, second) -> first, LinkedHashMap::new)), virtualNodes);
+    }
+}
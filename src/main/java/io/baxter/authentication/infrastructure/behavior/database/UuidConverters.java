@@ -0,0 +1,48 @@
+package io.baxter.authentication.infrastructure.behavior.database;
+
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.*;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+// maps UUID properties straight to and from their BINARY(16) bytes (see TimeOrderedUuid), instead of through the
+// 36 character text form. the driver hands binary columns back as either byte[] or ByteBuffer
+public final class UuidConverters {
+    private UuidConverters(){
+    }
+
+    public static List<Converter<?, ?>> all(){
+        return List.of(UuidToBytes.INSTANCE, BytesToUuid.INSTANCE, ByteBufferToUuid.INSTANCE);
+    }
+
+    @WritingConverter
+    enum UuidToBytes implements Converter<UUID, byte[]> {
+        INSTANCE;
+
+        @Override
+        public byte[] convert(UUID source){
+            return TimeOrderedUuid.toBytes(source);
+        }
+    }
+
+    @ReadingConverter
+    enum BytesToUuid implements Converter<byte[], UUID> {
+        INSTANCE;
+
+        @Override
+        public UUID convert(byte[] source){
+            return TimeOrderedUuid.fromBytes(source);
+        }
+    }
+
+    @ReadingConverter
+    enum ByteBufferToUuid implements Converter<ByteBuffer, UUID> {
+        INSTANCE;
+
+        @Override
+        public UUID convert(ByteBuffer source){
+            return TimeOrderedUuid.fromBytes(source);
+        }
+    }
+}
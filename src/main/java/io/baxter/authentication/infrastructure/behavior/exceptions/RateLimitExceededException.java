@@ -0,0 +1,13 @@
+package io.baxter.authentication.infrastructure.behavior.exceptions;
+
+import lombok.Getter;
+
+@Getter
+public class RateLimitExceededException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public RateLimitExceededException(long retryAfterSeconds){
+        super("Too many requests, retry later");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -0,0 +1,13 @@
+package io.baxter.authentication.infrastructure.behavior.exceptions;
+
+import lombok.Getter;
+
+@Getter
+public class ServiceOverloadedException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public ServiceOverloadedException(long retryAfterSeconds){
+        super("Service is at capacity, retry later");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
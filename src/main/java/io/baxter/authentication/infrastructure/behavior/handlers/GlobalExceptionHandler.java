@@ -30,6 +30,13 @@ public class GlobalExceptionHandler {
                 .body(new AuthServiceErrorResponse(exception)));
     }
 
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public Mono<ResponseEntity<AuthServiceErrorResponse>> handleServiceOverloaded(ServiceOverloadedException exception) {
+        return Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(exception.getRetryAfterSeconds()))
+                .body(new AuthServiceErrorResponse(exception)));
+    }
+
     @ExceptionHandler(WebExchangeBindException.class)
     public Mono<ResponseEntity<AuthServiceErrorResponse>> handleWebExchangeBindException(WebExchangeBindException exception) {
         return Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST)
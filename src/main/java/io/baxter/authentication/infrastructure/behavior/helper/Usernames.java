@@ -0,0 +1,17 @@
+package io.baxter.authentication.infrastructure.behavior.helper;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+public final class Usernames {
+    private Usernames(){
+    }
+
+    // the users table uses a case and accent insensitive collation, so anything keyed by username outside mysql must
+    // fold the same way. folding beyond ascii is not exact (e.g. sharp s)
+    public static String normalize(String username){
+        return Normalizer.normalize(username, Normalizer.Form.NFKD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,141 @@
+package io.baxter.authentication.infrastructure.behavior.limits;
+
+import io.baxter.authentication.infrastructure.behavior.exceptions.ServiceOverloadedException;
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.*;
+import java.util.function.LongSupplier;
+
+// additive increase / multiplicative decrease concurrency limiter
+// the limit grows by one for every request that completes under the latency threshold while the limiter is at least
+// half utilised, and shrinks by the backoff ratio whenever a request is dropped or takes longer than the threshold
+public class AimdConcurrencyLimiter {
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long latencyThresholdNanos;
+    private final long retryAfterSeconds;
+    private final LongSupplier nanoClock;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+    private volatile double limit;
+
+    public AimdConcurrencyLimiter(
+            int initialLimit,
+            int minLimit,
+            int maxLimit,
+            double backoffRatio,
+            long latencyThresholdNanos,
+            long retryAfterSeconds,
+            LongSupplier nanoClock){
+        if (minLimit < 1 || minLimit > maxLimit || initialLimit < minLimit || initialLimit > maxLimit){
+            throw new IllegalArgumentException("limits must satisfy 1 <= min <= initial <= max");
+        }
+
+        if (backoffRatio <= 0 || backoffRatio >= 1){
+            throw new IllegalArgumentException("backoff ratio must be between 0 and 1");
+        }
+
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.latencyThresholdNanos = latencyThresholdNanos;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.nanoClock = nanoClock;
+    }
+
+    public int getLimit(){ return (int) limit; }
+    public int getInFlight(){ return inFlight.get(); }
+    public long getRejected(){ return rejected.get(); }
+    public long getRetryAfterSeconds(){ return retryAfterSeconds; }
+
+    // runs the work if there is capacity, otherwise fails fast with a ServiceOverloadedException
+    // a RejectedExecutionException from downstream (e.g. a full hashing queue) counts as a drop and is surfaced the same way
+    public <T> Mono<T> admit(Mono<T> work){
+        return Mono.defer(() -> {
+            var permit = tryAcquire();
+
+            if (permit.isEmpty()){
+                return Mono.error(new ServiceOverloadedException(retryAfterSeconds));
+            }
+
+            var acquired = permit.get();
+
+            return work
+                .doOnSuccess(result -> acquired.success())
+                .doOnError(exception -> {
+                    if (exception instanceof RejectedExecutionException){
+                        acquired.dropped();
+                    } else {
+                        acquired.release();
+                    }
+                })
+                .doOnCancel(acquired::release)
+                .onErrorMap(RejectedExecutionException.class, exception -> new ServiceOverloadedException(retryAfterSeconds));
+        });
+    }
+
+    public Optional<Permit> tryAcquire(){
+        while (true){
+            int current = inFlight.get();
+
+            if (current >= (int) limit){
+                rejected.incrementAndGet();
+                return Optional.empty();
+            }
+
+            if (inFlight.compareAndSet(current, current + 1)){
+                return Optional.of(new Permit(nanoClock.getAsLong()));
+            }
+        }
+    }
+
+    private synchronized void onSample(long latencyNanos, int inFlightAtCompletion, boolean dropped){
+        if (dropped || latencyNanos > latencyThresholdNanos){
+            limit = Math.max(minLimit, limit * backoffRatio);
+        } else if (inFlightAtCompletion * 2 >= limit){
+            limit = Math.min(maxLimit, limit + 1);
+        }
+    }
+
+    public final class Permit {
+        private final long startNanos;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(long startNanos){
+            this.startNanos = startNanos;
+        }
+
+        // work completed, feed the observed latency back into the limit
+        public void success(){
+            complete(false, true);
+        }
+
+        // work was rejected downstream because of overload
+        public void dropped(){
+            rejected.incrementAndGet();
+            complete(true, true);
+        }
+
+        // work ended without telling us anything about capacity (failure or cancellation)
+        public void release(){
+            complete(false, false);
+        }
+
+        private void complete(boolean dropped, boolean sample){
+            if (!released.compareAndSet(false, true)){
+                return;
+            }
+
+            int inFlightAtCompletion = inFlight.getAndDecrement();
+
+            if (sample){
+                onSample(nanoClock.getAsLong() - startNanos, inFlightAtCompletion, dropped);
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package io.baxter.authentication.infrastructure.behavior.limits;
+
+import reactor.core.publisher.Mono;
+
+import java.time.*;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// counts requests in this instance only, one SlidingWindowSketch per rule - behind a load balancer each instance
+// admits the full limit, so a client spread over n instances gets up to n times as many
+public class LocalRateLimiter implements RateLimiter {
+    private final Clock clock;
+    private final int depth;
+    private final int width;
+    private final Map<RateLimitRule, SlidingWindowSketch> sketches = new ConcurrentHashMap<>();
+
+    public LocalRateLimiter(Clock clock, int depth, int width){
+        this.clock = clock;
+        this.depth = depth;
+        this.width = width;
+    }
+
+    @Override
+    public Mono<Duration> acquire(RateLimitRule rule, String key){
+        return Mono.fromSupplier(() -> Duration.ofMillis(sketch(rule).tryAcquire(key, rule.permits(), clock.millis())));
+    }
+
+    public long memoryBytes(){
+        return sketches.values().stream().mapToLong(SlidingWindowSketch::memoryBytes).sum();
+    }
+
+    private SlidingWindowSketch sketch(RateLimitRule rule){
+        return sketches.computeIfAbsent(rule, ignored -> new SlidingWindowSketch(depth, width, rule.window().toMillis()));
+    }
+}
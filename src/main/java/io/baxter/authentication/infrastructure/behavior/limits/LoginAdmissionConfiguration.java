@@ -0,0 +1,47 @@
+package io.baxter.authentication.infrastructure.behavior.limits;
+
+import io.micrometer.core.instrument.*;
+import lombok.Generated;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.*;
+
+import java.util.concurrent.TimeUnit;
+
+@Generated
+@Configuration
+public class LoginAdmissionConfiguration {
+    // caps concurrent password verifications on login, see AccessServiceImpl.login
+    @Bean
+    public AimdConcurrencyLimiter loginAdmissionLimiter(
+            @Value("${login.admission.initial-limit:20}") int initialLimit,
+            @Value("${login.admission.min-limit:1}") int minLimit,
+            @Value("${login.admission.max-limit:200}") int maxLimit,
+            @Value("${login.admission.backoff-ratio:0.9}") double backoffRatio,
+            @Value("${login.admission.latency-threshold-ms:500}") long latencyThresholdMs,
+            @Value("${login.admission.retry-after-seconds:1}") long retryAfterSeconds,
+            MeterRegistry meterRegistry) {
+
+        var limiter = new AimdConcurrencyLimiter(
+                initialLimit,
+                minLimit,
+                maxLimit,
+                backoffRatio,
+                TimeUnit.MILLISECONDS.toNanos(latencyThresholdMs),
+                retryAfterSeconds,
+                System::nanoTime);
+
+        Gauge.builder("login.admission.limit", limiter, AimdConcurrencyLimiter::getLimit)
+                .description("current concurrency limit for login password verification")
+                .register(meterRegistry);
+
+        Gauge.builder("login.admission.in-flight", limiter, AimdConcurrencyLimiter::getInFlight)
+                .description("password verifications currently admitted")
+                .register(meterRegistry);
+
+        FunctionCounter.builder("login.admission.rejected", limiter, AimdConcurrencyLimiter::getRejected)
+                .description("login attempts shed because the limit was reached")
+                .register(meterRegistry);
+
+        return limiter;
+    }
+}
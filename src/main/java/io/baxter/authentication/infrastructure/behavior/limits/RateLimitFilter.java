@@ -0,0 +1,141 @@
+package io.baxter.authentication.infrastructure.behavior.limits;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.baxter.authentication.infrastructure.behavior.exceptions.RateLimitExceededException;
+import io.baxter.authentication.infrastructure.behavior.handlers.AuthServiceErrorResponse;
+import io.baxter.authentication.infrastructure.behavior.helper.Usernames;
+import io.micrometer.core.instrument.*;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.*;
+import org.springframework.http.*;
+import org.springframework.http.server.reactive.*;
+import org.springframework.web.server.*;
+import reactor.core.publisher.*;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.*;
+import java.util.stream.Collectors;
+
+// applies rate-limit.rules to POST requests before they reach the security chain, answering 429 with Retry-After
+// once a client ip or a username is over its limit - so a flood of logins is turned away before it costs a password
+// verification. username rules read the userName field of the json body, which is then replayed to the handler.
+// the client ip is the connection's remote address, behind a proxy set server.forward-headers-strategy so it is
+// taken from the forwarded headers
+@Slf4j
+public class RateLimitFilter implements WebFilter, Ordered {
+    // the security chain runs at -100
+    public static final int ORDER = -200;
+    private static final int MAX_BODY_BYTES = 16 * 1024;
+
+    private final Map<String, List<RateLimitRule>> rulesByPath;
+    private final RateLimiter rateLimiter;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    public RateLimitFilter(List<RateLimitRule> rules, RateLimiter rateLimiter, ObjectMapper objectMapper, MeterRegistry meterRegistry){
+        this.rulesByPath = rules.stream().collect(Collectors.groupingBy(RateLimitRule::path));
+        this.rateLimiter = rateLimiter;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public int getOrder(){
+        return ORDER;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain){
+        var request = exchange.getRequest();
+        var rules = rulesByPath.get(request.getPath().pathWithinApplication().value());
+        if (rules == null || !HttpMethod.POST.equals(request.getMethod())){
+            return chain.filter(exchange);
+        }
+
+        if (rules.stream().noneMatch(rule -> rule.key() == RateLimitRule.Key.USERNAME)){
+            return limit(exchange, chain, rules, null);
+        }
+
+        return DataBufferUtils.join(request.getBody(), MAX_BODY_BYTES)
+            .map(buffer -> {
+                var body = new byte[buffer.readableByteCount()];
+                buffer.read(body);
+                DataBufferUtils.release(buffer);
+                return body;
+            })
+            .defaultIfEmpty(new byte[0])
+            .flatMap(body -> limit(exchange.mutate().request(replay(request, body)).build(), chain, rules, userName(body)))
+            .onErrorResume(DataBufferLimitException.class, exception -> {
+                exchange.getResponse().setStatusCode(HttpStatus.PAYLOAD_TOO_LARGE);
+                return exchange.getResponse().setComplete();
+            });
+    }
+
+    // rules are checked in order and the first one over its limit rejects the request
+    private Mono<Void> limit(ServerWebExchange exchange, WebFilterChain chain, List<RateLimitRule> rules, String userName){
+        return Flux.fromIterable(rules)
+            .concatMap(rule -> key(rule, exchange, userName)
+                .map(key -> rateLimiter.acquire(rule, key)
+                    .filter(retryAfter -> !retryAfter.isZero())
+                    .map(retryAfter -> new Rejection(rule, retryAfter)))
+                .orElse(Mono.empty()))
+            .next()
+            .map(Optional::of)
+            .defaultIfEmpty(Optional.empty())
+            .flatMap(rejection -> rejection.isPresent() ? reject(exchange, rejection.get()) : chain.filter(exchange));
+    }
+
+    // requests without the key, such as a body with no user name, are left for validation to turn away
+    private static Optional<String> key(RateLimitRule rule, ServerWebExchange exchange, String userName){
+        if (rule.key() == RateLimitRule.Key.USERNAME){
+            return Optional.ofNullable(userName).filter(name -> !name.isBlank()).map(Usernames::normalize);
+        }
+
+        return Optional.ofNullable(exchange.getRequest().getRemoteAddress())
+            .map(address -> address.getAddress() == null ? address.getHostString() : address.getAddress().getHostAddress());
+    }
+
+    private Mono<Void> reject(ServerWebExchange exchange, Rejection rejection){
+        meterRegistry.counter("rate-limit.rejected", "rule", rejection.rule().name()).increment();
+        log.warn("rate limit {} exceeded, rejecting request", rejection.rule().name());
+
+        // the limiter reports when the sliding count next has room, rounded up to whole seconds here so a client that
+        // waits that long without sending anything else is let in
+        var exception = new RateLimitExceededException(Math.max(1, (rejection.retryAfter().toMillis() + 999) / 1000));
+        var response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(exception.getRetryAfterSeconds()));
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+
+        try {
+            var body = objectMapper.writeValueAsBytes(new AuthServiceErrorResponse(exception));
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+        } catch (IOException writeException){
+            return Mono.error(writeException);
+        }
+    }
+
+    private String userName(byte[] body){
+        try {
+            var userName = objectMapper.readTree(body).path("userName");
+            return userName.isTextual() ? userName.asText() : null;
+        } catch (IOException exception){
+            // malformed json is rejected by the handler
+            return null;
+        }
+    }
+
+    private static ServerHttpRequest replay(ServerHttpRequest request, byte[] body){
+        return new ServerHttpRequestDecorator(request) {
+            @Override
+            public Flux<DataBuffer> getBody(){
+                return Flux.defer(() -> Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(body)));
+            }
+        };
+    }
+
+    private record Rejection(RateLimitRule rule, Duration retryAfter){
+    }
+}
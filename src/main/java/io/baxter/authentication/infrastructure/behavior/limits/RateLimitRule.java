@@ -0,0 +1,47 @@
+package io.baxter.authentication.infrastructure.behavior.limits;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.regex.Pattern;
+
+// at most permits requests to path in any window, counted per client ip or per username in the request body
+public record RateLimitRule(String path, Key key, int permits, Duration window){
+    private static final Pattern RULE = Pattern.compile("(\\S+)\\s+(ip|username)\\s+(\\d+)/(\\S+)");
+
+    public enum Key { IP, USERNAME }
+
+    public RateLimitRule {
+        if (permits < 1 || window.toMillis() < 1){
+            throw new IllegalArgumentException("a rate limit needs at least one permit and a window of at least a millisecond");
+        }
+    }
+
+    // identifies the rule in metrics and redis keys
+    public String name(){
+        return path + ":" + key.name().toLowerCase(Locale.ROOT);
+    }
+
+    // rate-limit.rules is a comma separated list of "<path> <ip|username> <permits>/<window>",
+    // e.g. "/api/auth/login ip 30/PT1M, /api/auth/login username 10/PT1M"
+    public static List<RateLimitRule> parse(String rules){
+        var parsed = new ArrayList<RateLimitRule>();
+        for (var rule : rules.split(",")){
+            if (rule.isBlank()){
+                continue;
+            }
+
+            var matcher = RULE.matcher(rule.trim());
+            if (!matcher.matches()){
+                throw new IllegalArgumentException("rate limit rules must be <path> <ip|username> <permits>/<window>, found " + rule.trim());
+            }
+
+            parsed.add(new RateLimitRule(
+                    matcher.group(1),
+                    Key.valueOf(matcher.group(2).toUpperCase(Locale.ROOT)),
+                    Integer.parseInt(matcher.group(3)),
+                    Duration.parse(matcher.group(4))));
+        }
+
+        return parsed;
+    }
+}
@@ -0,0 +1,11 @@
+package io.baxter.authentication.infrastructure.behavior.limits;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+public interface RateLimiter {
+    // counts a request for key against the rule, emitting zero when it is admitted, otherwise how long the
+    // client should wait before trying again. rejected requests are not counted
+    Mono<Duration> acquire(RateLimitRule rule, String key);
+}
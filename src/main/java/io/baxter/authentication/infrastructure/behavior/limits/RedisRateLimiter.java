@@ -0,0 +1,66 @@
+package io.baxter.authentication.infrastructure.behavior.limits;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.*;
+import java.time.*;
+import java.util.*;
+
+// counts requests across every instance in redis with the same two window approximation as SlidingWindowSketch,
+// each check and increment one script call. keys hold a hash of the client key, so usernames are not stored, and a
+// hash tag keeps both windows of a key in one cluster slot. when redis cannot be reached requests are admitted -
+// the limiter protects capacity, it should not take logins down with it
+@Slf4j
+public class RedisRateLimiter implements RateLimiter {
+    private static final RedisScript<Long> ACQUIRE = RedisScript.of(new ClassPathResource("redis/rate-limit.lua"), Long.class);
+
+    private final ReactiveStringRedisTemplate redis;
+    private final Clock clock;
+
+    public RedisRateLimiter(ReactiveStringRedisTemplate redis, Clock clock){
+        this.redis = redis;
+        this.clock = clock;
+    }
+
+    @Override
+    public Mono<Duration> acquire(RateLimitRule rule, String key){
+        return Mono.defer(() -> {
+            var now = clock.millis();
+            var windowMillis = rule.window().toMillis();
+            var index = Math.floorDiv(now, windowMillis);
+            var elapsed = Math.floorMod(now, windowMillis);
+            var prefix = "rate-limit:{" + rule.name() + ":" + hash(key) + "}:";
+
+            var keys = List.of(prefix + index, prefix + (index - 1));
+            var args = List.of(
+                    String.valueOf(rule.permits()),
+                    String.valueOf(windowMillis),
+                    String.valueOf(elapsed),
+                    // the counter is read as the previous window for one window after its own
+                    String.valueOf(2 * windowMillis));
+
+            // the script answers 0 when it counted the request, otherwise how long until it would be admitted
+            return redis.execute(ACQUIRE, keys, args)
+                .next()
+                .map(Duration::ofMillis)
+                .onErrorResume(exception -> {
+                    log.warn("unable to check rate limit {} in redis, admitting the request", rule.name(), exception);
+                    return Mono.just(Duration.ZERO);
+                });
+        });
+    }
+
+    private static String hash(String key){
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException exception){
+            throw new IllegalStateException("SHA-256 is not available", exception);
+        }
+    }
+}
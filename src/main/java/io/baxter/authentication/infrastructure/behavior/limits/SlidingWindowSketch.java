@@ -0,0 +1,143 @@
+package io.baxter.authentication.infrastructure.behavior.limits;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.*;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+// per key request counts over a sliding window in a fixed amount of memory, however many keys there are.
+// counts live in a count-min sketch - depth rows of width counters, a key's count is the smallest of its counter
+// in every row - kept for the current and the previous fixed window. the sliding count is the current window's
+// plus the share of the previous one that still falls inside the sliding window, which assumes the previous
+// window's requests were spread evenly over it.
+// keys that share counters in every row inflate each other's counts, never deflate them, so a crowded sketch
+// rejects early rather than letting anyone over their limit. counters are only raised as far as the key's new
+// count (conservative update), which keeps that error well under the count-min bound of e / width of the requests
+// in a window. the rows are hashed with a random secret, so nobody can pick keys that collide with someone else's
+public class SlidingWindowSketch {
+    private final int depth;
+    private final int width;
+    private final long windowMillis;
+    private final byte[] secret = new byte[16];
+
+    private volatile Windows windows;
+
+    public SlidingWindowSketch(int depth, int width, long windowMillis){
+        if (depth < 1 || depth > 8 || width < 1 || windowMillis < 1){
+            throw new IllegalArgumentException("a sketch needs 1 to 8 rows, at least one counter per row and a window of at least a millisecond");
+        }
+
+        this.depth = depth;
+        this.width = width;
+        this.windowMillis = windowMillis;
+        this.windows = new Windows(new Window(Long.MIN_VALUE, 0), null);
+        new SecureRandom().nextBytes(secret);
+    }
+
+    // counts the request and returns 0 when the key is under permits, otherwise returns the milliseconds until it
+    // would be admitted, see retryAfterMillis, without counting it
+    public long tryAcquire(String key, int permits, long nowMillis){
+        var index = Math.floorDiv(nowMillis, windowMillis);
+        var elapsed = Math.floorMod(nowMillis, windowMillis);
+        var current = windows(index);
+        var slots = slots(key);
+
+        var previousCount = current.previous() == null ? 0 : current.previous().estimate(slots);
+        var count = previousCount * (windowMillis - elapsed) / (double) windowMillis + current.current().estimate(slots);
+
+        if (count + 1 > permits){
+            return retryAfterMillis(previousCount, current.current().estimate(slots), permits, windowMillis, elapsed);
+        }
+
+        current.current().add(slots);
+        return 0;
+    }
+
+    // milliseconds until a rejected key's sliding count drops far enough to admit one more request, if it sends
+    // nothing in the meantime. while the current window has room that is part way through it, once enough of the
+    // previous window has slid out. otherwise it is part way through the next window, where the current window's
+    // count is the one sliding out - the end of the current window alone is not enough, as the whole of its count
+    // still weighs in at the start of the next
+    public static long retryAfterMillis(long previousCount, long currentCount, int permits, long windowMillis, long elapsed){
+        if (currentCount + 1 <= permits){
+            // the previous window is why the request was turned away, so previousCount is above 0
+            var admittedAt = windowMillis - Math.floorDiv(windowMillis * (permits - 1 - currentCount), previousCount);
+            return Math.max(1, admittedAt - elapsed);
+        }
+
+        // permits is at least 1, so currentCount is too
+        var admittedAt = windowMillis - Math.floorDiv(windowMillis * (permits - 1), currentCount);
+        return windowMillis - elapsed + admittedAt;
+    }
+
+    public long memoryBytes(){
+        return 2L * depth * width * Integer.BYTES;
+    }
+
+    // moves to the window with the given index the first time a request lands in it, the window before it is kept
+    // as the previous one when it is the one directly before
+    private Windows windows(long index){
+        var current = windows;
+        if (current.current().index >= index){
+            return current;
+        }
+
+        synchronized (this){
+            current = windows;
+            if (current.current().index < index){
+                var previous = current.current().index == index - 1 ? current.current() : null;
+                current = new Windows(new Window(index, depth * width), previous);
+                windows = current;
+            }
+
+            return current;
+        }
+    }
+
+    private int[] slots(String key){
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            digest.update(secret);
+            var hash = ByteBuffer.wrap(digest.digest(key.getBytes(StandardCharsets.UTF_8)));
+
+            // one slot per row from 32 bits of the digest each, rows laid out one after another
+            var slots = new int[depth];
+            for (int row = 0; row < depth; row++){
+                slots[row] = row * width + Math.floorMod(hash.getInt(row * Integer.BYTES), width);
+            }
+
+            return slots;
+        } catch (NoSuchAlgorithmException exception){
+            throw new IllegalStateException("SHA-256 is not available", exception);
+        }
+    }
+
+    private record Windows(Window current, Window previous){
+    }
+
+    private static final class Window {
+        private final long index;
+        private final AtomicIntegerArray counters;
+
+        private Window(long index, int size){
+            this.index = index;
+            this.counters = new AtomicIntegerArray(size);
+        }
+
+        private int estimate(int[] slots){
+            var estimate = Integer.MAX_VALUE;
+            for (var slot : slots){
+                estimate = Math.min(estimate, counters.get(slot));
+            }
+
+            return estimate;
+        }
+
+        private void add(int[] slots){
+            var count = estimate(slots) + 1;
+            for (var slot : slots){
+                counters.accumulateAndGet(slot, count, Math::max);
+            }
+        }
+    }
+}
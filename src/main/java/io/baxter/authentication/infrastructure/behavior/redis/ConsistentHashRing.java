@@ -0,0 +1,68 @@
+package io.baxter.authentication.infrastructure.behavior.redis;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.*;
+import java.util.*;
+
+// maps 32 bit points to nodes on a hash ring. every node is placed at virtualNodes points, so keys spread evenly
+// and adding or removing one of n nodes only moves the keys on the arcs it gains or loses - about 1/n of them
+public class ConsistentHashRing<T> {
+    private final int[] points;
+    private final Object[] owners;
+    private final List<T> nodes;
+
+    public ConsistentHashRing(Map<String, T> nodes, int virtualNodes){
+        if (nodes.isEmpty() || virtualNodes < 1){
+            throw new IllegalArgumentException("a hash ring needs at least one node and one point per node");
+        }
+
+        record Point(int point, String name){}
+        var placed = new ArrayList<Point>(nodes.size() * virtualNodes);
+        for (var name : nodes.keySet()){
+            for (int i = 0; i < virtualNodes; i++){
+                placed.add(new Point(hash(name + "#" + i), name));
+            }
+        }
+
+        // ties are broken by name so every instance builds the same ring
+        placed.sort(Comparator.comparingInt(Point::point).thenComparing(Point::name));
+
+        this.points = new int[placed.size()];
+        this.owners = new Object[placed.size()];
+        for (int i = 0; i < placed.size(); i++){
+            points[i] = placed.get(i).point();
+            owners[i] = nodes.get(placed.get(i).name());
+        }
+
+        this.nodes = List.copyOf(nodes.values());
+    }
+
+    // the node owning the first point at or after the given one, wrapping around the ring
+    @SuppressWarnings("unchecked")
+    public T nodeFor(int point){
+        var index = Arrays.binarySearch(points, point);
+        if (index < 0){
+            index = -index - 1;
+        }
+
+        return (T) owners[index == points.length ? 0 : index];
+    }
+
+    public T nodeFor(String key){
+        return nodeFor(hash(key));
+    }
+
+    public List<T> nodes(){
+        return nodes;
+    }
+
+    public static int hash(String key){
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest).getInt();
+        } catch (NoSuchAlgorithmException exception){
+            throw new IllegalStateException("SHA-256 is not available", exception);
+        }
+    }
+}
@@ -1,20 +1,21 @@
 package io.baxter.authentication.infrastructure.behavior.redis;
 
+import io.baxter.authentication.data.cache.RoleCatalog;
 import lombok.Generated;
 import org.springframework.context.annotation.*;
 import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
 import org.springframework.data.redis.core.ReactiveRedisTemplate;
-import org.springframework.data.redis.serializer.*;
 
 @Generated
 @Configuration
 public class RedisCacheSerialization {
     @Bean
     public ReactiveRedisTemplate<String, RefreshToken> refreshTokenRedisTemplate(
-            ReactiveRedisConnectionFactory factory) {
+            ReactiveRedisConnectionFactory factory,
+            RoleCatalog roleCatalog) {
 
-        var keySerializer = new StringRedisSerializer();
-        var valueSerializer = new Jackson2JsonRedisSerializer<>(RefreshToken.class);
+        var keySerializer = new RefreshTokenKeySerializer();
+        var valueSerializer = new RefreshTokenCodec(roleCatalog);
 
         var context = RedisSerializationContext.<String, RefreshToken>newSerializationContext(keySerializer)
                 .value(valueSerializer)
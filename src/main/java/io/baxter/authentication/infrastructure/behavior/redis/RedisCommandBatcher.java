@@ -0,0 +1,126 @@
+package io.baxter.authentication.infrastructure.behavior.redis;
+
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.micrometer.core.instrument.*;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.*;
+
+// coalesces independent redis commands into pipelines. commands are written to a dedicated connection with auto
+// flush disabled, and the connection is flushed once maxBatchSize commands are queued or the window since the first
+// queued command has passed - whichever comes first. every caller still gets its own result.
+// a larger window or batch size means fewer, bigger writes (throughput) at the cost of the time a command waits
+// before it is sent (latency) - refresh-token.batching.size and .queue-delay show where that tradeoff sits
+@Slf4j
+public class RedisCommandBatcher implements AutoCloseable {
+    private final StatefulRedisConnection<byte[], byte[]> connection;
+    private final int maxBatchSize;
+    private final long windowNanos;
+    private final Scheduler scheduler;
+    private final LongSupplier nanoClock;
+    private final DistributionSummary batchSize;
+    private final Timer queueDelay;
+
+    private final Object lock = new Object();
+    private final long[] queuedAt;
+    private int pending;
+    private long batch;
+
+    public RedisCommandBatcher(
+            StatefulRedisConnection<byte[], byte[]> connection,
+            int maxBatchSize,
+            Duration window,
+            Scheduler scheduler,
+            LongSupplier nanoClock,
+            MeterRegistry meterRegistry){
+        if (maxBatchSize < 1){
+            throw new IllegalArgumentException("batch size must be at least 1");
+        }
+
+        this.connection = connection;
+        this.maxBatchSize = maxBatchSize;
+        this.windowNanos = window.toNanos();
+        this.scheduler = scheduler;
+        this.nanoClock = nanoClock;
+        this.queuedAt = new long[maxBatchSize];
+
+        this.batchSize = DistributionSummary.builder("refresh-token.batching.size")
+                .description("commands flushed to redis per pipeline")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+
+        this.queueDelay = Timer.builder("refresh-token.batching.queue-delay")
+                .description("time a command waited in a batch before it was flushed to redis")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+
+        connection.setAutoFlushCommands(false);
+    }
+
+    public <T> Mono<T> execute(Function<RedisAsyncCommands<byte[], byte[]>, RedisFuture<T>> command){
+        return Mono.defer(() -> {
+            RedisFuture<T> result;
+
+            synchronized (lock){
+                result = command.apply(connection.async());
+                queuedAt[pending++] = nanoClock.getAsLong();
+
+                if (pending >= maxBatchSize){
+                    flush();
+                } else if (pending == 1){
+                    // the first command of a batch starts its window
+                    var current = batch;
+                    scheduler.schedule(() -> flush(current), windowNanos, TimeUnit.NANOSECONDS);
+                }
+            }
+
+            return Mono.fromCompletionStage(result);
+        });
+    }
+
+    @Override
+    public void close(){
+        synchronized (lock){
+            if (pending > 0){
+                flush();
+            }
+        }
+
+        scheduler.dispose();
+        connection.close();
+    }
+
+    // window expiry - a no-op when the batch it was scheduled for has already been flushed for being full
+    private void flush(long scheduledBatch){
+        synchronized (lock){
+            if (batch == scheduledBatch && pending > 0){
+                flush();
+            }
+        }
+    }
+
+    // must hold lock
+    private void flush(){
+        var now = nanoClock.getAsLong();
+        for (int i = 0; i < pending; i++){
+            queueDelay.record(now - queuedAt[i], TimeUnit.NANOSECONDS);
+        }
+
+        batchSize.record(pending);
+        pending = 0;
+        batch++;
+
+        try {
+            connection.flushCommands();
+        } catch (RuntimeException exception){
+            // the queued commands fail individually through their futures
+            log.error("unable to flush redis command batch", exception);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package io.baxter.authentication.infrastructure.behavior.redis;
+
+import io.lettuce.core.RedisNoScriptException;
+import io.lettuce.core.ScriptOutputType;
+import io.baxter.authentication.infrastructure.behavior.sessions.*;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.core.*;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.*;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.*;
+
+// refresh token sessions in redis. every token is a key of its own (see RefreshTokenKeySerializer / RefreshTokenCodec)
+// and is also listed in a per user sorted set scored by expiry, so a user's sessions can be listed or revoked in
+// time proportional to their own session count. every write that touches both is a single lua script.
+// sessions are spread over one or more nodes by user name (see RedisShards), and when refresh-token.batching.enabled
+// is set the scripts are pipelined through RedisCommandBatcher
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "refresh-token.store", havingValue = "redis", matchIfMissing = true)
+public class RedisRefreshTokenStore implements RefreshTokenStore {
+    private static final String LEGACY_KEY_FORMAT = "refresh_token:%s";
+    private static final String SESSION_INDEX_PREFIX = "refresh_sessions:";
+
+    private static final RedisScript<Long> ISSUE = RedisScript.of(new ClassPathResource("redis/issue-refresh-token.lua"), Long.class);
+    private static final RedisScript<RefreshToken> ROTATE = RedisScript.of(new ClassPathResource("redis/rotate-refresh-token.lua"), RefreshToken.class);
+    private static final RedisScript<Long> REVOKE = RedisScript.of(new ClassPathResource("redis/revoke-refresh-token.lua"), Long.class);
+    private static final RedisScript<Long> REVOKE_ALL = RedisScript.of(new ClassPathResource("redis/revoke-refresh-tokens.lua"), Long.class);
+
+    private static final RedisElementWriter<ByteBuffer> ARGS_WRITER = RedisSerializationContext.SerializationPair.byteBuffer().getWriter();
+    private static final RedisElementReader<Long> COUNT_READER = RedisElementReader.from(new GenericToStringSerializer<>(Long.class));
+
+    private final RedisShards shards;
+    private final RefreshTokenPolicy refreshTokenPolicy;
+
+    @Override
+    public Mono<String> issue(RefreshToken token, Instant now){
+        var shard = shards.forUser(token.getUserName());
+        var tokenId = shards.newTokenId(token.getUserName());
+        var value = shard.getRedis().getSerializationContext().getValueSerializationPair().write(token);
+
+        return run(
+                        shard,
+                        ISSUE,
+                        List.of(tokenId, sessionIndexKey(token.getUserName())),
+                        List.of(
+                                value,
+                                arg(refreshTokenPolicy.getLifetime().toSeconds()),
+                                arg(tokenId),
+                                arg(token.getExpiresAt().getTime()),
+                                arg(now.toEpochMilli())),
+                        COUNT_READER)
+                .filter(result -> result == 1)
+                .map(result -> tokenId);
+    }
+
+    @Override
+    public Mono<RotatedRefreshToken> rotate(String tokenId, Instant now){
+        return shards.forToken(tokenId)
+                .map(shard -> rotate(shard, tokenId, now))
+                .orElse(Mono.empty());
+    }
+
+    private Mono<RotatedRefreshToken> rotate(RedisShard shard, String tokenId, Instant now){
+        // the replacement carries the same ring point, so the user's keys stay on one shard
+        var newTokenId = shards.replacementTokenId(tokenId);
+
+        // tokens issued before the compact key format are still found under their legacy key
+        var keys = List.of(tokenId, String.format(LEGACY_KEY_FORMAT, tokenId), newTokenId);
+        var args = List.of(
+                arg(now.toEpochMilli()),
+                arg(now.plus(refreshTokenPolicy.getLifetime()).toEpochMilli()),
+                arg(refreshTokenPolicy.getLifetime().toSeconds()),
+                arg(tokenId),
+                arg(newTokenId),
+                arg(SESSION_INDEX_PREFIX));
+
+        return run(shard, ROTATE, keys, args, shard.getRedis().getSerializationContext().getValueSerializationPair().getReader())
+                .map(redeemed -> new RotatedRefreshToken(redeemed, newTokenId));
+    }
+
+    @Override
+    public Flux<RefreshTokenSession> sessions(String userName, Instant now){
+        return activeTokenIds(userName, now)
+                .map(entry -> new RefreshTokenSession(RefreshTokenSession.idFor(entry.getValue()), new Date(entry.getScore().longValue())));
+    }
+
+    @Override
+    public Mono<Boolean> revoke(String userName, String sessionId, Instant now){
+        return activeTokenIds(userName, now)
+                .map(ZSetOperations.TypedTuple::getValue)
+                .filter(tokenId -> RefreshTokenSession.idFor(tokenId).equals(sessionId))
+                .next()
+                .flatMap(tokenId -> run(
+                        shards.forUser(userName),
+                        REVOKE,
+                        List.of(sessionIndexKey(userName), tokenId),
+                        List.of(arg(tokenId)),
+                        COUNT_READER))
+                .map(result -> result == 1)
+                .defaultIfEmpty(false);
+    }
+
+    @Override
+    public Mono<Long> revokeAll(String userName, Instant now){
+        return run(shards.forUser(userName), REVOKE_ALL, List.of(sessionIndexKey(userName)), List.of(arg(now.toEpochMilli())), COUNT_READER)
+                .defaultIfEmpty(0L);
+    }
+
+    // a lua false / nil reply completes empty on both paths
+    private <T> Mono<T> run(RedisShard shard, RedisScript<T> script, List<String> keys, List<ByteBuffer> args, RedisElementReader<T> reader){
+        return shard.timed(shard.getBatcher().isEmpty()
+                ? shard.getRedis().execute(script, keys, args, ARGS_WRITER, reader).next()
+                : pipeline(shard, script, keys, args, reader));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Mono<T> pipeline(RedisShard shard, RedisScript<T> script, List<String> keys, List<ByteBuffer> args, RedisElementReader<T> reader){
+        var keySerializer = shard.getRedis().getSerializationContext().getKeySerializationPair();
+        var keyBytes = keys.stream().map(key -> bytes(keySerializer.write(key))).toArray(byte[][]::new);
+        var argBytes = args.stream().map(RedisRefreshTokenStore::bytes).toArray(byte[][]::new);
+        var outputType = Long.class.equals(script.getResultType()) ? ScriptOutputType.INTEGER : ScriptOutputType.VALUE;
+        var commands = shard.getBatcher().get();
+
+        return commands.<Object>execute(connection -> connection.evalsha(script.getSha1(), outputType, keyBytes, argBytes))
+                // the script cache is empty after a redis restart, so send the script itself once
+                .onErrorResume(RedisNoScriptException.class, exception ->
+                        commands.execute(connection -> connection.eval(script.getScriptAsString(), outputType, keyBytes, argBytes)))
+                .map(result -> result instanceof byte[] value ? reader.read(ByteBuffer.wrap(value)) : (T) result);
+    }
+
+    private Flux<ZSetOperations.TypedTuple<String>> activeTokenIds(String userName, Instant now){
+        var shard = shards.forUser(userName);
+        return shard.timed(shard.getStrings().opsForZSet().rangeByScoreWithScores(
+                sessionIndexKey(userName),
+                Range.rightUnbounded(Range.Bound.exclusive((double) now.toEpochMilli()))).collectList())
+                .flatMapIterable(entries -> entries);
+    }
+
+    private static String sessionIndexKey(String userName){
+        return SESSION_INDEX_PREFIX + userName;
+    }
+
+    private static byte[] bytes(ByteBuffer buffer){
+        var bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    private static ByteBuffer arg(Object value){
+        return ByteBuffer.wrap(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,80 @@
+package io.baxter.authentication.infrastructure.behavior.redis;
+
+import io.micrometer.core.instrument.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.*;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+// one redis node holding a share of the refresh token sessions, see RedisShards.
+// reports refresh-token.redis.latency / .errors for every command sent to it and .up from periodic pings,
+// all tagged with the shard name
+@Slf4j
+@Getter
+public class RedisShard {
+    private final String name;
+    private final ReactiveRedisTemplate<String, RefreshToken> redis;
+    private final ReactiveStringRedisTemplate strings;
+    private final Optional<RedisCommandBatcher> batcher;
+
+    @Getter(AccessLevel.NONE) private final Timer latency;
+    @Getter(AccessLevel.NONE) private final Counter errors;
+    private volatile boolean up = true;
+
+    public RedisShard(
+            String name,
+            ReactiveRedisTemplate<String, RefreshToken> redis,
+            ReactiveStringRedisTemplate strings,
+            Optional<RedisCommandBatcher> batcher,
+            MeterRegistry meterRegistry){
+        this.name = name;
+        this.redis = redis;
+        this.strings = strings;
+        this.batcher = batcher;
+
+        this.latency = Timer.builder("refresh-token.redis.latency")
+                .description("time taken by refresh token commands per redis shard")
+                .tag("shard", name)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+
+        this.errors = Counter.builder("refresh-token.redis.errors")
+                .description("refresh token commands that failed per redis shard")
+                .tag("shard", name)
+                .register(meterRegistry);
+
+        Gauge.builder("refresh-token.redis.up", this, shard -> shard.up ? 1 : 0)
+                .description("whether the redis shard answered its last health check")
+                .tag("shard", name)
+                .register(meterRegistry);
+    }
+
+    public <T> Mono<T> timed(Mono<T> command){
+        return Mono.defer(() -> {
+            var started = System.nanoTime();
+            return command
+                    .doOnError(exception -> errors.increment())
+                    .doFinally(signal -> latency.record(System.nanoTime() - started, TimeUnit.NANOSECONDS));
+        });
+    }
+
+    public Mono<Void> checkHealth(Duration timeout){
+        return timed(strings.execute(connection -> connection.ping()).next())
+                .map(pong -> true)
+                .timeout(timeout, Mono.just(false))
+                .onErrorReturn(false)
+                .doOnNext(healthy -> {
+                    if (healthy != up){
+                        log.warn("redis shard {} is {}", name, healthy ? "up" : "down");
+                    }
+
+                    up = healthy;
+                })
+                .then();
+    }
+}
@@ -0,0 +1,113 @@
+package io.baxter.authentication.infrastructure.behavior.redis;
+
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Generated;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.*;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.*;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.*;
+
+@Generated
+@Configuration
+@ConditionalOnProperty(name = "refresh-token.store", havingValue = "redis", matchIfMissing = true)
+public class RedisShardConfiguration {
+    // refresh-token.redis.nodes is a comma separated list of host:port. when it is empty every session lives on
+    // spring.data.redis, which stays the connection for everything else either way
+    @Bean(destroyMethod = "close")
+    public RedisShards refreshTokenShards(
+            ReactiveRedisTemplate<String, RefreshToken> refreshTokenRedisTemplate,
+            ReactiveStringRedisTemplate strings,
+            ObjectProvider<LettuceConnectionFactory> defaultConnectionFactory,
+            MeterRegistry meterRegistry,
+            @Value("${refresh-token.redis.nodes:}") String nodes,
+            @Value("${refresh-token.redis.virtual-nodes:160}") int virtualNodes,
+            @Value("${refresh-token.redis.health-interval:PT5S}") Duration healthInterval,
+            @Value("${spring.data.redis.password:}") String password,
+            @Value("${refresh-token.batching.enabled:false}") boolean batching,
+            @Value("${refresh-token.batching.max-size:64}") int maxBatchSize,
+            @Value("${refresh-token.batching.window:PT0.0005S}") Duration window) {
+
+        var endpoints = Arrays.stream(nodes.split(","))
+                .map(String::trim)
+                .filter(node -> !node.isEmpty())
+                .toList();
+
+        // a batcher holds a connection and a thread of its own, so one is only opened for a node that takes sessions
+        if (endpoints.isEmpty()){
+            Optional<RedisCommandBatcher> batcher = Optional.empty();
+            var resources = new ArrayList<AutoCloseable>();
+            if (batching){
+                var connected = connect(defaultConnectionFactory.getObject(), maxBatchSize, window, meterRegistry);
+                resources.add(connected);
+                batcher = Optional.of(connected);
+            }
+
+            var shard = new RedisShard("default", refreshTokenRedisTemplate, strings, batcher, meterRegistry);
+            return new RedisShards(List.of(shard), virtualNodes, healthInterval, resources);
+        }
+
+        var shards = new ArrayList<RedisShard>();
+        var resources = new ArrayList<AutoCloseable>();
+        for (var endpoint : endpoints){
+            var separator = endpoint.lastIndexOf(':');
+            if (separator < 0){
+                throw new IllegalArgumentException("refresh token redis nodes must be host:port, found " + endpoint);
+            }
+
+            var configuration = new RedisStandaloneConfiguration(endpoint.substring(0, separator), Integer.parseInt(endpoint.substring(separator + 1)));
+            if (!password.isEmpty()){
+                configuration.setPassword(password);
+            }
+
+            var factory = new LettuceConnectionFactory(configuration);
+            factory.afterPropertiesSet();
+            factory.start();
+            resources.add(factory::destroy);
+
+            Optional<RedisCommandBatcher> shardBatcher = Optional.empty();
+            if (batching){
+                var connected = connect(factory, maxBatchSize, window, meterRegistry);
+                resources.addFirst(connected);
+                shardBatcher = Optional.of(connected);
+            }
+
+            shards.add(new RedisShard(
+                    endpoint,
+                    new ReactiveRedisTemplate<>(factory, refreshTokenRedisTemplate.getSerializationContext()),
+                    new ReactiveStringRedisTemplate(factory),
+                    shardBatcher,
+                    meterRegistry));
+        }
+
+        return new RedisShards(shards, virtualNodes, healthInterval, resources);
+    }
+
+    // pipelines refresh token commands over a connection of its own, see RedisRefreshTokenStore
+    private static RedisCommandBatcher connect(
+            LettuceConnectionFactory connectionFactory,
+            int maxBatchSize,
+            Duration window,
+            MeterRegistry meterRegistry) {
+
+        if (!(connectionFactory.getNativeClient() instanceof RedisClient client)){
+            throw new IllegalStateException("refresh token batching requires a standalone redis connection");
+        }
+
+        return new RedisCommandBatcher(
+                client.connect(ByteArrayCodec.INSTANCE),
+                maxBatchSize,
+                window,
+                Schedulers.newSingle("redis-batch"),
+                System::nanoTime,
+                meterRegistry);
+    }
+}
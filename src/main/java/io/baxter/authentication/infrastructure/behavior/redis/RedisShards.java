@@ -0,0 +1,89 @@
+package io.baxter.authentication.infrastructure.behavior.redis;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import reactor.core.Disposable;
+import reactor.core.publisher.*;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.stream.Collectors;
+
+// spreads refresh token sessions over refresh-token.redis.nodes with a consistent hash ring.
+// everything belonging to a user - their token keys and session index - lives on the shard owning the user name,
+// so the rotation and revocation scripts still run against one node. token ids are random UUIDs whose first
+// 32 bits are the user's ring point, which lets a presented token be routed without knowing whose it is
+@Slf4j
+public class RedisShards implements AutoCloseable {
+    private final ConsistentHashRing<RedisShard> ring;
+    private final Duration healthInterval;
+    private final List<AutoCloseable> resources;
+    private Disposable healthChecks;
+
+    public RedisShards(List<RedisShard> shards, int virtualNodes, Duration healthInterval, List<AutoCloseable> resources){
+        this.ring = new ConsistentHashRing<>(
+                shards.stream().collect(Collectors.toMap(RedisShard::getName, shard -> shard, (first, second) -> first, LinkedHashMap::new)),
+                virtualNodes);
+        this.healthInterval = healthInterval;
+        this.resources = resources;
+    }
+
+    public RedisShard forUser(String userName){
+        return ring.nodeFor(ConsistentHashRing.hash(userName));
+    }
+
+    // empty when the token is not a UUID, and so cannot be one of ours
+    public Optional<RedisShard> forToken(String tokenId){
+        try {
+            return Optional.of(ring.nodeFor((int) (UUID.fromString(tokenId).getMostSignificantBits() >>> 32)));
+        } catch (IllegalArgumentException exception){
+            return Optional.empty();
+        }
+    }
+
+    public String newTokenId(String userName){
+        return tokenId(ConsistentHashRing.hash(userName));
+    }
+
+    // a new id routed to the same shard as the given, valid, token id
+    public String replacementTokenId(String tokenId){
+        return tokenId((int) (UUID.fromString(tokenId).getMostSignificantBits() >>> 32));
+    }
+
+    // keeps the version and variant bits of a random UUID, which sit outside its first 32 bits
+    private static String tokenId(int point){
+        var random = UUID.randomUUID();
+        var mostSignificantBits = ((long) point << 32) | (random.getMostSignificantBits() & 0xFFFFFFFFL);
+        return new UUID(mostSignificantBits, random.getLeastSignificantBits()).toString();
+    }
+
+    public List<RedisShard> shards(){
+        return ring.nodes();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start(){
+        healthChecks = Flux.interval(Duration.ZERO, healthInterval)
+            .onBackpressureDrop()
+            .concatMap(tick -> Flux.fromIterable(ring.nodes())
+                .flatMap(shard -> shard.checkHealth(healthInterval))
+                .then())
+            .subscribe();
+    }
+
+    @Override
+    public void close(){
+        if (healthChecks != null){
+            healthChecks.dispose();
+        }
+
+        for (var resource : resources){
+            try {
+                resource.close();
+            } catch (Exception exception){
+                log.warn("unable to close redis shard resource", exception);
+            }
+        }
+    }
+}
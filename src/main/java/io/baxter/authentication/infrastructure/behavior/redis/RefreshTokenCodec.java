@@ -0,0 +1,146 @@
+package io.baxter.authentication.infrastructure.behavior.redis;
+
+import io.baxter.authentication.data.cache.RoleCatalog;
+import org.springframework.data.redis.serializer.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// versioned binary encoding of refresh tokens stored in redis
+//
+//   version (1 byte) | issuedAt (varint epoch seconds) | expiresAt (varint epoch seconds)
+//   | username length (varint) | username (utf-8) | role count (varint) | roles
+//
+// each role is a varint tag - an even tag is (role id << 1) for roles known to the role catalog, an odd tag is
+// (name length << 1 | 1) followed by the utf-8 name for anything else. values written by the previous json
+// serializer still start with '{' and are read with it, so existing sessions survive the migration. a role id the
+// catalog cannot resolve fails the read rather than dropping the role.
+// rotate-refresh-token.lua depends on the version and both timestamps being the leading fields
+public class RefreshTokenCodec implements RedisSerializer<RefreshToken> {
+    public static final byte VERSION = 1;
+
+    private static final byte JSON_OBJECT = '{';
+
+    private final RoleCatalog roleCatalog;
+    private final Jackson2JsonRedisSerializer<RefreshToken> legacySerializer =
+            new Jackson2JsonRedisSerializer<>(RefreshToken.class);
+
+    public RefreshTokenCodec(RoleCatalog roleCatalog){
+        this.roleCatalog = roleCatalog;
+    }
+
+    @Override
+    public byte[] serialize(RefreshToken token) throws SerializationException {
+        if (token == null){
+            return null;
+        }
+
+        var userName = token.getUserName().getBytes(StandardCharsets.UTF_8);
+        var roles = token.getRoles() == null ? List.<String>of() : token.getRoles();
+        var out = new ByteArrayOutputStream(16 + userName.length + roles.size() * 2);
+
+        out.write(VERSION);
+        writeVarint(out, token.getIssuedAt().getTime() / 1000);
+        writeVarint(out, token.getExpiresAt().getTime() / 1000);
+        writeVarint(out, userName.length);
+        out.writeBytes(userName);
+        writeVarint(out, roles.size());
+
+        for (var role : roles){
+            var id = roleCatalog.idOf(role);
+            if (id.isPresent()){
+                writeVarint(out, (long) id.get() << 1);
+            } else {
+                var name = role.getBytes(StandardCharsets.UTF_8);
+                writeVarint(out, ((long) name.length << 1) | 1);
+                out.writeBytes(name);
+            }
+        }
+
+        return out.toByteArray();
+    }
+
+    @Override
+    public RefreshToken deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0){
+            return null;
+        }
+
+        if (bytes[0] == JSON_OBJECT){
+            return legacySerializer.deserialize(bytes);
+        }
+
+        if (bytes[0] != VERSION){
+            throw new SerializationException("unsupported refresh token format " + bytes[0]);
+        }
+
+        try {
+            var reader = new Reader(bytes);
+            var issuedAt = new Date(reader.varint() * 1000);
+            var expiresAt = new Date(reader.varint() * 1000);
+            var userName = reader.string((int) reader.varint());
+            var roleCount = (int) reader.varint();
+            var roles = new ArrayList<String>(roleCount);
+
+            for (int i = 0; i < roleCount; i++){
+                var tag = reader.varint();
+                if ((tag & 1) == 1){
+                    roles.add(reader.string((int) (tag >>> 1)));
+                    continue;
+                }
+
+                // the catalog has not loaded yet, or the role was removed since the token was issued. either way the
+                // token cannot say which roles it grants, and an access token must not be issued without them
+                var id = (int) (tag >>> 1);
+                roles.add(roleCatalog.nameOf(id).orElseThrow(() -> new SerializationException(
+                        String.format("role id %d in refresh token for user %s is not in the role catalog", id, userName))));
+            }
+
+            return new RefreshToken(userName, roles, issuedAt, expiresAt);
+        } catch (ArrayIndexOutOfBoundsException exception){
+            throw new SerializationException("truncated refresh token", exception);
+        }
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value){
+        while ((value & ~0x7FL) != 0){
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+
+        out.write((int) value);
+    }
+
+    private static final class Reader {
+        private final byte[] bytes;
+        private int position = 1;
+
+        private Reader(byte[] bytes){
+            this.bytes = bytes;
+        }
+
+        private long varint(){
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7){
+                var b = bytes[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0){
+                    return value;
+                }
+            }
+
+            throw new SerializationException("malformed varint in refresh token");
+        }
+
+        private String string(int length){
+            if (length < 0 || position + length > bytes.length){
+                throw new ArrayIndexOutOfBoundsException(position + length);
+            }
+
+            var value = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+}
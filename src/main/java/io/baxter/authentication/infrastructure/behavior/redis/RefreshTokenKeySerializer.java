@@ -0,0 +1,50 @@
+package io.baxter.authentication.infrastructure.behavior.redis;
+
+import org.springframework.data.redis.serializer.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+// refresh token ids are uuids, so they are stored as their raw 16 bytes instead of "refresh_token:<36 chars>".
+// anything that is not a uuid (such as the legacy "refresh_token:%s" keys still read during the migration)
+// is written as plain utf-8
+public class RefreshTokenKeySerializer implements RedisSerializer<String> {
+    private static final int UUID_LENGTH = 36;
+    private static final int UUID_BYTES = 16;
+
+    @Override
+    public byte[] serialize(String key) throws SerializationException {
+        if (key == null){
+            return null;
+        }
+
+        if (key.length() == UUID_LENGTH){
+            try {
+                var id = UUID.fromString(key);
+                return ByteBuffer.allocate(UUID_BYTES)
+                        .putLong(id.getMostSignificantBits())
+                        .putLong(id.getLeastSignificantBits())
+                        .array();
+            } catch (IllegalArgumentException exception){
+                // not a uuid after all, stored as text below
+            }
+        }
+
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null){
+            return null;
+        }
+
+        if (bytes.length == UUID_BYTES){
+            var buffer = ByteBuffer.wrap(bytes);
+            return new UUID(buffer.getLong(), buffer.getLong()).toString();
+        }
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
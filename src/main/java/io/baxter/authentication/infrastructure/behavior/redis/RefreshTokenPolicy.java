@@ -0,0 +1,25 @@
+package io.baxter.authentication.infrastructure.behavior.redis;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.*;
+import java.util.*;
+
+// how long refresh tokens live, the same lifetime is used as the redis ttl so expired sessions are evicted by redis
+@Component
+public class RefreshTokenPolicy {
+    private final Duration lifetime;
+
+    public RefreshTokenPolicy(@Value("${jwt.refresh-expiration-ms:3600000}") long lifetimeMs){
+        this.lifetime = Duration.ofMillis(lifetimeMs);
+    }
+
+    public Duration getLifetime(){
+        return lifetime;
+    }
+
+    public RefreshToken issue(String userName, List<String> roles, Instant now){
+        return new RefreshToken(userName, roles, Date.from(now), Date.from(now.plus(lifetime)));
+    }
+}
@@ -0,0 +1,28 @@
+package io.baxter.authentication.infrastructure.behavior.redis;
+
+import lombok.*;
+
+import java.nio.charset.StandardCharsets;
+import java.security.*;
+import java.util.*;
+
+// an active refresh token as shown to its owner - the id is derived from the token but cannot be used as one
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class RefreshTokenSession {
+    String id;
+    Date expiresAt;
+
+    private static final int ID_BYTES = 12;
+
+    // a truncated sha-256 of the token id, so listing sessions never reveals tokens
+    public static String idFor(String tokenId){
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(tokenId.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, ID_BYTES));
+        } catch (NoSuchAlgorithmException exception){
+            throw new IllegalStateException("SHA-256 is not available", exception);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package io.baxter.authentication.infrastructure.behavior.sessions;
+
+// set of 64 bit ids that each carry an expiry, in two primitive arrays - 12 bytes per slot and no per entry objects.
+// open addressing with linear probing; expired ids are only dropped by copying the live ones into a new set.
+// not thread safe - see RefreshTokenDenylist
+public class ExpiringIdSet {
+    // expiries are stored as int seconds from this base, which lasts until 2088 without wasting a long per id
+    private static final long BASE_EPOCH_SECOND = 1_577_836_800L; // 2020-01-01T00:00:00Z
+
+    private long[] ids;
+    private int[] expiries;
+    private int size;
+
+    public ExpiringIdSet(int expectedSize){
+        var capacity = Integer.highestOneBit(Math.max(16, expectedSize * 4 / 3) - 1) << 1;
+        ids = new long[capacity];
+        expiries = new int[capacity];
+    }
+
+    public int size(){
+        return size;
+    }
+
+    public long memoryBytes(){
+        return (long) ids.length * (Long.BYTES + Integer.BYTES);
+    }
+
+    // false when the id was already present and unexpired
+    public boolean add(long id, long expiresAtMs, long nowMs){
+        if ((size + 1) * 4L > ids.length * 3L){
+            resize(ids.length * 2);
+        }
+
+        var expiry = encode(expiresAtMs);
+        var index = slot(id);
+        while (expiries[index] != 0){
+            if (ids[index] == id){
+                var live = expiries[index] > elapsed(nowMs);
+                expiries[index] = Math.max(expiries[index], expiry);
+                return !live;
+            }
+
+            index = (index + 1) & (ids.length - 1);
+        }
+
+        ids[index] = id;
+        expiries[index] = expiry;
+        size++;
+        return true;
+    }
+
+    public boolean contains(long id, long nowMs){
+        var index = slot(id);
+        while (expiries[index] != 0){
+            if (ids[index] == id){
+                return expiries[index] > elapsed(nowMs);
+            }
+
+            index = (index + 1) & (ids.length - 1);
+        }
+
+        return false;
+    }
+
+    // copies every id still live at nowMs into target
+    public void copyLiveTo(ExpiringIdSet target, long nowMs){
+        var now = elapsed(nowMs);
+        for (int i = 0; i < ids.length; i++){
+            if (expiries[i] > now){
+                target.add(ids[i], decode(expiries[i]), nowMs);
+            }
+        }
+    }
+
+    private int slot(long id){
+        var hash = id * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & (ids.length - 1);
+    }
+
+    private void resize(int capacity){
+        var oldIds = ids;
+        var oldExpiries = expiries;
+        ids = new long[capacity];
+        expiries = new int[capacity];
+
+        for (int i = 0; i < oldIds.length; i++){
+            if (oldExpiries[i] == 0){
+                continue;
+            }
+
+            var index = slot(oldIds[i]);
+            while (expiries[index] != 0){
+                index = (index + 1) & (capacity - 1);
+            }
+
+            ids[index] = oldIds[i];
+            expiries[index] = oldExpiries[i];
+        }
+    }
+
+    // rounds up so an id never expires early, and never encodes to 0 (the empty slot marker)
+    private static int encode(long epochMs){
+        var seconds = Math.floorDiv(epochMs + 999, 1000) - BASE_EPOCH_SECOND;
+        return (int) Math.max(1, Math.min(Integer.MAX_VALUE, seconds));
+    }
+
+    // whole seconds elapsed since the base, an expiry is live while it is greater than this
+    private static long elapsed(long nowMs){
+        return Math.floorDiv(nowMs, 1000) - BASE_EPOCH_SECOND;
+    }
+
+    private static long decode(int expiry){
+        return (expiry + BASE_EPOCH_SECOND) * 1000;
+    }
+}
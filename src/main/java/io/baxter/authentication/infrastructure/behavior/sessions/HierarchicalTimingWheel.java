@@ -0,0 +1,129 @@
+package io.baxter.authentication.infrastructure.behavior.sessions;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+// hierarchical timing wheel (as used by kafka and netty) - schedule and expiry are O(1) regardless of how many items
+// are pending. level 0 has one slot per tick, each level above has slots spanning a full rotation of the one below;
+// when a higher level slot comes due its items are cascaded down until they land in level 0 and fire.
+// deadlines beyond the top level are parked in its farthest slot and re-placed when it comes due.
+// not thread safe - callers hold their own lock (see InMemoryRefreshTokenStore)
+public class HierarchicalTimingWheel<T> {
+    private final long tickMs;
+    private final int wheelSize;
+    private final long[] spans;
+    private final List<List<Entry<T>>> slots;
+    private final List<Entry<T>> due = new ArrayList<>();
+
+    private long currentTick;
+    private int size;
+
+    public HierarchicalTimingWheel(long tickMs, int wheelSize, int levels, long startMs){
+        if (tickMs < 1 || wheelSize < 2 || levels < 1){
+            throw new IllegalArgumentException("timing wheel needs a positive tick, at least 2 slots and 1 level");
+        }
+
+        this.tickMs = tickMs;
+        this.wheelSize = wheelSize;
+        this.spans = new long[levels + 1];
+        this.slots = new ArrayList<>(levels * wheelSize);
+        this.currentTick = startMs / tickMs;
+
+        spans[0] = 1;
+        for (int level = 1; level <= levels; level++){
+            spans[level] = Math.multiplyExact(spans[level - 1], wheelSize);
+        }
+
+        for (int i = 0; i < levels * wheelSize; i++){
+            slots.add(new ArrayList<>());
+        }
+    }
+
+    public int size(){
+        return size;
+    }
+
+    public void schedule(T item, long deadlineMs){
+        size++;
+        place(new Entry<>(item, Math.ceilDiv(deadlineMs, tickMs)));
+    }
+
+    // moves the wheel forward to nowMs, handing every item whose deadline has passed to expired
+    public void advance(long nowMs, Consumer<T> expired){
+        var targetTick = nowMs / tickMs;
+
+        while (currentTick < targetTick){
+            currentTick++;
+
+            // cascade from the top so items can fall through several levels within one tick
+            for (int level = spans.length - 2; level >= 1; level--){
+                if (currentTick % spans[level] == 0){
+                    var slot = take(level, slotIndex(level, currentTick));
+                    for (var entry : slot){
+                        place(entry);
+                    }
+                }
+            }
+
+            for (var entry : take(0, slotIndex(0, currentTick))){
+                if (entry.deadlineTick() <= currentTick){
+                    due.add(entry);
+                } else {
+                    place(entry);
+                }
+            }
+
+            fire(expired);
+        }
+
+        fire(expired);
+    }
+
+    private void place(Entry<T> entry){
+        var delta = entry.deadlineTick() - currentTick;
+        if (delta <= 0){
+            due.add(entry);
+            return;
+        }
+
+        var top = spans.length - 2;
+        var placementTick = Math.min(entry.deadlineTick(), currentTick + spans[top + 1] - 1);
+        delta = placementTick - currentTick;
+
+        var level = 0;
+        while (level < top && delta >= spans[level + 1]){
+            level++;
+        }
+
+        slots.get(level * wheelSize + slotIndex(level, placementTick)).add(entry);
+    }
+
+    private int slotIndex(int level, long tick){
+        return (int) ((tick / spans[level]) % wheelSize);
+    }
+
+    private List<Entry<T>> take(int level, int index){
+        var slot = slots.get(level * wheelSize + index);
+        if (slot.isEmpty()){
+            return List.of();
+        }
+
+        slots.set(level * wheelSize + index, new ArrayList<>());
+        return slot;
+    }
+
+    private void fire(Consumer<T> expired){
+        if (due.isEmpty()){
+            return;
+        }
+
+        size -= due.size();
+        for (var entry : due){
+            expired.accept(entry.item());
+        }
+
+        due.clear();
+    }
+
+    private record Entry<T>(T item, long deadlineTick){}
+}
@@ -0,0 +1,369 @@
+package io.baxter.authentication.infrastructure.behavior.sessions;
+
+import io.baxter.authentication.data.cache.RoleCatalog;
+import io.baxter.authentication.infrastructure.behavior.redis.*;
+import io.micrometer.core.instrument.*;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.*;
+
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// refresh token sessions held in this process, for single node deployments and load tests without redis.
+// tokens are spread over lock striped open addressing tables keyed by the two longs of the token uuid, with values
+// kept in the compact RefreshTokenCodec encoding, so a session costs a few dozen bytes plus its encoded token instead
+// of a map entry, a uuid and a token object graph. each stripe expires its tokens with its own timing wheel.
+// a user's sessions are also indexed by user name - every change to a user's sessions runs inside that user's
+// index entry, so rotate / revoke / revoke all for one user are serialized just like the redis scripts are
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "refresh-token.store", havingValue = "memory")
+public class InMemoryRefreshTokenStore implements RefreshTokenStore {
+    private static final int WHEEL_SIZE = 64;
+    private static final int WHEEL_LEVELS = 4;
+
+    private final RefreshTokenCodec codec;
+    private final RefreshTokenPolicy refreshTokenPolicy;
+    private final Clock clock;
+    private final Duration tick;
+    private final Stripe[] stripes;
+    private final Map<String, Map<UUID, Long>> sessionsByUser = new ConcurrentHashMap<>();
+
+    private Disposable expiry;
+
+    public InMemoryRefreshTokenStore(
+            RoleCatalog roleCatalog,
+            RefreshTokenPolicy refreshTokenPolicy,
+            Clock clock,
+            MeterRegistry meterRegistry,
+            @Value("${refresh-token.memory.stripes:64}") int stripeCount,
+            @Value("${refresh-token.memory.tick:PT1S}") Duration tick){
+        if (Integer.bitCount(stripeCount) != 1){
+            throw new IllegalArgumentException("refresh-token.memory.stripes must be a power of two");
+        }
+
+        this.codec = new RefreshTokenCodec(roleCatalog);
+        this.refreshTokenPolicy = refreshTokenPolicy;
+        this.clock = clock;
+        this.tick = tick;
+        this.stripes = new Stripe[stripeCount];
+
+        var now = clock.millis();
+        for (int i = 0; i < stripeCount; i++){
+            stripes[i] = new Stripe(new HierarchicalTimingWheel<>(tick.toMillis(), WHEEL_SIZE, WHEEL_LEVELS, now));
+        }
+
+        Gauge.builder("refresh-token.memory.sessions", this, InMemoryRefreshTokenStore::size)
+                .description("refresh tokens held by the in process store")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start(){
+        expiry = Flux.interval(tick)
+            .onBackpressureDrop()
+            .subscribe(ignored -> expire(clock.instant()));
+    }
+
+    @PreDestroy
+    public void stop(){
+        if (expiry != null){
+            expiry.dispose();
+        }
+    }
+
+    @Override
+    public Mono<String> issue(RefreshToken token, Instant now){
+        return Mono.fromSupplier(() -> {
+            var id = UUID.randomUUID();
+            var expiresAt = token.getExpiresAt().getTime();
+            var value = codec.serialize(token);
+
+            sessionsByUser.compute(token.getUserName(), (userName, sessions) -> {
+                var current = sessions == null ? new ConcurrentHashMap<UUID, Long>() : sessions;
+                stripeFor(id).put(id, value, userName, expiresAt);
+                current.put(id, expiresAt);
+                return current;
+            });
+
+            return id.toString();
+        });
+    }
+
+    @Override
+    public Mono<RotatedRefreshToken> rotate(String tokenId, Instant now){
+        return Mono.fromSupplier(() -> {
+            var id = parse(tokenId);
+            var value = id == null ? null : stripeFor(id).get(id);
+            if (value == null){
+                return null;
+            }
+
+            var token = codec.deserialize(value);
+            var newId = UUID.randomUUID();
+            var replacement = refreshTokenPolicy.issue(token.getUserName(), token.getRoles(), now);
+            var redeemed = new RotatedRefreshToken[1];
+
+            sessionsByUser.compute(token.getUserName(), (userName, sessions) -> {
+                // whoever removes the token first redeems it, a concurrent rotate finds it gone
+                if (stripeFor(id).remove(id) == null){
+                    return sessions;
+                }
+
+                var current = sessions == null ? new ConcurrentHashMap<UUID, Long>() : sessions;
+                current.remove(id);
+
+                if (token.getExpiresAt().toInstant().isAfter(now)){
+                    var expiresAt = replacement.getExpiresAt().getTime();
+                    stripeFor(newId).put(newId, codec.serialize(replacement), userName, expiresAt);
+                    current.put(newId, expiresAt);
+                    redeemed[0] = new RotatedRefreshToken(token, newId.toString());
+                }
+
+                return current.isEmpty() ? null : current;
+            });
+
+            return redeemed[0];
+        });
+    }
+
+    @Override
+    public Flux<RefreshTokenSession> sessions(String userName, Instant now){
+        return Flux.defer(() -> Flux.fromIterable(sessionsByUser.getOrDefault(userName, Map.of()).entrySet()))
+            .filter(session -> session.getValue() > now.toEpochMilli())
+            .map(session -> new RefreshTokenSession(RefreshTokenSession.idFor(session.getKey().toString()), new Date(session.getValue())));
+    }
+
+    @Override
+    public Mono<Boolean> revoke(String userName, String sessionId, Instant now){
+        return Mono.fromSupplier(() -> {
+            var revoked = new boolean[1];
+
+            sessionsByUser.computeIfPresent(userName, (user, sessions) -> {
+                for (var session : sessions.entrySet()){
+                    if (session.getValue() > now.toEpochMilli() &&
+                            RefreshTokenSession.idFor(session.getKey().toString()).equals(sessionId)){
+                        stripeFor(session.getKey()).remove(session.getKey());
+                        sessions.remove(session.getKey());
+                        revoked[0] = true;
+                        break;
+                    }
+                }
+
+                return sessions.isEmpty() ? null : sessions;
+            });
+
+            return revoked[0];
+        });
+    }
+
+    @Override
+    public Mono<Long> revokeAll(String userName, Instant now){
+        return Mono.fromSupplier(() -> {
+            var revoked = new long[1];
+
+            sessionsByUser.computeIfPresent(userName, (user, sessions) -> {
+                for (var session : sessions.entrySet()){
+                    if (stripeFor(session.getKey()).remove(session.getKey()) != null && session.getValue() > now.toEpochMilli()){
+                        revoked[0]++;
+                    }
+                }
+
+                return null;
+            });
+
+            return revoked[0];
+        });
+    }
+
+    // drops every token that expired by now, driven by the interval started in start()
+    public void expire(Instant now){
+        var expired = new ArrayList<Expiry>();
+        for (var stripe : stripes){
+            stripe.expire(now.toEpochMilli(), expired);
+        }
+
+        // the index is updated outside the stripe locks - index entries lock stripes, never the other way round
+        for (var token : expired){
+            sessionsByUser.computeIfPresent(token.userName(), (userName, sessions) -> {
+                sessions.remove(new UUID(token.mostSignificantBits(), token.leastSignificantBits()));
+                return sessions.isEmpty() ? null : sessions;
+            });
+        }
+    }
+
+    public long size(){
+        long size = 0;
+        for (var stripe : stripes){
+            size += stripe.size();
+        }
+
+        return size;
+    }
+
+    private Stripe stripeFor(UUID id){
+        return stripes[(int) (hash(id.getMostSignificantBits(), id.getLeastSignificantBits()) >>> 40) & (stripes.length - 1)];
+    }
+
+    private static UUID parse(String tokenId){
+        try {
+            return UUID.fromString(tokenId);
+        } catch (IllegalArgumentException exception){
+            return null;
+        }
+    }
+
+    private static long hash(long mostSignificantBits, long leastSignificantBits){
+        var hash = (mostSignificantBits ^ Long.rotateLeft(leastSignificantBits, 32)) * 0x9E3779B97F4A7C15L;
+        return hash ^ (hash >>> 29);
+    }
+
+    private record Expiry(long mostSignificantBits, long leastSignificantBits, String userName){}
+
+    // open addressing table with linear probing and backward shift deletion, guarded by the stripe itself
+    private static final class Stripe {
+        private static final int INITIAL_CAPACITY = 16;
+
+        private final HierarchicalTimingWheel<Expiry> wheel;
+        private long[] mostSignificantBits = new long[INITIAL_CAPACITY];
+        private long[] leastSignificantBits = new long[INITIAL_CAPACITY];
+        private byte[][] values = new byte[INITIAL_CAPACITY][];
+        private int size;
+
+        private Stripe(HierarchicalTimingWheel<Expiry> wheel){
+            this.wheel = wheel;
+        }
+
+        private synchronized int size(){
+            return size;
+        }
+
+        private synchronized byte[] get(UUID id){
+            var index = indexOf(id.getMostSignificantBits(), id.getLeastSignificantBits());
+            return index < 0 ? null : values[index];
+        }
+
+        private synchronized void put(UUID id, byte[] value, String userName, long expiresAt){
+            if ((size + 1) * 4L > values.length * 3L){
+                resize(values.length * 2);
+            }
+
+            var msb = id.getMostSignificantBits();
+            var lsb = id.getLeastSignificantBits();
+            var index = slot(msb, lsb);
+            while (values[index] != null){
+                if (mostSignificantBits[index] == msb && leastSignificantBits[index] == lsb){
+                    values[index] = value;
+                    return;
+                }
+
+                index = (index + 1) & (values.length - 1);
+            }
+
+            mostSignificantBits[index] = msb;
+            leastSignificantBits[index] = lsb;
+            values[index] = value;
+            size++;
+
+            wheel.schedule(new Expiry(msb, lsb, userName), expiresAt);
+        }
+
+        private synchronized byte[] remove(UUID id){
+            return remove(id.getMostSignificantBits(), id.getLeastSignificantBits());
+        }
+
+        // rotated and revoked tokens leave their wheel entry behind, it is discarded when it comes due
+        private synchronized void expire(long nowMs, List<Expiry> expired){
+            wheel.advance(nowMs, token -> {
+                if (remove(token.mostSignificantBits(), token.leastSignificantBits()) != null){
+                    expired.add(token);
+                }
+            });
+        }
+
+        private byte[] remove(long msb, long lsb){
+            var index = indexOf(msb, lsb);
+            if (index < 0){
+                return null;
+            }
+
+            var removed = values[index];
+            var mask = values.length - 1;
+            var gap = index;
+            var next = index;
+
+            // shift back every entry of the probe run that could live in the gap, so lookups never stop early
+            while (true){
+                next = (next + 1) & mask;
+                if (values[next] == null){
+                    break;
+                }
+
+                var home = slot(mostSignificantBits[next], leastSignificantBits[next]);
+                var stays = gap <= next ? gap < home && home <= next : gap < home || home <= next;
+                if (stays){
+                    continue;
+                }
+
+                mostSignificantBits[gap] = mostSignificantBits[next];
+                leastSignificantBits[gap] = leastSignificantBits[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+
+            values[gap] = null;
+            size--;
+            return removed;
+        }
+
+        private int indexOf(long msb, long lsb){
+            var index = slot(msb, lsb);
+            while (values[index] != null){
+                if (mostSignificantBits[index] == msb && leastSignificantBits[index] == lsb){
+                    return index;
+                }
+
+                index = (index + 1) & (values.length - 1);
+            }
+
+            return -1;
+        }
+
+        private int slot(long msb, long lsb){
+            return (int) hash(msb, lsb) & (values.length - 1);
+        }
+
+        private void resize(int capacity){
+            var oldMostSignificantBits = mostSignificantBits;
+            var oldLeastSignificantBits = leastSignificantBits;
+            var oldValues = values;
+
+            mostSignificantBits = new long[capacity];
+            leastSignificantBits = new long[capacity];
+            values = new byte[capacity][];
+
+            for (int i = 0; i < oldValues.length; i++){
+                if (oldValues[i] == null){
+                    continue;
+                }
+
+                var index = slot(oldMostSignificantBits[i], oldLeastSignificantBits[i]);
+                while (values[index] != null){
+                    index = (index + 1) & (capacity - 1);
+                }
+
+                mostSignificantBits[index] = oldMostSignificantBits[i];
+                leastSignificantBits[index] = oldLeastSignificantBits[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package io.baxter.authentication.infrastructure.behavior.sessions;
+
+import javax.crypto.*;
+import javax.crypto.spec.*;
+import java.nio.ByteBuffer;
+import java.security.*;
+import java.util.*;
+
+// seals refresh tokens with AES-256-GCM so they can be carried by the client and opened by any instance holding
+// the key. sealed tokens are base64url( version | key id | 12 byte nonce | ciphertext + tag ), with the version and
+// key id authenticated as associated data. the first key seals, every key opens - so a new key can be rolled out
+// ahead of the old one being retired
+public class RefreshTokenCipher {
+    private static final byte VERSION = 1;
+    private static final int KEY_BYTES = 32;
+    private static final int NONCE_BYTES = 12;
+    private static final int TAG_BITS = 128;
+    private static final int HEADER_BYTES = 2 + NONCE_BYTES;
+
+    private final List<Key> keys;
+    private final SecureRandom random = new SecureRandom();
+    private final ThreadLocal<Cipher> ciphers = ThreadLocal.withInitial(RefreshTokenCipher::newCipher);
+
+    public RefreshTokenCipher(List<byte[]> keys){
+        if (keys.isEmpty()){
+            throw new IllegalArgumentException("at least one refresh token key is required");
+        }
+
+        this.keys = keys.stream().map(RefreshTokenCipher::key).toList();
+    }
+
+    public String seal(byte[] plaintext){
+        var key = keys.getFirst();
+        var nonce = new byte[NONCE_BYTES];
+        random.nextBytes(nonce);
+
+        try {
+            var cipher = ciphers.get();
+            cipher.init(Cipher.ENCRYPT_MODE, key.secret(), new GCMParameterSpec(TAG_BITS, nonce));
+            cipher.updateAAD(new byte[] { VERSION, key.id() });
+
+            var sealed = ByteBuffer.allocate(HEADER_BYTES + cipher.getOutputSize(plaintext.length));
+            sealed.put(VERSION).put(key.id()).put(nonce);
+            cipher.doFinal(ByteBuffer.wrap(plaintext), sealed);
+
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(sealed.array());
+        } catch (GeneralSecurityException exception){
+            throw new IllegalStateException("unable to seal refresh token", exception);
+        }
+    }
+
+    // empty when the token is malformed, sealed with an unknown key or has been tampered with
+    public Optional<byte[]> open(String token){
+        byte[] sealed;
+        try {
+            sealed = Base64.getUrlDecoder().decode(token);
+        } catch (IllegalArgumentException exception){
+            return Optional.empty();
+        }
+
+        if (sealed.length <= HEADER_BYTES + TAG_BITS / 8 || sealed[0] != VERSION){
+            return Optional.empty();
+        }
+
+        for (var key : keys){
+            if (key.id() != sealed[1]){
+                continue;
+            }
+
+            try {
+                var cipher = ciphers.get();
+                cipher.init(Cipher.DECRYPT_MODE, key.secret(), new GCMParameterSpec(TAG_BITS, sealed, 2, NONCE_BYTES));
+                cipher.updateAAD(sealed, 0, 2);
+                return Optional.of(cipher.doFinal(sealed, HEADER_BYTES, sealed.length - HEADER_BYTES));
+            } catch (AEADBadTagException exception){
+                // a key id collision, or tampering - try the next key
+            } catch (GeneralSecurityException exception){
+                throw new IllegalStateException("unable to open refresh token", exception);
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    private static Key key(byte[] secret){
+        if (secret.length != KEY_BYTES){
+            throw new IllegalArgumentException("refresh token keys must be 256 bits");
+        }
+
+        try {
+            var id = MessageDigest.getInstance("SHA-256").digest(secret)[0];
+            return new Key(id, new SecretKeySpec(secret, "AES"));
+        } catch (NoSuchAlgorithmException exception){
+            throw new IllegalStateException("SHA-256 is not available", exception);
+        }
+    }
+
+    private static Cipher newCipher(){
+        try {
+            return Cipher.getInstance("AES/GCM/NoPadding");
+        } catch (GeneralSecurityException exception){
+            throw new IllegalStateException("AES/GCM is not available", exception);
+        }
+    }
+
+    private record Key(byte id, SecretKey secret){}
+}
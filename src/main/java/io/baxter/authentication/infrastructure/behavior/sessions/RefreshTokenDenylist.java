@@ -0,0 +1,160 @@
+package io.baxter.authentication.infrastructure.behavior.sessions;
+
+import io.baxter.authentication.infrastructure.behavior.redis.RefreshTokenPolicy;
+import io.micrometer.core.instrument.*;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.*;
+
+import java.time.*;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// revocations for stateless refresh tokens, checked locally so refresh never waits on redis.
+// two kinds of entries are kept:
+//  - redeemed or revoked token ids, until the token would have expired anyway (an ExpiringIdSet, 12 bytes a slot)
+//  - per user "revoked before" times set by revoke all, until every token issued before them has expired. tokens
+//    issued in the same second as a revoke all are not revoked by it, see isRevoked
+// both are written through to redis sorted sets and every instance reloads them on an interval, so a token
+// redeemed on one instance is rejected everywhere within refresh-token.stateless.denylist-refresh-interval
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "refresh-token.store", havingValue = "stateless")
+public class RefreshTokenDenylist {
+    private static final String DENIED_KEY = "refresh_denylist";
+    private static final String REVOKED_BEFORE_KEY = "refresh_revoked_before";
+    private static final int INITIAL_SIZE = 1024;
+
+    private final ReactiveStringRedisTemplate redis;
+    private final Clock clock;
+    private final Duration lifetime;
+    private final Duration refreshInterval;
+
+    private final Object lock = new Object();
+    private final Map<String, Long> revokedBefore = new ConcurrentHashMap<>();
+    private ExpiringIdSet denied = new ExpiringIdSet(INITIAL_SIZE);
+    private Disposable refreshes;
+
+    public RefreshTokenDenylist(
+            ReactiveStringRedisTemplate redis,
+            Clock clock,
+            RefreshTokenPolicy refreshTokenPolicy,
+            MeterRegistry meterRegistry,
+            @Value("${refresh-token.stateless.denylist-refresh-interval:PT5S}") Duration refreshInterval){
+        this.redis = redis;
+        this.clock = clock;
+        this.lifetime = refreshTokenPolicy.getLifetime();
+        this.refreshInterval = refreshInterval;
+
+        Gauge.builder("refresh-token.denylist.size", this, denylist -> denylist.size())
+                .description("token ids on the stateless refresh token denylist")
+                .register(meterRegistry);
+
+        Gauge.builder("refresh-token.denylist.memory", this, denylist -> denylist.memoryBytes())
+                .baseUnit("bytes")
+                .description("memory held by the stateless refresh token denylist")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start(){
+        refreshes = Flux.interval(Duration.ZERO, refreshInterval)
+            .onBackpressureDrop()
+            .concatMap(tick -> refresh().onErrorResume(exception -> {
+                log.error("unable to refresh refresh token denylist", exception);
+                return Mono.empty();
+            }))
+            .subscribe();
+    }
+
+    @PreDestroy
+    public void stop(){
+        if (refreshes != null){
+            refreshes.dispose();
+        }
+    }
+
+    // sealed tokens only carry their issue time in whole seconds, so the revocation is compared at that precision
+    // too - a token issued later in the second of a revoke all, such as the login straight after it, stays valid
+    public boolean isRevoked(String userName, long issuedAtMs){
+        var before = revokedBefore.get(userName);
+        return before != null && issuedAtMs < before - Math.floorMod(before, 1000L);
+    }
+
+    // denies a token id until expiresAtMs - false when it was already denied, so only one redemption can win
+    public boolean deny(long id, long expiresAtMs){
+        boolean added;
+        synchronized (lock){
+            added = denied.add(id, expiresAtMs, clock.millis());
+        }
+
+        if (added){
+            redis.opsForZSet().add(DENIED_KEY, Long.toUnsignedString(id, 16), expiresAtMs).subscribe(
+                ignored -> {},
+                exception -> log.error("unable to publish denied refresh token", exception));
+        }
+
+        return added;
+    }
+
+    // rejects every token the user was issued before the second nowMs falls in
+    public Mono<Void> revokeAll(String userName, long nowMs){
+        revokedBefore.merge(userName, nowMs, Math::max);
+        return redis.opsForZSet().add(REVOKED_BEFORE_KEY, userName, nowMs).then();
+    }
+
+    // prunes expired entries in redis and swaps in its current contents, keeping anything denied locally meanwhile
+    public Mono<Void> refresh(){
+        var now = clock.millis();
+        var zset = redis.opsForZSet();
+
+        var deniedIds = zset.removeRangeByScore(DENIED_KEY, Range.leftUnbounded(Range.Bound.inclusive((double) now)))
+            .thenMany(zset.rangeByScoreWithScores(DENIED_KEY, Range.rightUnbounded(Range.Bound.exclusive((double) now))))
+            .collectList();
+
+        var revocationsFrom = now - lifetime.toMillis();
+        var revocations = zset.removeRangeByScore(REVOKED_BEFORE_KEY, Range.leftUnbounded(Range.Bound.inclusive((double) revocationsFrom)))
+            .thenMany(zset.rangeByScoreWithScores(REVOKED_BEFORE_KEY, Range.unbounded()))
+            .collectList();
+
+        return Mono.zip(deniedIds, revocations)
+            .doOnNext(loaded -> {
+                var next = new ExpiringIdSet(Math.max(INITIAL_SIZE, loaded.getT1().size()));
+                for (var entry : loaded.getT1()){
+                    next.add(Long.parseUnsignedLong(entry.getValue(), 16), entry.getScore().longValue(), now);
+                }
+
+                synchronized (lock){
+                    denied.copyLiveTo(next, now);
+                    denied = next;
+                }
+
+                for (var entry : loaded.getT2()){
+                    revokedBefore.merge(entry.getValue(), entry.getScore().longValue(), Math::max);
+                }
+
+                revokedBefore.values().removeIf(before -> before <= revocationsFrom);
+            })
+            .then();
+    }
+
+    public int size(){
+        synchronized (lock){
+            return denied.size();
+        }
+    }
+
+    public long memoryBytes(){
+        synchronized (lock){
+            return denied.memoryBytes();
+        }
+    }
+}
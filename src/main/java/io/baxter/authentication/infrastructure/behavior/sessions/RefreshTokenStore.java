@@ -0,0 +1,27 @@
+package io.baxter.authentication.infrastructure.behavior.sessions;
+
+import io.baxter.authentication.infrastructure.behavior.redis.*;
+import reactor.core.publisher.*;
+
+import java.time.Instant;
+
+// where refresh token sessions live, selected with refresh-token.store:
+// redis (default, see RedisRefreshTokenStore), memory (see InMemoryRefreshTokenStore)
+// or stateless (see StatelessRefreshTokenStore)
+public interface RefreshTokenStore {
+    // stores a newly issued token, emitting the refresh token to hand to the client (empty if it was not stored)
+    Mono<String> issue(RefreshToken token, Instant now);
+
+    // redeems the presented refresh token and issues its replacement, emitting both.
+    // completes empty when the presented token does not exist, has expired or was revoked.
+    // at most one concurrent caller can redeem a given token
+    Mono<RotatedRefreshToken> rotate(String refreshToken, Instant now);
+
+    Flux<RefreshTokenSession> sessions(String userName, Instant now);
+
+    // emits false when the user has no active session with the given id
+    Mono<Boolean> revoke(String userName, String sessionId, Instant now);
+
+    // emits the number of sessions revoked
+    Mono<Long> revokeAll(String userName, Instant now);
+}
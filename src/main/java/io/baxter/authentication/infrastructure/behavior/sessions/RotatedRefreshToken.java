@@ -0,0 +1,6 @@
+package io.baxter.authentication.infrastructure.behavior.sessions;
+
+import io.baxter.authentication.infrastructure.behavior.redis.RefreshToken;
+
+// the token that was redeemed by a refresh, and the refresh token that replaces it
+public record RotatedRefreshToken(RefreshToken redeemed, String refreshToken){}
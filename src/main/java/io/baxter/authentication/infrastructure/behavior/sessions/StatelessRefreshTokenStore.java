@@ -0,0 +1,109 @@
+package io.baxter.authentication.infrastructure.behavior.sessions;
+
+import io.baxter.authentication.data.cache.RoleCatalog;
+import io.baxter.authentication.infrastructure.behavior.redis.*;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.*;
+
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.*;
+
+// self contained refresh tokens - the token handed to the client is its own session (id, user, roles, issue time
+// and expiry in the RefreshTokenCodec encoding) sealed with RefreshTokenCipher, so refresh is pure cpu work with no
+// lookup. redeemed tokens and revocations go through RefreshTokenDenylist, which is checked locally.
+// sessions are not tracked in this mode: they cannot be listed or revoked one at a time, revoke all rejects every
+// token the user was issued before the second it ran in
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "refresh-token.store", havingValue = "stateless")
+public class StatelessRefreshTokenStore implements RefreshTokenStore {
+    private static final int ID_BYTES = Long.BYTES;
+
+    private final RefreshTokenCodec codec;
+    private final RefreshTokenCipher cipher;
+    private final RefreshTokenPolicy refreshTokenPolicy;
+    private final RefreshTokenDenylist denylist;
+    private final SecureRandom random = new SecureRandom();
+
+    public StatelessRefreshTokenStore(
+            RoleCatalog roleCatalog,
+            RefreshTokenPolicy refreshTokenPolicy,
+            RefreshTokenDenylist denylist,
+            @Value("${refresh-token.stateless.keys}") String keys){
+        this.codec = new RefreshTokenCodec(roleCatalog);
+        this.cipher = new RefreshTokenCipher(Arrays.stream(keys.split(","))
+                .map(String::trim)
+                .filter(key -> !key.isEmpty())
+                .map(Base64.getDecoder()::decode)
+                .toList());
+        this.refreshTokenPolicy = refreshTokenPolicy;
+        this.denylist = denylist;
+    }
+
+    @Override
+    public Mono<String> issue(RefreshToken token, Instant now){
+        return Mono.fromSupplier(() -> seal(token));
+    }
+
+    @Override
+    public Mono<RotatedRefreshToken> rotate(String refreshToken, Instant now){
+        return Mono.fromSupplier(() -> {
+            var plaintext = cipher.open(refreshToken).orElse(null);
+            if (plaintext == null || plaintext.length <= ID_BYTES){
+                return null;
+            }
+
+            RefreshToken token;
+            try {
+                token = codec.deserialize(Arrays.copyOfRange(plaintext, ID_BYTES, plaintext.length));
+            } catch (SerializationException exception){
+                log.error("unable to read sealed refresh token", exception);
+                return null;
+            }
+
+            var id = ByteBuffer.wrap(plaintext).getLong();
+            var expiresAt = token.getExpiresAt().getTime();
+            if (expiresAt <= now.toEpochMilli() || denylist.isRevoked(token.getUserName(), token.getIssuedAt().getTime())){
+                return null;
+            }
+
+            // denying the redeemed id makes the token single use
+            if (!denylist.deny(id, expiresAt)){
+                return null;
+            }
+
+            var replacement = refreshTokenPolicy.issue(token.getUserName(), token.getRoles(), now);
+            return new RotatedRefreshToken(token, seal(replacement));
+        });
+    }
+
+    @Override
+    public Flux<RefreshTokenSession> sessions(String userName, Instant now){
+        return Flux.empty();
+    }
+
+    @Override
+    public Mono<Boolean> revoke(String userName, String sessionId, Instant now){
+        return Mono.just(false);
+    }
+
+    // stateless tokens are not tracked, so how many were revoked is not known
+    @Override
+    public Mono<Long> revokeAll(String userName, Instant now){
+        return denylist.revokeAll(userName, now.toEpochMilli()).thenReturn(0L);
+    }
+
+    private String seal(RefreshToken token){
+        var value = codec.serialize(token);
+        return cipher.seal(ByteBuffer.allocate(ID_BYTES + value.length)
+                .putLong(random.nextLong())
+                .put(value)
+                .array());
+    }
+}
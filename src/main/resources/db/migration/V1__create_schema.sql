@@ -1,3 +1,4 @@
+-- the schema previously created by db/init.sql. every statement is a no-op on a database that already has it
 CREATE TABLE IF NOT EXISTS users (
   id INT NOT NULL AUTO_INCREMENT,
   user_id CHAR(36) NOT NULL DEFAULT (UUID()),
@@ -21,4 +22,3 @@ CREATE TABLE IF NOT EXISTS `user_roles` (
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
 
 INSERT IGNORE INTO roles (name) VALUES ('USER');
-
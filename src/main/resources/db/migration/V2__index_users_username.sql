@@ -0,0 +1,11 @@
+-- every login and registration looks users up by username. the index is unique, which registration relies on to
+-- reject a taken name (a database holding duplicate usernames has to be cleaned up before this can apply).
+-- databases created by the old db/init.sql may already have it, so it is only added when missing
+SET @ddl = IF(
+  (SELECT COUNT(*) FROM information_schema.statistics
+    WHERE table_schema = DATABASE() AND table_name = 'users' AND index_name = 'uk_username') = 0,
+  'ALTER TABLE users ADD UNIQUE KEY uk_username (username)',
+  'DO 0');
+PREPARE migration FROM @ddl;
+EXECUTE migration;
+DEALLOCATE PREPARE migration;
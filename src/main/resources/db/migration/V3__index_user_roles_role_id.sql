@@ -0,0 +1,11 @@
+-- user_roles is keyed by (user_id, role_id), so finding the users holding a role could only use the index mysql
+-- creates implicitly for the role_id foreign key. (role_id, user_id) answers that from the index alone, and mysql
+-- drops the implicit one once this can back the foreign key
+SET @ddl = IF(
+  (SELECT COUNT(*) FROM information_schema.statistics
+    WHERE table_schema = DATABASE() AND table_name = 'user_roles' AND index_name = 'idx_user_roles_role_id') = 0,
+  'ALTER TABLE user_roles ADD KEY idx_user_roles_role_id (role_id, user_id)',
+  'DO 0');
+PREPARE migration FROM @ddl;
+EXECUTE migration;
+DEALLOCATE PREPARE migration;
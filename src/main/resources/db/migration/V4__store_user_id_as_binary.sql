@@ -0,0 +1,44 @@
+-- users.user_id moves from CHAR(36) (up to 144 bytes of utf8mb4 index key) to BINARY(16), in the time ordered
+-- layout of UUID_TO_BIN(id, 1), see TimeOrderedUuid. instances from before this change read user_id as text, so
+-- they have to be stopped before it runs. every step checks where an earlier, interrupted run got to
+SET @ddl = IF(
+  (SELECT COUNT(*) FROM information_schema.columns
+    WHERE table_schema = DATABASE() AND table_name = 'users' AND column_name = 'user_id' AND data_type = 'char') = 1
+  AND (SELECT COUNT(*) FROM information_schema.columns
+    WHERE table_schema = DATABASE() AND table_name = 'users' AND column_name = 'user_id_bin') = 0,
+  'ALTER TABLE users ADD COLUMN user_id_bin BINARY(16) NULL AFTER user_id',
+  'DO 0');
+PREPARE migration FROM @ddl;
+EXECUTE migration;
+DEALLOCATE PREPARE migration;
+
+SET @ddl = IF(
+  (SELECT COUNT(*) FROM information_schema.columns
+    WHERE table_schema = DATABASE() AND table_name = 'users' AND column_name = 'user_id' AND data_type = 'char') = 1
+  AND (SELECT COUNT(*) FROM information_schema.columns
+    WHERE table_schema = DATABASE() AND table_name = 'users' AND column_name = 'user_id_bin') = 1,
+  'UPDATE users SET user_id_bin = UUID_TO_BIN(user_id, 1) WHERE user_id_bin IS NULL',
+  'DO 0');
+PREPARE migration FROM @ddl;
+EXECUTE migration;
+DEALLOCATE PREPARE migration;
+
+SET @ddl = IF(
+  (SELECT COUNT(*) FROM information_schema.columns
+    WHERE table_schema = DATABASE() AND table_name = 'users' AND column_name = 'user_id' AND data_type = 'char') = 1
+  AND (SELECT COUNT(*) FROM information_schema.columns
+    WHERE table_schema = DATABASE() AND table_name = 'users' AND column_name = 'user_id_bin') = 1,
+  'ALTER TABLE users DROP INDEX uk_user_id, DROP COLUMN user_id',
+  'DO 0');
+PREPARE migration FROM @ddl;
+EXECUTE migration;
+DEALLOCATE PREPARE migration;
+
+SET @ddl = IF(
+  (SELECT COUNT(*) FROM information_schema.columns
+    WHERE table_schema = DATABASE() AND table_name = 'users' AND column_name = 'user_id_bin') = 1,
+  'ALTER TABLE users CHANGE COLUMN user_id_bin user_id BINARY(16) NOT NULL DEFAULT (UUID_TO_BIN(UUID(), 1)), ADD UNIQUE KEY uk_user_id (user_id)',
+  'DO 0');
+PREPARE migration FROM @ddl;
+EXECUTE migration;
+DEALLOCATE PREPARE migration;
@@ -0,0 +1,13 @@
+-- stores a new refresh token and records it in its user's session index
+-- KEYS[1] token key, KEYS[2] session index key
+-- ARGV[1] token value, ARGV[2] ttl (seconds), ARGV[3] token id, ARGV[4] expiry (epoch ms), ARGV[5] now (epoch ms)
+-- the index is a sorted set of token ids scored by expiry, expired ids are pruned whenever it is written
+-- and the index itself expires with the last session in it
+redis.call('SET', KEYS[1], ARGV[1], 'EX', ARGV[2])
+redis.call('ZADD', KEYS[2], ARGV[4], ARGV[3])
+redis.call('ZREMRANGEBYSCORE', KEYS[2], '-inf', ARGV[5])
+
+local last = redis.call('ZRANGE', KEYS[2], -1, -1, 'WITHSCORES')
+redis.call('PEXPIREAT', KEYS[2], last[2])
+
+return 1
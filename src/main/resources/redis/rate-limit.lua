@@ -0,0 +1,25 @@
+-- counts a request against a sliding window limit, approximated from the counts of the current and previous
+-- fixed windows, see SlidingWindowSketch
+-- KEYS[1] current window counter, KEYS[2] previous window counter
+-- ARGV[1] permits, ARGV[2] window length in ms, ARGV[3] ms elapsed in the current window, ARGV[4] counter ttl in ms
+-- returns 0 when the request was counted, otherwise the ms until it would be admitted without counting it
+local current = tonumber(redis.call('GET', KEYS[1]) or '0')
+local previous = tonumber(redis.call('GET', KEYS[2]) or '0')
+local permits = tonumber(ARGV[1])
+local window = tonumber(ARGV[2])
+local elapsed = tonumber(ARGV[3])
+
+if previous * (window - elapsed) / window + current + 1 > permits then
+    -- the same as SlidingWindowSketch.retryAfterMillis: later in this window once enough of the previous one has
+    -- slid out, or part way through the next one, where this window's count is the one sliding out
+    if current + 1 <= permits then
+        return math.max(1, window - math.floor(window * (permits - 1 - current) / previous) - elapsed)
+    end
+
+    return window - elapsed + window - math.floor(window * (permits - 1) / current)
+end
+
+redis.call('INCR', KEYS[1])
+redis.call('PEXPIRE', KEYS[1], ARGV[4])
+
+return 0
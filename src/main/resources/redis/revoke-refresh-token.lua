@@ -0,0 +1,11 @@
+-- revokes one session, but only when it is in the given user's index
+-- KEYS[1] session index key, KEYS[2] token key
+-- ARGV[1] token id
+-- returns 1 when the session was revoked, 0 when the user has no such session
+if redis.call('ZREM', KEYS[1], ARGV[1]) == 0 then
+    return 0
+end
+
+redis.call('DEL', KEYS[2])
+
+return 1
@@ -0,0 +1,21 @@
+-- revokes every session in a user's index
+-- KEYS[1] session index key
+-- ARGV[1] now (epoch ms)
+-- returns the number of sessions revoked
+--
+-- token keys are the raw 16 bytes of the uuid held in the index, see RefreshTokenKeySerializer
+local function uuid_to_key(id)
+    local hex = string.gsub(id, '-', '')
+    return (string.gsub(hex, '..', function(pair) return string.char(tonumber(pair, 16)) end))
+end
+
+redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', ARGV[1])
+
+local ids = redis.call('ZRANGE', KEYS[1], 0, -1)
+for _, id in ipairs(ids) do
+    redis.call('DEL', uuid_to_key(id))
+end
+
+redis.call('DEL', KEYS[1])
+
+return #ids
@@ -0,0 +1,97 @@
+-- atomically redeems a refresh token and stores its replacement in a single round trip
+-- KEYS[1] presented token key, KEYS[2] legacy "refresh_token:<id>" key for the same token, KEYS[3] replacement key
+-- ARGV[1] now (epoch ms), ARGV[2] replacement expiry (epoch ms), ARGV[3] replacement ttl (seconds),
+-- ARGV[4] presented token id, ARGV[5] replacement token id, ARGV[6] session index key prefix
+-- returns the redeemed token, or false when it does not exist or has expired (it is deleted either way)
+--
+-- the user's session index key is only known once the token is read, so it is built here rather than passed
+-- in KEYS - this script therefore needs a standalone redis (or a cluster where all of these keys share a slot)
+--
+-- values are either RefreshTokenCodec binary (version byte, varint issuedAt, varint expiresAt, rest) or the
+-- legacy json written before it - only the timestamps are rewritten, everything after them is copied as is
+local function read_varint(value, position)
+    local result, multiplier = 0, 1
+    while true do
+        local byte = string.byte(value, position)
+        if byte == nil then
+            return nil, position
+        end
+        position = position + 1
+        result = result + (byte % 128) * multiplier
+        if byte < 128 then
+            return result, position
+        end
+        multiplier = multiplier * 128
+    end
+end
+
+local function write_varint(number)
+    local bytes = {}
+    while number >= 128 do
+        bytes[#bytes + 1] = string.char(number % 128 + 128)
+        number = math.floor(number / 128)
+    end
+    bytes[#bytes + 1] = string.char(number)
+    return table.concat(bytes)
+end
+
+local key = KEYS[1]
+local current = redis.call('GET', key)
+if not current then
+    key = KEYS[2]
+    current = redis.call('GET', key)
+end
+if not current then
+    return false
+end
+
+redis.call('DEL', key)
+
+local now = tonumber(ARGV[1])
+local expires_at = tonumber(ARGV[2])
+local replacement
+local user_name
+
+if string.sub(current, 1, 1) == '{' then
+    local token = cjson.decode(current)
+    user_name = token.userName
+    if token.expiresAt == nil or token.expiresAt <= now then
+        return false
+    end
+    token.issuedAt = now
+    token.expiresAt = expires_at
+    -- cjson cannot tell an empty array from an empty object and encodes both as {}, which would turn a token
+    -- without roles into one that no longer reads as a list. roles is the only array in the token
+    local no_roles = type(token.roles) == 'table' and next(token.roles) == nil
+    replacement = cjson.encode(token)
+    if no_roles then
+        replacement = string.gsub(replacement, '"roles":{}', '"roles":[]', 1)
+    end
+else
+    local _, position = read_varint(current, 2)
+    local current_expires_at, rest, name_length
+    current_expires_at, rest = read_varint(current, position)
+    name_length, position = read_varint(current, rest)
+    if current_expires_at == nil or name_length == nil then
+        return false
+    end
+    user_name = string.sub(current, position, position + name_length - 1)
+    if current_expires_at * 1000 <= now then
+        return false
+    end
+    replacement = string.sub(current, 1, 1)
+        .. write_varint(math.floor(now / 1000))
+        .. write_varint(math.floor(expires_at / 1000))
+        .. string.sub(current, rest)
+end
+
+redis.call('SET', KEYS[3], replacement, 'EX', ARGV[3])
+
+local index = ARGV[6] .. user_name
+redis.call('ZREM', index, ARGV[4])
+redis.call('ZADD', index, expires_at, ARGV[5])
+redis.call('ZREMRANGEBYSCORE', index, '-inf', now)
+local last = redis.call('ZRANGE', index, -1, -1, 'WITHSCORES')
+redis.call('PEXPIREAT', index, last[2])
+
+return current
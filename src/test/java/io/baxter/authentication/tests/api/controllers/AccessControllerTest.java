@@ -3,15 +3,17 @@ package io.baxter.authentication.tests.api.controllers;
 import io.baxter.authentication.api.controllers.AccessController;
 import io.baxter.authentication.api.models.*;
 import io.baxter.authentication.api.services.AccessService;
-import io.baxter.authentication.infrastructure.behavior.redis.RefreshTokenResponse;
+import io.baxter.authentication.infrastructure.behavior.exceptions.InvalidLoginException;
+import io.baxter.authentication.infrastructure.behavior.redis.*;
 import org.junit.jupiter.api.*;
 import org.mockito.*;
 import org.springframework.boot.test.system.CapturedOutput;
 import org.springframework.http.*;
-import reactor.core.publisher.Mono;
+import org.springframework.security.oauth2.jwt.Jwt;
+import reactor.core.publisher.*;
 import reactor.test.StepVerifier;
 
-import java.util.UUID;
+import java.util.*;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -198,4 +200,85 @@ class AccessControllerTest {
                 .contains(registrationMessage)
                 .contains(expectedLogMessage);
     }
+
+    @Test
+    @DisplayName("getSessions returns the sessions of the user identified by the access token")
+    void getSessionsShouldReturnSessionsForPrincipal(){
+        // Arrange
+        final var session = new RefreshTokenSession("c2Vzc2lvbi0x", new Date());
+
+        Mockito.when(mockAccessService.getSessions(testUserName)).thenReturn(Flux.just(session));
+
+        // Act
+        var response = accessController.getSessions(principal());
+
+        // Assert
+        StepVerifier.create(response)
+                .expectNextMatches(res ->
+                        res.getStatusCode() == HttpStatus.OK &&
+                        res.getBody() != null &&
+                        res.getBody().size() == 1 &&
+                        res.getBody().getFirst().getId().equals(session.getId()))
+                .verifyComplete();
+
+        Mockito.verify(mockAccessService).getSessions(testUserName);
+        Mockito.verifyNoMoreInteractions(mockAccessService);
+    }
+
+    @Test
+    @DisplayName("revokeSession returns no content once the caller's session is revoked")
+    void revokeSessionShouldReturn204(){
+        // Arrange
+        Mockito.when(mockAccessService.revokeSession(testUserName, "c2Vzc2lvbi0x")).thenReturn(Mono.empty());
+
+        // Act
+        var response = accessController.revokeSession(principal(), "c2Vzc2lvbi0x");
+
+        // Assert
+        StepVerifier.create(response)
+                .expectNextMatches(res -> res.getStatusCode() == HttpStatus.NO_CONTENT)
+                .verifyComplete();
+
+        Mockito.verify(mockAccessService).revokeSession(testUserName, "c2Vzc2lvbi0x");
+    }
+
+    @Test
+    @DisplayName("revokeSessions returns no content once all of the caller's sessions are revoked")
+    void revokeSessionsShouldReturn204(){
+        // Arrange
+        Mockito.when(mockAccessService.revokeSessions(testUserName)).thenReturn(Mono.just(3L));
+
+        // Act
+        var response = accessController.revokeSessions(principal());
+
+        // Assert
+        StepVerifier.create(response)
+                .expectNextMatches(res -> res.getStatusCode() == HttpStatus.NO_CONTENT)
+                .verifyComplete();
+
+        Mockito.verify(mockAccessService).revokeSessions(testUserName);
+    }
+
+    @Test
+    @DisplayName("the session endpoints return an invalid login exception without calling the service when there is no access token")
+    void sessionEndpointsShouldRejectAnonymousCallers(){
+        // Act
+        var sessions = accessController.getSessions(null);
+        var revoke = accessController.revokeSession(null, "c2Vzc2lvbi0x");
+        var revokeAll = accessController.revokeSessions(null);
+
+        // Assert
+        StepVerifier.create(sessions).expectError(InvalidLoginException.class).verify();
+        StepVerifier.create(revoke).expectError(InvalidLoginException.class).verify();
+        StepVerifier.create(revokeAll).expectError(InvalidLoginException.class).verify();
+
+        Mockito.verifyNoInteractions(mockAccessService);
+    }
+
+    private Jwt principal(){
+        return Jwt.withTokenValue("token")
+                .header("alg", "HS256")
+                .subject(testUserName)
+                .build();
+    }
 }
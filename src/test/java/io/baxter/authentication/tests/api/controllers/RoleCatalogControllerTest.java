@@ -0,0 +1,40 @@
+package io.baxter.authentication.tests.api.controllers;
+
+import io.baxter.authentication.api.controllers.RoleCatalogController;
+import io.baxter.authentication.data.cache.RoleCatalog;
+import org.junit.jupiter.api.*;
+import org.mockito.*;
+import org.springframework.http.HttpStatus;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+@ControllerTest(controllers = RoleCatalogController.class)
+class RoleCatalogControllerTest {
+    private RoleCatalogController roleCatalogController;
+
+    @Mock
+    private RoleCatalog mockRoleCatalog;
+
+    @BeforeEach
+    void setup() {
+        roleCatalogController = new RoleCatalogController(mockRoleCatalog);
+    }
+
+    @Test
+    @DisplayName("reload returns ok response with the number of roles loaded")
+    void reloadShouldLoadCatalogAndReturn200(){
+        // Arrange
+        Mockito.when(mockRoleCatalog.load()).thenReturn(Mono.just(3));
+
+        // Act
+        var response = roleCatalogController.reload();
+
+        // Assert
+        StepVerifier.create(response)
+                .expectNextMatches(result ->
+                        result.getStatusCode() == HttpStatus.OK && result.getBody() != null && result.getBody().getRoles() == 3)
+                .verifyComplete();
+
+        Mockito.verify(mockRoleCatalog).load();
+    }
+}
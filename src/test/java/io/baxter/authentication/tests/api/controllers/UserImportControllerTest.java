@@ -0,0 +1,42 @@
+package io.baxter.authentication.tests.api.controllers;
+
+import io.baxter.authentication.api.controllers.UserImportController;
+import io.baxter.authentication.api.models.*;
+import io.baxter.authentication.api.models.UserImportResult.Status;
+import io.baxter.authentication.api.services.UserImportService;
+import org.junit.jupiter.api.*;
+import org.mockito.*;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+@ControllerTest(controllers = UserImportController.class)
+class UserImportControllerTest {
+    private UserImportController userImportController;
+
+    @Mock
+    private UserImportService mockUserImportService;
+
+    @BeforeEach
+    void setup() {
+        userImportController = new UserImportController(mockUserImportService);
+    }
+
+    @Test
+    @DisplayName("importUsers streams a result for every imported record")
+    void importUsersShouldStreamResults(){
+        // Arrange
+        var records = Flux.just(new UserImportRecord("test@test.com", "TestPassword123$$", null, new String[] { "USER" }));
+        var result = new UserImportResult(1, "test@test.com", Status.CREATED, 1, null);
+        Mockito.when(mockUserImportService.importUsers(records)).thenReturn(Flux.just(result));
+
+        // Act
+        var response = userImportController.importUsers(records);
+
+        // Assert
+        StepVerifier.create(response)
+                .expectNext(result)
+                .verifyComplete();
+
+        Mockito.verify(mockUserImportService).importUsers(records);
+    }
+}
@@ -0,0 +1,39 @@
+package io.baxter.authentication.tests.api.controllers;
+
+import io.baxter.authentication.api.controllers.UserShardController;
+import io.baxter.authentication.api.models.ReshardingProgress;
+import io.baxter.authentication.api.services.UserReshardingService;
+import org.junit.jupiter.api.*;
+import org.mockito.*;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+@ControllerTest(controllers = UserShardController.class)
+class UserShardControllerTest {
+    private UserShardController userShardController;
+
+    @Mock
+    private UserReshardingService mockUserReshardingService;
+
+    @BeforeEach
+    void setup() {
+        userShardController = new UserShardController(mockUserReshardingService);
+    }
+
+    @Test
+    @DisplayName("rebalance streams the progress of every shard")
+    void rebalanceShouldStreamProgress(){
+        // Arrange
+        var primary = new ReshardingProgress("primary", 500, 120, 0);
+        var second = new ReshardingProgress("shard-2", 10, 0, 0);
+        Mockito.when(mockUserReshardingService.rebalance()).thenReturn(Flux.just(primary, second));
+
+        // Act
+        var response = userShardController.rebalance();
+
+        // Assert
+        StepVerifier.create(response)
+                .expectNext(primary, second)
+                .verifyComplete();
+    }
+}
@@ -2,22 +2,31 @@ package io.baxter.authentication.tests.api.services;
 
 import io.baxter.authentication.api.models.*;
 import io.baxter.authentication.api.services.AccessServiceImpl;
+import io.baxter.authentication.data.cache.*;
 import io.baxter.authentication.data.models.*;
 import io.baxter.authentication.data.repository.*;
 import io.baxter.authentication.infrastructure.auth.*;
+import io.baxter.authentication.infrastructure.behavior.database.*;
 import io.baxter.authentication.infrastructure.behavior.exceptions.*;
-import io.baxter.authentication.infrastructure.behavior.redis.RefreshToken;
+import io.baxter.authentication.infrastructure.behavior.limits.AimdConcurrencyLimiter;
+import io.baxter.authentication.infrastructure.behavior.redis.*;
+import io.baxter.authentication.infrastructure.behavior.sessions.*;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.boot.test.system.*;
-import org.springframework.data.redis.core.*;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.transaction.reactive.TransactionalOperator;
 import reactor.core.publisher.*;
 import reactor.test.StepVerifier;
 
 import java.time.*;
 import java.util.*;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.regex.Pattern;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 
@@ -27,33 +36,52 @@ class AccessServiceTest {
     @Mock private UserRepository mockUserRepository;
     @Mock private UserRoleRepository mockUserRoleRepository;
     @Mock private RoleRepository mockRoleRepository;
+    @Mock private LoginPrincipalRepository mockLoginPrincipalRepository;
+    @Mock private UserRoleBatchRepository mockUserRoleBatchRepository;
+    @Mock private TransactionalOperator mockTransactionalOperator;
     @Mock private PasswordEncryption mockPasswordEncryption;
     @Mock private JwtTokenGenerator mockTokenGenerator;
-    @Mock private ReactiveRedisTemplate<String, RefreshToken> mockRedisCache;
+    @Mock private RefreshTokenStore mockRefreshTokenStore;
     @Mock private Clock clock;
-    @Mock ReactiveValueOperations<String, RefreshToken> mockValueOps;
+    @Mock private UsernameFilter mockUsernameFilter;
+    @Spy private AimdConcurrencyLimiter loginAdmissionLimiter =
+            new AimdConcurrencyLimiter(1, 1, 1, 0.5, Long.MAX_VALUE, 1, System::nanoTime);
+
+    @Spy private RoleCatalog roleCatalog = new RoleCatalog(null, Duration.ofMinutes(5));
+    @Spy private ReadYourWrites readYourWrites = new ReadYourWrites(Duration.ofSeconds(5));
+    @Spy private LoginPrincipalCache loginPrincipalCache =
+            new LoginPrincipalCache(null, new SimpleMeterRegistry(), true, 100, Duration.ofMinutes(5), false);
+
+    @Spy private UserShards userShards = UserShards.single();
+    @Spy private RegistrationRoles registrationRoles = new RegistrationRoles(List.of("TEST_ROLE_1", "TEST_ROLE_2"));
+
+    @Spy private RefreshTokenPolicy refreshTokenPolicy = new RefreshTokenPolicy(Duration.ofHours(1).toMillis());
 
     @InjectMocks private AccessServiceImpl accessService;
 
+
     private final String refreshToken = "872bab23-6d67-4946-9144-07ecf0550134";
-    private final String refreshTokenWithKey = String.format("refresh_token:%s", refreshToken);
     private final String testUserName = "test-user";
     private final String testPassword = "TestPassword123$$";
     private final Integer userId = 1;
     private final String registerLogMessage = String.format("attempting registration for user with username %s", testUserName);
-    private final String validatingRolesLogMessage = "valid user name provided, validating roles";
+    private final String validatingRolesLogMessage = String.format("attempting registration for user with username %s, validating roles", testUserName);
     private final List<String> validRoles = List.of("TEST_ROLE_1", "TEST_ROLE_2");
     private final List<RoleDataModel> roleDataModels = List.of(
             new RoleDataModel(1, validRoles.getFirst()),
             new RoleDataModel(2, validRoles.get(1)));
 
-    private final List<UserRoleDataModel> userRoleDataModels = List.of(
-            new UserRoleDataModel(userId, roleDataModels.getFirst().getId()),
-            new UserRoleDataModel(userId, roleDataModels.get(1).getId()));
-
     private final ArgumentMatcher<String> roleArgumentMatcher = role ->
             validRoles.stream().anyMatch(validRole -> validRole.equals(role));
 
+    @BeforeEach
+    void setup(){
+        Mockito.lenient().when(mockUsernameFilter.mightExist(Mockito.anyString())).thenReturn(true);
+        Mockito.lenient().when(mockUsernameFilter.add(Mockito.anyString())).thenReturn(Mono.empty());
+        Mockito.lenient().when(mockTransactionalOperator.transactional(Mockito.<Mono<RegistrationResponse>>any()))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
     @Test
     @DisplayName("refreshAccessToken should return an new valid access token when refresh token exists and is not expired")
     void refreshAccessTokenShouldReturnNewRefreshTokenAndAccessTokenWhenSuccessful(){
@@ -62,18 +90,14 @@ class AccessServiceTest {
         var frozen = Instant.parse("2025-11-08T12:00:00Z");
         var expiration = Instant.parse("2026-11-08T12:00:00Z");
         var tokenDate = Date.from(expiration);
-        var refreshTokenResponse = new RefreshToken(testUserName, validRoles, tokenDate, tokenDate);
+        var redeemedToken = new RefreshToken(testUserName, validRoles, tokenDate, tokenDate);
+        var newRefreshToken = "b1323794-0887-48f7-8255-43f5f07c9d05";
+        roleCatalog.update(roleDataModels);
 
         Mockito.when(clock.instant()).thenReturn(frozen);
-        Mockito.when(mockRedisCache.opsForValue()).thenReturn(mockValueOps);
-        Mockito.when(mockValueOps.get(refreshTokenWithKey)).thenReturn(Mono.just(refreshTokenResponse));
+        Mockito.when(mockRefreshTokenStore.rotate(refreshToken, frozen))
+                .thenReturn(Mono.just(new RotatedRefreshToken(redeemedToken, newRefreshToken)));
         Mockito.when(mockTokenGenerator.generateToken(testUserName, validRoles)).thenReturn(accessToken);
-        Mockito.when(mockValueOps.delete(refreshTokenWithKey)).thenReturn(Mono.just(true));
-        Mockito.when(mockValueOps
-                        .set(
-                                Mockito.argThat(key -> key.startsWith("refresh_token:")),
-                                Mockito.argThat(token -> token.getUserName().equals(testUserName))))
-                        .thenReturn(Mono.just(true));
 
         // Act
         var response = accessService.refreshAccessToken(refreshToken);
@@ -82,32 +106,43 @@ class AccessServiceTest {
         StepVerifier.create(response)
                 .expectNextMatches(token ->
                         token.getAccessToken().equals(accessToken) &&
-                        !token.getRefreshToken().isEmpty() &&
-                        !token.getRefreshToken().equals(refreshToken))
-                .verifyComplete()   ;
+                        token.getRefreshToken().equals(newRefreshToken))
+                .verifyComplete();
 
         Mockito.verify(clock).instant();
-        Mockito.verify(mockValueOps).get(refreshTokenWithKey);
-        Mockito.verify(mockValueOps).delete(refreshTokenWithKey);
-        Mockito.verify(mockValueOps).set(
-                Mockito.argThat((String key) -> key.startsWith("refresh_token:")),
-                Mockito.argThat((RefreshToken token) -> token.getUserName().equals(testUserName)));
-        Mockito.verifyNoMoreInteractions(mockValueOps);
+        Mockito.verify(mockRefreshTokenStore).rotate(refreshToken, frozen);
+        Mockito.verifyNoMoreInteractions(mockRefreshTokenStore);
     }
 
     @Test
-    @DisplayName("refreshAccessToken should return an invalid login exception if the provided refresh token is expired")
-    void refreshAccessTokenShouldReturnInvalidLoginExceptionWhenTokenIsExpired(){
+    @DisplayName("refreshAccessToken when the token is missing or expired returns an invalid login exception")
+    void refreshAccessTokenShouldReturnInvalidLoginExceptionWhenNoCachedTokenFound(){
         // Arrange
-        var frozen = Instant.parse("2025-11-08T12:00:00Z");
-        var expiration = Instant.parse("2024-11-08T12:00:00Z");
-        var tokenDate = Date.from(expiration);
-        var refreshTokenResponse = new RefreshToken(testUserName, validRoles, tokenDate, tokenDate);
+        roleCatalog.update(roleDataModels);
+        Mockito.when(clock.instant()).thenReturn(Instant.parse("2025-11-08T12:00:00Z"));
+        Mockito.when(mockRefreshTokenStore.rotate(Mockito.eq(refreshToken), Mockito.any())).thenReturn(Mono.empty());
 
-        Mockito.when(clock.instant()).thenReturn(frozen);
-        Mockito.when(mockRedisCache.opsForValue()).thenReturn(mockValueOps);
-        Mockito.when(mockValueOps.get(refreshTokenWithKey)).thenReturn(Mono.just(refreshTokenResponse));
-        Mockito.when(mockValueOps.delete(refreshTokenWithKey)).thenReturn(Mono.just(true));
+        // Act
+        var response = accessService.refreshAccessToken(refreshToken);
+
+        // Assert
+        StepVerifier.create(response)
+                .expectErrorMatches(InvalidLoginException.class::isInstance)
+                .verify();
+
+        Mockito.verifyNoInteractions(mockTokenGenerator);
+    }
+
+    @Test
+    @DisplayName("refreshAccessToken should load the role catalog before redeeming a token if it has not loaded yet")
+    void refreshAccessTokenShouldLoadRoleCatalogFirst(){
+        // Arrange
+        Mockito.doReturn(Mono.fromRunnable(() -> roleCatalog.update(roleDataModels)).thenReturn(2)).when(roleCatalog).load();
+        Mockito.when(clock.instant()).thenReturn(Instant.parse("2025-11-08T12:00:00Z"));
+        Mockito.when(mockRefreshTokenStore.rotate(Mockito.eq(refreshToken), Mockito.any())).thenAnswer(invocation -> {
+            assertThat(roleCatalog.isLoaded()).isTrue();
+            return Mono.empty();
+        });
 
         // Act
         var response = accessService.refreshAccessToken(refreshToken);
@@ -117,19 +152,18 @@ class AccessServiceTest {
                 .expectErrorMatches(InvalidLoginException.class::isInstance)
                 .verify();
 
-        Mockito.verify(clock).instant();
-        Mockito.verify(mockValueOps).get(refreshTokenWithKey);
-        Mockito.verify(mockValueOps).delete(refreshTokenWithKey);
-        Mockito.verifyNoMoreInteractions(mockRedisCache);
-        Mockito.verifyNoMoreInteractions(mockValueOps);
+        Mockito.verify(roleCatalog).load();
+        Mockito.verify(mockRefreshTokenStore).rotate(Mockito.eq(refreshToken), Mockito.any());
     }
 
     @Test
-    @DisplayName("refreshAccessToken when no token cached returns an invalid login exception")
-    void refreshAccessTokenShouldReturnInvalidLoginExceptionWhenNoCachedTokenFound(){
+    @DisplayName("refreshAccessToken should refuse a token whose roles cannot be resolved instead of issuing one without them")
+    void refreshAccessTokenShouldReturnInvalidLoginExceptionWhenRolesCannotBeRead(){
         // Arrange
-        Mockito.when(mockRedisCache.opsForValue()).thenReturn(mockValueOps);
-        Mockito.when(mockValueOps.get(refreshTokenWithKey)).thenReturn(Mono.empty());
+        roleCatalog.update(roleDataModels);
+        Mockito.when(clock.instant()).thenReturn(Instant.parse("2025-11-08T12:00:00Z"));
+        Mockito.when(mockRefreshTokenStore.rotate(Mockito.eq(refreshToken), Mockito.any()))
+                .thenReturn(Mono.error(new SerializationException("role id 3 in refresh token for user test-user is not in the role catalog")));
 
         // Act
         var response = accessService.refreshAccessToken(refreshToken);
@@ -138,6 +172,41 @@ class AccessServiceTest {
         StepVerifier.create(response)
                 .expectErrorMatches(InvalidLoginException.class::isInstance)
                 .verify();
+
+        Mockito.verifyNoInteractions(mockTokenGenerator);
+    }
+
+    @Test
+    @DisplayName("revokeSession should return a resource not found exception when the user has no such session")
+    void revokeSessionShouldReturnResourceNotFoundExceptionWhenSessionNotFound(){
+        // Arrange
+        var frozen = Instant.parse("2025-11-08T12:00:00Z");
+        Mockito.when(clock.instant()).thenReturn(frozen);
+        Mockito.when(mockRefreshTokenStore.revoke(testUserName, "session-1", frozen)).thenReturn(Mono.just(false));
+
+        // Act
+        var response = accessService.revokeSession(testUserName, "session-1");
+
+        // Assert
+        StepVerifier.create(response)
+                .expectErrorMatches(ResourceNotFoundException.class::isInstance)
+                .verify();
+    }
+
+    @Test
+    @DisplayName("revokeSession should complete when the session was revoked")
+    void revokeSessionShouldCompleteWhenSessionRevoked(){
+        // Arrange
+        var frozen = Instant.parse("2025-11-08T12:00:00Z");
+        Mockito.when(clock.instant()).thenReturn(frozen);
+        Mockito.when(mockRefreshTokenStore.revoke(testUserName, "session-1", frozen)).thenReturn(Mono.just(true));
+
+        // Act
+        var response = accessService.revokeSession(testUserName, "session-1");
+
+        // Assert
+        StepVerifier.create(response).verifyComplete();
+        Mockito.verify(mockRefreshTokenStore).revoke(testUserName, "session-1", frozen);
     }
 
     @Test
@@ -147,7 +216,8 @@ class AccessServiceTest {
         String expectedLogMessage = String.format("account not found for email %s", testUserName);
         LoginRequest request = new LoginRequest(testUserName, testPassword);
 
-        Mockito.when(mockUserRepository.findByUsername(testUserName)).thenReturn(Mono.empty());
+        Mockito.when(mockLoginPrincipalRepository.findByUsername(testUserName)).thenReturn(Mono.empty());
+        Mockito.when(mockPasswordEncryption.verifyDummyAsync(testPassword)).thenReturn(Mono.just(false));
 
         // Act
         var response = accessService.login(request);
@@ -157,13 +227,38 @@ class AccessServiceTest {
                 .expectErrorMatches(InvalidLoginException.class::isInstance)
                 .verify();
 
-        Mockito.verify(mockUserRepository).findByUsername(testUserName);
-        Mockito.verifyNoMoreInteractions(mockUserRepository);
+        Mockito.verify(mockLoginPrincipalRepository).findByUsername(testUserName);
+        Mockito.verify(mockPasswordEncryption).verifyDummyAsync(testPassword);
+        Mockito.verifyNoMoreInteractions(mockLoginPrincipalRepository);
+        Mockito.verifyNoInteractions(mockUserRepository, mockUserRoleRepository, mockRoleRepository);
 
         String logs = output.getOut();
         assertThat(logs).contains(expectedLogMessage);
     }
 
+    @Test
+    @DisplayName("if the username filter rules the account out, login should fail without querying the database")
+    void loginShouldSkipDatabaseWhenUsernameFilterMisses(CapturedOutput output){
+        // Arrange
+        LoginRequest request = new LoginRequest(testUserName, testPassword);
+
+        Mockito.when(mockUsernameFilter.mightExist(testUserName)).thenReturn(false);
+        Mockito.when(mockPasswordEncryption.verifyDummyAsync(testPassword)).thenReturn(Mono.just(false));
+
+        // Act
+        var response = accessService.login(request);
+
+        // Assert
+        StepVerifier.create(response)
+                .expectErrorMatches(InvalidLoginException.class::isInstance)
+                .verify();
+
+        Mockito.verify(mockPasswordEncryption).verifyDummyAsync(testPassword);
+        Mockito.verifyNoInteractions(mockLoginPrincipalRepository, mockUserRepository);
+
+        assertThat(output.getOut()).contains(String.format("account not found for email %s", testUserName));
+    }
+
     @Test
     @DisplayName("if invalid password provided when logging in an InvalidLoginException should be returned")
     void loginShouldReturnInvalidLoginExceptionWhenInvalidPasswordProvided(CapturedOutput output){
@@ -173,11 +268,10 @@ class AccessServiceTest {
 
         // invalid password doesn't actually trigger false response - just doing this for readability
         var request = new LoginRequest(testUserName, invalidPassword);
-        var userDataModel = new UserDataModel(testUserName, testPassword);
-        userDataModel.setId(userId);
+        var principal = new LoginPrincipal(userId, UUID.randomUUID(), testUserName, testPassword, validRoles);
 
-        Mockito.when(mockUserRepository.findByUsername(testUserName)).thenReturn(Mono.just(userDataModel));
-        Mockito.when(mockPasswordEncryption.verify(invalidPassword, testPassword)).thenReturn(false);
+        Mockito.when(mockLoginPrincipalRepository.findByUsername(testUserName)).thenReturn(Mono.just(principal));
+        Mockito.when(mockPasswordEncryption.verifyAsync(invalidPassword, testPassword)).thenReturn(Mono.just(false));
 
         // Act
         var response = accessService.login(request);
@@ -187,35 +281,85 @@ class AccessServiceTest {
                 .expectErrorMatches(InvalidLoginException.class::isInstance)
                 .verify();
 
-        Mockito.verify(mockUserRepository).findByUsername(testUserName);
-        Mockito.verify(mockPasswordEncryption).verify(invalidPassword, testPassword);
-        Mockito.verifyNoMoreInteractions(mockUserRepository);
+        Mockito.verify(mockLoginPrincipalRepository).findByUsername(testUserName);
+        Mockito.verify(mockPasswordEncryption).verifyAsync(invalidPassword, testPassword);
+        Mockito.verifyNoMoreInteractions(mockLoginPrincipalRepository);
+        Mockito.verifyNoInteractions(mockUserRepository, mockUserRoleRepository, mockRoleRepository);
 
         String logs = output.getOut();
         assertThat(logs).contains(expectedLogMessage);
     }
 
     @Test
-    @DisplayName("if valid username and password provided, roles should be looked up and jwt token generated")
+    @DisplayName("if the login admission limit is reached a ServiceOverloadedException should be returned without hashing")
+    void loginShouldReturnServiceOverloadedExceptionWhenAtCapacity(){
+        // Arrange
+        var request = new LoginRequest(testUserName, testPassword);
+        var principal = new LoginPrincipal(userId, UUID.randomUUID(), testUserName, testPassword, validRoles);
+
+        Mockito.when(mockLoginPrincipalRepository.findByUsername(testUserName)).thenReturn(Mono.just(principal));
+        Mockito.when(mockPasswordEncryption.verifyAsync(testPassword, testPassword))
+                .thenReturn(Mono.fromCallable(() -> Assertions.fail("password should not be verified when shed")));
+
+        // hold the only permit so the login is shed
+        var permit = loginAdmissionLimiter.tryAcquire();
+
+        // Act
+        var response = accessService.login(request);
+
+        // Assert
+        StepVerifier.create(response)
+                .expectErrorMatches(exception ->
+                        exception instanceof ServiceOverloadedException overloaded && overloaded.getRetryAfterSeconds() == 1)
+                .verify();
+
+        assertThat(permit).isPresent();
+        assertThat(loginAdmissionLimiter.getRejected()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("the access and refresh tokens should carry the stored username whatever case or accents the user logged in with")
+    void loginShouldIssueTokensForStoredUsername(){
+        // Arrange
+        var typedUserName = "Tést-User";
+        var request = new LoginRequest(typedUserName, testPassword);
+        var principal = new LoginPrincipal(userId, UUID.randomUUID(), testUserName, testPassword, validRoles);
+
+        Mockito.when(mockLoginPrincipalRepository.findByUsername(typedUserName)).thenReturn(Mono.just(principal));
+        Mockito.when(mockPasswordEncryption.verifyAsync(testPassword, testPassword)).thenReturn(Mono.just(true));
+        Mockito.when(mockTokenGenerator.generateToken(testUserName, validRoles)).thenReturn("abc123");
+        Mockito.when(clock.instant()).thenReturn(Instant.parse("2025-11-08T12:00:00Z"));
+        Mockito.when(mockRefreshTokenStore.issue(Mockito.any(), Mockito.any())).thenReturn(Mono.just(refreshToken));
+
+        // Act
+        var response = accessService.login(request);
+
+        // Assert
+        StepVerifier.create(response)
+                .expectNextMatches(loginResponse -> loginResponse.getAccessToken().equals("abc123"))
+                .verifyComplete();
+
+        Mockito.verify(mockTokenGenerator).generateToken(testUserName, validRoles);
+        Mockito.verify(mockRefreshTokenStore).issue(
+                Mockito.argThat((RefreshToken issued) -> issued.getUserName().equals(testUserName)), Mockito.any());
+    }
+
+    @Test
+    @DisplayName("if valid username and password provided, the user and roles should be read in one lookup and jwt token generated")
     void loginShouldReturnLoginResponseWhenValidLoginRequestProvided(CapturedOutput output){
         // Arrange
         var roleString = String.join(", ", validRoles);
-        var lookingUpRolesLogMessage = String.format("found user %s, looking up roles", testUserName);
-        var foundRolesLogMessage = String.format("found roles [%s], generating token", roleString);
+        var foundRolesLogMessage = String.format("found user %s with roles [%s], generating token", testUserName, roleString);
         var token = "abc123";
 
         var request = new LoginRequest(testUserName, testPassword);
-        var userDataModel = new UserDataModel(testUserName, testPassword);
-        userDataModel.setId(userId);
-
-        Mockito.when(mockUserRepository.findByUsername(testUserName)).thenReturn(Mono.just(userDataModel));
-        Mockito.when(mockPasswordEncryption.verify(testPassword, testPassword)).thenReturn(true);
-        Mockito.when(mockUserRoleRepository.findByUserId(userId)).thenReturn(Flux.fromIterable(userRoleDataModels));
-        Mockito.when(mockRoleRepository.findById(1)).thenReturn(Mono.just(roleDataModels.getFirst()));
-        Mockito.when(mockRoleRepository.findById(2)).thenReturn(Mono.just(roleDataModels.get(1)));
+        var principal = new LoginPrincipal(userId, UUID.randomUUID(), testUserName, testPassword, validRoles);
+
+        Mockito.when(mockLoginPrincipalRepository.findByUsername(testUserName)).thenReturn(Mono.just(principal));
+        Mockito.when(mockPasswordEncryption.verifyAsync(testPassword, testPassword)).thenReturn(Mono.just(true));
         Mockito.when(mockTokenGenerator.generateToken(testUserName, validRoles)).thenReturn(token);
-        Mockito.when(mockRedisCache.opsForValue()).thenReturn(mockValueOps);
-        Mockito.when(mockValueOps.set(Mockito.anyString(), Mockito.any())).thenReturn(Mono.just(true));
+        Mockito.when(clock.instant()).thenReturn(Instant.parse("2025-11-08T12:00:00Z"));
+        Mockito.when(mockRefreshTokenStore.issue(Mockito.any(), Mockito.any())).thenReturn(Mono.just(refreshToken));
 
         // Act
         var response = accessService.login(request);
@@ -226,31 +370,63 @@ class AccessServiceTest {
                         loginResponse.getUserName().equals(testUserName) && loginResponse.getId() == userId)
                 .verifyComplete();
 
-        Mockito.verify(mockUserRepository).findByUsername(testUserName);
-        Mockito.verify(mockPasswordEncryption).verify(testPassword, testPassword);
-        Mockito.verify(mockUserRoleRepository).findByUserId(userId);
-        Mockito.verify(mockRoleRepository).findById(1);
-        Mockito.verify(mockRoleRepository).findById(2);
+        Mockito.verify(mockLoginPrincipalRepository).findByUsername(testUserName);
+        Mockito.verify(mockPasswordEncryption).verifyAsync(testPassword, testPassword);
         Mockito.verify(mockTokenGenerator).generateToken(testUserName, validRoles);
-        Mockito.verify(mockRedisCache).opsForValue();
-        BDDMockito.verify(mockValueOps).set(Mockito.anyString(), Mockito.any());
-        Mockito.verifyNoMoreInteractions(mockUserRepository);
+        BDDMockito.verify(mockRefreshTokenStore).issue(
+                Mockito.argThat((RefreshToken issued) ->
+                        issued.getExpiresAt().toInstant().equals(Instant.parse("2025-11-08T13:00:00Z"))),
+                Mockito.eq(Instant.parse("2025-11-08T12:00:00Z")));
+        Mockito.verifyNoMoreInteractions(mockLoginPrincipalRepository);
+        Mockito.verifyNoInteractions(mockUserRepository, mockUserRoleRepository, mockRoleRepository);
 
         String logs = output.getOut();
-        assertThat(logs)
-                .contains(lookingUpRolesLogMessage)
-                .contains(foundRolesLogMessage);
+        assertThat(logs).contains(foundRolesLogMessage);
     }
 
     @Test
-    @DisplayName("on register, user name is already used a ResourceExistsException should be returned")
+    @DisplayName("on login, a password hash below the current policy should be upgraded in the background")
+    void loginShouldUpgradePasswordHashWhenPolicyChanged(){
+        // Arrange
+        var upgradedHash = "upgraded-hash";
+        var request = new LoginRequest(testUserName, testPassword);
+        var principal = new LoginPrincipal(userId, UUID.randomUUID(), testUserName, testPassword, validRoles);
+
+        Mockito.when(mockLoginPrincipalRepository.findByUsername(testUserName)).thenReturn(Mono.just(principal));
+        Mockito.when(mockPasswordEncryption.verifyAsync(testPassword, testPassword)).thenReturn(Mono.just(true));
+        Mockito.when(mockPasswordEncryption.needsUpgrade(testPassword)).thenReturn(true);
+        Mockito.when(mockPasswordEncryption.encryptAsync(testPassword)).thenReturn(Mono.just(upgradedHash));
+        Mockito.when(mockUserRepository.updatePassword(userId, testPassword, upgradedHash)).thenReturn(Mono.just(1));
+        Mockito.when(mockTokenGenerator.generateToken(testUserName, validRoles)).thenReturn("abc123");
+        Mockito.when(clock.instant()).thenReturn(Instant.parse("2025-11-08T12:00:00Z"));
+        Mockito.when(mockRefreshTokenStore.issue(Mockito.any(), Mockito.any())).thenReturn(Mono.just(refreshToken));
+
+        // Act
+        var response = accessService.login(request);
+
+        // Assert
+        StepVerifier.create(response)
+                .expectNextMatches(loginResponse -> loginResponse.getUserName().equals(testUserName))
+                .verifyComplete();
+
+        Mockito.verify(mockPasswordEncryption).needsUpgrade(testPassword);
+        Mockito.verify(mockPasswordEncryption).encryptAsync(testPassword);
+        Mockito.verify(mockUserRepository).updatePassword(userId, testPassword, upgradedHash);
+        Mockito.verify(loginPrincipalCache).invalidate(testUserName);
+    }
+
+    @Test
+    @DisplayName("on register, if the unique username index rejects the insert a ResourceExistsException should be returned")
     void registerShouldReturnResourceExistsExceptionWhenUserNameFound(CapturedOutput output){
         // Arrange
         var expectedExceptionMessage = String.format("User already exists with value %s", testUserName);
         var expectedLogErrorMessage = String.format("user already exists with name %s", testUserName);
         var request = new RegistrationRequest(testUserName, testPassword, validRoles.toArray(String[]::new));
+        roleCatalog.update(roleDataModels);
 
-        Mockito.when(mockUserRepository.existsByUsername(testUserName)).thenReturn(Mono.just(true));
+        Mockito.when(mockPasswordEncryption.encryptAsync(testPassword)).thenReturn(Mono.just(testPassword));
+        Mockito.when(mockUserRepository.save(Mockito.any()))
+                .thenReturn(Mono.error(new DuplicateKeyException("Duplicate entry for key 'users.uk_username'")));
 
         // Act
         var response = accessService.register(request);
@@ -261,8 +437,10 @@ class AccessServiceTest {
                         exception instanceof ResourceExistsException && exception.getMessage().equals(expectedExceptionMessage))
                 .verify();
 
-        Mockito.verify(mockUserRepository).existsByUsername(testUserName);
+        Mockito.verify(mockUserRepository).save(Mockito.argThat(savedUser -> savedUser.getUsername().equals(testUserName)));
         Mockito.verifyNoMoreInteractions(mockUserRepository);
+        Mockito.verifyNoInteractions(mockUserRoleBatchRepository);
+        Mockito.verify(mockUsernameFilter, Mockito.never()).add(Mockito.anyString());
 
         String logs = output.getOut();
         assertThat(logs)
@@ -276,7 +454,6 @@ class AccessServiceTest {
         var expectedExceptionMessage = String.format("No role found with id %s", validRoles.getFirst());
         var request = new RegistrationRequest(testUserName, testPassword, validRoles.toArray(String[]::new));
 
-        Mockito.when(mockUserRepository.existsByUsername(testUserName)).thenReturn(Mono.just(false));
         Mockito.when(mockRoleRepository.findByName(Mockito.argThat(roleArgumentMatcher))).thenReturn(Mono.empty());
 
         // Act
@@ -288,9 +465,8 @@ class AccessServiceTest {
                         exception instanceof ResourceNotFoundException && exception.getMessage().equals(expectedExceptionMessage))
                 .verify();
 
-        Mockito.verify(mockUserRepository).existsByUsername(testUserName);
         Mockito.verify(mockRoleRepository).findByName(validRoles.getFirst());
-        Mockito.verifyNoMoreInteractions(mockUserRepository);
+        Mockito.verifyNoInteractions(mockUserRepository);
 
         var logs = output.getOut();
         assertThat(logs)
@@ -299,7 +475,143 @@ class AccessServiceTest {
     }
 
     @Test
-    @DisplayName("on register, valid registration provided with valid roles, a registration response is returned")
+    @DisplayName("on register, once the role catalog is loaded roles should be resolved without querying the database")
+    void registerShouldResolveRolesFromCatalogWhenLoaded(){
+        // Arrange
+        var request = new RegistrationRequest(testUserName, testPassword, validRoles.toArray(String[]::new));
+        var user = new UserDataModel(testUserName, testPassword);
+        user.setId(userId);
+
+        roleCatalog.update(roleDataModels);
+
+        Mockito.when(mockPasswordEncryption.encryptAsync(testPassword)).thenReturn(Mono.just(testPassword));
+        Mockito.when(mockUserRepository.save(Mockito.any())).thenReturn(Mono.just(user));
+        Mockito.when(mockUserRoleBatchRepository.saveAll(Mockito.eq(userId), Mockito.anyList())).thenReturn(Mono.just(2L));
+
+        // Act
+        var response = accessService.register(request);
+
+        // Assert
+        StepVerifier.create(response)
+                .expectNextMatches(registration -> registration.getId().equals(userId))
+                .verifyComplete();
+
+        Mockito.verify(mockUserRoleBatchRepository).saveAll(userId, List.of(roleDataModels.getFirst().getId(), roleDataModels.get(1).getId()));
+        Mockito.verifyNoInteractions(mockRoleRepository);
+    }
+
+    @Test
+    @DisplayName("on register, role names should match whatever their case both before and after the role catalog loads")
+    void registerShouldMatchRoleNamesCaseInsensitively(CapturedOutput output){
+        // Arrange
+        var request = new RegistrationRequest(testUserName, testPassword, new String[] { "test_role_1" });
+        var user = new UserDataModel(testUserName, testPassword);
+        user.setId(userId);
+        var savingUserLogMessage = String.format("saving user %s with roles %s", testUserName, validRoles.getFirst());
+
+        Mockito.when(mockRoleRepository.findByName("test_role_1")).thenReturn(Mono.just(roleDataModels.getFirst()));
+        Mockito.when(mockPasswordEncryption.encryptAsync(testPassword)).thenReturn(Mono.just(testPassword));
+        Mockito.when(mockUserRepository.save(Mockito.any())).thenReturn(Mono.just(user));
+        Mockito.when(mockUserRoleBatchRepository.saveAll(userId, List.of(roleDataModels.getFirst().getId()))).thenReturn(Mono.just(1L));
+
+        // Act / Assert - before the first load the roles table is asked
+        StepVerifier.create(accessService.register(request))
+                .expectNextMatches(registration -> registration.getId().equals(userId))
+                .verifyComplete();
+        Mockito.verify(mockRoleRepository).findByName("test_role_1");
+
+        // Act / Assert - after it the catalog answers, with the role's own name
+        roleCatalog.update(roleDataModels);
+        Mockito.clearInvocations(mockRoleRepository);
+        StepVerifier.create(accessService.register(request))
+                .expectNextMatches(registration -> registration.getId().equals(userId))
+                .verifyComplete();
+
+        Mockito.verifyNoInteractions(mockRoleRepository);
+        Mockito.verify(mockUserRoleBatchRepository, Mockito.times(2)).saveAll(userId, List.of(roleDataModels.getFirst().getId()));
+        assertThat(output.getOut().split(Pattern.quote(savingUserLogMessage), -1).length - 1).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("on register, a role missing from the loaded role catalog should return a ResourceNotFoundException")
+    void registerShouldReturnResourceNotFoundExceptionWhenRoleNotInCatalog(){
+        // Arrange
+        var request = new RegistrationRequest(testUserName, testPassword, new String[] { "UNKNOWN_ROLE" });
+        roleCatalog.update(roleDataModels);
+
+        // Act
+        var response = accessService.register(request);
+
+        // Assert
+        StepVerifier.create(response)
+                .expectErrorMatches(ResourceNotFoundException.class::isInstance)
+                .verify();
+
+        Mockito.verifyNoInteractions(mockRoleRepository, mockUserRepository);
+    }
+
+    @Test
+    @DisplayName("on register, a null or blank role name should return a ResourceNotFoundException without a lookup")
+    void registerShouldRejectBlankRoleNames(){
+        // Arrange
+        var nullRole = new RegistrationRequest(testUserName, testPassword, new String[] { "TEST_ROLE_1", null });
+        var blankRole = new RegistrationRequest(testUserName, testPassword, new String[] { " " });
+
+        // Act / Assert
+        StepVerifier.create(accessService.register(nullRole))
+                .expectErrorMatches(exception ->
+                        exception instanceof ResourceNotFoundException && exception.getMessage().equals("No role found with id null"))
+                .verify();
+        StepVerifier.create(accessService.register(blankRole))
+                .expectError(ResourceNotFoundException.class)
+                .verify();
+
+        Mockito.verifyNoInteractions(mockRoleRepository, mockUserRepository, mockUserRoleBatchRepository, mockPasswordEncryption);
+    }
+
+    @Test
+    @DisplayName("on register, a role that is not open to self registration should return a ResourceNotFoundException even if it exists")
+    void registerShouldRejectPrivilegedRoles(){
+        // Arrange
+        var request = new RegistrationRequest(testUserName, testPassword, new String[] { "TEST_ROLE_1", "ADMIN" });
+        roleCatalog.update(List.of(roleDataModels.getFirst(), new RoleDataModel(3, "ADMIN")));
+
+        // Act
+        var response = accessService.register(request);
+
+        // Assert
+        StepVerifier.create(response)
+                .expectErrorMatches(exception ->
+                        exception instanceof ResourceNotFoundException && exception.getMessage().equals("No role found with id ADMIN"))
+                .verify();
+
+        Mockito.verifyNoInteractions(mockRoleRepository, mockUserRepository, mockUserRoleBatchRepository, mockPasswordEncryption);
+    }
+
+    @Test
+    @DisplayName("on register, if the hashing queue is full a ServiceOverloadedException should be returned")
+    void registerShouldReturnServiceOverloadedExceptionWhenHashingQueueIsFull(){
+        // Arrange
+        var request = new RegistrationRequest(testUserName, testPassword, validRoles.toArray(String[]::new));
+        roleCatalog.update(roleDataModels);
+
+        Mockito.when(mockPasswordEncryption.encryptAsync(testPassword))
+                .thenReturn(Mono.error(new RejectedExecutionException("queue full")));
+
+        // Act
+        var response = accessService.register(request);
+
+        // Assert
+        StepVerifier.create(response)
+                .expectErrorMatches(exception ->
+                        exception instanceof ServiceOverloadedException overloaded && overloaded.getRetryAfterSeconds() == 1)
+                .verify();
+
+        Mockito.verifyNoInteractions(mockUserRepository);
+    }
+
+    @Test
+    @DisplayName("on register, valid registration provided with valid roles, the user and all roles are inserted in one transaction")
     void registerShouldReturnRegistrationResponseWhenValidCredentialsProvided(CapturedOutput output){
         var roleString = String.join(",", validRoles);
         var savingUserLogMessage = String.format("saving user %s with roles %s", testUserName, roleString);
@@ -308,16 +620,13 @@ class AccessServiceTest {
         var request = new RegistrationRequest(testUserName, testPassword, validRoles.toArray(String[]::new));
         var user = new UserDataModel(testUserName, testPassword);
         user.setId(userId);
+        var roleIds = roleDataModels.stream().map(RoleDataModel::getId).toList();
 
-        ArgumentMatcher<UserRoleDataModel> roleOneDataModelMatcher = role -> role != null && role.getRoleId().equals(userRoleDataModels.getFirst().getRoleId());
-        ArgumentMatcher<UserRoleDataModel> roleTwoDataModelMatcher = role -> role != null && role.getRoleId().equals(userRoleDataModels.get(1).getRoleId());
-
-        Mockito.when(mockUserRepository.existsByUsername(testUserName)).thenReturn(Mono.just(false));
         Mockito.when(mockRoleRepository.findByName(validRoles.getFirst())).thenReturn(Mono.just(roleDataModels.getFirst()));
         Mockito.when(mockRoleRepository.findByName(validRoles.get(1))).thenReturn(Mono.just(roleDataModels.get(1)));
+        Mockito.when(mockPasswordEncryption.encryptAsync(testPassword)).thenReturn(Mono.just(testPassword));
         Mockito.when(mockUserRepository.save(Mockito.argThat(savedUser -> savedUser.getUsername().equals(testUserName)))).thenReturn(Mono.just(user));
-        Mockito.when(mockUserRoleRepository.save(Mockito.argThat(roleOneDataModelMatcher))).thenReturn(Mono.empty());
-        Mockito.when(mockUserRoleRepository.save(Mockito.argThat(roleTwoDataModelMatcher))).thenReturn(Mono.empty());
+        Mockito.when(mockUserRoleBatchRepository.saveAll(userId, roleIds)).thenReturn(Mono.just(2L));
 
         // Act
         var response = accessService.register(request);
@@ -327,13 +636,16 @@ class AccessServiceTest {
                         registration.getUserName().equals(testUserName) && registration.getId().equals(userId))
                 .verifyComplete();
 
-        Mockito.verify(mockUserRepository).existsByUsername(testUserName);
         Mockito.verify(mockRoleRepository).findByName(validRoles.getFirst());
         Mockito.verify(mockRoleRepository).findByName(validRoles.get(1));
+        Mockito.verify(mockPasswordEncryption).encryptAsync(testPassword);
         Mockito.verify(mockUserRepository).save(Mockito.argThat(savedUser -> savedUser.getUsername().equals(testUserName)));
-        Mockito.verify(mockUserRoleRepository).save(Mockito.argThat(role -> role.getRoleId().equals(userRoleDataModels.getFirst().getRoleId())));
-        Mockito.verify(mockUserRoleRepository).save(Mockito.argThat(role -> role.getRoleId().equals(userRoleDataModels.get(1).getRoleId())));
+        Mockito.verify(mockUserRoleBatchRepository).saveAll(userId, roleIds);
+        Mockito.verify(mockTransactionalOperator).transactional(Mockito.<Mono<RegistrationResponse>>any());
+        Mockito.verify(mockUsernameFilter).add(testUserName);
+        Mockito.verify(readYourWrites).wrote(testUserName);
         Mockito.verifyNoMoreInteractions(mockUserRepository);
+        Mockito.verifyNoInteractions(mockUserRoleRepository);
 
         var logs = output.getOut();
         assertThat(logs)
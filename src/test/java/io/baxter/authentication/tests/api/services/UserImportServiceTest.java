@@ -0,0 +1,185 @@
+package io.baxter.authentication.tests.api.services;
+
+import io.baxter.authentication.api.models.*;
+import io.baxter.authentication.api.models.UserImportResult.Status;
+import io.baxter.authentication.api.services.UserImportServiceImpl;
+import io.baxter.authentication.data.cache.*;
+import io.baxter.authentication.data.models.*;
+import io.baxter.authentication.data.repository.*;
+import io.baxter.authentication.infrastructure.auth.PasswordEncryption;
+import io.baxter.authentication.infrastructure.behavior.database.*;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.*;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.*;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserImportServiceTest {
+    private final String testPassword = "TestPassword123$$";
+    private final String[] testRoles = new String[] { "USER" };
+
+    @Mock private PasswordEncryption mockPasswordEncryption;
+    @Mock private UserBatchRepository mockUserBatchRepository;
+    @Mock private UserRoleBatchRepository mockUserRoleBatchRepository;
+    @Mock private UsernameFilter mockUsernameFilter;
+    @Mock private ReadYourWrites mockReadYourWrites;
+    @Mock private LoginPrincipalCache mockLoginPrincipalCache;
+    @Mock private TransactionalOperator mockTransactionalOperator;
+
+    private UserImportServiceImpl userImportService;
+
+    @BeforeEach
+    void setup(){
+        var roleCatalog = new RoleCatalog(null, Duration.ofMinutes(5));
+        roleCatalog.update(List.of(new RoleDataModel(1, "USER")));
+
+        Mockito.lenient().when(mockTransactionalOperator.transactional(Mockito.<Mono<List<UserImportResult>>>any()))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        Mockito.lenient().when(mockLoginPrincipalCache.invalidate(Mockito.anyString())).thenReturn(Mono.empty());
+        Mockito.lenient().when(mockUsernameFilter.add(Mockito.anyString())).thenReturn(Mono.empty());
+        Mockito.lenient().when(mockPasswordEncryption.encrypt(testPassword)).thenReturn("{bcrypt}hashed");
+
+        userImportService = new UserImportServiceImpl(
+                mockPasswordEncryption,
+                mockUserBatchRepository,
+                mockUserRoleBatchRepository,
+                roleCatalog,
+                mockUsernameFilter,
+                mockReadYourWrites,
+                mockLoginPrincipalCache,
+                UserShards.single(),
+                mockTransactionalOperator,
+                Validation.buildDefaultValidatorFactory().getValidator(),
+                2,
+                100);
+    }
+
+    @AfterEach
+    void tearDown(){
+        userImportService.stop();
+    }
+
+    @Test
+    @DisplayName("importUsers should create new users in one batch and report existing and invalid records in input order")
+    void importUsersShouldReportEveryRecordInOrder(){
+        // Arrange
+        var records = Flux.just(
+                new UserImportRecord("new@test.com", testPassword, null, testRoles),
+                new UserImportRecord("taken@test.com", null, "{bcrypt}$2a$10$existing", testRoles),
+                new UserImportRecord("not-an-email", testPassword, null, testRoles),
+                new UserImportRecord("NEW@test.com", testPassword, null, testRoles),
+                new UserImportRecord("unknown-role@test.com", testPassword, null, new String[] { "ADMIN" }));
+
+        Mockito.when(mockUserBatchRepository.findByUsernames(Mockito.anyCollection()))
+                .thenReturn(Flux.just(user(5, "taken@test.com")), Flux.just(user(10, "new@test.com")));
+        Mockito.when(mockUserBatchRepository.insertAll(Mockito.anyList())).thenReturn(Mono.just(1L));
+        Mockito.when(mockUserRoleBatchRepository.saveAll(Mockito.<List<UserRoleDataModel>>any())).thenReturn(Mono.just(1L));
+
+        // Act
+        var results = userImportService.importUsers(records);
+
+        // Assert
+        StepVerifier.create(results)
+                .expectNextMatches(result -> result.getLine() == 1 && result.getStatus() == Status.CREATED && result.getId() == 10)
+                .expectNextMatches(result -> result.getLine() == 2 && result.getStatus() == Status.EXISTS)
+                .expectNextMatches(result -> result.getLine() == 3 && result.getStatus() == Status.INVALID && result.getError().equals("invalid email format"))
+                .expectNextMatches(result -> result.getLine() == 4 && result.getStatus() == Status.EXISTS)
+                .expectNextMatches(result -> result.getLine() == 5 && result.getStatus() == Status.INVALID && result.getError().equals("No role found with id ADMIN"))
+                .verifyComplete();
+
+        Mockito.verify(mockUserBatchRepository).insertAll(Mockito.argThat(users ->
+                users.size() == 1 && users.getFirst().getUsername().equals("new@test.com") && users.getFirst().getPassword().equals("{bcrypt}hashed")));
+        Mockito.verify(mockUserRoleBatchRepository).saveAll(Mockito.<List<UserRoleDataModel>>argThat(userRoles ->
+                userRoles.size() == 1 && userRoles.getFirst().getUserId() == 10 && userRoles.getFirst().getRoleId() == 1));
+        Mockito.verify(mockUsernameFilter).add("new@test.com");
+        Mockito.verify(mockReadYourWrites).wrote("new@test.com");
+        Mockito.verify(mockLoginPrincipalCache).invalidate("new@test.com");
+    }
+
+    @Test
+    @DisplayName("importUsers should report usernames that only differ by an accent from one already taken or earlier in the batch as existing")
+    void importUsersShouldFoldAccentsWhenDeduplicating(){
+        // Arrange
+        var records = Flux.just(
+                new UserImportRecord("rene@test.com", testPassword, null, testRoles),
+                new UserImportRecord("René@test.com", testPassword, null, testRoles),
+                new UserImportRecord("zoë@test.com", testPassword, null, testRoles));
+
+        Mockito.when(mockUserBatchRepository.findByUsernames(Mockito.anyCollection()))
+                .thenReturn(Flux.just(user(5, "zoe@test.com")), Flux.just(user(10, "rene@test.com")));
+        Mockito.when(mockUserBatchRepository.insertAll(Mockito.anyList())).thenReturn(Mono.just(1L));
+        Mockito.when(mockUserRoleBatchRepository.saveAll(Mockito.<List<UserRoleDataModel>>any())).thenReturn(Mono.just(1L));
+
+        // Act
+        var results = userImportService.importUsers(records);
+
+        // Assert
+        StepVerifier.create(results)
+                .expectNextMatches(result -> result.getLine() == 1 && result.getStatus() == Status.CREATED && result.getId() == 10)
+                .expectNextMatches(result -> result.getLine() == 2 && result.getStatus() == Status.EXISTS)
+                .expectNextMatches(result -> result.getLine() == 3 && result.getStatus() == Status.EXISTS)
+                .verifyComplete();
+
+        Mockito.verify(mockUserBatchRepository).insertAll(Mockito.argThat(users ->
+                users.size() == 1 && users.getFirst().getUsername().equals("rene@test.com")));
+        Mockito.verify(mockUserRoleBatchRepository).saveAll(Mockito.<List<UserRoleDataModel>>argThat(userRoles ->
+                userRoles.size() == 1 && userRoles.getFirst().getUserId() == 10));
+    }
+
+    @Test
+    @DisplayName("importUsers should report every saveable record of a batch as failed when the batch cannot be written")
+    void importUsersShouldFailWholeBatchOnDatabaseError(){
+        // Arrange
+        var records = Flux.just(
+                new UserImportRecord("first@test.com", testPassword, null, testRoles),
+                new UserImportRecord("second@test.com", null, null, testRoles));
+
+        Mockito.when(mockUserBatchRepository.findByUsernames(Mockito.anyCollection())).thenReturn(Flux.empty());
+        Mockito.when(mockUserBatchRepository.insertAll(Mockito.anyList())).thenReturn(Mono.error(new IllegalStateException("connection lost")));
+
+        // Act
+        var results = userImportService.importUsers(records);
+
+        // Assert
+        StepVerifier.create(results)
+                .expectNextMatches(result -> result.getLine() == 1 && result.getStatus() == Status.FAILED)
+                .expectNextMatches(result -> result.getLine() == 2 && result.getStatus() == Status.INVALID
+                        && result.getError().equals("exactly one of password or passwordHash is required"))
+                .verifyComplete();
+
+        Mockito.verifyNoInteractions(mockUserRoleBatchRepository, mockUsernameFilter, mockReadYourWrites, mockLoginPrincipalCache);
+    }
+
+    @Test
+    @DisplayName("importUsers should report null and blank role names as invalid and carry on with the stream")
+    void importUsersShouldRejectBlankRoleNames(){
+        // Arrange
+        var records = Flux.just(
+                new UserImportRecord("null-role@test.com", testPassword, null, new String[] { null }),
+                new UserImportRecord("blank-role@test.com", testPassword, null, new String[] { "USER", " " }));
+
+        // Act
+        var results = userImportService.importUsers(records);
+
+        // Assert
+        StepVerifier.create(results)
+                .expectNextMatches(result -> result.getLine() == 1 && result.getStatus() == Status.INVALID && result.getError().equals("role names cannot be blank"))
+                .expectNextMatches(result -> result.getLine() == 2 && result.getStatus() == Status.INVALID && result.getError().equals("role names cannot be blank"))
+                .verifyComplete();
+
+        Mockito.verifyNoInteractions(mockPasswordEncryption, mockUserBatchRepository, mockUserRoleBatchRepository);
+    }
+
+    private static UserDataModel user(int id, String userName){
+        var user = new UserDataModel(userName, null);
+        user.setId(id);
+        return user;
+    }
+}
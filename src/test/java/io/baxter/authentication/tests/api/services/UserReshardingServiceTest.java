@@ -0,0 +1,164 @@
+package io.baxter.authentication.tests.api.services;
+
+import io.baxter.authentication.api.services.UserReshardingServiceImpl;
+import io.baxter.authentication.data.models.*;
+import io.baxter.authentication.data.repository.UserShardRepository;
+import io.baxter.authentication.infrastructure.behavior.database.*;
+import io.r2dbc.spi.*;
+import org.junit.jupiter.api.*;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.*;
+import reactor.test.StepVerifier;
+
+import java.util.*;
+import java.util.stream.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+// two in memory h2 databases in mysql mode stand in for the shards
+class UserReshardingServiceTest {
+    private static final List<String> SCHEMA = List.of(
+            "CREATE TABLE users (id INT NOT NULL AUTO_INCREMENT PRIMARY KEY, user_id BINARY(16) NOT NULL UNIQUE, username VARCHAR_IGNORECASE(100) NOT NULL UNIQUE, password VARCHAR(255) NOT NULL)",
+            "CREATE TABLE roles (id INT NOT NULL PRIMARY KEY, name VARCHAR(50) NOT NULL UNIQUE)",
+            "CREATE TABLE user_roles (user_id INT NOT NULL, role_id INT NOT NULL, PRIMARY KEY (user_id, role_id), FOREIGN KEY (user_id) REFERENCES users(id), FOREIGN KEY (role_id) REFERENCES roles(id))",
+            "INSERT INTO roles (id, name) VALUES (1, 'USER'), (2, 'ADMIN')");
+
+    // the ring grows from the primary alone to the primary and shard-2
+    private final UserShards userShards = new UserShards("primary", List.of("shard-2"), List.of("primary"), 160);
+
+    private ShardRoutingConnectionFactory routing;
+    private UserShardRepository userShardRepository;
+    private UserReshardingServiceImpl userReshardingService;
+
+    @BeforeEach
+    void setUp() {
+        var database = UUID.randomUUID().toString();
+        routing = new ShardRoutingConnectionFactory("primary", h2(database + "-primary"), Map.of("shard-2", h2(database + "-shard-2")));
+
+        var databaseClient = DatabaseClient.create(routing);
+        userShardRepository = new UserShardRepository(databaseClient);
+        userReshardingService = new UserReshardingServiceImpl(
+                userShards, userShardRepository, TransactionalOperator.create(new R2dbcTransactionManager(routing)), 3);
+
+        for (var shard : userShards.names()){
+            Flux.fromIterable(SCHEMA)
+                .concatMap(statement -> userShards.onShard(shard, databaseClient.sql(statement).then()))
+                .blockLast();
+        }
+    }
+
+    @Test
+    @DisplayName("rebalance() should move every misplaced user, with their roles and ids, to the shard they belong on")
+    void rebalanceShouldMoveMisplacedUsers() {
+        // Arrange
+        var users = IntStream.rangeClosed(1, 20).mapToObj(id -> user(id, "user" + id + "@test.com")).toList();
+        var userRoles = users.stream()
+                .flatMap(user -> user.getId() % 2 == 0
+                        ? Stream.of(new UserRoleDataModel(user.getId(), 1), new UserRoleDataModel(user.getId(), 2))
+                        : Stream.of(new UserRoleDataModel(user.getId(), 1)))
+                .toList();
+        insert("primary", users, userRoles);
+
+        var expectedOnShard2 = users.stream().filter(user -> userShards.shardFor(user.getUsername()).equals("shard-2")).toList();
+
+        // Act
+        var progress = userReshardingService.rebalance().collectList().block();
+
+        // Assert
+        var primary = progress.stream().filter(shard -> shard.getShard().equals("primary")).toList().getLast();
+        assertThat(primary.getScanned()).isEqualTo(20);
+        assertThat(primary.getMoved()).isEqualTo(expectedOnShard2.size());
+        assertThat(primary.getConflicts()).isZero();
+
+        assertThat(usersOn("primary")).allSatisfy(user -> assertThat(userShards.shardFor(user.getUsername())).isEqualTo("primary"))
+                .hasSize(20 - expectedOnShard2.size());
+        assertThat(usersOn("shard-2"))
+                .extracting(ShardUser::getId, ShardUser::getUserId, ShardUser::getUsername)
+                .containsExactlyInAnyOrderElementsOf(expectedOnShard2.stream()
+                        .map(user -> tuple(user.getId(), user.getUserId(), user.getUsername()))
+                        .toList());
+
+        var movedIds = expectedOnShard2.stream().map(ShardUser::getId).toList();
+        assertThat(userShards.onShard("shard-2", userShardRepository.findUserRoles(movedIds).collectList()).block())
+                .hasSize((int) userRoles.stream().filter(userRole -> movedIds.contains(userRole.getUserId())).count());
+        assertThat(userShards.onShard("primary", userShardRepository.findUserRoles(movedIds).collectList()).block()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("rebalance() should leave a user in place when their name is already taken on the target shard and fail")
+    void rebalanceShouldSkipConflicts() {
+        // Arrange
+        var username = IntStream.rangeClosed(1, 100).mapToObj(id -> "user" + id + "@test.com")
+                .filter(name -> userShards.shardFor(name).equals("shard-2"))
+                .findFirst()
+                .orElseThrow();
+        insert("primary", List.of(user(1, username)), List.of(new UserRoleDataModel(1, 1)));
+        insert("shard-2", List.of(user(2, username.toUpperCase(Locale.ROOT))), List.of());
+
+        // Act / Assert
+        StepVerifier.create(userReshardingService.rebalance().filter(progress -> progress.getShard().equals("primary")))
+                .assertNext(progress -> {
+                    assertThat(progress.getMoved()).isZero();
+                    assertThat(progress.getConflicts()).isEqualTo(1);
+                })
+                .expectErrorSatisfies(exception -> assertThat(exception)
+                        .isInstanceOf(IllegalStateException.class)
+                        .hasMessageStartingWith("1 users conflict"))
+                .verify();
+
+        assertThat(usersOn("primary")).extracting(ShardUser::getId).containsExactly(1);
+        assertThat(usersOn("shard-2")).extracting(ShardUser::getId).containsExactly(2);
+    }
+
+    @Test
+    @DisplayName("rebalance() should fail when a user's id is already taken on the target shard")
+    void rebalanceShouldFailOnIdConflicts() {
+        // Arrange
+        var usernames = IntStream.rangeClosed(1, 100).mapToObj(id -> "user" + id + "@test.com").toList();
+        var toShard2 = usernames.stream().filter(name -> userShards.shardFor(name).equals("shard-2")).findFirst().orElseThrow();
+        var onShard2 = usernames.stream().filter(name -> userShards.shardFor(name).equals("shard-2")).skip(1).findFirst().orElseThrow();
+        insert("primary", List.of(user(1, toShard2)), List.of(new UserRoleDataModel(1, 1)));
+        insert("shard-2", List.of(user(1, onShard2)), List.of());
+
+        // Act / Assert
+        StepVerifier.create(userReshardingService.rebalance().then())
+                .expectError(IllegalStateException.class)
+                .verify();
+
+        assertThat(usersOn("primary")).extracting(ShardUser::getUsername).containsExactly(toShard2);
+        assertThat(usersOn("shard-2")).extracting(ShardUser::getUsername).containsExactly(onShard2);
+    }
+
+    @Test
+    @DisplayName("rebalance() should refuse to move users between shards whose roles differ")
+    void rebalanceShouldRequireMatchingRoles() {
+        // Arrange
+        insert("primary", List.of(user(1, "user1@test.com")), List.of());
+        userShards.onShard("shard-2", DatabaseClient.create(routing).sql("INSERT INTO roles (id, name) VALUES (3, 'AUDITOR')").then()).block();
+
+        // Act / Assert
+        StepVerifier.create(userReshardingService.rebalance())
+                .expectError(IllegalStateException.class)
+                .verify();
+
+        assertThat(usersOn("primary")).hasSize(1);
+    }
+
+    private void insert(String shard, List<ShardUser> users, List<UserRoleDataModel> userRoles){
+        userShards.onShard(shard, userShardRepository.insertAll(users).then(userShardRepository.insertUserRoles(userRoles))).block();
+    }
+
+    private List<ShardUser> usersOn(String shard){
+        return userShards.onShard(shard, userShardRepository.findPage(0, 1_000).collectList()).block();
+    }
+
+    private static ShardUser user(int id, String username){
+        return new ShardUser(id, UUID.randomUUID(), username, "{bcrypt}hash");
+    }
+
+    private static ConnectionFactory h2(String database){
+        return ConnectionFactories.get("r2dbc:h2:mem:///" + database + "?options=DB_CLOSE_DELAY=-1;MODE=MySQL");
+    }
+}
@@ -0,0 +1,132 @@
+package io.baxter.authentication.tests.data.cache;
+
+import io.baxter.authentication.data.cache.LoginPrincipalCache;
+import io.baxter.authentication.data.models.LoginPrincipal;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.*;
+import org.mockito.Mockito;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LoginPrincipalCacheTest {
+    private static final String USERNAME = "test@test.com";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final LoginPrincipal principal = new LoginPrincipal(1, UUID.randomUUID(), USERNAME, "{bcrypt}hash", List.of("USER"));
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    @DisplayName("get() should load a user once and serve later logins from memory, whatever the username's case")
+    void getShouldServeRepeatLoginsFromCache() {
+        // Arrange
+        var cache = cache(true, false, null);
+
+        // Act
+        var first = cache.get(USERNAME, this::load);
+        var second = cache.get("TEST@test.com", this::load);
+
+        // Assert
+        StepVerifier.create(first).expectNext(principal).verifyComplete();
+        StepVerifier.create(second).expectNext(principal).verifyComplete();
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "login.principal").tag("result", "hit").functionCounter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "login.principal").tag("result", "miss").functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("get() should not cache users that were not found")
+    void getShouldNotCacheMisses() {
+        // Arrange
+        var cache = cache(true, false, null);
+
+        // Act
+        var first = cache.get(USERNAME, username -> { loads.incrementAndGet(); return Mono.empty(); });
+        var second = cache.get(USERNAME, this::load);
+
+        // Assert
+        StepVerifier.create(first).verifyComplete();
+        StepVerifier.create(second).expectNext(principal).verifyComplete();
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("invalidate() should drop the user so the next login reads them again")
+    void invalidateShouldReloadUser() {
+        // Arrange
+        var cache = cache(true, false, null);
+        cache.get(USERNAME, this::load).block();
+
+        // Act
+        StepVerifier.create(cache.invalidate("Test@Test.com")).verifyComplete();
+        cache.get(USERNAME, this::load).block();
+
+        // Assert
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("invalidate() should drop a user cached under a spelling that only differs by accents")
+    void invalidateShouldFoldAccents() {
+        // Arrange
+        var cache = cache(true, false, null);
+        cache.get("tést@test.com", this::load).block();
+
+        // Act
+        StepVerifier.create(cache.invalidate(USERNAME)).verifyComplete();
+        cache.get("tést@test.com", this::load).block();
+
+        // Assert
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("invalidate() should publish the invalidation to other instances when enabled, and not fail the write if it cannot")
+    void invalidateShouldPublishToRedis() {
+        // Arrange
+        var redis = Mockito.mock(ReactiveStringRedisTemplate.class);
+        Mockito.when(redis.convertAndSend("login_principal_invalidations", USERNAME))
+                .thenReturn(Mono.just(2L), Mono.error(new IllegalStateException("connection lost")));
+        var cache = cache(true, true, redis);
+
+        // Act / Assert
+        StepVerifier.create(cache.invalidate(USERNAME)).verifyComplete();
+        StepVerifier.create(cache.invalidate(USERNAME)).verifyComplete();
+
+        Mockito.verify(redis, Mockito.times(2)).convertAndSend("login_principal_invalidations", USERNAME);
+    }
+
+    @Test
+    @DisplayName("get() should always load when the cache is disabled")
+    void getShouldPassThroughWhenDisabled() {
+        // Arrange
+        var redis = Mockito.mock(ReactiveStringRedisTemplate.class);
+        var cache = cache(false, true, redis);
+
+        // Act
+        cache.get(USERNAME, this::load).block();
+        cache.get(USERNAME, this::load).block();
+        cache.invalidate(USERNAME).block();
+
+        // Assert
+        assertThat(loads.get()).isEqualTo(2);
+        Mockito.verifyNoInteractions(redis);
+    }
+
+    private LoginPrincipalCache cache(boolean enabled, boolean sharedInvalidation, ReactiveStringRedisTemplate redis){
+        return new LoginPrincipalCache(redis, meterRegistry, enabled, 100, Duration.ofMinutes(5), sharedInvalidation);
+    }
+
+    private Mono<LoginPrincipal> load(String username){
+        return Mono.fromCallable(() -> {
+            loads.incrementAndGet();
+            return principal;
+        });
+    }
+}
@@ -0,0 +1,65 @@
+package io.baxter.authentication.tests.data.cache;
+
+import io.baxter.authentication.data.cache.ScalableBloomFilter;
+import org.junit.jupiter.api.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ScalableBloomFilterTest {
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    @Test
+    @DisplayName("mightContain() should never report a false negative, even after the filter has grown")
+    void mightContainShouldHaveNoFalseNegatives() {
+        // Arrange
+        var filter = new ScalableBloomFilter(1_000, FALSE_POSITIVE_RATE);
+        var initialMemory = filter.memoryBytes();
+
+        // Act
+        for (int i = 0; i < 20_000; i++){
+            filter.add(String.format("user-%d@test.com", i));
+        }
+
+        // Assert
+        for (int i = 0; i < 20_000; i++){
+            assertThat(filter.mightContain(String.format("user-%d@test.com", i))).isTrue();
+        }
+
+        assertThat(filter.size()).isEqualTo(20_000);
+        assertThat(filter.memoryBytes()).isGreaterThan(initialMemory);
+    }
+
+    @Test
+    @DisplayName("the observed false positive rate should stay close to the configured target after growing")
+    void falsePositiveRateShouldStayNearTarget() {
+        // Arrange
+        var filter = new ScalableBloomFilter(1_000, FALSE_POSITIVE_RATE);
+        for (int i = 0; i < 20_000; i++){
+            filter.add(String.format("user-%d@test.com", i));
+        }
+
+        // Act
+        int falsePositives = 0;
+        int probes = 100_000;
+        for (int i = 0; i < probes; i++){
+            if (filter.mightContain(String.format("unknown-%d@test.com", i))){
+                falsePositives++;
+            }
+        }
+
+        // Assert
+        assertThat((double) falsePositives / probes).isLessThan(FALSE_POSITIVE_RATE * 2);
+        assertThat(filter.expectedFalsePositiveRate()).isLessThan(FALSE_POSITIVE_RATE);
+    }
+
+    @Test
+    @DisplayName("an empty filter should not contain anything")
+    void emptyFilterShouldContainNothing() {
+        // Arrange
+        var filter = new ScalableBloomFilter(100, FALSE_POSITIVE_RATE);
+
+        // Act / Assert
+        assertThat(filter.mightContain("robert@test.com")).isFalse();
+        assertThat(filter.expectedFalsePositiveRate()).isZero();
+    }
+}
@@ -0,0 +1,127 @@
+package io.baxter.authentication.tests.data.cache;
+
+import io.baxter.authentication.data.cache.UsernameFilter;
+import io.baxter.authentication.data.repository.UserRepository;
+import io.baxter.authentication.infrastructure.behavior.database.UserShards;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.*;
+import org.mockito.Mockito;
+import org.springframework.data.redis.connection.ReactiveSubscription;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import reactor.core.publisher.*;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class UsernameFilterTest {
+    private static final String CHANNEL = "username_filter_additions";
+
+    private final UserRepository userRepository = Mockito.mock(UserRepository.class);
+    private final ReactiveStringRedisTemplate redis = Mockito.mock(ReactiveStringRedisTemplate.class);
+    private final Sinks.Many<ReactiveSubscription.Message<String, String>> messages = Sinks.many().multicast().directBestEffort();
+
+    private UsernameFilter filter;
+
+    @BeforeEach
+    void setup(){
+        Mockito.when(userRepository.findAllUsernames()).thenReturn(Flux.just("existing@test.com"));
+        Mockito.lenient().doReturn(Mono.just(messages.asFlux())).when(redis).listenToChannelLater(CHANNEL);
+        Mockito.lenient().when(redis.convertAndSend(Mockito.eq(CHANNEL), Mockito.anyString())).thenReturn(Mono.just(1L));
+    }
+
+    @AfterEach
+    void tearDown(){
+        filter.stop();
+    }
+
+    @Test
+    @DisplayName("without sharing, a loaded filter should turn away unknown usernames and learn local additions")
+    void mightExistShouldTrustMissesWithoutSharing(){
+        // Arrange
+        filter = filter("none");
+        filter.rebuild().block();
+
+        // Act
+        StepVerifier.create(filter.add("New@Test.com")).verifyComplete();
+
+        // Assert
+        assertThat(filter.mightExist("existing@test.com")).isTrue();
+        assertThat(filter.mightExist("new@test.com")).isTrue();
+        assertThat(filter.mightExist("unknown@test.com")).isFalse();
+        Mockito.verifyNoInteractions(redis);
+    }
+
+    @Test
+    @DisplayName("with sharing, misses should not be trusted until a rebuild has run while additions are being received")
+    void mightExistShouldNotTrustMissesBeforeSubscribing(){
+        // Arrange
+        filter = filter("redis");
+
+        // Act
+        filter.rebuild().block();
+
+        // Assert
+        assertThat(filter.mightExist("unknown@test.com")).isTrue();
+
+        // Act
+        filter.start();
+
+        // Assert
+        await().atMost(Duration.ofSeconds(5)).until(() -> !filter.mightExist("unknown@test.com"));
+        assertThat(filter.mightExist("existing@test.com")).isTrue();
+    }
+
+    @Test
+    @DisplayName("with sharing, usernames added by another instance should be found straight away and additions should be published")
+    void addShouldBeSharedBetweenInstances(){
+        // Arrange
+        filter = filter("redis");
+        filter.start();
+        await().atMost(Duration.ofSeconds(5)).until(() -> !filter.mightExist("remote@test.com"));
+
+        // Act
+        messages.tryEmitNext(new ReactiveSubscription.ChannelMessage<>(CHANNEL, "other-instance remote@test.com"));
+        StepVerifier.create(filter.add("Local@Test.com")).verifyComplete();
+
+        // Assert
+        assertThat(filter.mightExist("remote@test.com")).isTrue();
+        assertThat(filter.mightExist("local@test.com")).isTrue();
+        Mockito.verify(redis).convertAndSend(Mockito.eq(CHANNEL), Mockito.argThat(message -> message.endsWith(" local@test.com")));
+    }
+
+    @Test
+    @DisplayName("with sharing, misses should stop being trusted as soon as the subscription drops")
+    void mightExistShouldNotTrustMissesAfterSubscriptionDrops(){
+        // Arrange
+        Mockito.doReturn(Mono.just(messages.asFlux()), Mono.never()).when(redis).listenToChannelLater(CHANNEL);
+        filter = filter("redis");
+        filter.start();
+        await().atMost(Duration.ofSeconds(5)).until(() -> !filter.mightExist("unknown@test.com"));
+
+        // Act
+        messages.tryEmitError(new IllegalStateException("connection lost"));
+
+        // Assert
+        assertThat(filter.mightExist("unknown@test.com")).isTrue();
+    }
+
+    @Test
+    @DisplayName("a failed publish should not fail the write that added the username")
+    void addShouldNotFailWhenPublishFails(){
+        // Arrange
+        Mockito.when(redis.convertAndSend(Mockito.eq(CHANNEL), Mockito.anyString()))
+                .thenReturn(Mono.error(new IllegalStateException("connection lost")));
+        filter = filter("redis");
+
+        // Act / Assert
+        StepVerifier.create(filter.add("new@test.com")).verifyComplete();
+    }
+
+    private UsernameFilter filter(String sharing){
+        return new UsernameFilter(
+                userRepository, UserShards.single(), redis, new SimpleMeterRegistry(), true, sharing, 1_000, 0.01, Duration.ofHours(1));
+    }
+}
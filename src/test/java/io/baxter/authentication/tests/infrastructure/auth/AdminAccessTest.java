@@ -0,0 +1,92 @@
+package io.baxter.authentication.tests.infrastructure.auth;
+
+import io.baxter.authentication.infrastructure.auth.AdminAccess;
+import org.junit.jupiter.api.*;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Instant;
+import java.util.List;
+
+class AdminAccessTest {
+    private final AdminAccess adminAccess = new AdminAccess(List.of(" Admin@Test.com ", ""));
+
+    @Test
+    @DisplayName("a caller with the ADMIN scope who is a configured admin user should be granted access")
+    void checkShouldGrantConfiguredAdmins(){
+        // Act
+        var decision = adminAccess.check(Mono.just(caller("admin@test.com", "SCOPE_ADMIN")), null);
+
+        // Assert
+        StepVerifier.create(decision.map(AuthorizationDecision::isGranted))
+                .expectNext(true)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("a caller with the ADMIN scope who is not a configured admin user should be denied")
+    void checkShouldDenySelfAssignedAdmins(){
+        // Act
+        var decision = adminAccess.check(Mono.just(caller("someone@test.com", "SCOPE_ADMIN")), null);
+
+        // Assert
+        StepVerifier.create(decision.map(AuthorizationDecision::isGranted))
+                .expectNext(false)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("a configured admin user without the ADMIN scope should be denied")
+    void checkShouldDenyAdminsWithoutScope(){
+        // Act
+        var decision = adminAccess.check(Mono.just(caller("admin@test.com", "SCOPE_USER")), null);
+
+        // Assert
+        StepVerifier.create(decision.map(AuthorizationDecision::isGranted))
+                .expectNext(false)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("with no admin users configured every caller should be denied")
+    void checkShouldDenyEveryoneWithoutAdminUsers(){
+        // Arrange
+        var closed = new AdminAccess(List.of());
+
+        // Act
+        var decision = closed.check(Mono.just(caller("admin@test.com", "SCOPE_ADMIN")), null);
+
+        // Assert
+        StepVerifier.create(decision.map(AuthorizationDecision::isGranted))
+                .expectNext(false)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("an anonymous caller should be denied")
+    void checkShouldDenyAnonymousCallers(){
+        // Act
+        var decision = adminAccess.check(Mono.<Authentication>empty(), null);
+
+        // Assert
+        StepVerifier.create(decision.map(AuthorizationDecision::isGranted))
+                .expectNext(false)
+                .verifyComplete();
+    }
+
+    private static Authentication caller(String userName, String scope){
+        var jwt = Jwt.withTokenValue("token")
+                .header("alg", "HS256")
+                .subject(userName)
+                .issuedAt(Instant.now())
+                .expiresAt(Instant.now().plusSeconds(60))
+                .build();
+
+        return new JwtAuthenticationToken(jwt, List.of(new SimpleGrantedAuthority(scope)));
+    }
+}
@@ -0,0 +1,113 @@
+package io.baxter.authentication.tests.infrastructure.auth;
+
+import io.baxter.authentication.infrastructure.auth.CachingReactiveJwtDecoder;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.*;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.oauth2.jwt.*;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(MockitoExtension.class)
+class CachingReactiveJwtDecoderTest {
+    private static final String TOKEN = "header.claims.signature";
+
+    @Mock private ReactiveJwtDecoder mockDelegate;
+    @Mock private Clock clock;
+
+    private Instant now = Instant.parse("2025-11-08T12:00:00Z");
+    private CachingReactiveJwtDecoder decoder;
+
+    @BeforeEach
+    void setUp() {
+        Mockito.lenient().when(clock.instant()).thenAnswer(invocation -> now);
+        decoder = new CachingReactiveJwtDecoder(mockDelegate, 100, clock);
+    }
+
+    @Test
+    @DisplayName("decode() should only call the delegate once for a repeated token")
+    void decodeShouldServeRepeatedTokensFromCache() {
+        // Arrange
+        var jwt = jwt(now.plusSeconds(3600));
+        Mockito.when(mockDelegate.decode(TOKEN)).thenReturn(Mono.just(jwt));
+
+        // Act
+        var first = decoder.decode(TOKEN);
+        var second = decoder.decode(TOKEN);
+
+        // Assert
+        StepVerifier.create(first).expectNext(jwt).verifyComplete();
+        StepVerifier.create(second).expectNext(jwt).verifyComplete();
+
+        Mockito.verify(mockDelegate).decode(TOKEN);
+        assertThat(decoder.getCache().stats().hitCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("decode() should go back to the delegate once the cached token has expired")
+    void decodeShouldNotServeExpiredTokens() {
+        // Arrange
+        var jwt = jwt(now.plusSeconds(60));
+        Mockito.when(mockDelegate.decode(TOKEN))
+                .thenReturn(Mono.just(jwt))
+                .thenReturn(Mono.error(new JwtValidationException("expired", java.util.List.of())));
+
+        StepVerifier.create(decoder.decode(TOKEN)).expectNext(jwt).verifyComplete();
+
+        // Act
+        now = now.plusSeconds(61);
+        var response = decoder.decode(TOKEN);
+
+        // Assert
+        StepVerifier.create(response).expectError(JwtValidationException.class).verify();
+        Mockito.verify(mockDelegate, Mockito.times(2)).decode(TOKEN);
+    }
+
+    @Test
+    @DisplayName("decode() should not cache tokens the delegate rejects")
+    void decodeShouldNotCacheFailures() {
+        // Arrange
+        Mockito.when(mockDelegate.decode(TOKEN)).thenReturn(Mono.error(new BadJwtException("bad signature")));
+
+        // Act
+        StepVerifier.create(decoder.decode(TOKEN)).expectError(BadJwtException.class).verify();
+        StepVerifier.create(decoder.decode(TOKEN)).expectError(BadJwtException.class).verify();
+
+        // Assert
+        Mockito.verify(mockDelegate, Mockito.times(2)).decode(TOKEN);
+        assertThat(decoder.getCache().estimatedSize()).isZero();
+    }
+
+    @Test
+    @DisplayName("decode() should not serve a cached token for a different token that only differs in non ascii characters")
+    void decodeShouldKeepNonAsciiTokensApart() {
+        // Arrange
+        var accepted = "header.claims.signatur\u00e9";
+        var forged = "header.claims.signatur\u00e8";
+        Mockito.when(mockDelegate.decode(accepted)).thenReturn(Mono.just(jwt(now.plusSeconds(3600))));
+        Mockito.when(mockDelegate.decode(forged)).thenReturn(Mono.error(new BadJwtException("bad signature")));
+
+        StepVerifier.create(decoder.decode(accepted)).expectNextCount(1).verifyComplete();
+
+        // Act
+        var response = decoder.decode(forged);
+
+        // Assert
+        StepVerifier.create(response).expectError(BadJwtException.class).verify();
+        Mockito.verify(mockDelegate).decode(forged);
+    }
+
+    private Jwt jwt(Instant expiresAt) {
+        return Jwt.withTokenValue(TOKEN)
+                .header("alg", "HS256")
+                .subject("robert@test.com")
+                .issuedAt(now)
+                .expiresAt(expiresAt)
+                .build();
+    }
+}
@@ -0,0 +1,112 @@
+package io.baxter.authentication.tests.infrastructure.auth;
+
+import io.baxter.authentication.infrastructure.auth.Hs256TokenSigner;
+import org.junit.jupiter.api.*;
+import org.springframework.security.oauth2.jwt.*;
+import reactor.test.StepVerifier;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+class Hs256TokenSignerTest {
+    private final byte[] secret = "0123456789abcdef0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private final UUID tokenId = UUID.fromString("7f83abf8-2c3a-4df4-9505-baf2e7c4d8a4");
+
+    private Hs256TokenSigner signer;
+    private ReactiveJwtDecoder decoder;
+
+    @BeforeEach
+    void setUp() {
+        signer = new Hs256TokenSigner(secret);
+        decoder = NimbusReactiveJwtDecoder.withSecretKey(new SecretKeySpec(secret, "HmacSHA256")).build();
+    }
+
+    @Test
+    @DisplayName("sign() should produce a token the reactive resource server decoder accepts")
+    void signShouldProduceTokenAcceptedByDecoder() {
+        // Arrange
+        var issuedAt = Instant.now().getEpochSecond();
+
+        // Act
+        var token = signer.sign(tokenId, "robert@test.com", "USER ADMIN", issuedAt, issuedAt + 3600);
+
+        // Assert
+        StepVerifier.create(decoder.decode(token))
+                .expectNextMatches(jwt -> {
+                    assertThat(jwt.getId()).isEqualTo(tokenId.toString());
+                    assertThat(jwt.getSubject()).isEqualTo("robert@test.com");
+                    assertThat(jwt.getClaimAsString("scope")).isEqualTo("USER ADMIN");
+                    assertThat(jwt.getIssuedAt()).isEqualTo(Instant.ofEpochSecond(issuedAt));
+                    assertThat(jwt.getExpiresAt()).isEqualTo(Instant.ofEpochSecond(issuedAt + 3600));
+                    assertThat(jwt.getHeaders()).containsEntry("alg", "HS256");
+                    return true;
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("sign() should escape json control characters and encode non ascii subjects as utf-8")
+    void signShouldEscapeSubject() {
+        // Arrange
+        var issuedAt = Instant.now().getEpochSecond();
+        var subject = "we\"ird\\name\té€😀";
+
+        // Act
+        var token = signer.sign(tokenId, subject, "USER", issuedAt, issuedAt + 3600);
+
+        // Assert
+        StepVerifier.create(decoder.decode(token))
+                .expectNextMatches(jwt -> jwt.getSubject().equals(subject))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("sign() should reuse its buffers without leaking state between tokens")
+    void signShouldNotLeakStateBetweenTokens() {
+        // Arrange
+        var issuedAt = Instant.now().getEpochSecond();
+        var longSubject = "a".repeat(2_000) + "@test.com";
+
+        // Act
+        var first = signer.sign(tokenId, longSubject, "USER", issuedAt, issuedAt + 3600);
+        var second = signer.sign(tokenId, "b@test.com", "USER", issuedAt, issuedAt + 3600);
+
+        // Assert
+        assertThat(first).hasSizeGreaterThan(second.length());
+        StepVerifier.create(decoder.decode(second))
+                .expectNextMatches(jwt -> jwt.getSubject().equals("b@test.com"))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("sign() should reject expired tokens at the decoder")
+    void expiredTokensShouldBeRejected() {
+        // Arrange
+        var issuedAt = Instant.now().getEpochSecond() - 7200;
+
+        // Act
+        var token = signer.sign(tokenId, "robert@test.com", "USER", issuedAt, issuedAt + 3600);
+
+        // Assert
+        StepVerifier.create(decoder.decode(token))
+                .expectError(JwtValidationException.class)
+                .verify();
+    }
+
+    @Test
+    @DisplayName("the signer should reject secrets shorter than 256 bits")
+    void constructorShouldRejectShortSecrets() {
+        // Arrange
+        var shortSecret = Arrays.copyOf(secret, 31);
+
+        // Act / Assert
+        assertThatThrownBy(() -> new Hs256TokenSigner(shortSecret))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("HS256 secret must be at least 32 bytes");
+        assertThatCode(() -> new Hs256TokenSigner(Arrays.copyOf(secret, 32))).doesNotThrowAnyException();
+    }
+}
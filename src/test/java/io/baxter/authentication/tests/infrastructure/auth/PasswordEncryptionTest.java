@@ -1,18 +1,32 @@
 package io.baxter.authentication.tests.infrastructure.auth;
 
 import io.baxter.authentication.infrastructure.auth.PasswordEncryption;
+import io.baxter.authentication.infrastructure.auth.hashing.PasswordEncoders;
 import org.junit.jupiter.api.*;
+import reactor.core.scheduler.*;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import reactor.test.StepVerifier;
+
+import java.util.Map;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 
 class PasswordEncryptionTest {
     private PasswordEncryption passwordEncryption;
+    private Scheduler hashingScheduler;
 
     private final String password = "testPassword123";
 
     @BeforeEach
     void setUp() {
-        passwordEncryption = new PasswordEncryption();
+        hashingScheduler = Schedulers.newSingle("test-hashing");
+        passwordEncryption = new PasswordEncryption(encoderFor(PasswordEncoders.BCRYPT, 4), hashingScheduler);
+    }
+
+    @AfterEach
+    void tearDown() {
+        hashingScheduler.dispose();
     }
 
     @Test
@@ -25,7 +39,7 @@ class PasswordEncryptionTest {
         assertThat(encrypted).isNotNull();
         assertThat(encrypted).isNotEmpty();
         assertThat(encrypted).isNotEqualTo(password);
-        assertThat(encrypted.startsWith("$2a$") || encrypted.startsWith("$2b$")).isTrue(); // BCrypt prefix check
+        assertThat(encrypted.startsWith("{bcrypt}$2a$") || encrypted.startsWith("{bcrypt}$2b$")).isTrue(); // BCrypt prefix check
     }
 
     @Test
@@ -67,4 +81,95 @@ class PasswordEncryptionTest {
         assertThat(passwordEncryption.verify(password, encrypted1)).isTrue();
         assertThat(passwordEncryption.verify(password, encrypted2)).isTrue();
     }
+
+    @Test
+    @DisplayName("encryptAsync() should hash on the hashing scheduler and produce a verifiable hash")
+    void encryptAsyncShouldHashOnHashingScheduler() {
+        // Act
+        var encrypted = passwordEncryption.encryptAsync(password)
+                .doOnNext(hash -> assertThat(Thread.currentThread().getName()).startsWith("test-hashing"));
+
+        // Assert
+        StepVerifier.create(encrypted)
+                .expectNextMatches(hash -> passwordEncryption.verify(password, hash))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("verifyAsync() should verify on the hashing scheduler")
+    void verifyAsyncShouldVerifyOnHashingScheduler() {
+        // Arrange
+        String encrypted = passwordEncryption.encrypt(password);
+
+        // Act
+        var matches = passwordEncryption.verifyAsync(password, encrypted)
+                .doOnNext(result -> assertThat(Thread.currentThread().getName()).startsWith("test-hashing"));
+
+        // Assert
+        StepVerifier.create(matches)
+                .expectNext(true)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("verify() should accept legacy hashes without an algorithm prefix and flag them for upgrade")
+    void verifyShouldAcceptLegacyBCryptHashes() {
+        // Arrange
+        String legacyHash = new BCryptPasswordEncoder(4).encode(password);
+
+        // Act
+        boolean matches = passwordEncryption.verify(password, legacyHash);
+
+        // Assert
+        assertThat(matches).isTrue();
+        assertThat(passwordEncryption.needsUpgrade(legacyHash)).isTrue();
+    }
+
+    @Test
+    @DisplayName("needsUpgrade() should be false for hashes created under the current policy")
+    void needsUpgradeShouldReturnFalseForCurrentPolicy() {
+        // Arrange
+        String encrypted = passwordEncryption.encrypt(password);
+
+        // Act / Assert
+        assertThat(passwordEncryption.needsUpgrade(encrypted)).isFalse();
+    }
+
+    @Test
+    @DisplayName("needsUpgrade() should be true when the policy cost or algorithm has moved on")
+    void needsUpgradeShouldReturnTrueWhenPolicyChanges() {
+        // Arrange
+        String weakBCrypt = passwordEncryption.encrypt(password);
+        var strongerBCrypt = new PasswordEncryption(encoderFor(PasswordEncoders.BCRYPT, 5), hashingScheduler);
+        var pbkdf2 = new PasswordEncryption(encoderFor(PasswordEncoders.PBKDF2, 1_000), hashingScheduler);
+
+        // Act / Assert
+        assertThat(strongerBCrypt.verify(password, weakBCrypt)).isTrue();
+        assertThat(strongerBCrypt.needsUpgrade(weakBCrypt)).isTrue();
+        assertThat(pbkdf2.verify(password, weakBCrypt)).isTrue();
+        assertThat(pbkdf2.needsUpgrade(weakBCrypt)).isTrue();
+    }
+
+    @Test
+    @DisplayName("pbkdf2 hashes should record their iteration count so lower counts are flagged for upgrade")
+    void pbkdf2HashesShouldBeUpgradedWhenIterationsIncrease() {
+        // Arrange
+        var current = new PasswordEncryption(encoderFor(PasswordEncoders.PBKDF2, 1_000), hashingScheduler);
+        var stronger = new PasswordEncryption(encoderFor(PasswordEncoders.PBKDF2, 2_000), hashingScheduler);
+        String encrypted = current.encrypt(password);
+
+        // Act / Assert
+        assertThat(encrypted).startsWith("{pbkdf2}1000$");
+        assertThat(stronger.verify(password, encrypted)).isTrue();
+        assertThat(current.needsUpgrade(encrypted)).isFalse();
+        assertThat(stronger.needsUpgrade(encrypted)).isTrue();
+    }
+
+    // low costs keep the tests fast, the cost argument is applied to bcrypt strength or pbkdf2 iterations
+    private static PasswordEncoder encoderFor(String algorithm, int cost) {
+        return PasswordEncoders.delegating(algorithm, Map.of(
+                PasswordEncoders.BCRYPT, PasswordEncoders.bcrypt(PasswordEncoders.BCRYPT.equals(algorithm) ? cost : 4),
+                PasswordEncoders.PBKDF2, PasswordEncoders.pbkdf2(PasswordEncoders.PBKDF2.equals(algorithm) ? cost : 1_000),
+                PasswordEncoders.ARGON2, PasswordEncoders.argon2(1024, 1, 1)));
+    }
 }
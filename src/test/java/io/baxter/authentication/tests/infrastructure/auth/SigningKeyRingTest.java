@@ -0,0 +1,146 @@
+package io.baxter.authentication.tests.infrastructure.auth;
+
+import com.nimbusds.jwt.SignedJWT;
+import io.baxter.authentication.infrastructure.auth.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.*;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.*;
+import org.springframework.security.oauth2.jwt.*;
+import reactor.core.publisher.*;
+import reactor.test.StepVerifier;
+
+import java.time.*;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class SigningKeyRingTest {
+    private static final Duration ROTATION_INTERVAL = Duration.ofDays(1);
+    private static final Duration PUBLISH_AHEAD = Duration.ofMinutes(10);
+    private static final Duration RETENTION = Duration.ofHours(2);
+    private static final Duration EXPIRATION = Duration.ofHours(1);
+
+    @Mock private ReactiveStringRedisTemplate mockRedis;
+    @Mock private ReactiveZSetOperations<String, String> mockZSetOps;
+    @Mock private Clock clock;
+
+    private Instant now = Instant.now();
+    private SigningKeyRing keyRing;
+    private Es256TokenSigner signer;
+    private ReactiveJwtDecoder decoder;
+
+    @BeforeEach
+    void setUp() {
+        Mockito.lenient().when(clock.instant()).thenAnswer(invocation -> now);
+        Mockito.lenient().when(mockRedis.opsForZSet()).thenReturn(mockZSetOps);
+        Mockito.lenient().when(mockZSetOps.add(Mockito.anyString(), Mockito.anyString(), Mockito.anyDouble())).thenReturn(Mono.just(true));
+
+        keyRing = new SigningKeyRing(
+                mockRedis, clock, EXPIRATION.toMillis(), ROTATION_INTERVAL, PUBLISH_AHEAD, RETENTION, Duration.ofSeconds(30), Duration.ofMinutes(5));
+        signer = new Es256TokenSigner(keyRing);
+        decoder = new NimbusReactiveJwtDecoder(keyRing::verify);
+    }
+
+    @Test
+    @DisplayName("tokens signed with the current key should carry its kid and verify against the key ring")
+    void signedTokensShouldVerify() throws Exception {
+        // Act
+        var token = sign();
+
+        // Assert
+        assertThat(SignedJWT.parse(token).getHeader().getKeyID()).isEqualTo(keyRing.currentKey().key().getKeyID());
+        StepVerifier.create(decoder.decode(token))
+                .expectNextMatches(jwt -> jwt.getSubject().equals("robert@test.com") && jwt.getClaimAsString("scope").equals("USER"))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("a rotated key should only be used once it has been published for the publish ahead window")
+    void rotatedKeyShouldActivateAfterPublishAhead() {
+        // Arrange
+        var originalKeyId = keyRing.currentKey().key().getKeyID();
+        var tokenBeforeRotation = sign();
+
+        // Act
+        StepVerifier.create(keyRing.rotate()).verifyComplete();
+        var keyIdDuringPublishAhead = keyRing.currentKey().key().getKeyID();
+        now = now.plus(PUBLISH_AHEAD).plusSeconds(1);
+        var keyIdAfterPublishAhead = keyRing.currentKey().key().getKeyID();
+
+        // Assert
+        assertThat(keyIdDuringPublishAhead).isEqualTo(originalKeyId);
+        assertThat(keyIdAfterPublishAhead).isNotEqualTo(originalKeyId);
+        assertThat(keyRing.getDocument().json()).contains(originalKeyId).contains(keyIdAfterPublishAhead);
+        StepVerifier.create(decoder.decode(tokenBeforeRotation)).expectNextCount(1).verifyComplete();
+        Mockito.verify(mockZSetOps).add(Mockito.eq("jwks:published"), Mockito.contains(keyIdAfterPublishAhead), Mockito.anyDouble());
+    }
+
+    @Test
+    @DisplayName("the jwks document should only expose public key material and change its etag when keys change")
+    void jwksDocumentShouldOnlyContainPublicKeys() {
+        // Arrange
+        var original = keyRing.getDocument();
+
+        // Act
+        StepVerifier.create(keyRing.rotate()).verifyComplete();
+        var rotated = keyRing.getDocument();
+
+        // Assert
+        assertThat(original.json()).contains("\"kty\":\"EC\"").doesNotContain("\"d\":");
+        assertThat(rotated.etag()).isNotEqualTo(original.etag());
+    }
+
+    @Test
+    @DisplayName("tokens with a kid that no instance has published should be rejected")
+    void unknownKeysShouldBeRejected() {
+        // Arrange
+        var otherRing = new SigningKeyRing(
+                mockRedis, clock, EXPIRATION.toMillis(), ROTATION_INTERVAL, PUBLISH_AHEAD, RETENTION, Duration.ofSeconds(30), Duration.ofMinutes(5));
+        var foreignToken = new Es256TokenSigner(otherRing)
+                .sign(UUID.randomUUID(), "robert@test.com", "USER", now.getEpochSecond(), now.getEpochSecond() + 3600);
+
+        Mockito.when(mockZSetOps.removeRangeByScore(Mockito.anyString(), Mockito.any())).thenReturn(Mono.just(0L));
+        Mockito.when(mockZSetOps.rangeByScore(Mockito.anyString(), Mockito.any())).thenReturn(Flux.empty());
+
+        // Act / Assert
+        StepVerifier.create(decoder.decode(foreignToken))
+                .expectError(BadJwtException.class)
+                .verify();
+    }
+
+    @Test
+    @DisplayName("keys published by other instances should be picked up when an unknown kid is seen")
+    void keysPublishedByOtherInstancesShouldVerify() {
+        // Arrange
+        var otherRing = new SigningKeyRing(
+                mockRedis, clock, EXPIRATION.toMillis(), ROTATION_INTERVAL, PUBLISH_AHEAD, RETENTION, Duration.ofSeconds(30), Duration.ofMinutes(5));
+        var foreignToken = new Es256TokenSigner(otherRing)
+                .sign(UUID.randomUUID(), "robert@test.com", "USER", now.getEpochSecond(), now.getEpochSecond() + 3600);
+        var publishedKey = otherRing.currentKey().key().toPublicJWK().toJSONString();
+
+        Mockito.when(mockZSetOps.removeRangeByScore(Mockito.anyString(), Mockito.any())).thenReturn(Mono.just(0L));
+        Mockito.when(mockZSetOps.rangeByScore(Mockito.anyString(), Mockito.any())).thenReturn(Flux.just(publishedKey));
+
+        // Act / Assert
+        StepVerifier.create(decoder.decode(foreignToken))
+                .expectNextMatches(jwt -> jwt.getSubject().equals("robert@test.com"))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("the key ring should refuse a retention window shorter than the access token lifetime")
+    void retentionShorterThanTokenLifetimeShouldBeRejected() {
+        // Act / Assert
+        assertThatThrownBy(() -> new SigningKeyRing(
+                mockRedis, clock, RETENTION.plusSeconds(1).toMillis(), ROTATION_INTERVAL, PUBLISH_AHEAD, RETENTION, Duration.ofSeconds(30), Duration.ofMinutes(5)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("jwt.signing.retention must not be shorter than jwt.expiration-ms");
+    }
+
+    private String sign() {
+        return signer.sign(UUID.randomUUID(), "robert@test.com", "USER", now.getEpochSecond(), now.getEpochSecond() + 3600);
+    }
+}
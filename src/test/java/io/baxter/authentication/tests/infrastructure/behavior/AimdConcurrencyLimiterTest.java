@@ -0,0 +1,135 @@
+package io.baxter.authentication.tests.infrastructure.behavior;
+
+import io.baxter.authentication.infrastructure.behavior.exceptions.ServiceOverloadedException;
+import io.baxter.authentication.infrastructure.behavior.limits.AimdConcurrencyLimiter;
+import org.junit.jupiter.api.*;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AimdConcurrencyLimiterTest {
+    private static final long THRESHOLD_NANOS = 100;
+
+    private final AtomicLong clock = new AtomicLong();
+    private AimdConcurrencyLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        limiter = new AimdConcurrencyLimiter(2, 1, 4, 0.5, THRESHOLD_NANOS, 2, clock::get);
+    }
+
+    @Test
+    @DisplayName("tryAcquire() should reject and count requests once the limit is reached")
+    void tryAcquireShouldRejectWhenLimitReached() {
+        // Act
+        var first = limiter.tryAcquire();
+        var second = limiter.tryAcquire();
+        var third = limiter.tryAcquire();
+
+        // Assert
+        assertThat(first).isPresent();
+        assertThat(second).isPresent();
+        assertThat(third).isEmpty();
+        assertThat(limiter.getInFlight()).isEqualTo(2);
+        assertThat(limiter.getRejected()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("the limit should grow additively when fully used requests complete under the latency threshold")
+    void limitShouldIncreaseOnFastSuccess() {
+        // Arrange
+        var first = limiter.tryAcquire().orElseThrow();
+        var second = limiter.tryAcquire().orElseThrow();
+        clock.addAndGet(THRESHOLD_NANOS / 2);
+
+        // Act
+        first.success();
+        second.success();
+
+        // Assert
+        assertThat(limiter.getLimit()).isEqualTo(3);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    @DisplayName("the limit should back off multiplicatively on slow or dropped requests but never below the minimum")
+    void limitShouldDecreaseOnSlowOrDroppedRequests() {
+        // Arrange
+        var slow = limiter.tryAcquire().orElseThrow();
+        var dropped = limiter.tryAcquire().orElseThrow();
+        clock.addAndGet(THRESHOLD_NANOS * 2);
+
+        // Act
+        slow.success();
+        dropped.dropped();
+
+        // Assert
+        assertThat(limiter.getLimit()).isEqualTo(1);
+        assertThat(limiter.getRejected()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("releasing a permit twice should only free one slot")
+    void permitShouldOnlyReleaseOnce() {
+        // Arrange
+        var permit = limiter.tryAcquire().orElseThrow();
+        limiter.tryAcquire().orElseThrow();
+
+        // Act
+        permit.release();
+        permit.release();
+
+        // Assert
+        assertThat(limiter.getInFlight()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("admit() should fail fast with a retry hint when there is no capacity")
+    void admitShouldReturnServiceOverloadedWhenSaturated() {
+        // Arrange
+        limiter.tryAcquire();
+        limiter.tryAcquire();
+
+        // Act
+        var result = limiter.admit(Mono.just("work"));
+
+        // Assert
+        StepVerifier.create(result)
+                .expectErrorMatches(exception ->
+                        exception instanceof ServiceOverloadedException overloaded && overloaded.getRetryAfterSeconds() == 2)
+                .verify();
+    }
+
+    @Test
+    @DisplayName("admit() should treat downstream rejected execution as overload and release the permit")
+    void admitShouldMapRejectedExecutionToOverload() {
+        // Act
+        var result = limiter.admit(Mono.error(new RejectedExecutionException("queue full")));
+
+        // Assert
+        StepVerifier.create(result)
+                .expectError(ServiceOverloadedException.class)
+                .verify();
+
+        assertThat(limiter.getInFlight()).isZero();
+        assertThat(limiter.getRejected()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("admit() should release the permit once the work completes")
+    void admitShouldReleasePermitOnCompletion() {
+        // Act
+        var result = limiter.admit(Mono.just("work"));
+
+        // Assert
+        StepVerifier.create(result)
+                .expectNext("work")
+                .verifyComplete();
+
+        assertThat(limiter.getInFlight()).isZero();
+    }
+}
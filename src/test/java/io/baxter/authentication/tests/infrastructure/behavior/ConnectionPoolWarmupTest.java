@@ -0,0 +1,95 @@
+package io.baxter.authentication.tests.infrastructure.behavior;
+
+import io.baxter.authentication.infrastructure.behavior.database.*;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.spi.*;
+import org.junit.jupiter.api.*;
+import org.mockito.Mockito;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConnectionPoolWarmupTest {
+    private final ConnectionPool pool = Mockito.mock(ConnectionPool.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    @DisplayName("warmup() should open the pool's initial connections through the acquire timer")
+    void warmupShouldWarmWrappedPool() {
+        // Arrange
+        Mockito.when(pool.warmup()).thenReturn(Mono.just(10));
+        var warmup = new ConnectionPoolWarmup(new TimedConnectionFactory(pool, "connectionFactory", meterRegistry), Duration.ofSeconds(1));
+
+        // Act
+        warmup.warmup();
+
+        // Assert
+        Mockito.verify(pool).warmup();
+    }
+
+    @Test
+    @DisplayName("warmup() should leave a pool it cannot warm in time to connect on demand")
+    void warmupShouldNotFailStartupWhenDatabaseIsUnreachable() {
+        // Arrange
+        Mockito.when(pool.warmup()).thenReturn(Mono.never());
+        var warmup = new ConnectionPoolWarmup(pool, Duration.ofMillis(50));
+
+        // Act / Assert
+        Assertions.assertDoesNotThrow(warmup::warmup);
+    }
+
+    @Test
+    @DisplayName("warmup() should skip connection factories that are not pooled")
+    void warmupShouldSkipUnpooledFactories() {
+        // Arrange
+        var factory = Mockito.mock(ConnectionFactory.class);
+        var warmup = new ConnectionPoolWarmup(factory, Duration.ofSeconds(1));
+
+        // Act
+        warmup.warmup();
+
+        // Assert
+        Mockito.verifyNoInteractions(factory);
+    }
+
+    @Test
+    @DisplayName("warmup() should warm the pool of every user shard")
+    void warmupShouldWarmEveryShard() {
+        // Arrange
+        var shardPool = Mockito.mock(ConnectionPool.class);
+        Mockito.when(pool.warmup()).thenReturn(Mono.just(10));
+        Mockito.when(shardPool.warmup()).thenReturn(Mono.just(10));
+        var sharded = new ShardRoutingConnectionFactory("primary", pool, Map.of("shard-2", new TimedConnectionFactory(shardPool, "shard-2", meterRegistry)));
+        var warmup = new ConnectionPoolWarmup(sharded, Duration.ofSeconds(1));
+
+        // Act
+        warmup.warmup();
+
+        // Assert
+        Mockito.verify(pool).warmup();
+        Mockito.verify(shardPool).warmup();
+    }
+
+    @Test
+    @DisplayName("create() should record how long each connection took to acquire by outcome")
+    void createShouldRecordAcquireLatency() {
+        // Arrange
+        var connection = Mockito.mock(Connection.class);
+        Mockito.when(pool.create()).thenReturn(Mono.just(connection), Mono.error(new IllegalStateException("timed out")));
+        var factory = new TimedConnectionFactory(pool, "connectionFactory", meterRegistry);
+
+        // Act
+        StepVerifier.create(factory.create()).expectNext(connection).verifyComplete();
+        StepVerifier.create(factory.create()).verifyError(IllegalStateException.class);
+
+        // Assert
+        assertThat(meterRegistry.get("r2dbc.pool.acquire").tag("outcome", "success").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("r2dbc.pool.acquire").tag("outcome", "error").timer().count()).isEqualTo(1);
+        assertThat(factory.unwrap()).isSameAs(pool);
+    }
+}
@@ -0,0 +1,76 @@
+package io.baxter.authentication.tests.infrastructure.behavior;
+
+import io.baxter.authentication.infrastructure.behavior.redis.ConsistentHashRing;
+import org.junit.jupiter.api.*;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConsistentHashRingTest {
+    private static final int KEYS = 100_000;
+    private static final int VIRTUAL_NODES = 160;
+
+    @Test
+    @DisplayName("nodeFor() should spread keys evenly over the nodes")
+    void nodeForShouldBalanceKeys() {
+        // Arrange
+        var ring = ring(4);
+
+        // Act
+        var counts = IntStream.range(0, KEYS)
+                .mapToObj(key -> ring.nodeFor("user-" + key))
+                .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+
+        // Assert
+        assertThat(counts).hasSize(4);
+        assertThat(counts.values()).allSatisfy(count -> assertThat(count).isBetween(KEYS / 4 * 8 / 10L, KEYS / 4 * 12 / 10L));
+    }
+
+    @Test
+    @DisplayName("adding a fifth node should only move keys to it, about a fifth of them")
+    void addingNodeShouldMoveAboutOneNth() {
+        // Arrange
+        var before = ring(4);
+        var after = ring(5);
+
+        // Act
+        var moved = IntStream.range(0, KEYS)
+                .mapToObj(key -> "user-" + key)
+                .filter(key -> !before.nodeFor(key).equals(after.nodeFor(key)))
+                .toList();
+
+        // Assert
+        assertThat(moved).allSatisfy(key -> assertThat(after.nodeFor(key)).isEqualTo("redis-4:6379"));
+        assertThat((double) moved.size() / KEYS).isBetween(0.15, 0.25);
+    }
+
+    @Test
+    @DisplayName("nodeFor() should not depend on the order nodes were given in")
+    void nodeForShouldIgnoreNodeOrder() {
+        // Arrange
+        var nodes = new LinkedHashMap<String, String>();
+        for (int i = 3; i >= 0; i--){
+            nodes.put("redis-" + i + ":6379", "redis-" + i + ":6379");
+        }
+
+        var reversed = new ConsistentHashRing<>(nodes, VIRTUAL_NODES);
+        var ring = ring(4);
+
+        // Act / Assert
+        for (long point = Integer.MIN_VALUE; point <= Integer.MAX_VALUE; point += 1 << 20){
+            assertThat(reversed.nodeFor((int) point)).isEqualTo(ring.nodeFor((int) point));
+        }
+    }
+
+    private static ConsistentHashRing<String> ring(int nodes) {
+        var named = new LinkedHashMap<String, String>();
+        for (int i = 0; i < nodes; i++){
+            named.put("redis-" + i + ":6379", "redis-" + i + ":6379");
+        }
+
+        return new ConsistentHashRing<>(named, VIRTUAL_NODES);
+    }
+}
@@ -0,0 +1,64 @@
+package io.baxter.authentication.tests.infrastructure.behavior;
+
+import io.baxter.authentication.infrastructure.behavior.sessions.ExpiringIdSet;
+import org.junit.jupiter.api.*;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExpiringIdSetTest {
+    private final long now = Instant.parse("2025-11-08T12:00:00Z").toEpochMilli();
+
+    @Test
+    @DisplayName("add() should only accept an id once while it is live")
+    void addShouldAcceptIdOnce() {
+        // Arrange
+        var set = new ExpiringIdSet(4);
+
+        // Act / Assert
+        assertThat(set.add(42L, now + 60_000, now)).isTrue();
+        assertThat(set.add(42L, now + 60_000, now + 1_000)).isFalse();
+        assertThat(set.contains(42L, now + 59_000)).isTrue();
+        assertThat(set.contains(42L, now + 61_000)).isFalse();
+        assertThat(set.add(42L, now + 120_000, now + 61_000)).isTrue();
+    }
+
+    @Test
+    @DisplayName("add() should keep every id when growing past its initial size")
+    void addShouldKeepIdsWhenGrowing() {
+        // Arrange
+        var set = new ExpiringIdSet(4);
+
+        // Act
+        for (long id = 1; id <= 1_000; id++){
+            set.add(id * 7_919, now + 10_000, now);
+        }
+
+        // Assert
+        assertThat(set.size()).isEqualTo(1_000);
+        assertThat(set.memoryBytes()).isLessThanOrEqualTo(2_048L * 12);
+        for (long id = 1; id <= 1_000; id++){
+            assertThat(set.contains(id * 7_919, now)).isTrue();
+        }
+
+        assertThat(set.contains(3L, now)).isFalse();
+    }
+
+    @Test
+    @DisplayName("copyLiveTo() should copy live ids only")
+    void copyLiveToShouldSkipExpiredIds() {
+        // Arrange
+        var set = new ExpiringIdSet(4);
+        set.add(1L, now + 1_000, now);
+        set.add(2L, now + 60_000, now);
+        var target = new ExpiringIdSet(4);
+
+        // Act
+        set.copyLiveTo(target, now + 5_000);
+
+        // Assert
+        assertThat(target.contains(1L, now + 5_000)).isFalse();
+        assertThat(target.contains(2L, now + 5_000)).isTrue();
+    }
+}
@@ -73,6 +73,22 @@ class GlobalExceptionHandlerTest {
                 .verifyComplete();
     }
 
+    @Test
+    void serviceOverloadedExceptionShouldReturnServiceUnavailableWithRetryAfter(){
+        // Arrange
+        ServiceOverloadedException exception = new ServiceOverloadedException(3);
+
+        // Act
+        Mono<ResponseEntity<AuthServiceErrorResponse>> response = handler.handleServiceOverloaded(exception);
+
+        // Assert
+        StepVerifier.create(response)
+                .expectNextMatches(responseEntity ->
+                        validateErrorResponse(responseEntity, HttpStatus.SERVICE_UNAVAILABLE, "message", "Service is at capacity, retry later") &&
+                        "3".equals(responseEntity.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)))
+                .verifyComplete();
+    }
+
     @Test
     void webExchangeBindExceptionExceptionShouldReturnBadRequest(){
         // Arrange
@@ -0,0 +1,74 @@
+package io.baxter.authentication.tests.infrastructure.behavior;
+
+import io.baxter.authentication.infrastructure.behavior.sessions.HierarchicalTimingWheel;
+import org.junit.jupiter.api.*;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HierarchicalTimingWheelTest {
+    private static final long TICK_MS = 1_000;
+
+    @Test
+    @DisplayName("advance() should fire every item at its deadline tick, across levels, and never early")
+    void advanceShouldFireItemsAtTheirDeadline() {
+        // Arrange
+        var wheel = new HierarchicalTimingWheel<Long>(TICK_MS, 4, 3, 0);
+        var fired = new HashMap<Long, Long>();
+        var deadlines = List.of(1_000L, 3_500L, 4_000L, 9_000L, 17_000L, 63_000L);
+        for (var deadline : deadlines){
+            wheel.schedule(deadline, deadline);
+        }
+
+        // Act
+        for (long now = 0; now <= 64_000; now += TICK_MS){
+            var at = now;
+            wheel.advance(now, deadline -> fired.put(deadline, at));
+        }
+
+        // Assert
+        assertThat(fired).hasSize(deadlines.size());
+        for (var deadline : deadlines){
+            assertThat(fired.get(deadline)).isGreaterThanOrEqualTo(deadline).isLessThan(deadline + TICK_MS);
+        }
+
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("deadlines beyond the top level should be parked and still fire on time")
+    void advanceShouldFireDeadlinesBeyondTheWheelRange() {
+        // Arrange
+        var wheel = new HierarchicalTimingWheel<String>(TICK_MS, 4, 2, 0);
+        var fired = new ArrayList<Long>();
+        wheel.schedule("far", 100_000);
+
+        // Act
+        for (long now = 0; now <= 100_000; now += TICK_MS){
+            var at = now;
+            wheel.advance(now, item -> fired.add(at));
+        }
+
+        // Assert
+        assertThat(fired).containsExactly(100_000L);
+    }
+
+    @Test
+    @DisplayName("advance() should catch up on every tick it missed in one call")
+    void advanceShouldCatchUpAfterAPause() {
+        // Arrange
+        var wheel = new HierarchicalTimingWheel<Integer>(TICK_MS, 8, 3, 0);
+        var fired = new ArrayList<Integer>();
+        for (int i = 1; i <= 100; i++){
+            wheel.schedule(i, i * TICK_MS);
+        }
+
+        // Act
+        wheel.advance(50_000, fired::add);
+
+        // Assert
+        assertThat(fired).hasSize(50).allMatch(item -> item <= 50);
+        assertThat(wheel.size()).isEqualTo(50);
+    }
+}
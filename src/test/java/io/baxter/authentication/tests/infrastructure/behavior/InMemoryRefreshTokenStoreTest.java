@@ -0,0 +1,132 @@
+package io.baxter.authentication.tests.infrastructure.behavior;
+
+import io.baxter.authentication.data.cache.RoleCatalog;
+import io.baxter.authentication.data.models.RoleDataModel;
+import io.baxter.authentication.infrastructure.behavior.redis.*;
+import io.baxter.authentication.infrastructure.behavior.sessions.InMemoryRefreshTokenStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.*;
+import reactor.core.publisher.*;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.*;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemoryRefreshTokenStoreTest {
+    private final Instant start = Instant.parse("2025-11-08T12:00:00Z");
+    private final RefreshTokenPolicy policy = new RefreshTokenPolicy(Duration.ofHours(1).toMillis());
+    private final String testUserName = "test-user";
+
+    private InMemoryRefreshTokenStore store;
+
+    @BeforeEach
+    void setUp() {
+        var roleCatalog = new RoleCatalog(null, Duration.ofMinutes(5));
+        roleCatalog.update(List.of(new RoleDataModel(1, "ROLE_USER")));
+
+        store = new InMemoryRefreshTokenStore(
+                roleCatalog,
+                policy,
+                Clock.fixed(start, ZoneOffset.UTC),
+                new SimpleMeterRegistry(),
+                4,
+                Duration.ofSeconds(1));
+    }
+
+    @Test
+    @DisplayName("rotate() should redeem a token once and make its replacement redeemable")
+    void rotateShouldRedeemOnce() {
+        // Arrange
+        var first = issue(start);
+
+        // Act / Assert
+        var rotation = store.rotate(first, start.plusSeconds(10)).block();
+        assertThat(rotation).isNotNull();
+        assertThat(rotation.redeemed().getUserName()).isEqualTo(testUserName);
+        assertThat(rotation.redeemed().getRoles()).containsExactly("ROLE_USER");
+
+        StepVerifier.create(store.rotate(first, start.plusSeconds(20)))
+                .verifyComplete();
+
+        StepVerifier.create(store.rotate(rotation.refreshToken(), start.plusSeconds(30)))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        assertThat(store.size()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("concurrent rotations of the same token should let exactly one caller redeem it")
+    void rotateShouldAllowOneConcurrentWinner() {
+        // Arrange
+        var tokenId = issue(start);
+
+        // Act
+        var redeemed = Flux.range(0, 32)
+                .parallel(8)
+                .runOn(Schedulers.parallel())
+                .flatMap(attempt -> store.rotate(tokenId, start.plusSeconds(1)))
+                .sequential()
+                .count()
+                .block();
+
+        // Assert
+        assertThat(redeemed).isEqualTo(1);
+        assertThat(store.size()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("expire() should drop tokens and index entries once their lifetime has passed")
+    void expireShouldDropExpiredTokens() {
+        // Arrange
+        var tokenId = issue(start);
+        for (int i = 0; i < 100; i++){
+            issue(start.plusSeconds(1));
+        }
+
+        // Act
+        store.expire(start.plus(Duration.ofHours(1)));
+
+        // Assert
+        assertThat(store.size()).isEqualTo(100);
+        StepVerifier.create(store.rotate(tokenId, start.plus(Duration.ofHours(1))))
+                .verifyComplete();
+
+        store.expire(start.plus(Duration.ofHours(1)).plusSeconds(1));
+        assertThat(store.size()).isZero();
+        StepVerifier.create(store.sessions(testUserName, start)).verifyComplete();
+    }
+
+    @Test
+    @DisplayName("sessions, revoke and revokeAll should only ever touch the given user's tokens")
+    void revokeShouldBeScopedToTheUser() {
+        // Arrange
+        var kept = issue(start);
+        var revoked = issue(start);
+        var other = store.issue(policy.issue("other-user", List.of("ROLE_USER"), start), start).block();
+
+        // Act
+        var revokedOne = store.revoke(testUserName, RefreshTokenSession.idFor(revoked), start).block();
+        var revokedOther = store.revoke("other-user", RefreshTokenSession.idFor(kept), start).block();
+
+        // Assert
+        assertThat(other).isNotEmpty();
+        assertThat(revokedOne).isTrue();
+        assertThat(revokedOther).isFalse();
+        StepVerifier.create(store.sessions(testUserName, start))
+                .expectNextMatches(session -> session.getId().equals(RefreshTokenSession.idFor(kept)))
+                .verifyComplete();
+
+        StepVerifier.create(store.revokeAll(testUserName, start))
+                .expectNext(1L)
+                .verifyComplete();
+        assertThat(store.size()).isEqualTo(1);
+    }
+
+    private String issue(Instant at) {
+        return store.issue(policy.issue(testUserName, List.of("ROLE_USER"), at), at).block();
+    }
+}
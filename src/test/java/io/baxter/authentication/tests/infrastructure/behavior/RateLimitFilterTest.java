@@ -0,0 +1,111 @@
+package io.baxter.authentication.tests.infrastructure.behavior;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.baxter.authentication.infrastructure.behavior.limits.*;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.*;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.*;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.*;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+class RateLimitFilterTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<String> handled = new ArrayList<>();
+
+    private final RateLimitFilter filter = new RateLimitFilter(
+            RateLimitRule.parse("/api/auth/login ip 3/PT1M, /api/auth/login username 2/PT1M"),
+            new LocalRateLimiter(Clock.fixed(Instant.parse("2026-01-01T00:00:30Z"), ZoneOffset.UTC), 4, 1 << 12),
+            new ObjectMapper(),
+            meterRegistry);
+
+    // records the body the handler would have read
+    private final WebFilterChain chain = exchange -> DataBufferUtils.join(exchange.getRequest().getBody())
+            .map(buffer -> buffer.toString(StandardCharsets.UTF_8))
+            .defaultIfEmpty("")
+            .doOnNext(handled::add)
+            .then();
+
+    @Test
+    @DisplayName("filter() should answer 429 with Retry-After once a username is over its limit, from any address")
+    void filterShouldLimitUsername() {
+        // Act
+        var statuses = List.of(
+                login("10.0.0.1", "user@test.com"),
+                login("10.0.0.2", "User@Test.com"),
+                login("10.0.0.3", "user@test.com"));
+
+        // Assert
+        assertThat(statuses.subList(0, 2)).allSatisfy(exchange -> assertThat(exchange.getResponse().getStatusCode()).isNull());
+        var rejected = statuses.get(2).getResponse();
+        assertThat(rejected.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(rejected.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("30");
+        StepVerifier.create(rejected.getBodyAsString())
+                .assertNext(body -> assertThat(body).contains("Too many requests"))
+                .verifyComplete();
+        assertThat(meterRegistry.get("rate-limit.rejected").tag("rule", "/api/auth/login:username").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("filter() should limit an address across usernames and still hand the body to the handler")
+    void filterShouldLimitAddressAndReplayBody() {
+        // Act
+        var statuses = List.of(
+                login("10.0.0.1", "first@test.com"),
+                login("10.0.0.1", "second@test.com"),
+                login("10.0.0.1", "third@test.com"),
+                login("10.0.0.1", "fourth@test.com"));
+
+        // Assert
+        assertThat(statuses.getLast().getResponse().getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(handled).hasSize(3).allSatisfy(body -> assertThat(body).startsWith("{\"userName\""));
+    }
+
+    @Test
+    @DisplayName("filter() should pass through routes without rules")
+    void filterShouldIgnoreOtherRoutes() {
+        // Arrange
+        var exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/api/auth/refresh")
+                .remoteAddress(new InetSocketAddress("10.0.0.1", 5000))
+                .body("{}"));
+
+        // Act
+        for (int attempt = 0; attempt < 10; attempt++){
+            filter.filter(exchange, chain).block();
+        }
+
+        // Assert
+        assertThat(exchange.getResponse().getStatusCode()).isNull();
+        assertThat(handled).hasSize(10);
+    }
+
+    @Test
+    @DisplayName("parse() should reject rules that are not <path> <ip|username> <permits>/<window>")
+    void parseShouldRejectMalformedRules() {
+        // Act / Assert
+        assertThat(RateLimitRule.parse("/api/auth/register ip 5/PT10S"))
+                .containsExactly(new RateLimitRule("/api/auth/register", RateLimitRule.Key.IP, 5, Duration.ofSeconds(10)));
+        assertThatThrownBy(() -> RateLimitRule.parse("/api/auth/register email 5/PT10S")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> RateLimitRule.parse("/api/auth/register ip 0/PT10S")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private MockServerWebExchange login(String address, String userName){
+        var exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/api/auth/login")
+                .remoteAddress(new InetSocketAddress(address, 5000))
+                .contentType(MediaType.APPLICATION_JSON)
+                .body("{\"userName\":\"" + userName + "\",\"password\":\"TestPassword123$$\"}"));
+
+        filter.filter(exchange, chain).block();
+        return exchange;
+    }
+}
@@ -0,0 +1,117 @@
+package io.baxter.authentication.tests.infrastructure.behavior;
+
+import io.baxter.authentication.infrastructure.behavior.database.*;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.spi.*;
+import org.junit.jupiter.api.*;
+import org.mockito.Mockito;
+import reactor.core.publisher.*;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class ReadWriteRoutingConnectionFactoryTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final Connection primaryConnection = Mockito.mock(Connection.class);
+    private final Connection firstReplicaConnection = Mockito.mock(Connection.class);
+    private final Connection secondReplicaConnection = Mockito.mock(Connection.class);
+
+    private DatabaseReplica firstReplica;
+    private ReadWriteRoutingConnectionFactory routing;
+
+    @BeforeEach
+    void setUp() {
+        firstReplica = new DatabaseReplica("replica-1", factory(firstReplicaConnection), meterRegistry);
+        var secondReplica = new DatabaseReplica("replica-2", factory(secondReplicaConnection), meterRegistry);
+
+        routing = new ReadWriteRoutingConnectionFactory(factory(primaryConnection), List.of(firstReplica, secondReplica), Duration.ofSeconds(5));
+    }
+
+    @Test
+    @DisplayName("create() should use the primary for anything not marked read only")
+    void createShouldUsePrimaryForWrites() {
+        // Act / Assert
+        StepVerifier.create(Mono.from(routing.create()))
+                .expectNext(primaryConnection)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("create() should spread read only queries over the replicas")
+    void createShouldRoundRobinReadsOverReplicas() {
+        // Act
+        var connections = Flux.range(0, 4)
+                .concatMap(attempt -> ReplicaRouting.readOnly(Mono.from(routing.create())))
+                .collectList()
+                .block();
+
+        // Assert
+        assertThat(connections).containsExactly(
+                firstReplicaConnection, secondReplicaConnection, firstReplicaConnection, secondReplicaConnection);
+    }
+
+    @Test
+    @DisplayName("create() should skip a replica that failed its health check and fall back to the primary when none are up")
+    void createShouldSkipUnhealthyReplicas() {
+        // Arrange
+        var failing = Mockito.mock(ConnectionFactory.class);
+        Mockito.when(failing.create()).thenAnswer(invocation -> Mono.error(new IllegalStateException("connection refused")));
+        var down = new DatabaseReplica("replica-down", failing, meterRegistry);
+        var routingWithDown = new ReadWriteRoutingConnectionFactory(factory(primaryConnection), List.of(down), Duration.ofSeconds(5));
+
+        // Act
+        down.checkHealth(Duration.ofSeconds(1)).block();
+
+        // Assert
+        assertThat(down.isUp()).isFalse();
+        assertThat(meterRegistry.get("database.replica.up").tag("replica", "replica-down").gauge().value()).isZero();
+        StepVerifier.create(ReplicaRouting.readOnly(Mono.from(routingWithDown.create())))
+                .expectNext(primaryConnection)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("stop() should end the replica health checks")
+    void stopShouldEndHealthChecks() {
+        // Arrange
+        var replicaFactory = factory(firstReplicaConnection);
+        var replica = new DatabaseReplica("replica-checked", replicaFactory, meterRegistry);
+        var checked = new ReadWriteRoutingConnectionFactory(factory(primaryConnection), List.of(replica), Duration.ofMillis(20));
+        checked.start();
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> Mockito.verify(replicaFactory, Mockito.atLeast(2)).create());
+
+        // Act
+        checked.stop();
+        Mockito.clearInvocations(replicaFactory);
+
+        // Assert
+        await().pollDelay(Duration.ofMillis(200)).untilAsserted(() -> Mockito.verify(replicaFactory, Mockito.never()).create());
+    }
+
+    @Test
+    @DisplayName("read() should keep a just written user on the primary, whatever the spelling, until the read your writes window passes")
+    void readYourWritesShouldPinRecentlyWrittenUsersToPrimary() {
+        // Arrange
+        var readYourWrites = new ReadYourWrites(Duration.ofMinutes(1));
+        var readOnly = Mono.deferContextual(context -> Mono.just(ReplicaRouting.isReadOnly(context)));
+
+        // Act
+        readYourWrites.wrote("New@Test.com");
+
+        // Assert
+        StepVerifier.create(readYourWrites.read("new@test.com", readOnly)).expectNext(false).verifyComplete();
+        StepVerifier.create(readYourWrites.read("néw@test.com", readOnly)).expectNext(false).verifyComplete();
+        StepVerifier.create(readYourWrites.read("other@test.com", readOnly)).expectNext(true).verifyComplete();
+    }
+
+    private static ConnectionFactory factory(Connection connection){
+        var factory = Mockito.mock(ConnectionFactory.class);
+        Mockito.lenient().doReturn(Mono.just(connection)).when(factory).create();
+        return factory;
+    }
+}
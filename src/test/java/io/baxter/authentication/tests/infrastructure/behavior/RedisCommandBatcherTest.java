@@ -0,0 +1,110 @@
+package io.baxter.authentication.tests.infrastructure.behavior;
+
+import io.baxter.authentication.infrastructure.behavior.redis.RedisCommandBatcher;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.*;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.test.StepVerifier;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.time.Duration;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(MockitoExtension.class)
+class RedisCommandBatcherTest {
+    private static final Duration WINDOW = Duration.ofMillis(10);
+
+    @Mock private StatefulRedisConnection<byte[], byte[]> mockConnection;
+    @Mock private RedisAsyncCommands<byte[], byte[]> mockCommands;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private VirtualTimeScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = VirtualTimeScheduler.create();
+        Mockito.lenient().when(mockConnection.async()).thenReturn(mockCommands);
+    }
+
+    @Test
+    @DisplayName("execute() should flush once the batch is full and complete every caller with its own result")
+    void executeShouldFlushWhenBatchFull() {
+        // Arrange
+        var batcher = new RedisCommandBatcher(mockConnection, 2, WINDOW, scheduler, System::nanoTime, meterRegistry);
+
+        // Act
+        var first = batcher.execute(commands -> new CompletedFuture<>("first")).block();
+        Mockito.verify(mockConnection, Mockito.never()).flushCommands();
+        var second = batcher.execute(commands -> new CompletedFuture<>("second")).block();
+
+        // Assert
+        assertThat(first).isEqualTo("first");
+        assertThat(second).isEqualTo("second");
+        Mockito.verify(mockConnection).setAutoFlushCommands(false);
+        Mockito.verify(mockConnection).flushCommands();
+        assertThat(meterRegistry.get("refresh-token.batching.size").summary().totalAmount()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("execute() should flush a partial batch once its window has passed")
+    void executeShouldFlushWhenWindowPasses() {
+        // Arrange
+        var batcher = new RedisCommandBatcher(mockConnection, 10, WINDOW, scheduler, System::nanoTime, meterRegistry);
+
+        // Act
+        StepVerifier.create(batcher.execute(commands -> new CompletedFuture<>(1L)))
+                .expectNext(1L)
+                .verifyComplete();
+        Mockito.verify(mockConnection, Mockito.never()).flushCommands();
+        scheduler.advanceTimeBy(WINDOW);
+
+        // Assert
+        Mockito.verify(mockConnection).flushCommands();
+        assertThat(meterRegistry.get("refresh-token.batching.size").summary().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("refresh-token.batching.queue-delay").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("the window of a batch that was already flushed for being full should not cut the next batch short")
+    void staleWindowShouldNotFlushNextBatch() {
+        // Arrange
+        var batcher = new RedisCommandBatcher(mockConnection, 2, WINDOW, scheduler, System::nanoTime, meterRegistry);
+        batcher.execute(commands -> new CompletedFuture<>(1L)).block();
+        batcher.execute(commands -> new CompletedFuture<>(2L)).block();
+
+        // Act
+        scheduler.advanceTimeBy(WINDOW.dividedBy(2));
+        batcher.execute(commands -> new CompletedFuture<>(3L)).block();
+        scheduler.advanceTimeBy(WINDOW.dividedBy(2));
+
+        // Assert
+        Mockito.verify(mockConnection, Mockito.times(1)).flushCommands();
+
+        scheduler.advanceTimeBy(WINDOW.dividedBy(2));
+        Mockito.verify(mockConnection, Mockito.times(2)).flushCommands();
+    }
+
+    // stands in for the future lettuce returns for a queued command
+    private static class CompletedFuture<T> extends CompletableFuture<T> implements RedisFuture<T> {
+        CompletedFuture(T value) {
+            complete(value);
+        }
+
+        @Override
+        public String getError() {
+            return null;
+        }
+
+        @Override
+        public boolean await(long timeout, TimeUnit unit) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package io.baxter.authentication.tests.infrastructure.behavior;
+
+import io.baxter.authentication.infrastructure.behavior.limits.*;
+import org.junit.jupiter.api.*;
+import org.mockito.Mockito;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.*;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RedisRateLimiterTest {
+    private final RateLimitRule rule = new RateLimitRule("/api/auth/login", RateLimitRule.Key.USERNAME, 10, Duration.ofMinutes(1));
+    private final ReactiveStringRedisTemplate redis = Mockito.mock(ReactiveStringRedisTemplate.class);
+    private final RedisRateLimiter limiter = new RedisRateLimiter(redis, Clock.fixed(Instant.parse("2026-01-01T00:00:15Z"), ZoneOffset.UTC));
+
+    @Test
+    @DisplayName("acquire() should check both windows of a key in one cluster slot without storing the key itself")
+    void acquireShouldRunScriptOnHashTaggedKeys() {
+        // Arrange
+        Mockito.when(redis.execute(Mockito.<RedisScript<Long>>any(), Mockito.<List<String>>any(), Mockito.<List<String>>any()))
+                .thenReturn(Flux.just(0L));
+
+        // Act / Assert
+        StepVerifier.create(limiter.acquire(rule, "user@test.com"))
+                .expectNext(Duration.ZERO)
+                .verifyComplete();
+
+        Mockito.verify(redis).execute(Mockito.<RedisScript<Long>>any(), Mockito.<List<String>>argThat(keys -> {
+            var tag = keys.getFirst().substring(keys.getFirst().indexOf('{'), keys.getFirst().indexOf('}') + 1);
+            return keys.size() == 2 && keys.getLast().startsWith(keys.getFirst().substring(0, keys.getFirst().indexOf('}') + 1))
+                    && tag.startsWith("{/api/auth/login:username:") && !tag.contains("user@test.com");
+        }), Mockito.<List<String>>argThat(args -> args.equals(List.of("10", "60000", "15000", "120000"))));
+    }
+
+    @Test
+    @DisplayName("acquire() should report the wait the script worked out when over the limit")
+    void acquireShouldReturnRetryAfterWhenRejected() {
+        // Arrange
+        Mockito.when(redis.execute(Mockito.<RedisScript<Long>>any(), Mockito.<List<String>>any(), Mockito.<List<String>>any()))
+                .thenReturn(Flux.just(51_000L));
+
+        // Act / Assert
+        StepVerifier.create(limiter.acquire(rule, "user@test.com"))
+                .expectNext(Duration.ofSeconds(51))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("acquire() should admit requests while redis is unreachable")
+    void acquireShouldFailOpen() {
+        // Arrange
+        Mockito.when(redis.execute(Mockito.<RedisScript<Long>>any(), Mockito.<List<String>>any(), Mockito.<List<String>>any()))
+                .thenReturn(Flux.error(new IllegalStateException("connection refused")));
+
+        // Act / Assert
+        StepVerifier.create(limiter.acquire(rule, "user@test.com"))
+                .assertNext(retryAfter -> assertThat(retryAfter).isZero())
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,125 @@
+package io.baxter.authentication.tests.infrastructure.behavior;
+
+import io.baxter.authentication.infrastructure.behavior.redis.*;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.*;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.core.*;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.*;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.*;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(MockitoExtension.class)
+class RedisRefreshTokenStoreTest {
+    private final String testUserName = "test-user";
+    private final String tokenId = "872bab23-6d67-4946-9144-07ecf0550134";
+    private final Instant now = Instant.parse("2025-11-08T12:00:00Z");
+
+    @Mock private ReactiveRedisTemplate<String, RefreshToken> mockRedis;
+    @Mock private ReactiveStringRedisTemplate mockStrings;
+    @Mock private ReactiveZSetOperations<String, String> mockZSetOps;
+
+    private RedisRefreshTokenStore store;
+
+    @BeforeEach
+    void setup(){
+        var shard = new RedisShard("default", mockRedis, mockStrings, Optional.empty(), new SimpleMeterRegistry());
+        var shards = new RedisShards(List.of(shard), 16, Duration.ofSeconds(5), List.of());
+        store = new RedisRefreshTokenStore(shards, new RefreshTokenPolicy(Duration.ofHours(1).toMillis()));
+    }
+
+    @Test
+    @DisplayName("rotate should pass the compact key, the legacy key and the replacement key to a single script call")
+    void rotateShouldRunOneScriptWithBothKeyFormats(){
+        // Arrange
+        var redeemed = new RefreshToken(testUserName, List.of("ROLE_USER"), new Date(), new Date());
+        var context = RedisSerializationContext.<String, RefreshToken>newSerializationContext(new RefreshTokenKeySerializer())
+                .value(new Jackson2JsonRedisSerializer<>(RefreshToken.class))
+                .build();
+
+        Mockito.when(mockRedis.getSerializationContext()).thenReturn(context);
+        Mockito.when(mockRedis.execute(
+                        Mockito.<RedisScript<RefreshToken>>any(),
+                        Mockito.anyList(),
+                        Mockito.anyList(),
+                        Mockito.any(),
+                        Mockito.<RedisElementReader<RefreshToken>>any()))
+                .thenReturn(Flux.just(redeemed));
+
+        // Act
+        var response = store.rotate(tokenId, now).block();
+
+        // Assert
+        assertThat(response).isNotNull();
+        assertThat(response.redeemed()).isSameAs(redeemed);
+        assertThat(response.refreshToken()).isNotEqualTo(tokenId);
+        assertThat(response.refreshToken()).startsWith(tokenId.substring(0, 8));
+
+        Mockito.verify(mockRedis).execute(
+                Mockito.<RedisScript<RefreshToken>>any(),
+                Mockito.eq(List.of(tokenId, "refresh_token:" + tokenId, response.refreshToken())),
+                Mockito.argThat((List<?> args) -> args.size() == 6 &&
+                        text(args.get(0)).equals(String.valueOf(now.toEpochMilli())) &&
+                        text(args.get(1)).equals(String.valueOf(now.plus(Duration.ofHours(1)).toEpochMilli())) &&
+                        text(args.get(2)).equals("3600") &&
+                        text(args.get(5)).equals("refresh_sessions:")),
+                Mockito.any(),
+                Mockito.<RedisElementReader<RefreshToken>>any());
+    }
+
+    @Test
+    @DisplayName("sessions should list unexpired entries of the user's index without revealing the token ids")
+    void sessionsShouldListSessionIdsDerivedFromTokens(){
+        // Arrange
+        var expiresAt = now.plus(Duration.ofMinutes(30));
+
+        Mockito.when(mockStrings.opsForZSet()).thenReturn(mockZSetOps);
+        Mockito.when(mockZSetOps.rangeByScoreWithScores(Mockito.eq("refresh_sessions:" + testUserName), Mockito.<Range<Double>>any()))
+                .thenReturn(Flux.just(ZSetOperations.TypedTuple.of(tokenId, (double) expiresAt.toEpochMilli())));
+
+        // Act
+        var response = store.sessions(testUserName, now);
+
+        // Assert
+        StepVerifier.create(response)
+                .expectNextMatches(session ->
+                        session.getId().equals(RefreshTokenSession.idFor(tokenId)) &&
+                        !session.getId().contains(tokenId) &&
+                        session.getExpiresAt().toInstant().equals(expiresAt))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("revoke should report false without touching redis keys when the session is not in the user's index")
+    void revokeShouldReturnFalseWhenSessionNotFound(){
+        // Arrange
+        Mockito.when(mockStrings.opsForZSet()).thenReturn(mockZSetOps);
+        Mockito.when(mockZSetOps.rangeByScoreWithScores(Mockito.eq("refresh_sessions:" + testUserName), Mockito.<Range<Double>>any()))
+                .thenReturn(Flux.just(ZSetOperations.TypedTuple.of(tokenId, (double) now.plusSeconds(60).toEpochMilli())));
+
+        // Act
+        var response = store.revoke(testUserName, "not-a-session", now);
+
+        // Assert
+        StepVerifier.create(response)
+                .expectNext(false)
+                .verifyComplete();
+
+        Mockito.verifyNoInteractions(mockRedis);
+    }
+
+    private static String text(Object arg){
+        return StandardCharsets.UTF_8.decode(((ByteBuffer) arg).duplicate()).toString();
+    }
+}
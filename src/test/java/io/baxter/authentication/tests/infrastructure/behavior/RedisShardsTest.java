@@ -0,0 +1,49 @@
+package io.baxter.authentication.tests.infrastructure.behavior;
+
+import io.baxter.authentication.infrastructure.behavior.redis.*;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.*;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RedisShardsTest {
+    private RedisShards shards;
+
+    @BeforeEach
+    void setUp() {
+        var meterRegistry = new SimpleMeterRegistry();
+        var nodes = IntStream.range(0, 4)
+                .mapToObj(node -> new RedisShard("redis-" + node + ":6379", null, null, Optional.empty(), meterRegistry))
+                .toList();
+
+        shards = new RedisShards(nodes, 160, Duration.ofSeconds(5), List.of());
+    }
+
+    @Test
+    @DisplayName("token ids and their replacements should route to the shard owning the user")
+    void tokenIdsShouldRouteToTheUsersShard() {
+        for (int user = 0; user < 1_000; user++){
+            // Arrange
+            var userName = "user-" + user;
+
+            // Act
+            var tokenId = shards.newTokenId(userName);
+            var replacement = shards.replacementTokenId(tokenId);
+
+            // Assert
+            assertThat(UUID.fromString(tokenId).version()).isEqualTo(4);
+            assertThat(shards.forToken(tokenId)).containsSame(shards.forUser(userName));
+            assertThat(shards.forToken(replacement)).containsSame(shards.forUser(userName));
+        }
+    }
+
+    @Test
+    @DisplayName("forToken() should find no shard for values that are not token ids")
+    void forTokenShouldRejectNonUuids() {
+        assertThat(shards.forToken("not-a-token")).isEmpty();
+    }
+}
@@ -0,0 +1,77 @@
+package io.baxter.authentication.tests.infrastructure.behavior;
+
+import io.baxter.authentication.infrastructure.behavior.sessions.RefreshTokenCipher;
+import org.junit.jupiter.api.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+class RefreshTokenCipherTest {
+    private final byte[] currentKey = key(1);
+    private final byte[] previousKey = key(2);
+    private final byte[] plaintext = "refresh-token".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    @DisplayName("open() should return what seal() was given")
+    void openShouldReturnSealedPlaintext() {
+        // Arrange
+        var cipher = new RefreshTokenCipher(List.of(currentKey));
+
+        // Act
+        var sealed = cipher.seal(plaintext);
+
+        // Assert
+        assertThat(cipher.open(sealed)).hasValueSatisfying(opened -> assertThat(opened).isEqualTo(plaintext));
+        assertThat(cipher.seal(plaintext)).isNotEqualTo(sealed);
+    }
+
+    @Test
+    @DisplayName("open() should reject tampered, truncated and malformed tokens")
+    void openShouldRejectTamperedTokens() {
+        // Arrange
+        var cipher = new RefreshTokenCipher(List.of(currentKey));
+        var sealed = Base64.getUrlDecoder().decode(cipher.seal(plaintext));
+        sealed[sealed.length - 1] ^= 1;
+
+        // Act / Assert
+        assertThat(cipher.open(Base64.getUrlEncoder().withoutPadding().encodeToString(sealed))).isEmpty();
+        assertThat(cipher.open(cipher.seal(plaintext).substring(0, 20))).isEmpty();
+        assertThat(cipher.open("not a token!")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("open() should accept tokens sealed with a previous key while sealing with the first")
+    void openShouldAcceptPreviousKeys() {
+        // Arrange
+        var previous = new RefreshTokenCipher(List.of(previousKey));
+        var rotated = new RefreshTokenCipher(List.of(currentKey, previousKey));
+        var current = new RefreshTokenCipher(List.of(currentKey));
+
+        // Act
+        var sealedBefore = previous.seal(plaintext);
+        var sealedAfter = rotated.seal(plaintext);
+
+        // Assert
+        assertThat(rotated.open(sealedBefore)).isPresent();
+        assertThat(current.open(sealedAfter)).isPresent();
+        assertThat(current.open(sealedBefore)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("the cipher should only accept 256 bit keys")
+    void cipherShouldRequire256BitKeys() {
+        assertThatThrownBy(() -> new RefreshTokenCipher(List.of(new byte[16])))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        assertThatThrownBy(() -> new RefreshTokenCipher(List.of()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static byte[] key(int seed) {
+        var key = new byte[32];
+        new Random(seed).nextBytes(key);
+        return key;
+    }
+}
@@ -0,0 +1,129 @@
+package io.baxter.authentication.tests.infrastructure.behavior;
+
+import io.baxter.authentication.data.cache.RoleCatalog;
+import io.baxter.authentication.data.models.RoleDataModel;
+import io.baxter.authentication.infrastructure.behavior.redis.*;
+import org.junit.jupiter.api.*;
+import org.springframework.data.redis.serializer.*;
+
+import java.time.*;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+class RefreshTokenCodecTest {
+    private final Date issuedAt = Date.from(Instant.parse("2025-11-08T12:00:00Z"));
+    private final Date expiresAt = Date.from(Instant.parse("2025-11-08T13:00:00Z"));
+
+    private RoleCatalog roleCatalog;
+    private RefreshTokenCodec codec;
+
+    @BeforeEach
+    void setup(){
+        roleCatalog = new RoleCatalog(null, Duration.ofMinutes(5));
+        roleCatalog.update(List.of(new RoleDataModel(1, "ROLE_USER"), new RoleDataModel(2, "ROLE_ADMIN")));
+        codec = new RefreshTokenCodec(roleCatalog);
+    }
+
+    @Test
+    @DisplayName("a token should survive a round trip, with known roles written as ids and unknown roles as names")
+    void serializeShouldRoundTrip(){
+        // Arrange
+        var token = new RefreshToken("tëst-user", List.of("ROLE_USER", "ROLE_NEW", "ROLE_ADMIN"), issuedAt, expiresAt);
+
+        // Act
+        var bytes = codec.serialize(token);
+        var decoded = codec.deserialize(bytes);
+
+        // Assert
+        assertThat(bytes[0]).isEqualTo(RefreshTokenCodec.VERSION);
+        assertThat(decoded.getUserName()).isEqualTo("tëst-user");
+        assertThat(decoded.getRoles()).containsExactly("ROLE_USER", "ROLE_NEW", "ROLE_ADMIN");
+        assertThat(decoded.getIssuedAt()).isEqualTo(issuedAt);
+        assertThat(decoded.getExpiresAt()).isEqualTo(expiresAt);
+    }
+
+    @Test
+    @DisplayName("the binary encoding should be a fraction of the size of the json encoding")
+    void serializeShouldBeSmallerThanJson(){
+        // Arrange
+        var token = new RefreshToken("test-user@test.com", List.of("ROLE_USER", "ROLE_ADMIN"), issuedAt, expiresAt);
+
+        // Act
+        var binary = codec.serialize(token);
+        var json = new Jackson2JsonRedisSerializer<>(RefreshToken.class).serialize(token);
+
+        // Assert
+        assertThat(binary.length).isEqualTo(33);
+        assertThat(binary.length * 3).isLessThan(json.length);
+    }
+
+    @Test
+    @DisplayName("values written by the previous json serializer should still be readable")
+    void deserializeShouldReadLegacyJson(){
+        // Arrange
+        var token = new RefreshToken("test-user", List.of("ROLE_USER"), issuedAt, expiresAt);
+        var json = new Jackson2JsonRedisSerializer<>(RefreshToken.class).serialize(token);
+
+        // Act
+        var decoded = codec.deserialize(json);
+
+        // Assert
+        assertThat(decoded.getUserName()).isEqualTo("test-user");
+        assertThat(decoded.getRoles()).containsExactly("ROLE_USER");
+        assertThat(decoded.getExpiresAt()).isEqualTo(expiresAt);
+    }
+
+    @Test
+    @DisplayName("a role id that is no longer in the catalog should fail the read rather than drop the role")
+    void deserializeShouldRejectRemovedRoles(){
+        // Arrange
+        var bytes = codec.serialize(new RefreshToken("test-user", List.of("ROLE_USER", "ROLE_ADMIN"), issuedAt, expiresAt));
+        roleCatalog.update(List.of(new RoleDataModel(1, "ROLE_USER")));
+
+        // Act / Assert
+        assertThatThrownBy(() -> codec.deserialize(bytes))
+                .isInstanceOf(SerializationException.class)
+                .hasMessageContaining("role id 2");
+    }
+
+    @Test
+    @DisplayName("role ids should not be read before the role catalog has loaded")
+    void deserializeShouldRejectRoleIdsBeforeCatalogLoads(){
+        // Arrange
+        var bytes = codec.serialize(new RefreshToken("test-user", List.of("ROLE_USER"), issuedAt, expiresAt));
+        var unloaded = new RefreshTokenCodec(new RoleCatalog(null, Duration.ofMinutes(5)));
+
+        // Act / Assert
+        assertThatThrownBy(() -> unloaded.deserialize(bytes)).isInstanceOf(SerializationException.class);
+    }
+
+    @Test
+    @DisplayName("unknown versions and truncated values should be rejected with a serialization exception")
+    void deserializeShouldRejectMalformedValues(){
+        // Arrange
+        var bytes = codec.serialize(new RefreshToken("test-user", List.of("ROLE_USER"), issuedAt, expiresAt));
+        var truncated = Arrays.copyOf(bytes, bytes.length - 4);
+
+        // Act / Assert
+        assertThatThrownBy(() -> codec.deserialize(new byte[] { 9, 1, 1 })).isInstanceOf(SerializationException.class);
+        assertThatThrownBy(() -> codec.deserialize(truncated)).isInstanceOf(SerializationException.class);
+    }
+
+    @Test
+    @DisplayName("uuid keys should be stored as 16 raw bytes and legacy keys as text")
+    void keySerializerShouldCompactUuids(){
+        // Arrange
+        var serializer = new RefreshTokenKeySerializer();
+        var id = "872bab23-6d67-4946-9144-07ecf0550134";
+
+        // Act
+        var compact = serializer.serialize(id);
+        var legacy = serializer.serialize("refresh_token:" + id);
+
+        // Assert
+        assertThat(compact).hasSize(16);
+        assertThat(serializer.deserialize(compact)).isEqualTo(id);
+        assertThat(serializer.deserialize(legacy)).isEqualTo("refresh_token:" + id);
+    }
+}
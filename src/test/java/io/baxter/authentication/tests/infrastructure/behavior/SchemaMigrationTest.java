@@ -0,0 +1,102 @@
+package io.baxter.authentication.tests.infrastructure.behavior;
+
+import io.baxter.authentication.infrastructure.behavior.database.*;
+import io.r2dbc.spi.ConnectionFactory;
+import org.junit.jupiter.api.*;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+class SchemaMigrationTest {
+    @Test
+    @DisplayName("parse() should read the version and description from the file name and ignore line endings in the checksum")
+    void parseShouldReadFileNameAndNormalizeChecksum() {
+        // Act
+        var unix = SchemaMigration.parse("V12__index_users_username.sql", "SELECT 1;\nSELECT 2;\n");
+        var windows = SchemaMigration.parse("V12__index_users_username.sql", "SELECT 1;\r\nSELECT 2;\r\n");
+        var changed = SchemaMigration.parse("V12__index_users_username.sql", "SELECT 1;\nSELECT 3;\n");
+
+        // Assert
+        assertThat(unix.version()).isEqualTo(12);
+        assertThat(unix.description()).isEqualTo("index users username");
+        assertThat(unix.checksum()).hasSize(64).isEqualTo(windows.checksum()).isNotEqualTo(changed.checksum());
+    }
+
+    @Test
+    @DisplayName("parse() should reject scripts that are not named V<version>__<description>.sql")
+    void parseShouldRejectUnversionedScripts() {
+        // Act / Assert
+        assertThatThrownBy(() -> SchemaMigration.parse("add_index.sql", "SELECT 1;"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("statements() should split on semicolons ending a line and skip comment lines")
+    void statementsShouldSplitScript() {
+        // Arrange
+        var migration = SchemaMigration.parse("V1__test.sql", """
+                -- a comment; with a semicolon
+                SET @ddl = IF(
+                  1 = 1,
+                  'SELECT ''a;b''',
+                  'DO 0');
+                PREPARE migration FROM @ddl;
+
+                EXECUTE migration;""");
+
+        // Act
+        var statements = migration.statements();
+
+        // Assert
+        assertThat(statements).containsExactly(
+                "SET @ddl = IF(\n  1 = 1,\n  'SELECT ''a;b''',\n  'DO 0')",
+                "PREPARE migration FROM @ddl",
+                "EXECUTE migration");
+    }
+
+    @Test
+    @DisplayName("ordered() should sort migrations by version and reject two with the same version")
+    void orderedShouldSortAndRejectDuplicates() {
+        // Arrange
+        var first = SchemaMigration.parse("V1__first.sql", "SELECT 1;");
+        var second = SchemaMigration.parse("V2__second.sql", "SELECT 2;");
+        var clash = SchemaMigration.parse("V2__clash.sql", "SELECT 3;");
+
+        // Act / Assert
+        assertThat(SchemaMigration.ordered(List.of(second, first))).containsExactly(first, second);
+        assertThatThrownBy(() -> SchemaMigration.ordered(List.of(first, second, clash)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("share version 2");
+    }
+
+    @Test
+    @DisplayName("load() should find the bundled migrations in version order")
+    void loadShouldFindBundledMigrations() {
+        // Arrange
+        var migrator = new SchemaMigrator(
+                Mockito.mock(ConnectionFactory.class), UserShards.single(), true, "classpath*:db/migration/*.sql", Duration.ofMinutes(15), Duration.ofMinutes(10));
+
+        // Act
+        var migrations = migrator.load();
+
+        // Assert
+        assertThat(migrations).extracting(SchemaMigration::version).startsWith(1, 2, 3).isSorted();
+        assertThat(migrations.get(1).statements()).hasSize(4);
+    }
+
+    @Test
+    @DisplayName("the migrator should refuse a lock timeout that is not longer than the lock lease")
+    void constructorShouldRejectTimeoutWithinLease() {
+        // Act / Assert
+        assertThatThrownBy(() -> new SchemaMigrator(
+                Mockito.mock(ConnectionFactory.class), UserShards.single(), true, "classpath*:db/migration/*.sql", Duration.ofMinutes(5), Duration.ofMinutes(10)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("lock-timeout must be longer than database.migrations.lock-lease");
+        assertThatThrownBy(() -> new SchemaMigrator(
+                Mockito.mock(ConnectionFactory.class), UserShards.single(), true, "classpath*:db/migration/*.sql", Duration.ofMinutes(10), Duration.ofMinutes(10)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
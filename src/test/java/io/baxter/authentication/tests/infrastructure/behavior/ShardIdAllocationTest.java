@@ -0,0 +1,49 @@
+package io.baxter.authentication.tests.infrastructure.behavior;
+
+import io.baxter.authentication.infrastructure.behavior.database.ShardIdAllocation;
+import io.baxter.authentication.infrastructure.behavior.database.ShardIdAllocation.IdSeries;
+import org.junit.jupiter.api.*;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+class ShardIdAllocationTest {
+    @Test
+    @DisplayName("verify() should accept shards with their own offset under a shared increment")
+    void verifyShouldAcceptDisjointSeries() {
+        // Arrange
+        var series = new LinkedHashMap<String, IdSeries>();
+        series.put("primary", new IdSeries(3, 1));
+        series.put("shard-2", new IdSeries(3, 2));
+        series.put("shard-3", new IdSeries(3, 3));
+
+        // Act / Assert
+        assertThatCode(() -> ShardIdAllocation.verify(series)).doesNotThrowAnyException();
+    }
+
+    @Test
+    @DisplayName("verify() should reject shards left on the default increment and offset")
+    void verifyShouldRejectDefaultSeries() {
+        // Arrange
+        var series = new LinkedHashMap<String, IdSeries>();
+        series.put("primary", new IdSeries(1, 1));
+        series.put("shard-2", new IdSeries(1, 1));
+
+        // Act / Assert
+        assertThatThrownBy(() -> ShardIdAllocation.verify(series))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("user shards primary")
+                .hasMessageContaining("and shard-2");
+    }
+
+    @Test
+    @DisplayName("overlaps() should find shared ids between different increments and treat an offset above the increment as 1")
+    void overlapsShouldFollowMysqlSemantics() {
+        // Assert
+        assertThat(new IdSeries(3, 1).overlaps(new IdSeries(2, 2))).isTrue();
+        assertThat(new IdSeries(4, 1).overlaps(new IdSeries(2, 2))).isFalse();
+        assertThat(new IdSeries(2, 3).overlaps(new IdSeries(2, 1))).isTrue();
+        assertThat(new IdSeries(2, 3).overlaps(new IdSeries(2, 2))).isFalse();
+    }
+}
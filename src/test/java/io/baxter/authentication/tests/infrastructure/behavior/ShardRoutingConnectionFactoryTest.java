@@ -0,0 +1,57 @@
+package io.baxter.authentication.tests.infrastructure.behavior;
+
+import io.baxter.authentication.infrastructure.behavior.database.*;
+import io.r2dbc.spi.*;
+import org.junit.jupiter.api.*;
+import org.mockito.Mockito;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.*;
+
+class ShardRoutingConnectionFactoryTest {
+    private final UserShards userShards = new UserShards("primary", List.of("shard-2"), List.of(), 160);
+
+    private final Connection primaryConnection = Mockito.mock(Connection.class);
+    private final Connection shardConnection = Mockito.mock(Connection.class);
+
+    private final ShardRoutingConnectionFactory routing = new ShardRoutingConnectionFactory(
+            "primary", factory(primaryConnection), Map.of("shard-2", factory(shardConnection)));
+
+    @Test
+    @DisplayName("create() should use the primary shard for queries not marked with a shard")
+    void createShouldDefaultToPrimary() {
+        // Act / Assert
+        StepVerifier.create(Mono.from(routing.create()))
+                .expectNext(primaryConnection)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("create() should use the shard a query is marked with")
+    void createShouldRouteToMarkedShard() {
+        // Act / Assert
+        StepVerifier.create(userShards.onShard("shard-2", Mono.from(routing.create())))
+                .expectNext(shardConnection)
+                .verifyComplete();
+
+        StepVerifier.create(userShards.onShard("primary", Mono.from(routing.create())))
+                .expectNext(primaryConnection)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("create() should fail rather than fall back to the primary for a shard it does not know")
+    void createShouldRejectUnknownShard() {
+        // Act / Assert
+        StepVerifier.create(userShards.onShard("shard-9", Mono.from(routing.create())))
+                .expectError(IllegalStateException.class)
+                .verify();
+    }
+
+    private static ConnectionFactory factory(Connection connection){
+        var factory = Mockito.mock(ConnectionFactory.class);
+        Mockito.lenient().doReturn(Mono.just(connection)).when(factory).create();
+        return factory;
+    }
+}
@@ -0,0 +1,116 @@
+package io.baxter.authentication.tests.infrastructure.behavior;
+
+import io.baxter.authentication.infrastructure.behavior.limits.SlidingWindowSketch;
+import org.junit.jupiter.api.*;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SlidingWindowSketchTest {
+    private static final long WINDOW = 60_000;
+    private static final long START = WINDOW * 1_000;
+
+    private final SlidingWindowSketch sketch = new SlidingWindowSketch(4, 1 << 16, WINDOW);
+
+    @Test
+    @DisplayName("tryAcquire() should admit up to the limit and then report when the sliding count next has room")
+    void tryAcquireShouldRejectOverLimit() {
+        // Act
+        var admitted = IntStream.range(0, 10).filter(attempt -> sketch.tryAcquire("10.0.0.1", 10, START + 1_000) == 0).count();
+        var retryAfter = sketch.tryAcquire("10.0.0.1", 10, START + 1_000);
+
+        // Assert
+        assertThat(admitted).isEqualTo(10);
+        // the rest of this window, then a tenth of the next for a tenth of this window's count to slide out
+        assertThat(retryAfter).isEqualTo(WINDOW - 1_000 + WINDOW / 10);
+        assertThat(sketch.tryAcquire("10.0.0.2", 10, START + 1_000)).isZero();
+    }
+
+    @Test
+    @DisplayName("tryAcquire() should count the share of the previous window still inside the sliding window")
+    void tryAcquireShouldSlideOverPreviousWindow() {
+        // Arrange
+        IntStream.range(0, 10).forEach(attempt -> sketch.tryAcquire("10.0.0.1", 10, START));
+
+        // Act - half way through the next window half of the previous window's requests still count
+        var admitted = IntStream.range(0, 10).filter(attempt -> sketch.tryAcquire("10.0.0.1", 10, START + WINDOW + WINDOW / 2) == 0).count();
+
+        // Assert
+        assertThat(admitted).isEqualTo(5);
+        assertThat(sketch.tryAcquire("10.0.0.1", 10, START + 3 * WINDOW)).isZero();
+    }
+
+    @Test
+    @DisplayName("tryAcquire() should admit a key that used its limit in this window at the advertised time and not before")
+    void tryAcquireShouldAdmitAtRetryAfterInNextWindow() {
+        // Arrange
+        IntStream.range(0, 10).forEach(attempt -> sketch.tryAcquire("10.0.0.1", 10, START + 1_000));
+        var retryAfter = sketch.tryAcquire("10.0.0.1", 10, START + 1_000);
+
+        // Act / Assert
+        assertThat(sketch.tryAcquire("10.0.0.1", 10, START + WINDOW)).isPositive();
+        assertThat(sketch.tryAcquire("10.0.0.1", 10, START + 1_000 + retryAfter - 1)).isPositive();
+        assertThat(sketch.tryAcquire("10.0.0.1", 10, START + 1_000 + retryAfter)).isZero();
+    }
+
+    @Test
+    @DisplayName("tryAcquire() should admit a key held back by the previous window at the advertised time and not before")
+    void tryAcquireShouldAdmitAtRetryAfterInSameWindow() {
+        // Arrange
+        IntStream.range(0, 10).forEach(attempt -> sketch.tryAcquire("10.0.0.1", 10, START));
+        IntStream.range(0, 5).forEach(attempt -> sketch.tryAcquire("10.0.0.1", 10, START + WINDOW + WINDOW / 2));
+        var retryAfter = sketch.tryAcquire("10.0.0.1", 10, START + WINDOW + WINDOW / 2);
+
+        // Act / Assert - 4 of the previous window's 10 requests have to slide out
+        assertThat(retryAfter).isEqualTo(WINDOW / 10);
+        assertThat(sketch.tryAcquire("10.0.0.1", 10, START + WINDOW + WINDOW / 2 + retryAfter - 1)).isPositive();
+        assertThat(sketch.tryAcquire("10.0.0.1", 10, START + WINDOW + WINDOW / 2 + retryAfter)).isZero();
+    }
+
+    @Test
+    @DisplayName("retryAfterMillis() should never advertise a retry time that is still over the limit")
+    void retryAfterMillisShouldReachRoom() {
+        // Arrange
+        for (var previous = 0; previous <= 12; previous++){
+            for (var current = 0; current <= 12; current++){
+                for (var elapsed = 0L; elapsed < WINDOW; elapsed += 7_001){
+                    if (previous * (WINDOW - elapsed) / (double) WINDOW + current + 1 <= 10){
+                        continue;
+                    }
+
+                    // Act
+                    var retryAt = elapsed + SlidingWindowSketch.retryAfterMillis(previous, current, 10, WINDOW, elapsed);
+
+                    // Assert
+                    assertThat(count(previous, current, retryAt) + 1).isLessThanOrEqualTo(10);
+                    assertThat(count(previous, current, retryAt - 1) + 1).isGreaterThan(10);
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("tryAcquire() should keep its memory fixed however many keys it sees")
+    void tryAcquireShouldUseFixedMemory() {
+        // Arrange
+        var before = sketch.memoryBytes();
+
+        // Act
+        IntStream.range(0, 100_000).forEach(key -> sketch.tryAcquire("user" + key + "@test.com", 10, START));
+
+        // Assert
+        assertThat(sketch.memoryBytes()).isEqualTo(before).isEqualTo(2L * 4 * (1 << 16) * Integer.BYTES);
+        assertThat(IntStream.range(0, 1_000).filter(key -> sketch.tryAcquire("fresh" + key + "@test.com", 10, START) == 0).count())
+                .isEqualTo(1_000);
+    }
+
+    // the sliding count at a time measured from the start of the current window, which may be in the next one
+    private static double count(long previous, long current, long at){
+        if (at >= WINDOW){
+            return current * (2 * WINDOW - at) / (double) WINDOW;
+        }
+
+        return previous * (WINDOW - at) / (double) WINDOW + current;
+    }
+}
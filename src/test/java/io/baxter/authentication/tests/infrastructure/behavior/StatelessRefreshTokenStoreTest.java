@@ -0,0 +1,159 @@
+package io.baxter.authentication.tests.infrastructure.behavior;
+
+import io.baxter.authentication.data.cache.RoleCatalog;
+import io.baxter.authentication.data.models.RoleDataModel;
+import io.baxter.authentication.infrastructure.behavior.redis.RefreshTokenPolicy;
+import io.baxter.authentication.infrastructure.behavior.sessions.*;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.*;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.*;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StatelessRefreshTokenStoreTest {
+    private final Instant start = Instant.parse("2025-11-08T12:00:00Z");
+    private final RefreshTokenPolicy policy = new RefreshTokenPolicy(Duration.ofHours(1).toMillis());
+    private final String testUserName = "test-user";
+
+    @Mock
+    private RefreshTokenDenylist denylist;
+
+    private StatelessRefreshTokenStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new StatelessRefreshTokenStore(catalog(), policy, denylist, key());
+    }
+
+    @Test
+    @DisplayName("rotate() should redeem a sealed token once and hand back a new one")
+    void rotateShouldRedeemOnce() {
+        // Arrange
+        var denied = new HashSet<Long>();
+        when(denylist.deny(anyLong(), anyLong())).thenAnswer(invocation -> denied.add(invocation.getArgument(0)));
+        var first = issue(start);
+
+        // Act
+        var rotation = store.rotate(first, start.plusSeconds(10)).block();
+
+        // Assert
+        assertThat(rotation).isNotNull();
+        assertThat(rotation.redeemed().getUserName()).isEqualTo(testUserName);
+        assertThat(rotation.redeemed().getRoles()).containsExactly("ROLE_USER");
+        assertThat(rotation.refreshToken()).isNotEqualTo(first);
+
+        StepVerifier.create(store.rotate(first, start.plusSeconds(20)))
+                .verifyComplete();
+
+        StepVerifier.create(store.rotate(rotation.refreshToken(), start.plusSeconds(30)))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        // the replayed token was denied until its own expiry
+        verify(denylist, times(2)).deny(anyLong(), eq(start.plus(policy.getLifetime()).toEpochMilli()));
+    }
+
+    @Test
+    @DisplayName("rotate() should reject expired, revoked and tampered tokens without touching the denylist")
+    void rotateShouldRejectInvalidTokens() {
+        // Arrange
+        var token = issue(start);
+        var tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BA" : "AA");
+        when(denylist.isRevoked(testUserName, start.toEpochMilli())).thenReturn(true);
+
+        // Act / Assert
+        StepVerifier.create(store.rotate(token, start.plus(policy.getLifetime())))
+                .verifyComplete();
+
+        StepVerifier.create(store.rotate(token, start.plusSeconds(10)))
+                .verifyComplete();
+
+        StepVerifier.create(store.rotate(tampered, start.plusSeconds(10)))
+                .verifyComplete();
+
+        StepVerifier.create(store.rotate("not-a-token", start.plusSeconds(10)))
+                .verifyComplete();
+
+        verify(denylist, never()).deny(anyLong(), anyLong());
+    }
+
+    @Test
+    @DisplayName("revokeAll() should revoke everything issued to the user up to now")
+    void revokeAllShouldRevokeIssuedTokens() {
+        // Arrange
+        var now = start.plusSeconds(30);
+        when(denylist.revokeAll(testUserName, now.toEpochMilli())).thenReturn(Mono.empty());
+
+        // Act / Assert
+        StepVerifier.create(store.revokeAll(testUserName, now))
+                .expectNext(0L)
+                .verifyComplete();
+
+        verify(denylist).revokeAll(testUserName, now.toEpochMilli());
+    }
+
+    @Test
+    @DisplayName("revokeAll() should reject tokens issued before it but not one issued by a login later in the same second")
+    void revokeAllShouldKeepTokensIssuedLaterInTheSameSecond() {
+        // Arrange
+        var redis = mock(ReactiveStringRedisTemplate.class);
+        var zset = mock(ReactiveZSetOperations.class);
+        doReturn(zset).when(redis).opsForZSet();
+        when(zset.add(anyString(), anyString(), anyDouble())).thenReturn(Mono.just(true));
+
+        var realDenylist = new RefreshTokenDenylist(redis, Clock.fixed(start, ZoneOffset.UTC), policy, new SimpleMeterRegistry(), Duration.ofSeconds(5));
+        var realStore = new StatelessRefreshTokenStore(catalog(), policy, realDenylist, key());
+
+        var revokedAt = start.plusMillis(30_400);
+        var before = realStore.issue(policy.issue(testUserName, List.of("ROLE_USER"), start.plusSeconds(29)), start.plusSeconds(29)).block();
+        var after = realStore.issue(policy.issue(testUserName, List.of("ROLE_USER"), start.plusMillis(30_700)), start.plusMillis(30_700)).block();
+
+        // Act
+        realStore.revokeAll(testUserName, revokedAt).block();
+
+        // Assert
+        StepVerifier.create(realStore.rotate(before, start.plusSeconds(31)))
+                .verifyComplete();
+        StepVerifier.create(realStore.rotate(after, start.plusSeconds(31)))
+                .expectNextCount(1)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("sessions() and revoke() should find nothing, as stateless sessions are not tracked")
+    void sessionsShouldNotBeTracked() {
+        StepVerifier.create(store.sessions(testUserName, start))
+                .verifyComplete();
+
+        StepVerifier.create(store.revoke(testUserName, "session", start))
+                .expectNext(false)
+                .verifyComplete();
+    }
+
+    private static RoleCatalog catalog() {
+        var roleCatalog = new RoleCatalog(null, Duration.ofMinutes(5));
+        roleCatalog.update(List.of(new RoleDataModel(1, "ROLE_USER")));
+        return roleCatalog;
+    }
+
+    private static String key() {
+        var key = new byte[32];
+        new Random(1).nextBytes(key);
+        return Base64.getEncoder().encodeToString(key);
+    }
+
+    private String issue(Instant now) {
+        return store.issue(policy.issue(testUserName, List.of("ROLE_USER"), now), now).block();
+    }
+}
@@ -0,0 +1,67 @@
+package io.baxter.authentication.tests.infrastructure.behavior;
+
+import io.baxter.authentication.infrastructure.behavior.database.*;
+import org.junit.jupiter.api.*;
+import org.springframework.core.convert.support.DefaultConversionService;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+class TimeOrderedUuidTest {
+    @Test
+    @DisplayName("toBytes() should match mysql's UUID_TO_BIN(id, 1)")
+    void toBytesShouldMatchMysqlSwappedLayout() {
+        // Arrange - the example from the mysql UUID_TO_BIN documentation
+        var uuid = UUID.fromString("6ccd780c-baba-1026-9564-5b8c656024db");
+
+        // Act
+        var bytes = TimeOrderedUuid.toBytes(uuid);
+
+        // Assert
+        assertThat(HexFormat.of().withUpperCase().formatHex(bytes)).isEqualTo("1026BABA6CCD780C95645B8C656024DB");
+        assertThat(TimeOrderedUuid.fromBytes(bytes)).isEqualTo(uuid);
+    }
+
+    @Test
+    @DisplayName("toBytes() should order version 1 uuids by their timestamp")
+    void toBytesShouldOrderByTime() {
+        // Arrange - one timestamp tick apart, across a rollover of the low 32 bits of the timestamp
+        var earlier = UUID.fromString("ffffffff-baba-11ee-9564-5b8c656024db");
+        var later = UUID.fromString("00000000-babb-11ee-9564-5b8c656024db");
+
+        // Act
+        var earlierBytes = TimeOrderedUuid.toBytes(earlier);
+        var laterBytes = TimeOrderedUuid.toBytes(later);
+
+        // Assert
+        assertThat(Arrays.compareUnsigned(earlierBytes, laterBytes)).isNegative();
+        assertThat(earlier.toString().compareTo(later.toString())).isPositive();
+    }
+
+    @Test
+    @DisplayName("the uuid converters should round trip any uuid through byte[] and ByteBuffer")
+    void convertersShouldRoundTrip() {
+        // Arrange
+        var conversionService = new DefaultConversionService();
+        UuidConverters.all().forEach(conversionService::addConverter);
+        var uuid = UUID.randomUUID();
+
+        // Act
+        var bytes = conversionService.convert(uuid, byte[].class);
+
+        // Assert
+        assertThat(bytes).hasSize(16);
+        assertThat(conversionService.convert(bytes, UUID.class)).isEqualTo(uuid);
+        assertThat(conversionService.convert(ByteBuffer.wrap(bytes), UUID.class)).isEqualTo(uuid);
+    }
+
+    @Test
+    @DisplayName("fromBytes() should reject anything that is not 16 bytes")
+    void fromBytesShouldRejectWrongLength() {
+        // Act / Assert
+        assertThatThrownBy(() -> TimeOrderedUuid.fromBytes(new byte[36]))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,88 @@
+package io.baxter.authentication.tests.infrastructure.behavior;
+
+import io.baxter.authentication.infrastructure.behavior.database.UserShards;
+import org.junit.jupiter.api.*;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.*;
+
+class UserShardsTest {
+    private final UserShards userShards = new UserShards("primary", List.of("shard-2", "shard-3"), List.of(), 160);
+
+    @Test
+    @DisplayName("shardFor() should place names that differ only by case or accents on the same shard")
+    void shardForShouldFollowUsernameCollation() {
+        // Act / Assert
+        IntStream.range(0, 1_000).forEach(index -> assertThat(userShards.shardFor("User" + index + "@Test.com"))
+                .isEqualTo(userShards.shardFor("user" + index + "@test.com")));
+        assertThat(userShards.shardFor("José@test.com")).isEqualTo(userShards.shardFor("jose@test.com"));
+    }
+
+    @Test
+    @DisplayName("shardFor() should use every shard")
+    void shardForShouldSpreadUsers() {
+        // Act
+        var used = IntStream.range(0, 1_000).mapToObj(index -> userShards.shardFor("user" + index + "@test.com")).distinct().toList();
+
+        // Assert
+        assertThat(used).containsExactlyInAnyOrder("primary", "shard-2", "shard-3");
+    }
+
+    @Test
+    @DisplayName("previousShardFor() should only name a shard while resharding and for users whose shard changed")
+    void previousShardForShouldOnlyReportMovedUsers() {
+        // Arrange
+        var resharding = new UserShards("primary", List.of("shard-2", "shard-3"), List.of("primary", "shard-2"), 160);
+        var moved = IntStream.range(0, 1_000).mapToObj(index -> "user" + index + "@test.com")
+                .filter(username -> resharding.previousShardFor(username).isPresent())
+                .toList();
+
+        // Assert
+        assertThat(userShards.isResharding()).isFalse();
+        assertThat(userShards.previousShardFor("user1@test.com")).isEmpty();
+        assertThat(resharding.isResharding()).isTrue();
+        assertThat(moved).isNotEmpty().allSatisfy(username -> assertThat(resharding.shardFor(username)).isEqualTo("shard-3"));
+    }
+
+    @Test
+    @DisplayName("onShardsOf() should look on the previous shard first and fall back to the current one")
+    void onShardsOfShouldFallBackToCurrentShard() {
+        // Arrange
+        var resharding = new UserShards("primary", List.of("shard-2", "shard-3"), List.of("primary", "shard-2"), 160);
+        var username = IntStream.range(0, 1_000).mapToObj(index -> "user" + index + "@test.com")
+                .filter(name -> resharding.previousShardFor(name).isPresent())
+                .findFirst()
+                .orElseThrow();
+        var previous = resharding.previousShardFor(username).orElseThrow();
+        var asked = new ArrayList<String>();
+
+        // Act
+        var found = resharding.onShardsOf(username, () -> Mono.deferContextual(context -> {
+            var shard = UserShards.shardOf(context).orElseThrow();
+            asked.add(shard);
+            return shard.equals(previous) ? Mono.empty() : Mono.just(shard);
+        }));
+
+        // Assert
+        StepVerifier.create(found).expectNext("shard-3").verifyComplete();
+        assertThat(asked).containsExactly(previous, "shard-3");
+    }
+
+    @Test
+    @DisplayName("parse() should read name=url pairs and reject anything else")
+    void parseShouldReadNamedUrls() {
+        // Act
+        var shards = UserShards.parse("shard-2=r2dbc:mysql://db-2:3306/auth, shard-3=r2dbc:mysql://db-3:3306/auth?useSSL=true");
+
+        // Assert
+        assertThat(shards).containsExactly(
+                Map.entry("shard-2", "r2dbc:mysql://db-2:3306/auth"),
+                Map.entry("shard-3", "r2dbc:mysql://db-3:3306/auth?useSSL=true"));
+        assertThat(UserShards.parse("")).isEmpty();
+        assertThatThrownBy(() -> UserShards.parse("r2dbc:mysql://db-2:3306/auth")).isInstanceOf(IllegalArgumentException.class);
+    }
+}